@@ -0,0 +1,134 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.cpa.predicate.PredicateAbstractState;
+import org.sosy_lab.cpachecker.cpa.predicate.PredicateAbstractionManager;
+import org.sosy_lab.cpachecker.cpa.predicate.PredicateCPA;
+import org.sosy_lab.cpachecker.jmh.AnalysisFixture.Analysis;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+import org.sosy_lab.cpachecker.util.CPAs;
+import org.sosy_lab.cpachecker.util.Pair;
+import org.sosy_lab.cpachecker.util.predicates.AbstractionManager;
+import org.sosy_lab.cpachecker.util.predicates.AbstractionPredicate;
+import org.sosy_lab.cpachecker.util.predicates.pathformula.PathFormula;
+import org.sosy_lab.cpachecker.util.predicates.smt.FormulaManagerView;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+
+/**
+ * Micro benchmark for {@link PredicateAbstractionManager#buildAbstraction}. Each invocation
+ * computes the abstraction of the block formula of every abstraction state of a finished predicate
+ * analysis once. The analysis itself runs without refinement, thus the predicates are the atoms of
+ * all block formulas instead of the (empty) precision. The abstraction cache is disabled, such that
+ * every invocation queries the solver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AbstractionBenchmark {
+
+  @Param({"BOOLEAN", "CARTESIAN"})
+  private String abstractionComputation;
+
+  @Param({"simulator", "loops", "merge"})
+  private String program;
+
+  private PredicateAbstractionManager pamgr;
+  private ImmutableList<Pair<CFANode, PathFormula>> blocks;
+  private ImmutableList<AbstractionPredicate> predicates;
+
+  @Setup
+  public void setup() throws Exception {
+    AnalysisFixture fixture =
+        AnalysisFixture.create(
+            Analysis.PREDICATE,
+            program,
+            ImmutableMap.of(
+                "cpa.predicate.abs.useCache",
+                "false",
+                "cpa.predicate.abstraction.computation",
+                abstractionComputation));
+    PredicateCPA predicateCpa =
+        checkNotNull(CPAs.retrieveCPA(fixture.cpa, PredicateCPA.class));
+    pamgr = predicateCpa.getPredicateManager();
+    AbstractionManager amgr = predicateCpa.getAbstractionManager();
+    FormulaManagerView fmgr = predicateCpa.getSolver().getFormulaManager();
+
+    ImmutableList.Builder<Pair<CFANode, PathFormula>> blockBuilder = ImmutableList.builder();
+    Set<AbstractionPredicate> predicateSet = new LinkedHashSet<>();
+    for (Pair<AbstractState, Precision> entry : fixture.states) {
+      PredicateAbstractState state =
+          AbstractStates.extractStateByType(entry.getFirst(), PredicateAbstractState.class);
+      if (state.isAbstractionState()) {
+        PathFormula blockFormula = state.getAbstractionFormula().getBlockFormula();
+        blockBuilder.add(
+            Pair.of(AbstractStates.extractLocation(entry.getFirst()), blockFormula));
+        for (BooleanFormula atom : fmgr.extractAtoms(blockFormula.getFormula(), false)) {
+          predicateSet.add(amgr.makePredicate(fmgr.uninstantiate(atom)));
+        }
+      }
+    }
+    blocks = blockBuilder.build();
+    predicates = ImmutableList.copyOf(predicateSet);
+  }
+
+  @Benchmark
+  public void buildAbstraction(Blackhole bh) throws Exception {
+    for (Pair<CFANode, PathFormula> block : blocks) {
+      bh.consume(
+          pamgr.buildAbstraction(
+              block.getFirst(),
+              Optional.empty(),
+              pamgr.makeTrueAbstractionFormula(null),
+              block.getSecond(),
+              predicates));
+    }
+  }
+}
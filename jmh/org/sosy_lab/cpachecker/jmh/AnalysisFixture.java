@@ -0,0 +1,214 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.CFA;
+import org.sosy_lab.cpachecker.cfa.CFACreator;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.CPABuilder;
+import org.sosy_lab.cpachecker.core.Specification;
+import org.sosy_lab.cpachecker.core.algorithm.CPAAlgorithm;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.StateSpacePartition;
+import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
+import org.sosy_lab.cpachecker.core.reachedset.AggregatedReachedSets;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSetFactory;
+import org.sosy_lab.cpachecker.exceptions.CPAException;
+import org.sosy_lab.cpachecker.exceptions.CPATransferException;
+import org.sosy_lab.cpachecker.exceptions.ParserException;
+import org.sosy_lab.cpachecker.util.Pair;
+
+/**
+ * Shared setup for the micro benchmarks: parses a small program from test/programs, builds a
+ * (composite) CPA for it, and runs a full analysis such that the benchmarks have realistic abstract
+ * states and precisions to work with.
+ *
+ * <p>Fixtures are meant to be created once per trial, the analysis itself is not measured.
+ */
+final class AnalysisFixture {
+
+  /** The analyses that benchmarks can be parameterized with. */
+  enum Analysis {
+    VALUE(
+        ImmutableMap.of(
+            "CompositeCPA.cpas",
+            "cpa.location.LocationCPA, cpa.callstack.CallstackCPA, "
+                + "cpa.functionpointer.FunctionPointerCPA, cpa.value.ValueAnalysisCPA",
+            "cpa.value.merge",
+            "JOIN")),
+    INTERVAL(
+        ImmutableMap.of(
+            "CompositeCPA.cpas",
+            "cpa.location.LocationCPA, cpa.callstack.CallstackCPA, "
+                + "cpa.functionpointer.FunctionPointerCPA, cpa.interval.IntervalAnalysisCPA",
+            "cpa.interval.merge",
+            "JOIN")),
+    PREDICATE(
+        ImmutableMap.of(
+            "CompositeCPA.cpas",
+            "cpa.location.LocationCPA, cpa.callstack.CallstackCPA, "
+                + "cpa.functionpointer.FunctionPointerCPA, cpa.predicate.PredicateCPA",
+            "solver.solver",
+            "SMTINTERPOL",
+            "cpa.predicate.blk.alwaysAtLoops",
+            "true",
+            "cpa.predicate.blk.alwaysAtFunctions",
+            "true"));
+
+    private final ImmutableMap<String, String> options;
+
+    Analysis(ImmutableMap<String, String> pOptions) {
+      options = pOptions;
+    }
+  }
+
+  /** The programs (relative to the CPAchecker directory) that benchmarks use as input. */
+  static final ImmutableMap<String, String> PROGRAMS =
+      ImmutableMap.of(
+          "simulator", "test/programs/simple/SynchronousSimulator_blast.i",
+          "loops", "test/programs/loops/loops1.c",
+          "merge", "test/programs/simple/PredicateMergeTest.c");
+
+  final Configuration config;
+  final CFA cfa;
+  final ConfigurableProgramAnalysis cpa;
+  final ReachedSetFactory reachedSetFactory;
+
+  /** The reached set after the analysis has terminated. */
+  final ReachedSet reached;
+
+  /** All reached states together with their precisions, in the order of the reached set. */
+  final ImmutableList<Pair<AbstractState, Precision>> states;
+
+  private AnalysisFixture(
+      Configuration pConfig,
+      CFA pCfa,
+      ConfigurableProgramAnalysis pCpa,
+      ReachedSetFactory pReachedSetFactory,
+      ReachedSet pReached) {
+    config = pConfig;
+    cfa = pCfa;
+    cpa = pCpa;
+    reachedSetFactory = pReachedSetFactory;
+    reached = pReached;
+    ImmutableList.Builder<Pair<AbstractState, Precision>> builder = ImmutableList.builder();
+    reached.forEach((state, precision) -> builder.add(Pair.of(state, precision)));
+    states = builder.build();
+  }
+
+  static Configuration createConfiguration(Analysis pAnalysis, Map<String, String> pExtraOptions)
+      throws InvalidConfigurationException {
+    ConfigurationBuilder builder =
+        Configuration.builder()
+            .setOption("cpa", "cpa.composite.CompositeCPA")
+            .setOption("log.consoleLevel", "OFF")
+            .setOption("output.disable", "true");
+    pAnalysis.options.forEach(builder::setOption);
+    pExtraOptions.forEach(builder::setOption);
+    return builder.build();
+  }
+
+  /** Parse a program, given either by its key in {@link #PROGRAMS} or by its path. */
+  static CFA parse(Configuration pConfig, String pProgram)
+      throws InvalidConfigurationException, IOException, ParserException, InterruptedException {
+    CFACreator cfaCreator =
+        new CFACreator(pConfig, LogManager.createNullLogManager(), ShutdownNotifier.createDummy());
+    String file = PROGRAMS.getOrDefault(pProgram, pProgram);
+    return cfaCreator.parseFileAndCreateCFA(ImmutableList.of(file));
+  }
+
+  /**
+   * Parse the given program, build the CPA of the given analysis, and run it until the waitlist is
+   * empty.
+   */
+  static AnalysisFixture create(Analysis pAnalysis, String pProgram)
+      throws InvalidConfigurationException, IOException, ParserException, CPAException,
+          InterruptedException {
+    return create(pAnalysis, pProgram, ImmutableMap.of());
+  }
+
+  static AnalysisFixture create(
+      Analysis pAnalysis, String pProgram, Map<String, String> pExtraOptions)
+      throws InvalidConfigurationException, IOException, ParserException, CPAException,
+          InterruptedException {
+    Configuration config = createConfiguration(pAnalysis, pExtraOptions);
+    LogManager logger = LogManager.createNullLogManager();
+    ShutdownNotifier shutdownNotifier = ShutdownNotifier.createDummy();
+
+    CFA cfa = parse(config, pProgram);
+    ReachedSetFactory reachedSetFactory = new ReachedSetFactory(config, logger);
+    ConfigurableProgramAnalysis cpa =
+        new CPABuilder(config, logger, shutdownNotifier, reachedSetFactory)
+            .buildCPAs(cfa, Specification.alwaysSatisfied(), new AggregatedReachedSets());
+
+    ReachedSet reached = reachedSetFactory.create();
+    CFANode main = cfa.getMainFunction();
+    StateSpacePartition partition = StateSpacePartition.getDefaultPartition();
+    reached.add(cpa.getInitialState(main, partition), cpa.getInitialPrecision(main, partition));
+    CPAAlgorithm.create(cpa, logger, config, shutdownNotifier).run(reached);
+    checkState(!reached.hasWaitingState(), "analysis for benchmark fixture did not terminate");
+
+    return new AnalysisFixture(config, cfa, cpa, reachedSetFactory, reached);
+  }
+
+  /**
+   * Pairs of a successor of a reached state and a reached state of the same partition of the
+   * reached set, i.e., the pairs that the CPA algorithm would try to merge when it expands the
+   * reached states again. After a run with merge-join, there are no two reached states of the same
+   * partition left, thus the successors are needed to get realistic inputs for merge.
+   */
+  List<Pair<AbstractState, AbstractState>> mergeCandidates(int pLimit)
+      throws CPATransferException, InterruptedException {
+    TransferRelation transfer = cpa.getTransferRelation();
+    List<Pair<AbstractState, AbstractState>> result = new ArrayList<>();
+    for (Pair<AbstractState, Precision> entry : states) {
+      for (AbstractState successor :
+          transfer.getAbstractSuccessors(entry.getFirst(), entry.getSecond())) {
+        for (AbstractState reachedState : reached.getReached(successor)) {
+          result.add(Pair.of(successor, reachedState));
+          if (result.size() >= pLimit) {
+            return result;
+          }
+        }
+      }
+    }
+    return result;
+  }
+}
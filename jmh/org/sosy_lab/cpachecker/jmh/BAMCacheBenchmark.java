@@ -0,0 +1,122 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.blocks.Block;
+import org.sosy_lab.cpachecker.core.defaults.NoOpReducer;
+import org.sosy_lab.cpachecker.core.defaults.SingletonPrecision;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSetFactory;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCache;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCache.BAMCacheEntry;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCacheConcurrent;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCacheSynchronized;
+
+/**
+ * Contention benchmark for the BAM cache of parallel BAM (option cpa.bam.concurrentData). All
+ * threads of the benchmark access the same cache: most accesses are lookups of random entries, the
+ * others replace an entry, like a reached-set that is analyzed again after a refinement.
+ *
+ * <p>The number of threads is given to JMH, e.g., with -Djmh.args="-t 8 BAMCacheBenchmark".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BAMCacheBenchmark {
+
+  @Param({"synchronized", "concurrent"})
+  private String implementation;
+
+  @Param({"10000"})
+  private int entries;
+
+  /** percentage of the accesses that replace an entry. */
+  @Param({"10"})
+  private int puts;
+
+  private BAMCache cache;
+  private AbstractState[] keys;
+  private ReachedSet[] reachedSets;
+  private final Precision precision = SingletonPrecision.getInstance();
+  private final Block block =
+      new Block(ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of());
+
+  private static final class KeyState implements AbstractState {}
+
+  @Setup
+  public void setup() throws InvalidConfigurationException {
+    Configuration config = Configuration.defaultConfiguration();
+    LogManager logger = LogManager.createNullLogManager();
+    switch (implementation) {
+      case "synchronized":
+        cache = new BAMCacheSynchronized(config, NoOpReducer.getInstance(), logger);
+        break;
+      case "concurrent":
+        cache = new BAMCacheConcurrent(config, NoOpReducer.getInstance());
+        break;
+      default:
+        throw new AssertionError("unknown implementation " + implementation);
+    }
+    ReachedSetFactory reachedSetFactory = new ReachedSetFactory(config, logger);
+    keys = new AbstractState[entries];
+    reachedSets = new ReachedSet[entries];
+    for (int i = 0; i < entries; i++) {
+      keys[i] = new KeyState();
+      reachedSets[i] = reachedSetFactory.create();
+      cache.put(keys[i], precision, block, reachedSets[i]);
+    }
+  }
+
+  @Benchmark
+  public BAMCacheEntry accessCache() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int index = random.nextInt(entries);
+    if (random.nextInt(100) < puts) {
+      return cache.put(keys[index], precision, block, reachedSets[index]);
+    }
+    return cache.get(keys[index], precision, block);
+  }
+}
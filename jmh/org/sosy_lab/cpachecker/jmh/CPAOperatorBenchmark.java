@@ -0,0 +1,122 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import com.google.common.base.Functions;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.MergeOperator;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.PrecisionAdjustment;
+import org.sosy_lab.cpachecker.core.interfaces.StopOperator;
+import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
+import org.sosy_lab.cpachecker.jmh.AnalysisFixture.Analysis;
+import org.sosy_lab.cpachecker.util.Pair;
+
+/**
+ * Micro benchmarks for the four operators of a CPA (transfer relation, merge, stop, and precision
+ * adjustment). Each benchmark invocation applies the operator once to every state of the reached
+ * set of a finished analysis, so the score is the time for one pass over the reached set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CPAOperatorBenchmark {
+
+  /** Upper bound for the number of state pairs that are merged per invocation. */
+  private static final int MAX_MERGE_PAIRS = 1000;
+
+  @Param({"VALUE", "INTERVAL", "PREDICATE"})
+  private Analysis analysis;
+
+  @Param({"simulator", "loops", "merge"})
+  private String program;
+
+  private AnalysisFixture fixture;
+  private TransferRelation transfer;
+  private MergeOperator merge;
+  private StopOperator stop;
+  private PrecisionAdjustment precisionAdjustment;
+  private List<Pair<AbstractState, AbstractState>> mergeCandidates;
+
+  @Setup
+  public void setup() throws Exception {
+    fixture = AnalysisFixture.create(analysis, program);
+    transfer = fixture.cpa.getTransferRelation();
+    merge = fixture.cpa.getMergeOperator();
+    stop = fixture.cpa.getStopOperator();
+    precisionAdjustment = fixture.cpa.getPrecisionAdjustment();
+    mergeCandidates = fixture.mergeCandidates(MAX_MERGE_PAIRS);
+  }
+
+  @Benchmark
+  public void transfer(Blackhole bh) throws Exception {
+    for (Pair<AbstractState, Precision> entry : fixture.states) {
+      bh.consume(transfer.getAbstractSuccessors(entry.getFirst(), entry.getSecond()));
+    }
+  }
+
+  @Benchmark
+  public void merge(Blackhole bh) throws Exception {
+    for (Pair<AbstractState, AbstractState> pair : mergeCandidates) {
+      AbstractState reachedState = pair.getSecond();
+      bh.consume(
+          merge.merge(pair.getFirst(), reachedState, fixture.reached.getPrecision(reachedState)));
+    }
+  }
+
+  @Benchmark
+  public void stop(Blackhole bh) throws Exception {
+    for (Pair<AbstractState, Precision> entry : fixture.states) {
+      AbstractState state = entry.getFirst();
+      bh.consume(stop.stop(state, fixture.reached.getReached(state), entry.getSecond()));
+    }
+  }
+
+  @Benchmark
+  public void precisionAdjustment(Blackhole bh) throws Exception {
+    for (Pair<AbstractState, Precision> entry : fixture.states) {
+      AbstractState state = entry.getFirst();
+      bh.consume(
+          precisionAdjustment.prec(
+              state, entry.getSecond(), fixture.reached, Functions.identity(), state));
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import static org.sosy_lab.cpachecker.cfa.model.CFANode.newDummyCFANode;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractStateWithLocation;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractWrapperState;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSetFactory;
+import org.sosy_lab.cpachecker.core.waitlist.ConcurrentWaitlist;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist.WaitlistFactory;
+import org.sosy_lab.cpachecker.cpa.callstack.CallstackState;
+
+/**
+ * Contention benchmark for a waitlist that is shared by several threads. All threads of the
+ * benchmark pop a state from the same waitlist and add it again, such that the size of the waitlist
+ * stays constant. The baseline is the configured waitlist behind a single monitor, as a shared
+ * waitlist would have to be used without {@link ConcurrentWaitlist}.
+ *
+ * <p>The number of threads is given to JMH, e.g., with -Djmh.args="-t 8
+ * ConcurrentWaitlistBenchmark". The concurrent waitlist uses two waitlists per thread. The states
+ * are synthetic (a location with a reverse-postorder id and a callstack), such that the benchmark
+ * does not depend on a program frontend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ConcurrentWaitlistBenchmark {
+
+  private static final int WAITLISTS_PER_THREAD = 2;
+
+  /** A state at a location with the given reverse-postorder id and callstack. */
+  private static final class SyntheticState
+      implements AbstractStateWithLocation, AbstractWrapperState {
+
+    private final CFANode location;
+    private final CallstackState callstack;
+
+    private SyntheticState(CFANode pLocation, CallstackState pCallstack) {
+      location = pLocation;
+      callstack = pCallstack;
+    }
+
+    @Override
+    public CFANode getLocationNode() {
+      return location;
+    }
+
+    @Override
+    public Iterable<CFANode> getLocationNodes() {
+      return ImmutableList.of(location);
+    }
+
+    @Override
+    public Iterable<CFAEdge> getOutgoingEdges() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public Iterable<CFAEdge> getIngoingEdges() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public Iterable<AbstractState> getWrappedStates() {
+      return ImmutableList.of(callstack);
+    }
+  }
+
+  /** The configured waitlist behind a single monitor. */
+  private static final class SynchronizedWaitlist implements Waitlist {
+
+    private final Waitlist delegate;
+
+    private SynchronizedWaitlist(Waitlist pDelegate) {
+      delegate = pDelegate;
+    }
+
+    @Override
+    public synchronized Iterator<AbstractState> iterator() {
+      return ImmutableList.copyOf(delegate).iterator();
+    }
+
+    @Override
+    public synchronized void add(AbstractState pState) {
+      delegate.add(pState);
+    }
+
+    @Override
+    public synchronized void clear() {
+      delegate.clear();
+    }
+
+    @Override
+    public synchronized boolean contains(AbstractState pState) {
+      return delegate.contains(pState);
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+      return delegate.isEmpty();
+    }
+
+    @Override
+    public synchronized AbstractState pop() {
+      return delegate.isEmpty() ? null : delegate.pop();
+    }
+
+    @Override
+    public synchronized boolean remove(AbstractState pState) {
+      return delegate.remove(pState);
+    }
+
+    @Override
+    public synchronized int size() {
+      return delegate.size();
+    }
+  }
+
+  @Param({"synchronized", "concurrent"})
+  private String implementation;
+
+  /** The strategy of the waitlists, composed by {@link ReachedSetFactory}. */
+  @Param({"DFS", "reversePostorder+callstack", "weightedDepth"})
+  private String strategy;
+
+  @Param({"10000"})
+  private int states;
+
+  private Waitlist waitlist;
+
+  @Setup
+  public void setup(BenchmarkParams pParams) throws Exception {
+    ConfigurationBuilder config = Configuration.builder();
+    config.setOption("analysis.traversal.order", "DFS");
+    if (strategy.equals("reversePostorder+callstack")) {
+      config.setOption("analysis.traversal.useReversePostorder", "true");
+      config.setOption("analysis.traversal.useCallstack", "true");
+    } else if (strategy.equals("weightedDepth")) {
+      config.setOption("analysis.traversal.weightedDepth", "true");
+    }
+    WaitlistFactory factory =
+        new ReachedSetFactory(config.build(), LogManager.createNullLogManager())
+            .createWaitlistFactory();
+
+    if (implementation.equals("concurrent")) {
+      waitlist =
+          ConcurrentWaitlist.factory(factory, WAITLISTS_PER_THREAD * pParams.getThreads())
+              .createWaitlistInstance();
+    } else {
+      waitlist = new SynchronizedWaitlist(factory.createWaitlistInstance());
+    }
+
+    // 100 locations in 5 nested functions
+    List<CallstackState> callstacks = new ArrayList<>();
+    CallstackState callstack = null;
+    for (int depth = 0; depth < 5; depth++) {
+      callstack = new CallstackState(callstack, "f" + depth, newDummyCFANode("f" + depth));
+      callstacks.add(callstack);
+    }
+    List<CFANode> locations = new ArrayList<>();
+    for (int id = 0; id < 100; id++) {
+      CFANode location = newDummyCFANode("f");
+      location.setReversePostorderId(id);
+      locations.add(location);
+    }
+    for (int i = 0; i < states; i++) {
+      waitlist.add(
+          new SyntheticState(
+              locations.get(i * 7 % locations.size()), callstacks.get(i % callstacks.size())));
+    }
+  }
+
+  @Benchmark
+  public void popAndAdd(Blackhole bh) {
+    AbstractState state = waitlist.pop();
+    if (state != null) {
+      bh.consume(state);
+      waitlist.add(state);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import com.google.common.collect.ImmutableList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.cpa.interval.IntervalAnalysisState;
+import org.sosy_lab.cpachecker.jmh.AnalysisFixture.Analysis;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+import org.sosy_lab.cpachecker.util.Pair;
+
+/**
+ * Micro benchmark for {@link IntervalAnalysisState#join}, the core of merge-join in the interval
+ * analysis. Each invocation joins every pair of a successor and a reached state of the same
+ * location once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IntervalJoinBenchmark {
+
+  /** Upper bound for the number of state pairs that are joined per invocation. */
+  private static final int MAX_JOIN_PAIRS = 1000;
+
+  @Param({"simulator", "loops", "merge"})
+  private String program;
+
+  private ImmutableList<Pair<IntervalAnalysisState, IntervalAnalysisState>> joinCandidates;
+
+  @Setup
+  public void setup() throws Exception {
+    AnalysisFixture fixture = AnalysisFixture.create(Analysis.INTERVAL, program);
+    ImmutableList.Builder<Pair<IntervalAnalysisState, IntervalAnalysisState>> builder =
+        ImmutableList.builder();
+    for (Pair<AbstractState, AbstractState> pair : fixture.mergeCandidates(MAX_JOIN_PAIRS)) {
+      builder.add(
+          Pair.of(
+              AbstractStates.extractStateByType(pair.getFirst(), IntervalAnalysisState.class),
+              AbstractStates.extractStateByType(pair.getSecond(), IntervalAnalysisState.class)));
+    }
+    joinCandidates = builder.build();
+  }
+
+  @Benchmark
+  public void join(Blackhole bh) {
+    for (Pair<IntervalAnalysisState, IntervalAnalysisState> pair : joinCandidates) {
+      bh.consume(pair.getFirst().join(pair.getSecond()));
+    }
+  }
+}
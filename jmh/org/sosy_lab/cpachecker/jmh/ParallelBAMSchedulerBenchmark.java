@@ -0,0 +1,212 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sosy_lab.cpachecker.core.algorithm.parallel_bam.BlockPriorityScheduler;
+
+/**
+ * Benchmark for the schedulers of parallel BAM. One operation is the analysis of a synthetic block
+ * hierarchy: the analysis of a block consumes some CPU time, then it waits for the analysis of its
+ * nested blocks, and afterwards it consumes CPU time again, like a reached-set that is re-added
+ * when the summaries of the missing blocks are available. The work per block differs between the
+ * blocks, such that the threads become unbalanced.
+ *
+ * <p>The schedulers are a fixed pool with one FIFO queue (the default of parallel BAM), a fixed
+ * pool with one shared priority queue, and the work-stealing {@link BlockPriorityScheduler}. The
+ * prioritized schedulers use the number of waiting blocks as priority, like parallel BAM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ParallelBAMSchedulerBenchmark {
+
+  @Param({"fifo", "centralPriority", "workStealing"})
+  private String scheduler;
+
+  @Param({"1", "2", "4", "8"})
+  private int threads;
+
+  /** depth of the block hierarchy, the main block has depth 0. */
+  @Param({"6"})
+  private int depth;
+
+  /** number of nested blocks of each block that is not a leaf. */
+  @Param({"3"})
+  private int nestedBlocks;
+
+  /** average number of CPU tokens (see {@link Blackhole#consumeCPU}) per task of a block. */
+  @Param({"2000"})
+  private int work;
+
+  private ExecutorService pool;
+  private Scheduler executors;
+
+  /** Returns an executor for the tasks of a block with the given priority. */
+  private interface Scheduler {
+    Executor executorWithPriority(IntSupplier pPriority);
+  }
+
+  private final class Block {
+
+    private final Block parent;
+    private final int level;
+    private final int blockWork;
+    private final AtomicInteger waitingBlocks;
+    private final AtomicInteger missingBlocks = new AtomicInteger(0);
+    private final Executor executor;
+    private final CompletableFuture<Void> done;
+
+    private Block(Block pParent, int pLevel, int pIndex, CompletableFuture<Void> pDone) {
+      parent = pParent;
+      level = pLevel;
+      // deterministic, but unbalanced work between 1/2 and 3/2 of the average
+      blockWork = work / 2 + Math.floorMod(pLevel * 31 + pIndex * 17, 11) * work / 10;
+      waitingBlocks = new AtomicInteger(parent == null ? 0 : parent.waitingBlocks.get() + 1);
+      executor = executors.executorWithPriority(waitingBlocks::get);
+      done = pDone;
+    }
+
+    private void analyze() {
+      Blackhole.consumeCPU(blockWork);
+      if (level == depth) {
+        finished();
+      } else {
+        missingBlocks.set(nestedBlocks);
+        for (int i = 0; i < nestedBlocks; i++) {
+          Block nested = new Block(this, level + 1, i, done);
+          nested.executor.execute(nested::analyze);
+        }
+      }
+    }
+
+    private void finished() {
+      if (parent == null) {
+        done.complete(null);
+      } else if (parent.missingBlocks.decrementAndGet() == 0) {
+        parent.waitingBlocks.set(0);
+        parent.executor.execute(parent::continueAnalysis);
+      }
+    }
+
+    private void continueAnalysis() {
+      Blackhole.consumeCPU(blockWork);
+      finished();
+    }
+  }
+
+  /** A task for the pool with one shared priority queue, higher priority first. */
+  private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+    private final Runnable command;
+    private final int priority;
+    private final long sequenceNumber;
+
+    private PrioritizedTask(Runnable pCommand, int pPriority, long pSequenceNumber) {
+      command = pCommand;
+      priority = pPriority;
+      sequenceNumber = pSequenceNumber;
+    }
+
+    @Override
+    public void run() {
+      command.run();
+    }
+
+    @Override
+    public int compareTo(PrioritizedTask pOther) {
+      int result = Integer.compare(pOther.priority, priority);
+      return result != 0 ? result : Long.compare(sequenceNumber, pOther.sequenceNumber);
+    }
+  }
+
+  @Setup
+  public void setup() {
+    switch (scheduler) {
+      case "fifo":
+        pool = Executors.newFixedThreadPool(threads);
+        executors = priority -> pool;
+        break;
+      case "centralPriority":
+        pool =
+            new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+        AtomicLong submittedTasks = new AtomicLong(0);
+        executors =
+            priority ->
+                command ->
+                    pool.execute(
+                        new PrioritizedTask(
+                            command, priority.getAsInt(), submittedTasks.getAndIncrement()));
+        break;
+      case "workStealing":
+        BlockPriorityScheduler blockScheduler =
+            new BlockPriorityScheduler(threads, "benchmark-thread-");
+        pool = blockScheduler.getPool();
+        executors = blockScheduler::executorWithPriority;
+        break;
+      default:
+        throw new AssertionError("unknown scheduler " + scheduler);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    pool.shutdown();
+    pool.awaitTermination(1, TimeUnit.MINUTES);
+  }
+
+  @Benchmark
+  public void analyzeBlockHierarchy() {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    Block main = new Block(null, 0, 0, done);
+    main.executor.execute(main::analyze);
+    done.join();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSetFactory;
+import org.sosy_lab.cpachecker.jmh.AnalysisFixture.Analysis;
+import org.sosy_lab.cpachecker.util.Pair;
+
+/**
+ * Micro benchmarks for the reached-set implementations: filling a reached set with the states of a
+ * finished analysis, and looking up the states of the same partition for each of them (as done by
+ * merge and stop).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReachedSetBenchmark {
+
+  @Param({"NORMAL", "PARTITIONED", "LOCATIONMAPPED", "COMPACT"})
+  private String reachedSetType;
+
+  @Param({"VALUE", "PREDICATE"})
+  private Analysis analysis;
+
+  @Param({"simulator", "loops"})
+  private String program;
+
+  private AnalysisFixture fixture;
+  private ReachedSetFactory reachedSetFactory;
+  private ReachedSet filled;
+
+  @Setup
+  public void setup() throws Exception {
+    fixture =
+        AnalysisFixture.create(
+            analysis, program, ImmutableMap.of("analysis.reachedSet", reachedSetType));
+    reachedSetFactory = fixture.reachedSetFactory;
+    filled = fill();
+  }
+
+  private ReachedSet fill() {
+    ReachedSet reached = reachedSetFactory.create();
+    for (Pair<AbstractState, Precision> entry : fixture.states) {
+      reached.add(entry.getFirst(), entry.getSecond());
+    }
+    return reached;
+  }
+
+  @Benchmark
+  public ReachedSet add() {
+    return fill();
+  }
+
+  @Benchmark
+  public void getReached(Blackhole bh) {
+    for (Pair<AbstractState, Precision> entry : fixture.states) {
+      bh.consume(filled.getReached(entry.getFirst()).size());
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import static org.sosy_lab.common.collect.MapsDifference.collectMapsDifferenceTo;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sosy_lab.common.collect.MapsDifference;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.cpa.predicate.PredicateAbstractState;
+import org.sosy_lab.cpachecker.jmh.AnalysisFixture.Analysis;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+import org.sosy_lab.cpachecker.util.Pair;
+import org.sosy_lab.cpachecker.util.predicates.pathformula.SSAMap;
+
+/**
+ * Micro benchmark for {@link SSAMap#merge}, which is called for each merge of two path formulas in
+ * the predicate analysis. Each invocation merges the SSA maps of every pair of a successor and a
+ * reached state of the same location once, and collects the differences like {@link
+ * org.sosy_lab.cpachecker.util.predicates.pathformula.SSAMapMerger} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SSAMapMergeBenchmark {
+
+  /** Upper bound for the number of SSA-map pairs that are merged per invocation. */
+  private static final int MAX_MERGE_PAIRS = 1000;
+
+  @Param({"simulator", "loops", "merge"})
+  private String program;
+
+  private ImmutableList<Pair<SSAMap, SSAMap>> mergeCandidates;
+
+  @Setup
+  public void setup() throws Exception {
+    AnalysisFixture fixture = AnalysisFixture.create(Analysis.PREDICATE, program);
+    ImmutableList.Builder<Pair<SSAMap, SSAMap>> builder = ImmutableList.builder();
+    for (Pair<AbstractState, AbstractState> pair : fixture.mergeCandidates(MAX_MERGE_PAIRS)) {
+      builder.add(Pair.of(getSsa(pair.getFirst()), getSsa(pair.getSecond())));
+    }
+    mergeCandidates = builder.build();
+  }
+
+  private static SSAMap getSsa(AbstractState pState) {
+    return AbstractStates.extractStateByType(pState, PredicateAbstractState.class)
+        .getPathFormula()
+        .getSsa();
+  }
+
+  @Benchmark
+  public void merge(Blackhole bh) {
+    for (Pair<SSAMap, SSAMap> pair : mergeCandidates) {
+      List<MapsDifference.Entry<String, Integer>> differences = new ArrayList<>();
+      bh.consume(
+          SSAMap.merge(pair.getFirst(), pair.getSecond(), collectMapsDifferenceTo(differences)));
+      bh.consume(differences);
+    }
+  }
+}
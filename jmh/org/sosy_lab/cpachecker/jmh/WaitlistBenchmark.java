@@ -0,0 +1,91 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.jmh;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.jmh.AnalysisFixture.Analysis;
+import org.sosy_lab.cpachecker.util.Pair;
+
+/**
+ * Micro benchmarks for the waitlist strategies. Each invocation adds all states of a finished
+ * analysis to a fresh reached set and pops them from the waitlist again. The cost of adding alone
+ * is measured by {@link ReachedSetBenchmark#add()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class WaitlistBenchmark {
+
+  @Param({"DFS", "BFS", "RAND"})
+  private String traversalOrder;
+
+  /** Secondary sorting applied on top of the traversal order ("none" for plain waitlists). */
+  @Param({"none", "useReversePostorder", "useCallstack", "useLoopIterationCount"})
+  private String sorting;
+
+  @Param({"simulator", "loops"})
+  private String program;
+
+  private AnalysisFixture fixture;
+
+  @Setup
+  public void setup() throws Exception {
+    ImmutableMap.Builder<String, String> options = ImmutableMap.builder();
+    options.put("analysis.traversal.order", traversalOrder);
+    if (!sorting.equals("none")) {
+      options.put("analysis.traversal." + sorting, "true");
+    }
+    fixture = AnalysisFixture.create(Analysis.VALUE, program, options.build());
+  }
+
+  @Benchmark
+  public void pop(Blackhole bh) {
+    ReachedSet reached = fixture.reachedSetFactory.create();
+    for (Pair<AbstractState, Precision> entry : fixture.states) {
+      reached.add(entry.getFirst(), entry.getSecond());
+    }
+    while (reached.hasWaitingState()) {
+      bh.consume(reached.popFromWaitlist());
+    }
+  }
+}
@@ -110,6 +110,7 @@ import org.sosy_lab.cpachecker.util.Pair;
 import org.sosy_lab.cpachecker.util.cwriter.CFAToCTranslator;
 import org.sosy_lab.cpachecker.util.dependencegraph.DependenceGraph;
 import org.sosy_lab.cpachecker.util.dependencegraph.DependenceGraphBuilder;
+import org.sosy_lab.cpachecker.util.jfr.CFACreationEvent;
 import org.sosy_lab.cpachecker.util.statistics.StatisticsUtils;
 import org.sosy_lab.cpachecker.util.variableclassification.VariableClassification;
 import org.sosy_lab.cpachecker.util.variableclassification.VariableClassificationBuilder;
@@ -407,7 +408,9 @@ public class CFACreator {
 
     stats.totalTime.start();
     try {
+      CFACreationEvent parsingEvent = CFACreationEvent.start("parsing");
       ParseResult parseResult = parseToCFAs(program);
+      parsingEvent.commit();
       FunctionEntryNode mainFunction = parseResult.getFunctions().get(mainFunctionName);
       assert mainFunction != null : "program lacks main function.";
 
@@ -438,7 +441,9 @@ public class CFACreator {
       // FIRST, parse file(s) and create CFAs for each function
       logger.log(Level.FINE, "Starting parsing of file(s)");
 
+      CFACreationEvent parsingEvent = CFACreationEvent.start("parsing");
       final ParseResult c = parseToCFAs(sourceFiles);
+      parsingEvent.commit();
 
       logger.log(Level.FINE, "Parser Finished");
 
@@ -489,7 +494,9 @@ public class CFACreator {
     // SECOND, do those post-processings that change the CFA by adding/removing nodes/edges
     stats.processingTime.start();
 
+    CFACreationEvent postProcessingEvent = CFACreationEvent.start("post-processing");
     cfa = postProcessingOnMutableCFAs(cfa, pParseResult.getGlobalDeclarations());
+    postProcessingEvent.commit();
 
     // Check CFA again after post-processings
     stats.checkTime.start();
@@ -510,7 +517,9 @@ public class CFACreator {
     // get loop information
     // (needs post-order information)
     if (useLoopStructure) {
+      CFACreationEvent loopStructureEvent = CFACreationEvent.start("loop structure");
       addLoopStructure(cfa);
+      loopStructureEvent.commit();
     }
 
     // instrument the cfa, if any configuration regarding that is set (needs loop structure)
@@ -519,8 +528,10 @@ public class CFACreator {
     // FOURTH, insert call and return edges and build the supergraph
     if (interprocedural) {
       logger.log(Level.FINE, "Analysis is interprocedural, adding super edges.");
+      CFACreationEvent supergraphEvent = CFACreationEvent.start("supergraph");
       CFASecondPassBuilder spbuilder = new CFASecondPassBuilder(cfa, language, logger, config);
       spbuilder.insertCallEdgesRecursively();
+      supergraphEvent.commit();
     }
 
     // FIFTH, do post-processings on the supergraph
@@ -535,10 +546,13 @@ public class CFACreator {
     // Get information about variables, needed for some analysis.
     final Optional<VariableClassification> varClassification;
     if (language == Language.C) {
+      CFACreationEvent varClassificationEvent =
+          CFACreationEvent.start("variable classification");
       try {
         VariableClassificationBuilder builder = new VariableClassificationBuilder(config, logger);
         varClassification = Optional.of(builder.build(cfa));
         builder.collectStatistics(stats.statisticsCollection);
+        varClassificationEvent.commit();
       } catch (UnrecognizedCodeException e) {
         throw new CParserException(e);
       }
@@ -549,10 +563,12 @@ public class CFACreator {
     // create the live variables if the variable classification is present
     if (findLiveVariables &&
         (varClassification.isPresent() || cfa.getLanguage() != Language.C)) {
+      CFACreationEvent liveVariablesEvent = CFACreationEvent.start("live variables");
       cfa.setLiveVariables(LiveVariables.create(varClassification,
                                                 pParseResult.getGlobalDeclarations(),
                                                 cfa, logger, shutdownNotifier,
                                                 config));
+      liveVariablesEvent.commit();
     }
 
     Optional<DependenceGraph> depGraph;
@@ -563,10 +579,12 @@ public class CFACreator {
             "Variable Classification not present. Consider turning this on "
                 + "to improve dependence graph construction.");
       }
+      CFACreationEvent depGraphEvent = CFACreationEvent.start("dependence graph");
       final DependenceGraphBuilder depGraphBuilder =
           DependenceGraph.builder(cfa, varClassification, config, logger, shutdownNotifier);
       try {
         depGraph = Optional.of(depGraphBuilder.build());
+        depGraphEvent.commit();
       } catch (CPAException pE) {
         throw new CParserException(pE);
       } finally {
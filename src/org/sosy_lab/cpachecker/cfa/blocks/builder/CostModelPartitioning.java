@@ -0,0 +1,348 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cfa.blocks.builder;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.CFA;
+import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.cfa.model.FunctionEntryNode;
+import org.sosy_lab.cpachecker.cfa.model.c.CFunctionCallEdge;
+import org.sosy_lab.cpachecker.util.CFATraversal;
+import org.sosy_lab.cpachecker.util.CFAUtils;
+
+/**
+ * <code>PartitioningHeuristic</code> that selects function- and loop-blocks with a cost model.
+ *
+ * <p>The cost of analysing a function is estimated by the number of its CFA nodes and edges, or
+ * taken from a profile of earlier runs. Entering and leaving a block costs a constant overhead plus
+ * an overhead per referenced variable of the block for reduce and expand. A function gets a block,
+ * if analysing it once per call-context plus the overhead of all calls is cheaper than analysing
+ * it inlined in each of its call-contexts, where the call-contexts are counted over all call-sites
+ * of the function, including those in inlined callers. All other functions are inlined, i.e.,
+ * merged into the blocks of their callers. Blocks that become too large are split by creating
+ * blocks for their loops.
+ */
+@Options(prefix = "cpa.bam.blockHeuristic.costModelPartitioning")
+public class CostModelPartitioning extends PartitioningHeuristic {
+
+  private static final CFATraversal TRAVERSE_CFA_INSIDE_FUNCTION =
+      CFATraversal.dfs().ignoreFunctionCalls();
+
+  @Option(
+      secure = true,
+      description =
+          "estimated cost of reducing and expanding the states for one block entry, "
+              + "relative to the cost of analysing one CFA node or edge.")
+  private int blockOverhead = 20;
+
+  @Option(
+      secure = true,
+      description =
+          "estimated additional cost of reducing and expanding the states for one block entry "
+              + "per variable referenced in the block.")
+  private int variableOverhead = 1;
+
+  @Option(
+      secure = true,
+      description =
+          "expected ratio of block entries that are answered by the BAM cache, "
+              + "if a function is called in several call-contexts.")
+  private double expectedCacheHitRate = 0.5;
+
+  @Option(
+      secure = true,
+      description =
+          "split blocks with more CFA nodes and edges (including inlined functions) "
+              + "by creating blocks for their loops. Use 0 to disable splitting.")
+  private int maxBlockSize = 2000;
+
+  @Option(
+      secure = true,
+      description =
+          "file with analysis times of functions from earlier runs. Each line contains "
+              + "the name of a function and its analysis time, separated by whitespace. "
+              + "The times replace the cost estimate of the listed functions after scaling them "
+              + "by the average time per CFA node and edge of these functions.")
+  @FileOption(FileOption.Type.OPTIONAL_INPUT_FILE)
+  private @Nullable Path profile = null;
+
+  private final LoopPartitioning loopPartitioning;
+
+  // computed lazily, when the first block is requested
+  private Set<String> functionBlocks = null;
+  private Set<String> splitFunctions = null;
+
+  /** Do not change signature! Constructor will be created with Reflections. */
+  public CostModelPartitioning(LogManager pLogger, CFA pCfa, Configuration pConfig)
+      throws InvalidConfigurationException {
+    super(pLogger, pCfa, pConfig);
+    pConfig.inject(this);
+    if (expectedCacheHitRate < 0 || expectedCacheHitRate > 1) {
+      throw new InvalidConfigurationException(
+          "The expected cache hit rate for the cost model must be between 0 and 1.");
+    }
+    loopPartitioning = new LoopPartitioning(pLogger, pCfa, pConfig);
+  }
+
+  @Override
+  protected Set<CFANode> getBlockForNode(CFANode pBlockHead) {
+    if (functionBlocks == null) {
+      computePartitioning();
+    }
+
+    if (pBlockHead instanceof FunctionEntryNode) {
+      if (pBlockHead.getNumEnteringEdges() == 0
+          || functionBlocks.contains(pBlockHead.getFunctionName())) {
+        return TRAVERSE_CFA_INSIDE_FUNCTION.collectNodesReachableFrom(pBlockHead);
+      }
+      return null;
+    }
+
+    if (splitFunctions.contains(pBlockHead.getFunctionName())) {
+      Set<CFANode> loopBody = loopPartitioning.getBlockForNode(pBlockHead);
+      if (loopBody != null && getSize(loopBody) > getOverhead(loopBody)) {
+        return loopBody;
+      }
+    }
+    return null;
+  }
+
+  private void computePartitioning() {
+    final Map<String, FunctionCosts> functions = new HashMap<>();
+    final List<FunctionCosts> postOrder = new ArrayList<>();
+    collectFunctions(cfa.getMainFunction(), functions, postOrder);
+    applyProfile(functions);
+
+    // top-down: count the call-contexts of each function and decide about its block
+    functionBlocks = new HashSet<>();
+    final Map<String, Double> contexts = new HashMap<>();
+    contexts.put(cfa.getMainFunction().getFunctionName(), 1.0);
+    for (FunctionCosts function : Lists.reverse(postOrder)) {
+      final double numContexts = contexts.getOrDefault(function.name, 0.0);
+      if (function.isMain || isBlockCheaper(function, numContexts)) {
+        functionBlocks.add(function.name);
+      }
+      final double factor = functionBlocks.contains(function.name) ? 1 : numContexts;
+      for (String callee : function.callees) {
+        if (!callee.equals(function.name)) {
+          contexts.merge(callee, factor, Double::sum);
+        }
+      }
+    }
+
+    // bottom-up: compute the size of each function including its inlined callees
+    splitFunctions = new HashSet<>();
+    final Map<String, Integer> inclusiveSizes = new HashMap<>();
+    for (FunctionCosts function : postOrder) {
+      int size = function.size;
+      for (String callee : function.callees) {
+        if (!functionBlocks.contains(callee)) {
+          size += inclusiveSizes.getOrDefault(callee, 0);
+        }
+      }
+      inclusiveSizes.put(function.name, size);
+      if (maxBlockSize > 0 && size > maxBlockSize && functionBlocks.contains(function.name)) {
+        addInlinedFunctions(function, functions, splitFunctions);
+      }
+    }
+
+    logger.log(
+        Level.FINE,
+        "Cost model selected blocks for",
+        functionBlocks.size(),
+        "of",
+        functions.size(),
+        "functions and splits",
+        splitFunctions.size(),
+        "functions at loops.");
+  }
+
+  /** Collect all functions reachable from the given function, callees before callers. */
+  private void collectFunctions(
+      FunctionEntryNode pEntry,
+      Map<String, FunctionCosts> pFunctions,
+      List<FunctionCosts> pPostOrder) {
+    final Set<CFANode> nodes = TRAVERSE_CFA_INSIDE_FUNCTION.collectNodesReachableFrom(pEntry);
+    final List<FunctionEntryNode> callees = new ArrayList<>();
+    for (CFANode node : nodes) {
+      for (CFAEdge edge : CFAUtils.leavingEdges(node).filter(CFunctionCallEdge.class)) {
+        callees.add((FunctionEntryNode) edge.getSuccessor());
+      }
+    }
+    final FunctionCosts function =
+        new FunctionCosts(
+            pEntry.getFunctionName(),
+            pEntry.getNumEnteringEdges() == 0,
+            getSize(nodes),
+            getOverhead(nodes),
+            ImmutableList.copyOf(Lists.transform(callees, FunctionEntryNode::getFunctionName)));
+    pFunctions.put(function.name, function);
+
+    for (FunctionEntryNode callee : callees) {
+      if (!pFunctions.containsKey(callee.getFunctionName())) {
+        collectFunctions(callee, pFunctions, pPostOrder);
+      }
+    }
+    pPostOrder.add(function);
+  }
+
+  /** Replace the size-based costs by the profiled times, scaled to the same unit. */
+  private void applyProfile(Map<String, FunctionCosts> pFunctions) {
+    if (profile == null) {
+      return;
+    }
+    final Map<String, Double> times = readProfile(profile);
+    double totalTime = 0;
+    long totalSize = 0;
+    for (Map.Entry<String, Double> entry : times.entrySet()) {
+      FunctionCosts function = pFunctions.get(entry.getKey());
+      if (function != null) {
+        totalTime += entry.getValue();
+        totalSize += function.size;
+      }
+    }
+    if (totalTime <= 0) {
+      logger.log(Level.WARNING, "Profile file", profile, "contains no analysed function.");
+      return;
+    }
+    final double sizePerTime = totalSize / totalTime;
+    for (Map.Entry<String, Double> entry : times.entrySet()) {
+      FunctionCosts function = pFunctions.get(entry.getKey());
+      if (function != null) {
+        function.cost = entry.getValue() * sizePerTime;
+      }
+    }
+  }
+
+  private Map<String, Double> readProfile(Path pFile) {
+    final Map<String, Double> times = new HashMap<>();
+    final List<String> contents;
+    try {
+      contents = Files.readAllLines(pFile, Charset.defaultCharset());
+    } catch (IOException e) {
+      logger.logUserException(
+          Level.WARNING, e, "Could not read function profile from file named " + pFile);
+      return times;
+    }
+    for (String line : contents) {
+      List<String> parts =
+          Splitter.on(CharMatcher.whitespace()).omitEmptyStrings().splitToList(line);
+      if (parts.isEmpty()) {
+        continue;
+      }
+      try {
+        if (parts.size() != 2) {
+          throw new NumberFormatException();
+        }
+        times.merge(parts.get(0), Double.parseDouble(parts.get(1)), Double::sum);
+      } catch (NumberFormatException e) {
+        logger.log(Level.WARNING, "Ignoring invalid line in function profile:", line);
+      }
+    }
+    return times;
+  }
+
+  /**
+   * Compare the estimated costs for analysing a function in a block and for analysing it inlined
+   * in each call-context.
+   */
+  private boolean isBlockCheaper(FunctionCosts pFunction, double pNumContexts) {
+    if (pNumContexts <= 0) {
+      return false;
+    }
+    final double blockCosts =
+        pFunction.cost * (1 + (pNumContexts - 1) * (1 - expectedCacheHitRate))
+            + pNumContexts * pFunction.overhead;
+    final double inlinedCosts = pNumContexts * pFunction.cost;
+    return blockCosts < inlinedCosts;
+  }
+
+  /** Add the function and all functions that are inlined into its block. */
+  private void addInlinedFunctions(
+      FunctionCosts pFunction, Map<String, FunctionCosts> pFunctions, Set<String> pResult) {
+    if (pResult.add(pFunction.name)) {
+      for (String callee : pFunction.callees) {
+        if (!functionBlocks.contains(callee)) {
+          addInlinedFunctions(pFunctions.get(callee), pFunctions, pResult);
+        }
+      }
+    }
+  }
+
+  private static int getSize(Set<CFANode> pNodes) {
+    int size = pNodes.size();
+    for (CFANode node : pNodes) {
+      size += node.getNumLeavingEdges();
+    }
+    return size;
+  }
+
+  private int getOverhead(Set<CFANode> pNodes) {
+    return blockOverhead
+        + variableOverhead * new ReferencedVariablesCollector(pNodes).getVars().size();
+  }
+
+  /** Cost estimates of a function body, without its callees. */
+  private static class FunctionCosts {
+
+    private final String name;
+    private final boolean isMain;
+    private final int size;
+    private final int overhead;
+    private final ImmutableList<String> callees;
+    private double cost;
+
+    private FunctionCosts(
+        String pName, boolean pIsMain, int pSize, int pOverhead, ImmutableList<String> pCallees) {
+      name = pName;
+      isMain = pIsMain;
+      size = pSize;
+      overhead = pOverhead;
+      callees = pCallees;
+      cost = pSize;
+    }
+  }
+}
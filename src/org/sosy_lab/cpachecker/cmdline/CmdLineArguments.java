@@ -176,6 +176,10 @@ class CmdLineArguments {
               .settingProperty("analysis.summaryEdges", "true")
               .settingProperty("cpa.callstack.skipRecursion", "true")
               .withDescription("skip recursive function calls"),
+          new PropertyAddingCmdLineArgument("-resume")
+              .settingProperty("analysis.checkpoint.resume", "true")
+              .withDescription(
+                  "resume from the checkpoint of a previous run with analysis.checkpoint.interval"),
           new PropertyAddingCmdLineArgument("-benchmark")
               .settingProperty("output.disable", "true")
               .settingProperty("coverage.enabled", "false")
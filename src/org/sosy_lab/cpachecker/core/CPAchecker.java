@@ -87,6 +87,7 @@ import org.sosy_lab.cpachecker.core.reachedset.AggregatedReachedSets;
 import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
 import org.sosy_lab.cpachecker.core.reachedset.ResultProviderReachedSet;
 import org.sosy_lab.cpachecker.cpa.arg.ARGState;
+import org.sosy_lab.cpachecker.cpa.arg.ReachedSetCheckpointer;
 import org.sosy_lab.cpachecker.exceptions.CPAException;
 import org.sosy_lab.cpachecker.exceptions.ParserException;
 import org.sosy_lab.cpachecker.util.AbstractStates;
@@ -97,6 +98,7 @@ import org.sosy_lab.cpachecker.util.SpecificationProperty;
 import org.sosy_lab.cpachecker.util.automaton.TargetLocationProvider;
 import org.sosy_lab.cpachecker.util.automaton.TargetLocationProviderImpl;
 import org.sosy_lab.cpachecker.util.globalinfo.GlobalInfo;
+import org.sosy_lab.cpachecker.util.statistics.TelemetryWriter;
 
 @Options
 public class CPAchecker {
@@ -241,6 +243,8 @@ public class CPAchecker {
   private final ShutdownManager shutdownManager;
   private final ShutdownNotifier shutdownNotifier;
   private final CoreComponentsFactory factory;
+  private final TelemetryWriter telemetryWriter;
+  private final ReachedSetCheckpointer checkpointer;
 
   // The content of this String is read from a file that is created by the
   // ant task "init".
@@ -325,6 +329,8 @@ public class CPAchecker {
     factory =
         new CoreComponentsFactory(
             pConfiguration, pLogManager, shutdownNotifier, new AggregatedReachedSets());
+    telemetryWriter = new TelemetryWriter(pConfiguration, pLogManager);
+    checkpointer = new ReachedSetCheckpointer(pConfiguration, pLogManager);
   }
 
   public CPAcheckerResult run(
@@ -349,7 +355,7 @@ public class CPAchecker {
 
       // create reached set, cpa, algorithm
       stats.creationTime.start();
-      reached = factory.createReachedSet();
+      reached = checkpointer.wrap(factory.createReachedSet());
 
       if (runCBMCasExternalTool) {
         algorithm =
@@ -397,6 +403,8 @@ public class CPAchecker {
           reached.add(
               mcmillan.getInitialState(cfa.getMainFunction()),
               mcmillan.getInitialPrecision(cfa.getMainFunction()));
+        } else if (checkpointer.isResuming()) {
+          checkpointer.restore(reached);
         } else {
           initializeReachedSet(reached, cpa, properties, cfa.getMainFunction(), cfa);
         }
@@ -542,6 +550,7 @@ public class CPAchecker {
     mxbean.register();
 
     stats.startAnalysisTimer();
+    TelemetryWriter.Session telemetry = telemetryWriter.start(reached, stats.getSubStatistics());
     try {
       int counterExampleCount = 0;
       do {
@@ -564,8 +573,15 @@ public class CPAchecker {
       logger.log(Level.INFO, "Stopping analysis ...");
       return status;
 
+    } catch (InterruptedException e) {
+      // the reached set is consistent because interrupted states are re-added to the waitlist
+      checkpointer.writeFinalCheckpoint(reached);
+      throw e;
+
     } finally {
       stats.stopAnalysisTimer();
+      telemetry.close();
+      checkpointer.close();
 
       // unregister management interface for CPAchecker
       mxbean.unregister();
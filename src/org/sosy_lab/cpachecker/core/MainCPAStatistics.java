@@ -72,6 +72,7 @@ import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
 import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
 import org.sosy_lab.cpachecker.core.interfaces.Graphable;
 import org.sosy_lab.cpachecker.core.interfaces.Statistics;
+import org.sosy_lab.cpachecker.core.reachedset.CompactReachedSet;
 import org.sosy_lab.cpachecker.core.reachedset.ForwardingReachedSet;
 import org.sosy_lab.cpachecker.core.reachedset.LocationMappedReachedSet;
 import org.sosy_lab.cpachecker.core.reachedset.PartitionedReachedSet;
@@ -501,6 +502,12 @@ class MainCPAStatistics implements Statistics {
       } else {
         out.println();
       }
+    } else if (reached instanceof CompactReachedSet) {
+      CompactReachedSet c = (CompactReachedSet) reached;
+      int partitions = c.getNumberOfPartitions();
+      out.println("  Number of partitions:          " + partitions);
+      out.println("    Avg size of partitions:      " + reachedSize / partitions);
+      out.println("  Number of distinct precisions: " + c.getNumberOfPrecisions());
     }
     out.println(
         "  Number of target states:       "
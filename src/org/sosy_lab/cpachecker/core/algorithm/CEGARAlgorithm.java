@@ -32,6 +32,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.PrintStream;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +41,7 @@ import org.sosy_lab.common.AbstractMBean;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.common.configuration.ClassOption;
 import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.IntegerOption;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
@@ -55,11 +57,15 @@ import org.sosy_lab.cpachecker.core.interfaces.Statistics;
 import org.sosy_lab.cpachecker.core.interfaces.StatisticsProvider;
 import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
 import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.cpa.arg.ARGBatchRefiner;
+import org.sosy_lab.cpachecker.cpa.arg.AbstractARGBasedRefiner;
 import org.sosy_lab.cpachecker.cpa.value.refiner.UnsoundRefiner;
 import org.sosy_lab.cpachecker.exceptions.CPAException;
 import org.sosy_lab.cpachecker.exceptions.RefinementFailedException;
+import org.sosy_lab.cpachecker.util.CPAs;
 
-public class CEGARAlgorithm implements Algorithm, StatisticsProvider, ReachedSetUpdater {
+public class CEGARAlgorithm
+    implements Algorithm, StatisticsProvider, ReachedSetUpdater, AutoCloseable {
 
   private static class CEGARStatistics implements Statistics {
 
@@ -82,6 +88,13 @@ public class CEGARAlgorithm implements Algorithm, StatisticsProvider, ReachedSet
       return "CEGAR algorithm";
     }
 
+    @Override
+    public void collectTelemetry(Map<String, Object> pSnapshot) {
+      pSnapshot.put("refinements", countRefinements);
+      pSnapshot.put("successfulRefinements", countSuccessfulRefinements);
+      pSnapshot.put("refinementTime", refinementTimer.getSumTime().asMillis());
+    }
+
     @Override
     public void printStatistics(PrintStream out, Result pResult, UnmodifiableReachedSet pReached) {
 
@@ -158,6 +171,26 @@ public class CEGARAlgorithm implements Algorithm, StatisticsProvider, ReachedSet
     )
     private boolean globalRefinement = false;
 
+    @Option(
+      secure = true,
+      name = "batchRefinement",
+      description =
+          "Whether to refine all target states of the reached set in one refinement step, "
+              + "instead of only the last one (requires an ARG-based refiner, "
+              + "implies cegar.globalRefinement, "
+              + "useful together with analysis.stopAfterError=false)."
+    )
+    private boolean batchRefinement = false;
+
+    @Option(
+      secure = true,
+      name = "maxBatchSize",
+      description =
+          "Max number of target paths that are refined in one batch refinement, 0 for no limit"
+    )
+    @IntegerOption(min = 0)
+    private int maxBatchSize = 0;
+
     /*
      * Widely used in CPALockator, as there are many error paths, and refinement all of them takes
      * too much time, so, limit refinement iterations and remove at least some infeasible paths
@@ -193,13 +226,28 @@ public class CEGARAlgorithm implements Algorithm, StatisticsProvider, ReachedSet
       algorithmFactory = pAlgorithmFactory;
       logger = pLogger;
       verifyNotNull(refinerFactory);
-      refiner = refinerFactory.create(pCpa, pLogger, pShutdownNotifier);
+      Refiner singleRefiner = refinerFactory.create(pCpa, pLogger, pShutdownNotifier);
+      if (batchRefinement) {
+        if (!(singleRefiner instanceof AbstractARGBasedRefiner)) {
+          throw new InvalidConfigurationException(
+              "Batch refinement is not supported by refiner " + singleRefiner);
+        }
+        refiner =
+            new ARGBatchRefiner((AbstractARGBasedRefiner) singleRefiner, maxBatchSize, pLogger);
+      } else {
+        refiner = singleRefiner;
+      }
     }
 
     @Override
     public CEGARAlgorithm newInstance() {
       return new CEGARAlgorithm(
-          algorithmFactory.newInstance(), refiner, logger, globalRefinement, maxRefinementNum);
+          algorithmFactory.newInstance(),
+          refiner,
+          logger,
+          // refining all target states needs to look at all of them, not only the last state
+          globalRefinement || batchRefinement,
+          maxRefinementNum);
     }
   }
 
@@ -326,6 +374,16 @@ public class CEGARAlgorithm implements Algorithm, StatisticsProvider, ReachedSet
     return refinementResult;
   }
 
+  /**
+   * Close the wrapped algorithm and the refiner. The refiner is shared by all instances that were
+   * created by the same factory, thus this should be called only after the whole analysis.
+   */
+  @Override
+  public void close() {
+    CPAs.closeIfPossible(algorithm, logger);
+    CPAs.closeIfPossible(mRefiner, logger);
+  }
+
   @Override
   public void collectStatistics(Collection<Statistics> pStatsCollection) {
     if (algorithm instanceof StatisticsProvider) {
@@ -24,6 +24,10 @@
 package org.sosy_lab.cpachecker.core.algorithm;
 
 import com.google.common.base.Functions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -33,12 +37,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.Classes.UnexpectedCheckedException;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.common.configuration.ClassOption;
 import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.IntegerOption;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
@@ -61,14 +75,19 @@ import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
 import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
 import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
 import org.sosy_lab.cpachecker.cpa.arg.ARGMergeJoinCPAEnabledAnalysis;
+import org.sosy_lab.cpachecker.cpa.arg.ARGState;
 import org.sosy_lab.cpachecker.exceptions.CPAException;
 import org.sosy_lab.cpachecker.util.AbstractStates;
 import org.sosy_lab.cpachecker.util.Pair;
+import org.sosy_lab.cpachecker.util.jfr.CPAOperatorEvent;
 import org.sosy_lab.cpachecker.util.statistics.AbstractStatValue;
 import org.sosy_lab.cpachecker.util.statistics.StatCounter;
 import org.sosy_lab.cpachecker.util.statistics.StatHist;
 import org.sosy_lab.cpachecker.util.statistics.StatInt;
+import org.sosy_lab.cpachecker.util.statistics.StatKind;
 import org.sosy_lab.cpachecker.util.statistics.StatisticsWriter;
+import org.sosy_lab.cpachecker.util.statistics.ThreadSafeTimerContainer;
+import org.sosy_lab.cpachecker.util.statistics.ThreadSafeTimerContainer.TimerWrapper;
 
 public class CPAAlgorithm implements Algorithm, StatisticsProvider {
 
@@ -82,6 +101,14 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
     private Timer stopTimer          = new Timer();
     private Timer addTimer           = new Timer();
     private Timer forcedCoveringTimer = new Timer();
+    private Timer expansionTimer     = new Timer();
+
+    // used instead of transferTimer and precisionTimer in parallel-expansion mode
+    private final ThreadSafeTimerContainer parallelPrecisionTimer =
+        new ThreadSafeTimerContainer("Time for precision adjustment");
+    private final ThreadSafeTimerContainer parallelTransferTimer =
+        new ThreadSafeTimerContainer("Time for transfer relation");
+    private final StatInt batchSize = new StatInt(StatKind.AVG, "Size of expanded batches");
 
     private int   countIterations   = 0;
     private int   maxWaitlistSize   = 0;
@@ -103,6 +130,7 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
       stopTimer.stopIfRunning();
       addTimer.stopIfRunning();
       forcedCoveringTimer.stopIfRunning();
+      expansionTimer.stopIfRunning();
     }
 
     private void updateReachedSetStatistics(Map<String, AbstractStatValue> newStatistics) {
@@ -137,6 +165,16 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
       return "CPA algorithm";
     }
 
+    @Override
+    public void collectTelemetry(Map<String, Object> pSnapshot) {
+      pSnapshot.put("iterations", countIterations);
+      pSnapshot.put("maxWaitlistSize", maxWaitlistSize);
+      pSnapshot.put("successors", countSuccessors);
+      pSnapshot.put("merges", countMerge);
+      pSnapshot.put("stops", countStop);
+      pSnapshot.put("breaks", countBreak);
+    }
+
     @Override
     public void printStatistics(PrintStream out, Result pResult, UnmodifiableReachedSet pReached) {
       out.println("Number of iterations:            " + countIterations);
@@ -163,8 +201,15 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
       if (forcedCoveringTimer.getNumberOfIntervals() > 0) {
         out.println("  Time for forced covering:       " + forcedCoveringTimer);
       }
-      out.println("  Time for precision adjustment:  " + precisionTimer);
-      out.println("  Time for transfer relation:     " + transferTimer);
+      if (expansionTimer.getNumberOfIntervals() > 0) {
+        out.println("  Time for parallel expansion:    " + expansionTimer);
+        out.println("    Size of expanded batches:     " + batchSize);
+        out.println("    Time for precision adj.:      " + parallelPrecisionTimer);
+        out.println("    Time for transfer relation:   " + parallelTransferTimer);
+      } else {
+        out.println("  Time for precision adjustment:  " + precisionTimer);
+        out.println("  Time for transfer relation:     " + transferTimer);
+      }
       if (mergeTimer.getNumberOfIntervals() > 0) {
         out.println("  Time for merge operator:        " + mergeTimer);
       }
@@ -188,6 +233,33 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
         + " Useful for incomplete analysis with no counterexample checking.")
     private boolean reportFalseAsUnknown = false;
 
+    @Option(
+        secure = true,
+        name = "parallelExpansion.threads",
+        description =
+            "Number of threads for computing successors and adjusting their precision "
+                + "concurrently for a batch of states from the waitlist. "
+                + "Merge, stop, and adding states to the reached set are still done sequentially. "
+                + "Each thread uses its own transfer relation and precision adjustment "
+                + "retrieved from the CPA, thus the successors of a state must not depend on "
+                + "the states that were handled before by the same transfer relation. "
+                + "A value of 1 disables parallel expansion, "
+                + "with -1 we use the number of available cores of the machine.")
+    @IntegerOption(min = -1)
+    private int parallelExpansionThreads = 1;
+
+    @Option(
+        secure = true,
+        name = "parallelExpansion.batchSize",
+        description =
+            "Maximal number of states taken from the waitlist at once "
+                + "if parallel expansion is enabled. The successors of the states of a batch "
+                + "are added to the waitlist only after the whole batch was expanded, "
+                + "thus for a batch size larger than 1 the states may be explored in a "
+                + "different order than without parallel expansion.")
+    @IntegerOption(min = 1)
+    private int parallelExpansionBatchSize = 64;
+
     private final ForcedCovering forcedCovering;
 
     private final ConfigurableProgramAnalysis cpa;
@@ -202,7 +274,18 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
       this.logger = logger;
       this.shutdownNotifier = pShutdownNotifier;
 
+      if (parallelExpansionThreads == -1) {
+        parallelExpansionThreads = Runtime.getRuntime().availableProcessors();
+      } else if (parallelExpansionThreads == 0) {
+        throw new InvalidConfigurationException(
+            "Option cpa.parallelExpansion.threads needs to be positive or -1.");
+      }
+
       if (forcedCoveringClass != null) {
+        if (parallelExpansionThreads > 1) {
+          throw new InvalidConfigurationException(
+              "Forced covering is not supported together with parallel expansion.");
+        }
         forcedCovering = forcedCoveringClass.create(config, logger, cpa);
       } else {
         forcedCovering = null;
@@ -212,7 +295,14 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
 
     @Override
     public CPAAlgorithm newInstance() {
-      return new CPAAlgorithm(cpa, logger, shutdownNotifier, forcedCovering, reportFalseAsUnknown);
+      return new CPAAlgorithm(
+          cpa,
+          logger,
+          shutdownNotifier,
+          forcedCovering,
+          reportFalseAsUnknown,
+          parallelExpansionThreads,
+          parallelExpansionBatchSize);
     }
   }
 
@@ -227,36 +317,52 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
 
   private final CPAStatistics               stats = new CPAStatistics();
 
+  private final ConfigurableProgramAnalysis cpa;
   private final TransferRelation transferRelation;
   private final MergeOperator mergeOperator;
   private final StopOperator stopOperator;
   private final PrecisionAdjustment precisionAdjustment;
 
+  /** Description of the CPA for flight-recorder events. */
+  private final String cpaName;
+
   private final LogManager                  logger;
 
   private final ShutdownNotifier                   shutdownNotifier;
 
   private final AlgorithmStatus status;
 
+  private final int parallelExpansionThreads;
+  private final int parallelExpansionBatchSize;
+
   private CPAAlgorithm(ConfigurableProgramAnalysis cpa, LogManager logger,
       ShutdownNotifier pShutdownNotifier,
       ForcedCovering pForcedCovering,
-      boolean pIsImprecise) {
+      boolean pIsImprecise,
+      int pParallelExpansionThreads,
+      int pParallelExpansionBatchSize) {
 
+    this.cpa = cpa;
     transferRelation = cpa.getTransferRelation();
     mergeOperator = cpa.getMergeOperator();
     stopOperator = cpa.getStopOperator();
     precisionAdjustment = cpa.getPrecisionAdjustment();
+    cpaName = CPAOperatorEvent.describe(cpa);
     this.logger = logger;
     this.shutdownNotifier = pShutdownNotifier;
     this.forcedCovering = pForcedCovering;
     status = AlgorithmStatus.SOUND_AND_PRECISE.withPrecise(!pIsImprecise);
+    parallelExpansionThreads = pParallelExpansionThreads;
+    parallelExpansionBatchSize = pParallelExpansionBatchSize;
   }
 
   @Override
   public AlgorithmStatus run(final ReachedSet reachedSet) throws CPAException, InterruptedException {
     stats.totalTimer.start();
     try {
+      if (parallelExpansionThreads > 1) {
+        return runWithParallelExpansion(reachedSet);
+      }
       return run0(reachedSet);
     } finally {
       stats.stopAllTimers();
@@ -301,6 +407,243 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
     return status;
   }
 
+  /**
+   * Variant of {@link #run0(ReachedSet)} that takes a batch of states from the waitlist, computes
+   * their successors and the precision adjustment of these successors concurrently, and afterwards
+   * handles merge, stop, and adding to the reached set for all successors sequentially in the order
+   * in which the states were taken from the waitlist.
+   *
+   * <p>While successors are computed, the reached set is not modified. Thus the precision
+   * adjustment of a successor does not see the successors of other states of the same batch.
+   */
+  private AlgorithmStatus runWithParallelExpansion(final ReachedSet reachedSet)
+      throws CPAException, InterruptedException {
+    ExecutorService pool =
+        Executors.newFixedThreadPool(
+            parallelExpansionThreads,
+            new ThreadFactoryBuilder()
+                .setDaemon(true) // for killing hanging threads at program exit
+                .setNameFormat("CPAAlgorithm-expansion-thread-%d")
+                .build());
+
+    // Transfer relations and precision adjustments are not required to be thread-safe,
+    // thus each thread works with its own instances (like in ParallelBAMAlgorithm).
+    BlockingQueue<ExpansionWorker> idleWorkers = new ArrayBlockingQueue<>(parallelExpansionThreads);
+    for (int i = 0; i < parallelExpansionThreads; i++) {
+      idleWorkers.add(new ExpansionWorker());
+    }
+
+    try {
+      while (reachedSet.hasWaitingState()) {
+        shutdownNotifier.shutdownIfNecessary();
+
+        stats.chooseTimer.start();
+        List<AbstractState> batch = new ArrayList<>(parallelExpansionBatchSize);
+        List<Callable<ExpandedState>> tasks = new ArrayList<>(parallelExpansionBatchSize);
+        while (batch.size() < parallelExpansionBatchSize && reachedSet.hasWaitingState()) {
+          int size = reachedSet.getWaitlist().size();
+          if (size >= stats.maxWaitlistSize) {
+            stats.maxWaitlistSize = size;
+          }
+          stats.countWaitlistSize += size;
+          stats.countIterations++;
+
+          final AbstractState state = reachedSet.popFromWaitlist();
+          final Precision precision = reachedSet.getPrecision(state);
+          batch.add(state);
+          tasks.add(
+              () -> {
+                ExpansionWorker worker = idleWorkers.take();
+                try {
+                  return worker.expand(state, precision, reachedSet);
+                } finally {
+                  idleWorkers.add(worker);
+                }
+              });
+        }
+        stats.chooseTimer.stop();
+        stats.batchSize.setNextValue(batch.size());
+        logger.log(Level.FINER, "Retrieved", batch.size(), "states from waitlist");
+
+        List<Future<ExpandedState>> results;
+        stats.expansionTimer.start();
+        try {
+          results = pool.invokeAll(tasks);
+        } catch (InterruptedException e) {
+          reAddAllToWaitlist(batch, reachedSet);
+          throw e;
+        } finally {
+          stats.expansionTimer.stop();
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+          try {
+            ExpandedState expanded = getResult(results.get(i));
+            if (isRemoved(expanded.state, reachedSet)) {
+              // merged into or replaced by the successor of an earlier state of this batch,
+              // a sequential analysis would not have expanded it at all
+              logger.log(Level.FINER, "Skipping successors of state removed from reached set");
+              discardSuccessors(expanded);
+              continue;
+            }
+            if (handleSuccessors(
+                expanded.state,
+                expanded.numSuccessors,
+                renewARGStates(expanded.precAdjustmentResults),
+                reachedSet)) {
+              // Prec operator requested break, the current state was already re-added if necessary
+              discardSuccessors(results.subList(i + 1, batch.size()));
+              reAddAllToWaitlist(batch.subList(i + 1, batch.size()), reachedSet);
+              return status;
+            }
+          } catch (Exception e) {
+            // re-add the unhandled states to the waitlist (cf. run0)
+            discardSuccessors(results.subList(i + 1, batch.size()));
+            reAddAllToWaitlist(batch.subList(i, batch.size()), reachedSet);
+            throw e;
+          }
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    return status;
+  }
+
+  private static ExpandedState getResult(Future<ExpandedState> pFuture)
+      throws CPAException, InterruptedException {
+    try {
+      return pFuture.get();
+    } catch (ExecutionException e) {
+      Throwable t = e.getCause();
+      Throwables.propagateIfPossible(t, CPAException.class, InterruptedException.class);
+      throw new UnexpectedCheckedException("successor computation", t);
+    }
+  }
+
+  /**
+   * The ARG does not cover a state by a younger state, and the age of a state is its id. The
+   * successors of a batch are created before the states that merge creates for the earlier states
+   * of the batch, thus they are replaced by fresh copies before merge and stop, like in a
+   * sequential analysis.
+   */
+  private static List<PrecisionAdjustmentResult> renewARGStates(
+      List<PrecisionAdjustmentResult> pResults) {
+    ImmutableList.Builder<PrecisionAdjustmentResult> renewed = ImmutableList.builder();
+    for (PrecisionAdjustmentResult result : pResults) {
+      if (result.abstractState() instanceof ARGState) {
+        renewed.add(result.withAbstractState(((ARGState) result.abstractState()).renewInARG()));
+      } else {
+        renewed.add(result);
+      }
+    }
+    return renewed.build();
+  }
+
+  /**
+   * Remove the successors of states that are not handled from the ARG. The transfer relation of the
+   * ARG links the successors to their parent already during the parallel computation, and merging
+   * the parent would move them to the merged state.
+   */
+  private static void discardSuccessors(ExpandedState pExpanded) {
+    for (PrecisionAdjustmentResult result : pExpanded.precAdjustmentResults) {
+      AbstractState successor = result.abstractState();
+      if (successor instanceof ARGState && !((ARGState) successor).isDestroyed()) {
+        ((ARGState) successor).removeFromARG();
+      }
+    }
+  }
+
+  private static void discardSuccessors(List<Future<ExpandedState>> pResults) {
+    // all futures are done after invokeAll
+    for (Future<ExpandedState> result : pResults) {
+      try {
+        discardSuccessors(Futures.getDone(result));
+      } catch (ExecutionException | CancellationException e) {
+        // no successors were computed for this state
+      }
+    }
+  }
+
+  private static void reAddAllToWaitlist(
+      List<AbstractState> pStates, final ReachedSet reachedSet) {
+    for (AbstractState state : pStates) {
+      if (!isRemoved(state, reachedSet)) {
+        reachedSet.reAddToWaitlist(state);
+      }
+    }
+  }
+
+  /** Whether a state of a batch was removed by merging the successors of another state. */
+  private static boolean isRemoved(AbstractState pState, final ReachedSet reachedSet) {
+    return !reachedSet.contains(pState)
+        || (pState instanceof ARGState && ((ARGState) pState).isDestroyed());
+  }
+
+  /** The successors and adjusted successors of a state, computed in parallel-expansion mode. */
+  private static final class ExpandedState {
+    private final AbstractState state;
+    private final int numSuccessors;
+    private final List<PrecisionAdjustmentResult> precAdjustmentResults;
+
+    private ExpandedState(
+        AbstractState pState,
+        int pNumSuccessors,
+        List<PrecisionAdjustmentResult> pPrecAdjustmentResults) {
+      state = pState;
+      numSuccessors = pNumSuccessors;
+      precAdjustmentResults = pPrecAdjustmentResults;
+    }
+  }
+
+  /**
+   * Operators and timers for one thread of the parallel-expansion mode. An instance is used by at
+   * most one thread at a time.
+   */
+  private final class ExpansionWorker {
+
+    private final TransferRelation workerTransferRelation = cpa.getTransferRelation();
+    private final PrecisionAdjustment workerPrecisionAdjustment = cpa.getPrecisionAdjustment();
+    private final TimerWrapper transferTimer = stats.parallelTransferTimer.getNewTimer();
+    private final TimerWrapper precisionTimer = stats.parallelPrecisionTimer.getNewTimer();
+
+    private ExpandedState expand(
+        final AbstractState state,
+        final Precision precision,
+        final UnmodifiableReachedSet reachedSet)
+        throws CPAException, InterruptedException {
+      logger.log(Level.ALL, "Current state is", state, "with precision", precision);
+
+      Collection<? extends AbstractState> successors;
+      CPAOperatorEvent transferEvent = CPAOperatorEvent.start(CPAOperatorEvent.TRANSFER);
+      transferTimer.start();
+      try {
+        successors = workerTransferRelation.getAbstractSuccessors(state, precision);
+      } finally {
+        transferTimer.stop();
+        transferEvent.commit(cpaName, state);
+      }
+
+      ImmutableList.Builder<PrecisionAdjustmentResult> results = ImmutableList.builder();
+      for (AbstractState successor : successors) {
+        shutdownNotifier.shutdownIfNecessary();
+        CPAOperatorEvent precisionEvent =
+            CPAOperatorEvent.start(CPAOperatorEvent.PRECISION_ADJUSTMENT);
+        precisionTimer.start();
+        try {
+          workerPrecisionAdjustment
+              .prec(successor, precision, reachedSet, Functions.identity(), successor)
+              .ifPresent(results::add);
+        } finally {
+          precisionTimer.stop();
+          precisionEvent.commit(cpaName, successor);
+        }
+      }
+      return new ExpandedState(state, successors.size(), results.build());
+    }
+  }
+
   /**
    * Handle one state from the waitlist, i.e., produce successors etc.
    * @param state The abstract state that was taken out of the waitlist
@@ -327,12 +670,14 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
       }
     }
 
+    CPAOperatorEvent transferEvent = CPAOperatorEvent.start(CPAOperatorEvent.TRANSFER);
     stats.transferTimer.start();
     Collection<? extends AbstractState> successors;
     try {
       successors = transferRelation.getAbstractSuccessors(state, precision);
     } finally {
       stats.transferTimer.stop();
+      transferEvent.commit(cpaName, state);
     }
     // TODO When we have a nice way to mark the analysis result as incomplete,
     // we could continue analysis on a CPATransferException with the next state from waitlist.
@@ -348,6 +693,8 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
       logger.log(Level.FINER, "Considering successor of current state");
       logger.log(Level.ALL, "Successor of", state, "\nis", successor);
 
+      CPAOperatorEvent precisionEvent =
+          CPAOperatorEvent.start(CPAOperatorEvent.PRECISION_ADJUSTMENT);
       stats.precisionTimer.start();
       PrecisionAdjustmentResult precAdjustmentResult;
       try {
@@ -360,109 +707,175 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
         precAdjustmentResult = precAdjustmentOptional.orElseThrow();
       } finally {
         stats.precisionTimer.stop();
+        precisionEvent.commit(cpaName, successor);
       }
 
-      successor = precAdjustmentResult.abstractState();
-      Precision successorPrecision = precAdjustmentResult.precision();
-      Action action = precAdjustmentResult.action();
+      if (handleSuccessor(state, precAdjustmentResult, it.hasNext(), reachedSet)) {
+        return true;
+      }
+    }
 
-      if (action == Action.BREAK) {
-        stats.stopTimer.start();
-        boolean stop;
-        try {
-          stop = stopOperator.stop(successor, reachedSet.getReached(successor), successorPrecision);
-        } finally {
-          stats.stopTimer.stop();
-        }
+    return false;
+  }
 
-        if (AbstractStates.isTargetState(successor) && stop) {
-          // don't signal BREAK for covered states
-          // no need to call merge and stop either, so just ignore this state
-          // and handle next successor
-          stats.countStop++;
-          logger.log(Level.FINER, "Break was signalled but ignored because the state is covered.");
-          continue;
+  /**
+   * Handle the already computed and adjusted successors of one state from the waitlist, i.e.,
+   * merge, stop, and add them to the reached set.
+   *
+   * @param state The abstract state that was taken out of the waitlist
+   * @param numSuccessors The number of successors before precision adjustment.
+   * @param precAdjustmentResults The results of the precision adjustment of the successors.
+   * @param reachedSet The reached set.
+   * @return true if analysis should terminate, false if analysis should continue with next state
+   */
+  private boolean handleSuccessors(
+      final AbstractState state,
+      final int numSuccessors,
+      final List<PrecisionAdjustmentResult> precAdjustmentResults,
+      final ReachedSet reachedSet)
+      throws CPAException, InterruptedException {
+    logger.log(Level.FINER, "Current state has", numSuccessors, "successors");
+    stats.countSuccessors += numSuccessors;
+    stats.maxSuccessors = Math.max(numSuccessors, stats.maxSuccessors);
 
-        } else {
-          stats.countBreak++;
-          logger.log(Level.FINER, "Break signalled, CPAAlgorithm will stop.");
+    for (Iterator<PrecisionAdjustmentResult> it = precAdjustmentResults.iterator();
+        it.hasNext(); ) {
+      shutdownNotifier.shutdownIfNecessary();
+      logger.log(Level.FINER, "Considering successor of current state");
+      if (handleSuccessor(state, it.next(), it.hasNext(), reachedSet)) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-          // add the new state
-          reachedSet.add(successor, successorPrecision);
+  /**
+   * Handle one adjusted successor of a state from the waitlist, i.e., merge, stop, and add it to
+   * the reached set.
+   *
+   * @param state The abstract state that was taken out of the waitlist
+   * @param precAdjustmentResult The result of the precision adjustment of the successor.
+   * @param hasUnhandledSuccessors Whether there are further successors of the state that still
+   *     need to be handled.
+   * @param reachedSet The reached set.
+   * @return true if analysis should terminate, false if analysis should continue
+   */
+  private boolean handleSuccessor(
+      final AbstractState state,
+      final PrecisionAdjustmentResult precAdjustmentResult,
+      final boolean hasUnhandledSuccessors,
+      final ReachedSet reachedSet)
+      throws CPAException, InterruptedException {
+    AbstractState successor = precAdjustmentResult.abstractState();
+    Precision successorPrecision = precAdjustmentResult.precision();
+    Action action = precAdjustmentResult.action();
 
-          if (it.hasNext()) {
-            // re-add the old state to the waitlist, there are unhandled
-            // successors left that otherwise would be forgotten
-            reachedSet.reAddToWaitlist(state);
-          }
+    if (action == Action.BREAK) {
+      CPAOperatorEvent stopEvent = CPAOperatorEvent.start(CPAOperatorEvent.STOP);
+      stats.stopTimer.start();
+      boolean stop;
+      try {
+        stop =
+            stopOperator.stop(
+                successor, reachedSet.getCoverageCandidates(successor), successorPrecision);
+      } finally {
+        stats.stopTimer.stop();
+        stopEvent.commit(cpaName, successor);
+      }
 
-          return true;
+      if (AbstractStates.isTargetState(successor) && stop) {
+        // don't signal BREAK for covered states
+        // no need to call merge and stop either, so just ignore this state
+        // and handle next successor
+        stats.countStop++;
+        logger.log(Level.FINER, "Break was signalled but ignored because the state is covered.");
+        return false;
+
+      } else {
+        stats.countBreak++;
+        logger.log(Level.FINER, "Break signalled, CPAAlgorithm will stop.");
+
+        // add the new state
+        reachedSet.add(successor, successorPrecision);
+
+        if (hasUnhandledSuccessors) {
+          // re-add the old state to the waitlist, there are unhandled
+          // successors left that otherwise would be forgotten
+          reachedSet.reAddToWaitlist(state);
         }
+
+        return true;
       }
-      assert action == Action.CONTINUE : "Enum Action has unhandled values!";
+    }
+    assert action == Action.CONTINUE : "Enum Action has unhandled values!";
 
-      Collection<AbstractState> reached = reachedSet.getReached(successor);
+    Collection<AbstractState> reached = reachedSet.getReached(successor);
 
-      // An optimization, we don't bother merging if we know that the
-      // merge operator won't do anything (i.e., it is merge-sep).
-      if (mergeOperator != MergeSepOperator.getInstance() && !reached.isEmpty()) {
-        stats.mergeTimer.start();
+    // An optimization, we don't bother merging if we know that the
+    // merge operator won't do anything (i.e., it is merge-sep).
+    if (mergeOperator != MergeSepOperator.getInstance() && !reached.isEmpty()) {
+      CPAOperatorEvent mergeEvent = CPAOperatorEvent.start(CPAOperatorEvent.MERGE);
+      stats.mergeTimer.start();
+      try {
+        List<AbstractState> toRemove = new ArrayList<>();
+        List<Pair<AbstractState, Precision>> toAdd = new ArrayList<>();
         try {
-          List<AbstractState> toRemove = new ArrayList<>();
-          List<Pair<AbstractState, Precision>> toAdd = new ArrayList<>();
-          try {
-            logger.log(
-                Level.FINER, "Considering", reached.size(), "states from reached set for merge");
-            for (AbstractState reachedState : reached) {
-              shutdownNotifier.shutdownIfNecessary();
-              AbstractState mergedState =
-                  mergeOperator.merge(successor, reachedState, successorPrecision);
-
-              if (!mergedState.equals(reachedState)) {
-                logger.log(Level.FINER, "Successor was merged with state from reached set");
-                logger.log(
-                    Level.ALL, "Merged", successor, "\nand", reachedState, "\n-->", mergedState);
-                stats.countMerge++;
-
-                toRemove.add(reachedState);
-                toAdd.add(Pair.of(mergedState, successorPrecision));
-              }
+          logger.log(
+              Level.FINER, "Considering", reached.size(), "states from reached set for merge");
+          for (AbstractState reachedState : reached) {
+            shutdownNotifier.shutdownIfNecessary();
+            AbstractState mergedState =
+                mergeOperator.merge(successor, reachedState, successorPrecision);
+
+            if (!mergedState.equals(reachedState)) {
+              logger.log(Level.FINER, "Successor was merged with state from reached set");
+              logger.log(
+                  Level.ALL, "Merged", successor, "\nand", reachedState, "\n-->", mergedState);
+              stats.countMerge++;
+
+              toRemove.add(reachedState);
+              toAdd.add(Pair.of(mergedState, successorPrecision));
             }
-          } finally {
-            // If we terminate, we should still update the reachedSet if necessary
-            // because ARGCPA doesn't like states in toRemove to be in the reachedSet.
-            reachedSet.removeAll(toRemove);
-            reachedSet.addAll(toAdd);
           }
-
-          if (mergeOperator instanceof ARGMergeJoinCPAEnabledAnalysis) {
-            ((ARGMergeJoinCPAEnabledAnalysis) mergeOperator).cleanUp(reachedSet);
-          }
-
         } finally {
-          stats.mergeTimer.stop();
+          // If we terminate, we should still update the reachedSet if necessary
+          // because ARGCPA doesn't like states in toRemove to be in the reachedSet.
+          reachedSet.removeAll(toRemove);
+          reachedSet.addAll(toAdd);
+        }
+
+        if (mergeOperator instanceof ARGMergeJoinCPAEnabledAnalysis) {
+          ((ARGMergeJoinCPAEnabledAnalysis) mergeOperator).cleanUp(reachedSet);
         }
-      }
 
-      stats.stopTimer.start();
-      boolean stop;
-      try {
-        stop = stopOperator.stop(successor, reached, successorPrecision);
       } finally {
-        stats.stopTimer.stop();
+        stats.mergeTimer.stop();
+        mergeEvent.commit(cpaName, successor);
       }
+    }
 
-      if (stop) {
-        logger.log(Level.FINER, "Successor is covered or unreachable, not adding to waitlist");
-        stats.countStop++;
+    CPAOperatorEvent stopEvent = CPAOperatorEvent.start(CPAOperatorEvent.STOP);
+    stats.stopTimer.start();
+    boolean stop;
+    try {
+      stop =
+          stopOperator.stop(
+              successor, reachedSet.getCoverageCandidates(successor), successorPrecision);
+    } finally {
+      stats.stopTimer.stop();
+      stopEvent.commit(cpaName, successor);
+    }
 
-      } else {
-        logger.log(Level.FINER, "No need to stop, adding successor to waitlist");
+    if (stop) {
+      logger.log(Level.FINER, "Successor is covered or unreachable, not adding to waitlist");
+      stats.countStop++;
 
-        stats.addTimer.start();
-        reachedSet.add(successor, successorPrecision);
-        stats.addTimer.stop();
-      }
+    } else {
+      logger.log(Level.FINER, "No need to stop, adding successor to waitlist");
+
+      stats.addTimer.start();
+      reachedSet.add(successor, successorPrecision);
+      stats.addTimer.stop();
     }
 
     return false;
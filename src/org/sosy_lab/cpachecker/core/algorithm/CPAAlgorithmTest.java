@@ -0,0 +1,118 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.algorithm;
+
+import static com.google.common.collect.FluentIterable.from;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.io.TempFile;
+import org.sosy_lab.common.io.TempFile.DeleteOnCloseFile;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.cpa.arg.ARGState;
+import org.sosy_lab.cpachecker.cpa.value.ValueAnalysisState;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+import org.sosy_lab.cpachecker.util.Pair;
+import org.sosy_lab.cpachecker.util.test.CPATestRunner;
+import org.sosy_lab.cpachecker.util.test.TestDataTools;
+import org.sosy_lab.cpachecker.util.test.TestResults;
+
+public class CPAAlgorithmTest {
+
+  private static final ImmutableList<String> MERGING_PROGRAM =
+      ImmutableList.of(
+          "extern int __VERIFIER_nondet_int();",
+          "",
+          "int main() {",
+          "  int x = 0;",
+          "  int y = 0;",
+          "  int i;",
+          "  for (i = 0; i < 10; i++) {",
+          "    if (__VERIFIER_nondet_int()) {",
+          "      x = 1;",
+          "    } else {",
+          "      x = 2;",
+          "    }",
+          "    if (__VERIFIER_nondet_int()) {",
+          "      y = x;",
+          "    }",
+          "  }",
+          "  return 0;",
+          "}");
+
+  private static TestResults run(String pProgram, int pThreads) throws Exception {
+    Configuration config =
+        TestDataTools.configurationForTest()
+            .setOption("cpa", "cpa.arg.ARGCPA")
+            .setOption("ARGCPA.cpa", "cpa.composite.CompositeCPA")
+            .setOption(
+                "CompositeCPA.cpas",
+                "cpa.location.LocationCPA, cpa.callstack.CallstackCPA, cpa.value.ValueAnalysisCPA")
+            .setOption("cpa.value.merge", "JOIN")
+            .setOption("analysis.traversal.order", "BFS")
+            .setOption("cpa.parallelExpansion.threads", Integer.toString(pThreads))
+            .setOption("cpa.parallelExpansion.batchSize", "8")
+            .build();
+    return CPATestRunner.run(config, pProgram);
+  }
+
+  private static ImmutableMultiset<Pair<CFANode, ValueAnalysisState>> contentOf(UnmodifiableReachedSet pReached) {
+    return from(pReached)
+        .transform(
+            s ->
+                Pair.of(
+                    AbstractStates.extractLocation(s),
+                    AbstractStates.extractStateByType(s, ValueAnalysisState.class)))
+        .toMultiset();
+  }
+
+  @Test
+  public void parallelExpansionWithMergeEqualsSequentialExpansion() throws Exception {
+    try (DeleteOnCloseFile programFile =
+        TempFile.builder().prefix("test").suffix(".c").createDeleteOnClose()) {
+      Files.write(programFile.toPath(), MERGING_PROGRAM);
+      String program = programFile.toPath().toString();
+
+      UnmodifiableReachedSet sequential = run(program, 1).getCheckerResult().getReached();
+      UnmodifiableReachedSet parallel = run(program, 4).getCheckerResult().getReached();
+
+      assertThat(contentOf(parallel)).isEqualTo(contentOf(sequential));
+
+      // no state of the parallel ARG is destroyed or points to states outside of the ARG
+      List<ARGState> states = from(parallel).filter(ARGState.class).toList();
+      for (ARGState state : states) {
+        assertThat(state.isDestroyed()).isFalse();
+        for (ARGState child : state.getChildren()) {
+          assertThat(parallel.contains(child) || child.isCovered()).isTrue();
+        }
+      }
+    }
+  }
+}
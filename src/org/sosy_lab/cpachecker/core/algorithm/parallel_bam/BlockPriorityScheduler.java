@@ -0,0 +1,159 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.algorithm.parallel_bam;
+
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * A work-stealing scheduler for the tasks of {@link ReachedSetExecutor}s.
+ *
+ * <p>Each thread of the pool owns a priority queue for the tasks that it submits, e.g., the tasks
+ * for the sub-blocks that are missing in its current block. For each submitted task, a small runner
+ * is pushed onto the local deque of the {@link ForkJoinPool}. A runner executes the task with the
+ * highest priority of the queue it belongs to. Idle threads steal runners from other threads and
+ * thus execute the most important task of the other thread, while busy threads keep working on
+ * their own tasks without contention on a shared queue. Tasks that are submitted from outside of
+ * the pool are stored in a separate queue.
+ *
+ * <p>There is exactly one runner per task and each runner executes at most one task, thus each task
+ * is executed exactly once. The priority of a task is determined once when it is submitted.
+ */
+public class BlockPriorityScheduler {
+
+  private final ForkJoinPool pool;
+
+  /** tasks submitted by threads outside of the pool, e.g., the initial task. */
+  private final Queue<PrioritizedTask> externalTasks = new PriorityBlockingQueue<>();
+
+  private final AtomicLong submittedTasks = new AtomicLong(0);
+
+  /**
+   * Create a scheduler with the given number of threads.
+   *
+   * @param pThreadNamePrefix prefix for the names of the threads, followed by the thread number.
+   */
+  public BlockPriorityScheduler(int pNumberOfThreads, String pThreadNamePrefix) {
+    AtomicLong threadCounter = new AtomicLong(0);
+    pool =
+        new ForkJoinPool(
+            pNumberOfThreads,
+            p -> new Worker(p, pThreadNamePrefix + threadCounter.getAndIncrement()),
+            null,
+            false);
+  }
+
+  /**
+   * Return the thread pool for shutting down the analysis. Tasks must be submitted via {@link
+   * #executorWithPriority}, otherwise they are not prioritized.
+   */
+  public ExecutorService getPool() {
+    return pool;
+  }
+
+  /** Return the number of tasks that were executed by another thread than their submitter. */
+  public long getStealCount() {
+    return pool.getStealCount();
+  }
+
+  /**
+   * Return an executor that submits tasks with the priority given by the supplier, e.g., the number
+   * of reached-sets waiting for the reached-set of the tasks.
+   */
+  public Executor executorWithPriority(IntSupplier pPriority) {
+    return command ->
+        submit(
+            new PrioritizedTask(command, pPriority.getAsInt(), submittedTasks.getAndIncrement()));
+  }
+
+  private void submit(PrioritizedTask pTask) {
+    Thread current = Thread.currentThread();
+    if (current instanceof Worker && ((Worker) current).getPool() == pool) {
+      // the runner must be pushed after the task was added, see class documentation
+      Queue<PrioritizedTask> localTasks = ((Worker) current).localTasks;
+      localTasks.add(pTask);
+      new Runner(localTasks).fork();
+    } else {
+      externalTasks.add(pTask);
+      pool.execute(new Runner(externalTasks));
+    }
+  }
+
+  private static final class Worker extends ForkJoinWorkerThread {
+
+    private final Queue<PrioritizedTask> localTasks = new PriorityBlockingQueue<>();
+
+    private Worker(ForkJoinPool pPool, String pName) {
+      super(pPool);
+      setName(pName);
+    }
+  }
+
+  /** Executes the task with the highest priority of a queue, possibly in a stealing thread. */
+  private static final class Runner extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Queue<PrioritizedTask> tasks;
+
+    private Runner(Queue<PrioritizedTask> pTasks) {
+      tasks = pTasks;
+    }
+
+    @Override
+    protected void compute() {
+      PrioritizedTask task = tasks.poll();
+      // there are as many runners as tasks for each queue and a runner is created after its task
+      assert task != null : "runner without task";
+      task.command.run();
+    }
+  }
+
+  private static final class PrioritizedTask implements Comparable<PrioritizedTask> {
+
+    private final Runnable command;
+    private final int priority;
+    private final long sequenceNumber;
+
+    private PrioritizedTask(Runnable pCommand, int pPriority, long pSequenceNumber) {
+      command = pCommand;
+      priority = pPriority;
+      sequenceNumber = pSequenceNumber;
+    }
+
+    @Override
+    public int compareTo(PrioritizedTask pOther) {
+      // higher priority first, then in order of submission
+      int result = Integer.compare(pOther.priority, priority);
+      return result != 0 ? result : Long.compare(sequenceNumber, pOther.sequenceNumber);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.algorithm.parallel_bam;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.After;
+import org.junit.Test;
+
+public class BlockPrioritySchedulerTest {
+
+  private BlockPriorityScheduler scheduler;
+
+  @After
+  public void shutdown() throws InterruptedException {
+    scheduler.getPool().shutdown();
+    assertThat(scheduler.getPool().awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void tasksOfOneThreadRunByPriority() throws InterruptedException {
+    scheduler = new BlockPriorityScheduler(1, "test-thread-");
+    List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(4);
+    scheduler
+        .executorWithPriority(() -> 0)
+        .execute(
+            () -> {
+              // the only thread is busy, thus the tasks wait in its local queue
+              for (int priority : new int[] {1, 3, 2, 3}) {
+                scheduler
+                    .executorWithPriority(() -> priority)
+                    .execute(
+                        () -> {
+                          executed.add(priority);
+                          done.countDown();
+                        });
+              }
+            });
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(executed).containsExactly(3, 3, 2, 1).inOrder();
+  }
+
+  @Test
+  public void everyTaskRunsOnce() throws InterruptedException {
+    scheduler = new BlockPriorityScheduler(4, "test-thread-");
+    int depth = 8;
+    int numberOfTasks = (1 << (depth + 1)) - 1;
+    AtomicIntegerArray executions = new AtomicIntegerArray(numberOfTasks);
+    CountDownLatch done = new CountDownLatch(numberOfTasks);
+    submitTree(0, depth, executions, done);
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    for (int i = 0; i < numberOfTasks; i++) {
+      assertThat(executions.get(i)).isEqualTo(1);
+    }
+  }
+
+  /** Submit a task that submits the tasks for both children in a binary tree of tasks. */
+  private void submitTree(
+      int pIndex, int pDepth, AtomicIntegerArray pExecutions, CountDownLatch pDone) {
+    scheduler
+        .executorWithPriority(() -> pIndex % 3)
+        .execute(
+            () -> {
+              pExecutions.incrementAndGet(pIndex);
+              if (pDepth > 0) {
+                submitTree(2 * pIndex + 1, pDepth - 1, pExecutions, pDone);
+                submitTree(2 * pIndex + 2, pDepth - 1, pExecutions, pDone);
+              }
+              pDone.countDown();
+            });
+  }
+}
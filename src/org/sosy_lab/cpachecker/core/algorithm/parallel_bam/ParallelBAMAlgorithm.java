@@ -99,6 +99,14 @@ public class ParallelBAMAlgorithm implements Algorithm, StatisticsProvider {
   @FileOption(FileOption.Type.OUTPUT_FILE)
   private Path runningRSESeriesFile = Paths.get("RSESeries.csv");
 
+  @Option(
+      secure = true,
+      description =
+          "use a work-stealing thread pool, in which each thread first analyzes the "
+              + "reached-sets on which most other reached-sets wait, instead of a fixed pool "
+              + "with one FIFO queue")
+  private boolean workStealing = false;
+
   private final ParallelBAMStatistics stats = new ParallelBAMStatistics();
   private final LogManager logger;
   private final LogManagerWithoutDuplicates oneTimeLogger;
@@ -139,12 +147,21 @@ public class ParallelBAMAlgorithm implements Algorithm, StatisticsProvider {
     final int numberOfCores = getNumberOfCores();
     oneTimeLogger.logfOnce(Level.INFO, "creating pool for %d threads", numberOfCores);
 
-    ThreadFactory threadFactory =
-        new ThreadFactoryBuilder()
-            .setDaemon(true) // for killing hanging threads at program exit
-            .setNameFormat("ParallelBAM-thread-%d")
-            .build();
-    final ExecutorService pool = Executors.newFixedThreadPool(numberOfCores, threadFactory);
+    final BlockPriorityScheduler scheduler;
+    final ExecutorService pool;
+    if (workStealing) {
+      // the threads of a ForkJoinPool are daemon threads
+      scheduler = new BlockPriorityScheduler(numberOfCores, "ParallelBAM-thread-");
+      pool = scheduler.getPool();
+    } else {
+      ThreadFactory threadFactory =
+          new ThreadFactoryBuilder()
+              .setDaemon(true) // for killing hanging threads at program exit
+              .setNameFormat("ParallelBAM-thread-%d")
+              .build();
+      scheduler = null;
+      pool = Executors.newFixedThreadPool(numberOfCores, threadFactory);
+    }
     final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
     final AtomicBoolean terminateAnalysis = new AtomicBoolean(false);
     final AtomicInteger scheduledJobs = new AtomicInteger(0);
@@ -163,6 +180,7 @@ public class ParallelBAMAlgorithm implements Algorithm, StatisticsProvider {
             true,
             reachedSetMapping,
             pool,
+            scheduler,
             algorithmFactory,
             shutdownNotifier,
             stats,
@@ -210,6 +228,10 @@ public class ParallelBAMAlgorithm implements Algorithm, StatisticsProvider {
       }
     }
 
+    if (scheduler != null) {
+      stats.numStolenTasks.accumulate(scheduler.getStealCount());
+    }
+
     collectExceptions(reachedSetMapping, errors, mainReachedSet);
 
     //    assert targetStateFound
@@ -338,6 +360,7 @@ public class ParallelBAMAlgorithm implements Algorithm, StatisticsProvider {
     final ThreadSafeTimerContainer terminationCheckTime =
         new ThreadSafeTimerContainer("Time for terminating RSE");
     final LongAccumulator numMaxRSE = new LongAccumulator(Math::max, 0);
+    final LongAccumulator numStolenTasks = new LongAccumulator(Long::sum, 0);
     final AtomicInteger numActiveThreads = new AtomicInteger(0);
     final StatHist histActiveThreads = new StatHist("Active threads");
     final StatHist executionCounter = new StatHist("RSE execution counter");
@@ -349,6 +372,9 @@ public class ParallelBAMAlgorithm implements Algorithm, StatisticsProvider {
     @Override
     public void printStatistics(PrintStream pOut, Result pResult, UnmodifiableReachedSet pReached) {
       StatisticsUtils.write(pOut, 0, 50, "max number of executors", numMaxRSE);
+      if (workStealing) {
+        StatisticsUtils.write(pOut, 0, 50, "number of stolen tasks", numStolenTasks);
+      }
       StatisticsUtils.write(pOut, 0, 50, histActiveThreads);
       StatisticsUtils.write(pOut, 0, 50, executionCounter);
       StatisticsUtils.write(pOut, 0, 50, unfinishedRSEcounter);
@@ -44,11 +44,13 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.logging.Level;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.cpachecker.cfa.blocks.Block;
@@ -101,6 +103,10 @@ class ReachedSetExecutor {
 
   private final ExecutorService pool;
 
+  /** executor for the tasks of this RSE, either the pool itself or a work-stealing scheduler. */
+  private final @Nullable BlockPriorityScheduler scheduler;
+  private final Executor executor;
+
   private final BAMCPAWithBreakOnMissingBlock bamcpa;
   private final AlgorithmFactory algorithmFactory;
   private final ShutdownNotifier shutdownNotifier;
@@ -137,6 +143,15 @@ class ReachedSetExecutor {
   private final Multimap<ReachedSetExecutor, AbstractState> dependingFrom =
       LinkedHashMultimap.create();
 
+  /**
+   * The priority of the tasks of this RSE, i.e., the number of RSEs that directly or transitively
+   * wait for the current one. This is an estimate: RSEs that wait over several paths are counted
+   * once per path, and RSEs that start waiting later for an intermediate RSE are not counted. The
+   * number is only updated when a dependency is added or released, such that blocks on which many
+   * other blocks wait are analyzed first without traversing the dependencies for each task.
+   */
+  private final AtomicInteger priority = new AtomicInteger(0);
+
   /** This future contains the list of tasks to be executed with this RSE. */
   private CompletableFuture<Void> waitingTask;
 
@@ -147,6 +162,7 @@ class ReachedSetExecutor {
       boolean pIsMainReachedSet,
       ConcurrentMap<ReachedSet, ReachedSetExecutor> pReachedSetMapping,
       ExecutorService pPool,
+      @Nullable BlockPriorityScheduler pScheduler,
       AlgorithmFactory pAlgorithmFactory,
       ShutdownNotifier pShutdownNotifier,
       ParallelBAMStatistics pStats,
@@ -160,6 +176,9 @@ class ReachedSetExecutor {
     isMainReachedSet = pIsMainReachedSet;
     reachedSetMapping = pReachedSetMapping;
     pool = pPool;
+    scheduler = pScheduler;
+    executor =
+        scheduler == null ? pool : scheduler.executorWithPriority(priority::get);
     algorithmFactory = pAlgorithmFactory;
     shutdownNotifier = pShutdownNotifier;
     stats = pStats;
@@ -179,7 +198,7 @@ class ReachedSetExecutor {
     terminationCheckTimer = stats.terminationCheckTime.getNewTimer();
 
     // initialization with a NOOP, more tasks are appended later
-    waitingTask = CompletableFuture.runAsync(() -> {}, pool);
+    waitingTask = CompletableFuture.runAsync(() -> {}, executor);
   }
 
   public Runnable asRunnable() {
@@ -198,7 +217,7 @@ class ReachedSetExecutor {
 
   synchronized void addNewTask(Runnable r) {
     scheduledJobs.incrementAndGet();
-    waitingTask = waitingTask.thenRunAsync(r, pool).exceptionally(new ExceptionHandler(this));
+    waitingTask = waitingTask.thenRunAsync(r, executor).exceptionally(new ExceptionHandler(this));
   }
 
   /** use only for debugging and exception handling */
@@ -405,6 +424,7 @@ class ReachedSetExecutor {
         registerJob(parent.getKey(), parent.getKey().asRunnable(parent.getValue()));
       }
       dependingFrom.clear();
+      priority.set(0);
     }
   }
 
@@ -412,9 +432,15 @@ class ReachedSetExecutor {
       MissingBlockAbstractionState pBsme, final ReachedSetExecutor subRse) {
     logger.logf(level, "%s :: %s -> %s", this, this, subRse);
     dependsOn.add(pBsme.getState());
+    final boolean isNewDependency;
     synchronized (subRse.dependingFrom) {
+      isNewDependency = !subRse.dependingFrom.containsKey(this);
       subRse.dependingFrom.put(this, pBsme.getState());
     }
+    if (isNewDependency) {
+      // the current RSE and all RSEs waiting for it now wait for the sub-RSE
+      subRse.priority.addAndGet(1 + priority.get());
+    }
   }
 
   /**
@@ -525,6 +551,7 @@ class ReachedSetExecutor {
             false, // mainReachedSet is never nested in another reached-set
             reachedSetMapping,
             pool,
+            scheduler,
             algorithmFactory,
             shutdownNotifier,
             stats,
@@ -53,7 +53,7 @@ public abstract class AbstractSingleWrapperState
     return pArg0 -> ((AbstractSingleWrapperState)pArg0).getWrappedState();
   }
 
-  private final @Nullable AbstractState wrappedState;
+  private @Nullable AbstractState wrappedState;
 
   public AbstractSingleWrapperState(@Nullable AbstractState pWrappedState) {
     // TODO this collides with some CPAs' way of handling dummy states, but it should really be not null here
@@ -61,14 +61,29 @@ public abstract class AbstractSingleWrapperState
     wrappedState = pWrappedState;
   }
 
+  /**
+   * Returns the wrapped state. Subclasses that keep the wrapped state elsewhere
+   * (cf. {@link #setWrappedState(AbstractState)}) override this method,
+   * thus all other methods of this class access the wrapped state only through it.
+   */
   public @Nullable AbstractState getWrappedState() {
     return wrappedState;
   }
 
+  /**
+   * Replace the wrapped state. This is only meant for subclasses that temporarily release
+   * the wrapped state and restore an equivalent state later on,
+   * it must not be used to change the abstract state that this state represents.
+   */
+  protected void setWrappedState(@Nullable AbstractState pWrappedState) {
+    wrappedState = pWrappedState;
+  }
+
   @Override
   public boolean isTarget() {
-    if (wrappedState instanceof Targetable) {
-      return ((Targetable)wrappedState).isTarget();
+    AbstractState state = getWrappedState();
+    if (state instanceof Targetable) {
+      return ((Targetable) state).isTarget();
     } else {
       return false;
     }
@@ -77,13 +92,14 @@ public abstract class AbstractSingleWrapperState
   @Override
   public Set<Property> getViolatedProperties() throws IllegalStateException {
     checkState(isTarget());
-    return ((Targetable)wrappedState).getViolatedProperties();
+    return ((Targetable)getWrappedState()).getViolatedProperties();
   }
 
   @Override
   public Object getPartitionKey() {
-    if (wrappedState instanceof Partitionable) {
-      return ((Partitionable)wrappedState).getPartitionKey();
+    AbstractState state = getWrappedState();
+    if (state instanceof Partitionable) {
+      return ((Partitionable) state).getPartitionKey();
     } else {
       return null;
     }
@@ -91,8 +107,9 @@ public abstract class AbstractSingleWrapperState
 
   @Override
   public Comparable<?> getPseudoPartitionKey() {
-    if (wrappedState instanceof PseudoPartitionable) {
-      return ((PseudoPartitionable) wrappedState).getPseudoPartitionKey();
+    AbstractState state = getWrappedState();
+    if (state instanceof PseudoPartitionable) {
+      return ((PseudoPartitionable) state).getPseudoPartitionKey();
     } else {
       return null;
     }
@@ -100,8 +117,9 @@ public abstract class AbstractSingleWrapperState
 
   @Override
   public Object getPseudoHashCode() {
-    if (wrappedState instanceof PseudoPartitionable) {
-      return ((PseudoPartitionable) wrappedState).getPseudoHashCode();
+    AbstractState state = getWrappedState();
+    if (state instanceof PseudoPartitionable) {
+      return ((PseudoPartitionable) state).getPseudoHashCode();
     } else {
       return null;
     }
@@ -109,11 +127,11 @@ public abstract class AbstractSingleWrapperState
 
   @Override
   public String toString() {
-    return wrappedState.toString();
+    return getWrappedState().toString();
   }
 
   @Override
   public ImmutableList<AbstractState> getWrappedStates() {
-    return ImmutableList.of(wrappedState);
+    return ImmutableList.of(getWrappedState());
   }
 }
\ No newline at end of file
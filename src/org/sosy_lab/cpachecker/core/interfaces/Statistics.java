@@ -24,6 +24,7 @@
 package org.sosy_lab.cpachecker.core.interfaces;
 
 import java.io.PrintStream;
+import java.util.Map;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.cpachecker.core.CPAcheckerResult.Result;
 import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
@@ -82,6 +83,19 @@ public interface Statistics {
    */
   default void writeOutputFiles(Result pResult, UnmodifiableReachedSet pReached) {}
 
+  /**
+   * Add the current values of the most important numbers of this group of statistics to the given
+   * map, such that they can be written as live telemetry while the analysis is still running (cf.
+   * {@link org.sosy_lab.cpachecker.util.statistics.TelemetryWriter}).
+   *
+   * <p>This method is called periodically from a different thread than the analysis, so it must
+   * not modify any state and should only read fields that are cheap to access. Slightly outdated
+   * values are acceptable. Values should be numbers, strings, or booleans.
+   *
+   * @param pSnapshot the map to which the values should be added
+   */
+  default void collectTelemetry(Map<String, Object> pSnapshot) {}
+
   int DEFAULT_OUTPUT_NAME_COL_WIDTH = 50;
 
   /**
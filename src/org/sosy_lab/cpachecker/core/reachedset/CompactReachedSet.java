@@ -0,0 +1,750 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.reachedset;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Partitionable;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.waitlist.AbstractSortedWaitlist;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist.WaitlistFactory;
+import org.sosy_lab.cpachecker.util.Pair;
+import org.sosy_lab.cpachecker.util.statistics.AbstractStatValue;
+
+/**
+ * Memory-efficient implementation of the reached set that partitions the states like {@link
+ * PartitionedReachedSet}.
+ *
+ * <p>Instead of linked hash maps with one entry object per state, this implementation assigns a
+ * dense id to each state (in the order the states were added) and stores all per-state data in
+ * arrays indexed by this id. The lookup from state to id is done by an open-addressing hash table
+ * of ints, and each partition is an array of ids. Precisions are interned, i.e., for equal
+ * precisions only one canonical instance is stored and each state only refers to the index of its
+ * precision. Thus {@link #getPrecision(AbstractState)} returns an instance that is equal, but not
+ * necessarily identical, to the precision that was given when adding the state.
+ *
+ * <p>Ids of removed states are reclaimed by compacting the arrays when enough of them became
+ * unused.
+ */
+public class CompactReachedSet implements ReachedSet, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** marker for empty slots in the hash table and for removed ids in partitions */
+  private static final int NONE = -1;
+
+  // per-state data, indexed by the id of the state
+
+  /** the states in the order they were added, or null if the state was removed */
+  @SuppressFBWarnings("SE_BAD_FIELD")
+  private @Nullable AbstractState[] states = new AbstractState[INITIAL_CAPACITY];
+
+  /** index of the precision of each state in {@link #precisions} */
+  private int[] precisionIds = new int[INITIAL_CAPACITY];
+
+  /** position of each state in the id array of its partition */
+  private int[] positionsInPartition = new int[INITIAL_CAPACITY];
+
+  /** number of used ids, including ids of removed states */
+  private int usedIds = 0;
+
+  /** number of states in the reached set */
+  private int size = 0;
+
+  /**
+   * Open-addressing hash table with linear probing from state to id. Slots contain either an id or
+   * {@link #NONE}. The table is kept at most half full. It is not serialized because the hash codes
+   * of states (e.g., identity hash codes) may differ after deserialization.
+   */
+  private transient int[] table = newTable(2 * INITIAL_CAPACITY);
+
+  // interned precisions
+
+  @SuppressFBWarnings("SE_BAD_FIELD")
+  private final List<@Nullable Precision> precisions = new ArrayList<>();
+
+  /** number of states that use each precision */
+  private int[] precisionUseCounts = new int[INITIAL_CAPACITY];
+
+  @SuppressFBWarnings("SE_BAD_FIELD")
+  private final Map<Precision, Integer> precisionIndex = new HashMap<>();
+
+  /** indices in {@link #precisions} that are currently unused */
+  private final List<Integer> freePrecisionIds = new ArrayList<>();
+
+  /** cache for the last added precision, usually many successive states share it */
+  private transient @Nullable Precision lastPrecision = null;
+
+  private transient int lastPrecisionId = NONE;
+
+  // partitions
+
+  @SuppressFBWarnings("SE_BAD_FIELD")
+  private final Map<Object, Partition> partitions = new HashMap<>();
+
+  private @Nullable AbstractState lastState = null;
+  private @Nullable AbstractState firstState = null;
+  private final Waitlist waitlist;
+
+  /** counter for structural modifications, for fail-fast iterators */
+  private transient int modCount = 0;
+
+  public CompactReachedSet(WaitlistFactory waitlistFactory) {
+    waitlist = waitlistFactory.createWaitlistInstance();
+  }
+
+  /** The ids of the states of one partition in the order they were added. */
+  private static final class Partition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int[] ids = new int[4];
+
+    /** number of used entries in {@link #ids}, including removed ones */
+    private int length = 0;
+
+    /** number of removed entries in {@link #ids} */
+    private int removed = 0;
+
+    private int size() {
+      return length - removed;
+    }
+  }
+
+  private static int[] newTable(int pLength) {
+    int[] newTable = new int[pLength];
+    Arrays.fill(newTable, NONE);
+    return newTable;
+  }
+
+  private static int hash(Object pState) {
+    int h = pState.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /** Returns the id of the given state, or {@link #NONE} if it is not contained. */
+  private int indexOf(Object pState) {
+    int mask = table.length - 1;
+    for (int slot = hash(pState) & mask; table[slot] != NONE; slot = (slot + 1) & mask) {
+      AbstractState other = states[table[slot]];
+      if (other == pState || pState.equals(other)) {
+        return table[slot];
+      }
+    }
+    return NONE;
+  }
+
+  private void insertIntoTable(int[] pTable, int pId) {
+    int mask = pTable.length - 1;
+    int slot = hash(states[pId]) & mask;
+    while (pTable[slot] != NONE) {
+      slot = (slot + 1) & mask;
+    }
+    pTable[slot] = pId;
+  }
+
+  /** Removes the given id from the hash table, using backward-shift deletion. */
+  private void removeFromTable(AbstractState pState, int pId) {
+    int mask = table.length - 1;
+    int slot = hash(pState) & mask;
+    while (table[slot] != pId) {
+      slot = (slot + 1) & mask;
+    }
+    int hole = slot;
+    for (slot = (slot + 1) & mask; table[slot] != NONE; slot = (slot + 1) & mask) {
+      int home = hash(states[table[slot]]) & mask;
+      // move entry into the hole if its home slot is not in the cyclic range (hole, slot]
+      if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+        table[hole] = table[slot];
+        hole = slot;
+      }
+    }
+    table[hole] = NONE;
+  }
+
+  private int internPrecision(Precision pPrecision) {
+    if (pPrecision == lastPrecision) {
+      return lastPrecisionId;
+    }
+    Integer id = precisionIndex.get(pPrecision);
+    if (id == null) {
+      if (freePrecisionIds.isEmpty()) {
+        id = precisions.size();
+        precisions.add(pPrecision);
+        if (id == precisionUseCounts.length) {
+          precisionUseCounts = Arrays.copyOf(precisionUseCounts, 2 * id);
+        }
+      } else {
+        id = freePrecisionIds.remove(freePrecisionIds.size() - 1);
+        precisions.set(id, pPrecision);
+      }
+      precisionIndex.put(pPrecision, id);
+    }
+    lastPrecision = pPrecision;
+    lastPrecisionId = id;
+    return id;
+  }
+
+  private void usePrecision(int pPrecisionId) {
+    precisionUseCounts[pPrecisionId]++;
+  }
+
+  private void releasePrecision(int pPrecisionId) {
+    if (--precisionUseCounts[pPrecisionId] == 0) {
+      Precision precision = precisions.set(pPrecisionId, null);
+      precisionIndex.remove(precision);
+      freePrecisionIds.add(pPrecisionId);
+      if (pPrecisionId == lastPrecisionId) {
+        lastPrecision = null;
+        lastPrecisionId = NONE;
+      }
+    }
+  }
+
+  private Object getPartitionKey(AbstractState pState) {
+    checkNotNull(pState);
+    assert pState instanceof Partitionable : "Partitionable states necessary for CompactReachedSet";
+    return ((Partitionable) pState).getPartitionKey();
+  }
+
+  @Override
+  public void add(AbstractState state, Precision precision) throws IllegalArgumentException {
+    Preconditions.checkNotNull(state);
+    Preconditions.checkNotNull(precision);
+
+    int id = indexOf(state);
+    if (id != NONE) {
+      // State was already in the reached set, cf. DefaultReachedSet.
+      // Only check if the new and the old precisions are equal.
+      if (!precision.equals(precisions.get(precisionIds[id]))) {
+        throw new IllegalArgumentException(
+            "State added to reached set which is already contained, but with a different precision");
+      }
+      return;
+    }
+
+    if (size == 0) {
+      firstState = state;
+    }
+
+    if (usedIds == states.length) {
+      ensureCapacity();
+    }
+    if (2 * (size + 1) > table.length) {
+      rebuildTable(2 * table.length);
+    }
+
+    id = usedIds++;
+    size++;
+    modCount++;
+    states[id] = state;
+    int precisionId = internPrecision(precision);
+    usePrecision(precisionId);
+    precisionIds[id] = precisionId;
+    insertIntoTable(table, id);
+
+    Partition partition = partitions.computeIfAbsent(getPartitionKey(state), k -> new Partition());
+    if (partition.length == partition.ids.length) {
+      partition.ids = Arrays.copyOf(partition.ids, 2 * partition.length);
+    }
+    positionsInPartition[id] = partition.length;
+    partition.ids[partition.length++] = id;
+
+    waitlist.add(state);
+    lastState = state;
+  }
+
+  /** Makes room for at least one more id, either by compacting or by growing the arrays. */
+  private void ensureCapacity() {
+    if (2 * size <= usedIds) {
+      // at least half of the ids belong to removed states
+      compact();
+    } else {
+      int newCapacity = usedIds + (usedIds >> 1) + 1;
+      states = Arrays.copyOf(states, newCapacity);
+      precisionIds = Arrays.copyOf(precisionIds, newCapacity);
+      positionsInPartition = Arrays.copyOf(positionsInPartition, newCapacity);
+    }
+  }
+
+  private void rebuildTable(int pLength) {
+    int[] newTable = newTable(pLength);
+    for (int id = 0; id < usedIds; id++) {
+      if (states[id] != null) {
+        insertIntoTable(newTable, id);
+      }
+    }
+    table = newTable;
+  }
+
+  /** Re-assigns dense ids to all states and updates all data structures accordingly. */
+  private void compact() {
+    int[] newIds = new int[usedIds];
+    int next = 0;
+    for (int id = 0; id < usedIds; id++) {
+      if (states[id] != null) {
+        newIds[id] = next;
+        states[next] = states[id];
+        precisionIds[next] = precisionIds[id];
+        next++;
+      } else {
+        newIds[id] = NONE;
+      }
+    }
+    assert next == size;
+    Arrays.fill(states, next, usedIds, null);
+    usedIds = next;
+
+    for (Partition partition : partitions.values()) {
+      int length = 0;
+      for (int i = 0; i < partition.length; i++) {
+        int oldId = partition.ids[i];
+        if (oldId != NONE) {
+          int newId = newIds[oldId];
+          partition.ids[length] = newId;
+          positionsInPartition[newId] = length;
+          length++;
+        }
+      }
+      partition.length = length;
+      partition.removed = 0;
+    }
+
+    rebuildTable(table.length);
+  }
+
+  private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+    s.defaultReadObject();
+    lastPrecisionId = NONE;
+    int length = 2 * INITIAL_CAPACITY;
+    while (length < 2 * size) {
+      length *= 2;
+    }
+    rebuildTable(length);
+  }
+
+  @Override
+  public void addAll(Iterable<Pair<AbstractState, Precision>> toAdd) {
+    for (Pair<AbstractState, Precision> pair : toAdd) {
+      add(pair.getFirst(), pair.getSecond());
+    }
+  }
+
+  @Override
+  public void reAddToWaitlist(AbstractState s) {
+    Preconditions.checkNotNull(s);
+    Preconditions.checkArgument(indexOf(s) != NONE, "State has to be in the reached set");
+
+    if (!waitlist.contains(s)) {
+      waitlist.add(s);
+    }
+  }
+
+  @Override
+  public void updatePrecision(AbstractState s, Precision newPrecision) {
+    Preconditions.checkNotNull(s);
+    Preconditions.checkNotNull(newPrecision);
+
+    int id = indexOf(s);
+    if (id == NONE) {
+      throw new IllegalArgumentException(
+          "State needs to be in the reached set in order to change the precision.");
+    }
+    int newPrecisionId = internPrecision(newPrecision);
+    usePrecision(newPrecisionId);
+    releasePrecision(precisionIds[id]);
+    precisionIds[id] = newPrecisionId;
+  }
+
+  @Override
+  public void remove(AbstractState state) {
+    Preconditions.checkNotNull(state);
+    int id = indexOf(state);
+    if (id == NONE) {
+      waitlist.remove(state);
+      return;
+    }
+    AbstractState storedState = states[id];
+    if (firstState != null && storedState.equals(firstState)) {
+      firstState = null;
+    }
+    if (lastState != null && storedState.equals(lastState)) {
+      lastState = null;
+    }
+    waitlist.remove(state);
+
+    removeFromTable(storedState, id);
+    states[id] = null;
+    releasePrecision(precisionIds[id]);
+    size--;
+    modCount++;
+
+    Object key = getPartitionKey(storedState);
+    Partition partition = partitions.get(key);
+    partition.ids[positionsInPartition[id]] = NONE;
+    partition.removed++;
+    if (partition.size() == 0) {
+      partitions.remove(key);
+    } else if (2 * partition.removed > partition.length) {
+      compactPartition(partition);
+    }
+  }
+
+  private void compactPartition(Partition pPartition) {
+    int length = 0;
+    for (int i = 0; i < pPartition.length; i++) {
+      int id = pPartition.ids[i];
+      if (id != NONE) {
+        pPartition.ids[length] = id;
+        positionsInPartition[id] = length;
+        length++;
+      }
+    }
+    pPartition.length = length;
+    pPartition.removed = 0;
+  }
+
+  @Override
+  public void removeAll(Iterable<? extends AbstractState> toRemove) {
+    for (AbstractState state : toRemove) {
+      remove(state);
+    }
+  }
+
+  @Override
+  public void removeOnlyFromWaitlist(AbstractState state) {
+    checkNotNull(state);
+    waitlist.remove(state);
+  }
+
+  @Override
+  public void clear() {
+    firstState = null;
+    lastState = null;
+    waitlist.clear();
+    Arrays.fill(states, 0, usedIds, null);
+    table = newTable(2 * INITIAL_CAPACITY);
+    usedIds = 0;
+    size = 0;
+    modCount++;
+    precisions.clear();
+    precisionIndex.clear();
+    freePrecisionIds.clear();
+    Arrays.fill(precisionUseCounts, 0);
+    lastPrecision = null;
+    lastPrecisionId = NONE;
+    partitions.clear();
+  }
+
+  /** Iterator over an array of ids, skipping removed entries. */
+  private abstract class IdIterator<T> implements Iterator<T> {
+
+    private final int expectedModCount = modCount;
+    private int next = 0;
+
+    abstract int idAt(int pos);
+
+    abstract int length();
+
+    abstract T get(int id);
+
+    private int advance(int pos) {
+      while (pos < length() && idAt(pos) == NONE) {
+        pos++;
+      }
+      return pos;
+    }
+
+    @Override
+    public boolean hasNext() {
+      next = advance(next);
+      return next < length();
+    }
+
+    @Override
+    public T next() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return get(idAt(next++));
+    }
+  }
+
+  private Iterator<Integer> ids() {
+    return new IdIterator<>() {
+      @Override
+      int idAt(int pos) {
+        return states[pos] == null ? NONE : pos;
+      }
+
+      @Override
+      int length() {
+        return usedIds;
+      }
+
+      @Override
+      Integer get(int id) {
+        return id;
+      }
+    };
+  }
+
+  @Override
+  public Set<AbstractState> asCollection() {
+    return new AbstractSet<>() {
+
+      @Override
+      public Iterator<AbstractState> iterator() {
+        return Iterators.transform(ids(), id -> states[id]);
+      }
+
+      @Override
+      public boolean contains(Object obj) {
+        return obj != null && indexOf(obj) != NONE;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Iterator<AbstractState> iterator() {
+    return asCollection().iterator();
+  }
+
+  @Override
+  public Collection<Precision> getPrecisions() {
+    return new AbstractCollection<>() {
+
+      @Override
+      public Iterator<Precision> iterator() {
+        return Iterators.transform(ids(), id -> precisions.get(precisionIds[id]));
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Collection<AbstractState> getReached(AbstractState state) {
+    final Object key = getPartitionKey(state);
+    return new AbstractCollection<>() {
+
+      @Override
+      public Iterator<AbstractState> iterator() {
+        final Partition partition = partitions.get(key);
+        if (partition == null) {
+          return Collections.emptyIterator();
+        }
+        return new IdIterator<>() {
+          @Override
+          int idAt(int pos) {
+            return partition.ids[pos];
+          }
+
+          @Override
+          int length() {
+            return partition.length;
+          }
+
+          @Override
+          AbstractState get(int id) {
+            return states[id];
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(Object obj) {
+        if (obj == null) {
+          return false;
+        }
+        int id = indexOf(obj);
+        return id != NONE && Objects.equals(key, getPartitionKey(states[id]));
+      }
+
+      @Override
+      public int size() {
+        Partition partition = partitions.get(key);
+        return partition == null ? 0 : partition.size();
+      }
+    };
+  }
+
+  @Override
+  public Collection<AbstractState> getReached(CFANode location) {
+    checkNotNull(location);
+    return asCollection();
+  }
+
+  public int getNumberOfPartitions() {
+    return partitions.size();
+  }
+
+  /** Returns the number of distinct precisions currently stored in this reached set. */
+  public int getNumberOfPrecisions() {
+    return precisionIndex.size();
+  }
+
+  @Override
+  public @Nullable AbstractState getFirstState() {
+    return firstState;
+  }
+
+  @Override
+  public @Nullable AbstractState getLastState() {
+    return lastState;
+  }
+
+  @Override
+  public boolean hasWaitingState() {
+    return !waitlist.isEmpty();
+  }
+
+  @Override
+  public Collection<AbstractState> getWaitlist() {
+    return new AbstractCollection<>() {
+
+      @Override
+      public Iterator<AbstractState> iterator() {
+        return Iterators.unmodifiableIterator(waitlist.iterator());
+      }
+
+      @Override
+      public boolean contains(Object obj) {
+        if (!(obj instanceof AbstractState)) {
+          return false;
+        }
+        return waitlist.contains((AbstractState) obj);
+      }
+
+      @Override
+      public boolean isEmpty() {
+        return waitlist.isEmpty();
+      }
+
+      @Override
+      public int size() {
+        return waitlist.size();
+      }
+
+      @Override
+      public String toString() {
+        return waitlist.toString();
+      }
+    };
+  }
+
+  @Override
+  public AbstractState popFromWaitlist() {
+    return waitlist.pop();
+  }
+
+  @Override
+  public Precision getPrecision(AbstractState state) {
+    Preconditions.checkNotNull(state);
+    int id = indexOf(state);
+    Preconditions.checkArgument(id != NONE, "State not in reached set:\n%s", state);
+    return precisions.get(precisionIds[id]);
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super AbstractState, ? super Precision> pAction) {
+    checkNotNull(pAction);
+    for (int id = 0; id < usedIds; id++) {
+      AbstractState state = states[id];
+      if (state != null) {
+        pAction.accept(state, precisions.get(precisionIds[id]));
+      }
+    }
+  }
+
+  @Override
+  public boolean contains(AbstractState state) {
+    Preconditions.checkNotNull(state);
+    return indexOf(state) != NONE;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public String toString() {
+    return asCollection().toString();
+  }
+
+  @Override
+  public ImmutableMap<String, AbstractStatValue> getStatistics() {
+    if (waitlist instanceof AbstractSortedWaitlist) {
+      return ImmutableMap.copyOf(((AbstractSortedWaitlist<?>) waitlist).getDelegationCounts());
+
+    } else {
+      return ImmutableMap.of();
+    }
+  }
+}
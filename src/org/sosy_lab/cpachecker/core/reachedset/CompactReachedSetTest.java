@@ -0,0 +1,247 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.reachedset;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Partitionable;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist.TraversalMethod;
+
+public class CompactReachedSetTest {
+
+  private static final class TestState implements AbstractState, Partitionable {
+
+    private final int id;
+
+    private TestState(int pId) {
+      id = pId;
+    }
+
+    @Override
+    public Object getPartitionKey() {
+      return id % 7;
+    }
+
+    @Override
+    public boolean equals(Object pObj) {
+      return pObj instanceof TestState && ((TestState) pObj).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      // many collisions on purpose
+      return id % 13;
+    }
+
+    @Override
+    public String toString() {
+      return "S" + id;
+    }
+  }
+
+  private static final class TestPrecision implements Precision {
+
+    private final int value;
+
+    private TestPrecision(int pValue) {
+      value = pValue;
+    }
+
+    @Override
+    public boolean equals(Object pObj) {
+      return pObj instanceof TestPrecision && ((TestPrecision) pObj).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return value;
+    }
+  }
+
+  @Test
+  public void addAndRemove() {
+    CompactReachedSet reached = new CompactReachedSet(TraversalMethod.BFS);
+    TestState s1 = new TestState(1);
+    TestState s8 = new TestState(8);
+    TestState s2 = new TestState(2);
+
+    reached.add(s1, new TestPrecision(0));
+    reached.add(s8, new TestPrecision(0));
+    reached.add(s2, new TestPrecision(1));
+
+    assertThat(reached.asCollection()).containsExactly(s1, s8, s2).inOrder();
+    assertThat(reached.getReached(s1)).containsExactly(s1, s8).inOrder();
+    assertThat(reached.getReached(s2)).containsExactly(s2);
+    assertThat(reached.getNumberOfPartitions()).isEqualTo(2);
+    assertThat(reached.getNumberOfPrecisions()).isEqualTo(2);
+    assertThat(reached.getFirstState()).isEqualTo(s1);
+    assertThat(reached.getLastState()).isEqualTo(s2);
+
+    reached.remove(s1);
+    assertThat(reached.contains(s1)).isFalse();
+    assertThat(reached.getReached(s8)).containsExactly(s8);
+    assertThat(reached.getFirstState()).isNull();
+
+    reached.remove(s8);
+    assertThat(reached.getNumberOfPartitions()).isEqualTo(1);
+    assertThat(reached.getNumberOfPrecisions()).isEqualTo(1);
+    assertThat(reached.getReached(s1)).isEmpty();
+  }
+
+  @Test
+  public void precisionsAreInterned() {
+    CompactReachedSet reached = new CompactReachedSet(TraversalMethod.BFS);
+    TestPrecision p = new TestPrecision(42);
+    reached.add(new TestState(1), p);
+    reached.add(new TestState(2), new TestPrecision(42));
+
+    assertThat(reached.getPrecision(new TestState(2))).isSameInstanceAs(p);
+    assertThat(reached.getNumberOfPrecisions()).isEqualTo(1);
+
+    reached.updatePrecision(new TestState(1), new TestPrecision(43));
+    assertThat(reached.getPrecision(new TestState(1))).isEqualTo(new TestPrecision(43));
+    assertThat(reached.getNumberOfPrecisions()).isEqualTo(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void addWithDifferentPrecision() {
+    CompactReachedSet reached = new CompactReachedSet(TraversalMethod.BFS);
+    reached.add(new TestState(1), new TestPrecision(0));
+    reached.add(new TestState(1), new TestPrecision(1));
+  }
+
+  /** A state with an identity hash code, like ARGState. */
+  private static final class IdentityState implements AbstractState, Partitionable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int partition;
+
+    private IdentityState(int pPartition) {
+      partition = pPartition;
+    }
+
+    @Override
+    public Object getPartitionKey() {
+      return partition;
+    }
+  }
+
+  private static final class SerializablePrecision implements Precision, Serializable {
+
+    private static final long serialVersionUID = 1L;
+  }
+
+  @Test
+  public void serializationRoundTrip() throws Exception {
+    CompactReachedSet reached = new CompactReachedSet(TraversalMethod.BFS);
+    SerializablePrecision precision = new SerializablePrecision();
+    for (int i = 0; i < 100; i++) {
+      reached.add(new IdentityState(i % 3), precision);
+    }
+    reached.popFromWaitlist();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(reached);
+    }
+    CompactReachedSet copy;
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = (CompactReachedSet) in.readObject();
+    }
+
+    assertThat(copy.size()).isEqualTo(100);
+    assertThat(copy.getWaitlist()).hasSize(99);
+    for (AbstractState state : copy.asCollection()) {
+      assertThat(copy.contains(state)).isTrue();
+      assertThat(copy.getPrecision(state)).isInstanceOf(SerializablePrecision.class);
+    }
+    assertThat(copy.contains(new IdentityState(0))).isFalse();
+
+    AbstractState first = copy.getFirstState();
+    copy.remove(first);
+    assertThat(copy.contains(first)).isFalse();
+    assertThat(copy.size()).isEqualTo(99);
+    AbstractState added = new IdentityState(1);
+    copy.add(added, copy.getPrecision(copy.getLastState()));
+    assertThat(copy.contains(added)).isTrue();
+  }
+
+  @Test
+  public void sameBehaviorAsPartitionedReachedSet() {
+    Random random = new Random(0);
+    CompactReachedSet reached = new CompactReachedSet(TraversalMethod.BFS);
+    PartitionedReachedSet expected = new PartitionedReachedSet(TraversalMethod.BFS);
+
+    for (int i = 0; i < 20000; i++) {
+      TestState state = new TestState(random.nextInt(1000));
+      switch (random.nextInt(4)) {
+        case 0:
+        case 1:
+          if (!expected.contains(state)) {
+            TestPrecision precision = new TestPrecision(random.nextInt(5));
+            expected.add(state, precision);
+            reached.add(state, precision);
+          }
+          break;
+        case 2:
+          expected.remove(state);
+          reached.remove(state);
+          break;
+        case 3:
+          if (expected.hasWaitingState()) {
+            assertThat(reached.popFromWaitlist()).isEqualTo(expected.popFromWaitlist());
+          }
+          break;
+        default:
+          throw new AssertionError();
+      }
+
+      assertThat(reached.size()).isEqualTo(expected.size());
+      assertThat(reached.contains(state)).isEqualTo(expected.contains(state));
+      assertThat(reached.getReached(state))
+          .containsExactlyElementsIn(expected.getReached(state))
+          .inOrder();
+    }
+
+    assertThat(reached.asCollection()).containsExactlyElementsIn(expected.asCollection()).inOrder();
+    assertThat(reached.getWaitlist()).containsExactlyElementsIn(expected.getWaitlist()).inOrder();
+    List<Precision> precisions = new ArrayList<>();
+    reached.forEach((s, p) -> precisions.add(p));
+    assertThat(precisions).containsExactlyElementsIn(expected.getPrecisions()).inOrder();
+    assertThat(reached.getNumberOfPartitions()).isEqualTo(expected.getNumberOfPartitions());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.reachedset;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Objects;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.cpa.value.ValueAnalysisState;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+
+/**
+ * Signatures of abstract states that {@link PartitionedReachedSet} can use as secondary index
+ * inside each partition. A state can only be covered by states whose signature is compatible with
+ * the signature of the state, thus only those states are returned as candidates for the stop
+ * operator by {@link PartitionedReachedSet#getCoverageCandidates}.
+ */
+public enum CoverageSignature {
+
+  /**
+   * The set of memory locations tracked by the {@link ValueAnalysisState}. A state can only be
+   * covered by states that track a subset of these memory locations.
+   */
+  VALUE_TRACKED_VARIABLES {
+    @Override
+    @Nullable Object getSignature(AbstractState pState) {
+      ValueAnalysisState valueState =
+          AbstractStates.extractStateByType(checkNotNull(pState), ValueAnalysisState.class);
+      return valueState == null ? null : valueState.getTrackedMemoryLocations();
+    }
+
+    @Override
+    boolean mayBeCoveredBy(@Nullable Object pSignature, @Nullable Object pCandidateSignature) {
+      if (pSignature == null || pCandidateSignature == null) {
+        return true;
+      }
+      Set<?> trackedVariables = (Set<?>) pSignature;
+      Set<?> candidateTrackedVariables = (Set<?>) pCandidateSignature;
+      return candidateTrackedVariables.size() <= trackedVariables.size()
+          && trackedVariables.containsAll(candidateTrackedVariables);
+    }
+  },
+  ;
+
+  /**
+   * Returns the signature of the given state. The result must provide meaningful {@link
+   * Object#equals(Object)} and {@link Object#hashCode()} implementations and must not change
+   * during the lifetime of the state.
+   */
+  abstract @Nullable Object getSignature(AbstractState pState);
+
+  /**
+   * Returns whether a state with the first signature might be covered by a state with the second
+   * signature. The default implementation only allows equal signatures.
+   */
+  boolean mayBeCoveredBy(@Nullable Object pSignature, @Nullable Object pCandidateSignature) {
+    return Objects.equals(pSignature, pCandidateSignature);
+  }
+}
@@ -85,6 +85,11 @@ public class ForwardingReachedSet implements ReachedSet, StatisticsProvider {
     return delegate.getReached(pLocation);
   }
 
+  @Override
+  public Collection<AbstractState> getCoverageCandidates(AbstractState pState) {
+    return delegate.getCoverageCandidates(pState);
+  }
+
   @Override
   public AbstractState getFirstState() {
     return delegate.getFirstState();
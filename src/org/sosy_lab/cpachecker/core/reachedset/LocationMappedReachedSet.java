@@ -27,6 +27,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
 import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.cpachecker.cfa.model.CFANode;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
 import org.sosy_lab.cpachecker.core.waitlist.Waitlist.WaitlistFactory;
@@ -45,6 +46,11 @@ public class LocationMappedReachedSet extends PartitionedReachedSet {
     super(waitlistFactory);
   }
 
+  public LocationMappedReachedSet(
+      WaitlistFactory waitlistFactory, @Nullable CoverageSignature pCoverageSignature) {
+    super(waitlistFactory, pCoverageSignature);
+  }
+
   @Override
   public Collection<AbstractState> getReached(CFANode location) {
     checkNotNull(location);
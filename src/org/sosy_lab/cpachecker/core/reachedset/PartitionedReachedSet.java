@@ -25,11 +25,18 @@ package org.sosy_lab.cpachecker.core.reachedset;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.SetMultimap;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -37,6 +44,9 @@ import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
 import org.sosy_lab.cpachecker.core.interfaces.Partitionable;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
 import org.sosy_lab.cpachecker.core.waitlist.Waitlist.WaitlistFactory;
+import org.sosy_lab.cpachecker.util.statistics.AbstractStatValue;
+import org.sosy_lab.cpachecker.util.statistics.StatInt;
+import org.sosy_lab.cpachecker.util.statistics.StatKind;
 
 /**
  * Special implementation of the reached set that partitions the set by keys that
@@ -52,6 +62,12 @@ import org.sosy_lab.cpachecker.core.waitlist.Waitlist.WaitlistFactory;
  * for merging and coverage checks), it will return a subset of the set of all
  * reached states. This subset contains exactly those states, whose partition
  * key is equal to the key of the state given as a parameter.
+ *
+ * Optionally, a {@link CoverageSignature} can be given that is used as secondary index
+ * inside each partition. Then {@link PartitionedReachedSet#getCoverageCandidates(AbstractState)}
+ * returns only those states of the partition whose signature is compatible
+ * with the signature of the given state. {@link PartitionedReachedSet#getReached(AbstractState)}
+ * always returns the whole partition.
  */
 public class PartitionedReachedSet extends DefaultReachedSet {
 
@@ -60,22 +76,62 @@ public class PartitionedReachedSet extends DefaultReachedSet {
   @SuppressFBWarnings("SE_BAD_FIELD")
   private final Multimap<Object, AbstractState> partitionedReached = LinkedHashMultimap.create(100, 1);
 
+  private final @Nullable CoverageSignature coverageSignature;
+
+  /**
+   * the secondary index: first key: the partition key, second key: the coverage signature. Only
+   * used if {@link #coverageSignature} is set.
+   */
+  @SuppressFBWarnings("SE_BAD_FIELD")
+  private final Map<Object, SetMultimap<Object, AbstractState>> coverageIndex = new HashMap<>();
+
+  private transient StatInt indexCandidates;
+  private transient StatInt indexPartitionSizes;
+
   public PartitionedReachedSet(WaitlistFactory waitlistFactory) {
+    this(waitlistFactory, null);
+  }
+
+  public PartitionedReachedSet(
+      WaitlistFactory waitlistFactory, @Nullable CoverageSignature pCoverageSignature) {
     super(waitlistFactory);
+    coverageSignature = pCoverageSignature;
+    initStatistics();
+  }
+
+  private void initStatistics() {
+    indexCandidates = new StatInt(StatKind.SUM, "Candidates from coverage index");
+    indexPartitionSizes = new StatInt(StatKind.SUM, "Size of partitions queried in index");
   }
 
   @Override
   public void add(AbstractState pState, Precision pPrecision) {
     super.add(pState, pPrecision);
 
-    partitionedReached.put(getPartitionKey(pState), pState);
+    Object key = getPartitionKey(pState);
+    partitionedReached.put(key, pState);
+    if (coverageSignature != null) {
+      coverageIndex
+          .computeIfAbsent(key, k -> LinkedHashMultimap.create())
+          .put(coverageSignature.getSignature(pState), pState);
+    }
   }
 
   @Override
   public void remove(AbstractState pState) {
     super.remove(pState);
 
-    partitionedReached.remove(getPartitionKey(pState), pState);
+    Object key = getPartitionKey(pState);
+    partitionedReached.remove(key, pState);
+    if (coverageSignature != null) {
+      SetMultimap<Object, AbstractState> index = coverageIndex.get(key);
+      if (index != null) {
+        index.remove(coverageSignature.getSignature(pState), pState);
+        if (index.isEmpty()) {
+          coverageIndex.remove(key);
+        }
+      }
+    }
   }
 
   @Override
@@ -83,6 +139,7 @@ public class PartitionedReachedSet extends DefaultReachedSet {
     super.clear();
 
     partitionedReached.clear();
+    coverageIndex.clear();
   }
 
   @Override
@@ -90,6 +147,33 @@ public class PartitionedReachedSet extends DefaultReachedSet {
     return getReachedForKey(getPartitionKey(pState));
   }
 
+  @Override
+  public Collection<AbstractState> getCoverageCandidates(AbstractState pState) {
+    Object key = getPartitionKey(pState);
+    if (coverageSignature == null) {
+      return getReachedForKey(key);
+    }
+
+    SetMultimap<Object, AbstractState> index = coverageIndex.get(key);
+    if (index == null) {
+      return Collections.emptySet();
+    }
+
+    // The number of different signatures within one partition is typically small,
+    // so we check all of them instead of all states of the partition.
+    Object signature = coverageSignature.getSignature(pState);
+    List<AbstractState> candidates = new ArrayList<>();
+    for (Map.Entry<Object, Collection<AbstractState>> entry : index.asMap().entrySet()) {
+      if (coverageSignature.mayBeCoveredBy(signature, entry.getKey())) {
+        candidates.addAll(entry.getValue());
+      }
+    }
+
+    indexCandidates.setNextValue(candidates.size());
+    indexPartitionSizes.setNextValue(index.size());
+    return Collections.unmodifiableList(candidates);
+  }
+
   public int getNumberOfPartitions() {
     return partitionedReached.keySet().size();
   }
@@ -121,4 +205,22 @@ public class PartitionedReachedSet extends DefaultReachedSet {
   protected Set<?> getKeySet() {
     return Collections.unmodifiableSet(partitionedReached.keySet());
   }
+
+  @Override
+  public ImmutableMap<String, AbstractStatValue> getStatistics() {
+    if (coverageSignature == null) {
+      return super.getStatistics();
+    }
+    ImmutableMap.Builder<String, AbstractStatValue> builder = ImmutableMap.builder();
+    builder.putAll(super.getStatistics());
+    builder.put(indexCandidates.getTitle(), indexCandidates);
+    builder.put(indexPartitionSizes.getTitle(), indexPartitionSizes);
+    return builder.build();
+  }
+
+  @SuppressWarnings("UnusedVariable") // parameter is required by API
+  private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+    s.defaultReadObject();
+    initStatistics();
+  }
 }
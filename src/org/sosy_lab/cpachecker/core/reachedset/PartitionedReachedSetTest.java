@@ -0,0 +1,115 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.reachedset;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.sosy_lab.cpachecker.cfa.types.MachineModel;
+import org.sosy_lab.cpachecker.cfa.types.c.CNumericTypes;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractWrapperState;
+import org.sosy_lab.cpachecker.core.interfaces.Partitionable;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist.TraversalMethod;
+import org.sosy_lab.cpachecker.cpa.value.ValueAnalysisState;
+import org.sosy_lab.cpachecker.cpa.value.type.NumericValue;
+import org.sosy_lab.cpachecker.util.states.MemoryLocation;
+
+public class PartitionedReachedSetTest {
+
+  /** A state of a single partition that wraps a value-analysis state. */
+  private static final class TestState implements AbstractWrapperState, Partitionable {
+
+    private final ValueAnalysisState valueState;
+
+    private TestState(String... pTrackedVariables) {
+      valueState = new ValueAnalysisState(MachineModel.LINUX32);
+      for (String variable : pTrackedVariables) {
+        valueState.assignConstant(
+            MemoryLocation.valueOf(variable), new NumericValue(0L), CNumericTypes.INT);
+      }
+    }
+
+    @Override
+    public Iterable<AbstractState> getWrappedStates() {
+      return ImmutableList.of(valueState);
+    }
+
+    @Override
+    public Object getPartitionKey() {
+      return "partition";
+    }
+  }
+
+  private static final Precision PRECISION = new Precision() {};
+
+  @Test
+  public void getReachedIgnoresCoverageIndex() {
+    PartitionedReachedSet reached =
+        new PartitionedReachedSet(TraversalMethod.BFS, CoverageSignature.VALUE_TRACKED_VARIABLES);
+    TestState x = new TestState("x");
+    TestState xy = new TestState("x", "y");
+    TestState z = new TestState("z");
+    reached.add(x, PRECISION);
+    reached.add(xy, PRECISION);
+    reached.add(z, PRECISION);
+
+    // merge and all other users still see the whole partition
+    assertThat(reached.getReached(xy)).containsExactly(x, xy, z);
+    // only states tracking a subset of the variables may cover a state
+    assertThat(reached.getCoverageCandidates(xy)).containsExactly(x, xy);
+    assertThat(reached.getCoverageCandidates(x)).containsExactly(x);
+
+    reached.remove(x);
+    assertThat(reached.getReached(xy)).containsExactly(xy, z);
+    assertThat(reached.getCoverageCandidates(xy)).containsExactly(xy);
+  }
+
+  @Test
+  public void coverageCandidatesWithoutIndex() {
+    PartitionedReachedSet reached = new PartitionedReachedSet(TraversalMethod.BFS);
+    TestState x = new TestState("x");
+    TestState z = new TestState("z");
+    reached.add(x, PRECISION);
+    reached.add(z, PRECISION);
+
+    assertThat(reached.getCoverageCandidates(x)).containsExactly(x, z);
+  }
+
+  @Test
+  public void forwardingReachedSetForwardsCoverageCandidates() {
+    PartitionedReachedSet delegate =
+        new PartitionedReachedSet(TraversalMethod.BFS, CoverageSignature.VALUE_TRACKED_VARIABLES);
+    ForwardingReachedSet reached = new ForwardingReachedSet(delegate);
+    TestState x = new TestState("x");
+    TestState z = new TestState("z");
+    reached.add(x, PRECISION);
+    reached.add(z, PRECISION);
+
+    assertThat(reached.getReached(x)).containsExactly(x, z);
+    assertThat(reached.getCoverageCandidates(x)).containsExactly(x);
+  }
+}
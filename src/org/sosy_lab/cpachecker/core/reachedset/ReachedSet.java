@@ -24,6 +24,7 @@
 package org.sosy_lab.cpachecker.core.reachedset;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.Collection;
 import java.util.Set;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
@@ -56,6 +57,21 @@ public interface ReachedSet extends UnmodifiableReachedSet {
    */
   void add(AbstractState state, Precision precision) throws IllegalArgumentException;
 
+  /**
+   * Returns the states that the stop operator has to consider for checking whether the given state
+   * is covered. This is a subset of {@link #getReached(AbstractState)}, which is returned by
+   * default. Implementations may leave out states that cannot cover the given state.
+   *
+   * <p>The returned collection is unmodifiable, and it may not reflect later changes of the
+   * reached set.
+   *
+   * @param state An abstract state that might be covered by states of the reached set.
+   * @return A subset of the reached set.
+   */
+  default Collection<AbstractState> getCoverageCandidates(AbstractState state) {
+    return getReached(state);
+  }
+
 
   void addAll(Iterable<Pair<AbstractState, Precision>> toAdd);
 
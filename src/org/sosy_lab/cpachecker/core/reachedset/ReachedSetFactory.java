@@ -27,6 +27,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.IntegerOption;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
@@ -48,6 +49,7 @@ import org.sosy_lab.cpachecker.core.waitlist.ThreadingSortedWaitlist;
 import org.sosy_lab.cpachecker.core.waitlist.Waitlist;
 import org.sosy_lab.cpachecker.core.waitlist.Waitlist.WaitlistFactory;
 import org.sosy_lab.cpachecker.core.waitlist.WeightedRandomWaitlist;
+import org.sosy_lab.cpachecker.cpa.arg.SpillingReachedSet;
 import org.sosy_lab.cpachecker.cpa.automaton.AutomatonVariableWaitlist;
 import org.sosy_lab.cpachecker.cpa.usage.UsageReachedSet;
 import org.sosy_lab.cpachecker.cpa.usage.storage.UsageConfiguration;
@@ -56,7 +58,7 @@ import org.sosy_lab.cpachecker.cpa.usage.storage.UsageConfiguration;
 public class ReachedSetFactory {
 
   private enum ReachedSetType {
-    NORMAL, LOCATIONMAPPED, PARTITIONED, PSEUDOPARTITIONED, USAGE
+    NORMAL, LOCATIONMAPPED, PARTITIONED, PSEUDOPARTITIONED, COMPACT, USAGE
   }
 
   @Option(
@@ -191,9 +193,41 @@ public class ReachedSetFactory {
             + "\nPARTITIONED: partitioning depending on CPAs (e.g Location, Callstack etc.)"
             + "\nPSEUDOPARTITIONED: based on PARTITIONED, uses additional info about the states' lattice "
             + "(maybe faster for some special analyses which use merge_sep and stop_sep"
+            + "\nCOMPACT: same partitioning as PARTITIONED, but with less memory per state "
+            + "(array-based storage and shared instances for equal precisions)"
   )
   private ReachedSetType reachedSet = ReachedSetType.PARTITIONED;
 
+  @Option(
+      secure = true,
+      name = "reachedSet.coverageIndex",
+      description =
+          "use a secondary index inside each partition of the reached set, "
+              + "such that the stop operator of the CPA algorithm only considers states "
+              + "that might cover the new state (only for PARTITIONED and LOCATIONMAPPED, "
+              + "merge still considers the whole partition)"
+              + "\nVALUE_TRACKED_VARIABLES: only states tracking a subset of the variables "
+              + "tracked by the new state in ValueAnalysisCPA")
+  private @Nullable CoverageSignature coverageIndex = null;
+
+  @Option(
+      secure = true,
+      name = "reachedSet.spilling",
+      description =
+          "write the abstract states wrapped by expanded ARG states to a temporary file "
+              + "if there are too many states in memory, and load them again on demand "
+              + "(only for analyses with ARGCPA)")
+  private boolean useSpilling = false;
+
+  @Option(
+      secure = true,
+      name = "reachedSet.spilling.maxStatesInMemory",
+      description =
+          "maximal number of states in the reached set whose wrapped abstract state "
+              + "is kept in memory if spilling is enabled")
+  @IntegerOption(min = 0)
+  private int maxStatesInMemory = 100000;
+
   @Option(
       secure = true,
       name = "reachedSet.withStatistics",
@@ -227,7 +261,11 @@ public class ReachedSetFactory {
     }
   }
 
-  public ReachedSet create() {
+  /**
+   * Create the factory for waitlists with the configured traversal strategy, e.g., for sharing a
+   * {@link org.sosy_lab.cpachecker.core.waitlist.ConcurrentWaitlist} between several threads.
+   */
+  public WaitlistFactory createWaitlistFactory() {
     WaitlistFactory waitlistFactory = traversalMethod;
 
     if (useWeightedDepthOrder) {
@@ -280,17 +318,25 @@ public class ReachedSetFactory {
     if (useBlocks) {
       waitlistFactory = BlockWaitlist.factory(waitlistFactory, blockConfig, logger);
     }
+    return waitlistFactory;
+  }
+
+  public ReachedSet create() {
+    WaitlistFactory waitlistFactory = createWaitlistFactory();
 
     ReachedSet reached;
     switch (reachedSet) {
     case PARTITIONED:
-        reached = new PartitionedReachedSet(waitlistFactory);
+        reached = new PartitionedReachedSet(waitlistFactory, coverageIndex);
         break;
     case PSEUDOPARTITIONED:
         reached = new PseudoPartitionedReachedSet(waitlistFactory);
         break;
+    case COMPACT:
+        reached = new CompactReachedSet(waitlistFactory);
+        break;
     case LOCATIONMAPPED:
-        reached = new LocationMappedReachedSet(waitlistFactory);
+        reached = new LocationMappedReachedSet(waitlistFactory, coverageIndex);
         break;
     case USAGE:
         reached = new UsageReachedSet(waitlistFactory, usageConfig, logger);
@@ -300,6 +346,10 @@ public class ReachedSetFactory {
         reached = new DefaultReachedSet(waitlistFactory);
     }
 
+    if (useSpilling) {
+      reached = new SpillingReachedSet(reached, maxStatesInMemory, logger);
+    }
+
     if (withStatistics) {
       reached = new StatisticsReachedSet(reached);
     }
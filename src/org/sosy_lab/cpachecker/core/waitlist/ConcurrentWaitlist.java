@@ -0,0 +1,249 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.waitlist;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+
+/**
+ * Thread-safe waitlist that distributes the states over several independent waitlists (a relaxed
+ * multi-queue). Each of these waitlists is created by the given factory, so any composition of
+ * strategies (e.g., reverse postorder, callstack, weighted) can be used and is respected by each of
+ * them. The global order is relaxed: there is no coordination between the waitlists.
+ *
+ * <p>Each thread has a home waitlist (determined by its id), to which it adds states and from which
+ * it pops states first, such that each thread mostly explores its own part of the state space in
+ * the order of the given strategy. If the home waitlist is locked by another thread or empty,
+ * states are added to or taken from the other waitlists ("work stealing"). Locks are only acquired
+ * with {@link ReentrantLock#tryLock()} in the first attempt, so threads do not block each other
+ * unless all waitlists are busy.
+ *
+ * <p>Because other threads may concurrently pop states, {@link #pop()} returns null if there is no
+ * state even if {@link #isEmpty()} returned false before. {@link #size()} and {@link #isEmpty()}
+ * are exact only if there are no concurrent modifications, and iterators operate on a snapshot of
+ * the states.
+ *
+ * <p>The reached-set implementations are not thread-safe, thus this waitlist is meant to be shared
+ * directly by several worker threads. A waitlist with the configured strategy is created with
+ * {@code ConcurrentWaitlist.factory(reachedSetFactory.createWaitlistFactory(), numberOfThreads)}.
+ */
+public class ConcurrentWaitlist implements Waitlist {
+
+  private final Waitlist[] waitlists;
+  private final ReentrantLock[] locks;
+
+  // incremented before a state becomes visible and decremented after it was taken
+  private final AtomicInteger size = new AtomicInteger(0);
+
+  private ConcurrentWaitlist(WaitlistFactory pSecondaryStrategy, int pNumberOfWaitlists) {
+    waitlists = new Waitlist[pNumberOfWaitlists];
+    locks = new ReentrantLock[pNumberOfWaitlists];
+    for (int i = 0; i < pNumberOfWaitlists; i++) {
+      waitlists[i] = pSecondaryStrategy.createWaitlistInstance();
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  private int homeIndex() {
+    return (int) (Thread.currentThread().getId() % waitlists.length);
+  }
+
+  @Override
+  public void add(AbstractState pState) {
+    checkNotNull(pState);
+    size.incrementAndGet();
+
+    int home = homeIndex();
+    for (int i = 0; i < waitlists.length; i++) {
+      int index = (home + i) % waitlists.length;
+      if (locks[index].tryLock()) {
+        try {
+          waitlists[index].add(pState);
+        } finally {
+          locks[index].unlock();
+        }
+        return;
+      }
+    }
+
+    // all waitlists are busy
+    locks[home].lock();
+    try {
+      waitlists[home].add(pState);
+    } finally {
+      locks[home].unlock();
+    }
+  }
+
+  @Override
+  public @Nullable AbstractState pop() {
+    int home = homeIndex();
+    AbstractState result = tryPop(home, false);
+    if (result != null) {
+      return result;
+    }
+
+    // steal from other waitlists, starting at a random one to spread contention
+    int offset = ThreadLocalRandom.current().nextInt(waitlists.length);
+    for (int i = 0; i < waitlists.length; i++) {
+      result = tryPop((offset + i) % waitlists.length, false);
+      if (result != null) {
+        return result;
+      }
+    }
+
+    // Some waitlists may have been skipped because they were locked,
+    // so wait for the locks before concluding that there is no state.
+    for (int i = 0; i < waitlists.length && size.get() > 0; i++) {
+      result = tryPop((home + i) % waitlists.length, true);
+      if (result != null) {
+        return result;
+      }
+    }
+    return null;
+  }
+
+  private @Nullable AbstractState tryPop(int pIndex, boolean pBlocking) {
+    ReentrantLock lock = locks[pIndex];
+    if (pBlocking) {
+      lock.lock();
+    } else if (!lock.tryLock()) {
+      return null;
+    }
+    try {
+      Waitlist waitlist = waitlists[pIndex];
+      if (waitlist.isEmpty()) {
+        return null;
+      }
+      AbstractState result = waitlist.pop();
+      size.decrementAndGet();
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(AbstractState pState) {
+    for (int i = 0; i < waitlists.length; i++) {
+      locks[i].lock();
+      try {
+        if (waitlists[i].contains(pState)) {
+          return true;
+        }
+      } finally {
+        locks[i].unlock();
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean remove(AbstractState pState) {
+    for (int i = 0; i < waitlists.length; i++) {
+      locks[i].lock();
+      try {
+        if (waitlists[i].remove(pState)) {
+          size.decrementAndGet();
+          return true;
+        }
+      } finally {
+        locks[i].unlock();
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void clear() {
+    // acquire all locks (in a fixed order) such that the waitlist is empty afterwards
+    for (ReentrantLock lock : locks) {
+      lock.lock();
+    }
+    try {
+      for (Waitlist waitlist : waitlists) {
+        size.addAndGet(-waitlist.size());
+        waitlist.clear();
+      }
+    } finally {
+      for (ReentrantLock lock : locks) {
+        lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public int size() {
+    return Math.max(size.get(), 0);
+  }
+
+  @Override
+  public Iterator<AbstractState> iterator() {
+    List<AbstractState> snapshot = new ArrayList<>(size());
+    for (int i = 0; i < waitlists.length; i++) {
+      locks[i].lock();
+      try {
+        waitlists[i].forEach(snapshot::add);
+      } finally {
+        locks[i].unlock();
+      }
+    }
+    return snapshot.iterator();
+  }
+
+  @Override
+  public String toString() {
+    List<AbstractState> states = new ArrayList<>();
+    iterator().forEachRemaining(states::add);
+    return states.toString();
+  }
+
+  /**
+   * Create a factory for thread-safe waitlists.
+   *
+   * @param pSecondaryStrategy The factory for the waitlists that store the states.
+   * @param pNumberOfWaitlists The number of independent waitlists, should be at least the number of
+   *     threads that access the waitlist.
+   */
+  public static WaitlistFactory factory(
+      final WaitlistFactory pSecondaryStrategy, final int pNumberOfWaitlists) {
+    checkNotNull(pSecondaryStrategy);
+    checkArgument(pNumberOfWaitlists > 0);
+    return () -> new ConcurrentWaitlist(pSecondaryStrategy, pNumberOfWaitlists);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.waitlist;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.sosy_lab.cpachecker.cfa.model.CFANode.newDummyCFANode;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractWrapperState;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist.TraversalMethod;
+import org.sosy_lab.cpachecker.cpa.callstack.CallstackState;
+
+public class ConcurrentWaitlistTest {
+
+  /** A state with a callstack of the given depth. */
+  private static final class TestState implements AbstractWrapperState {
+
+    private final CallstackState callstack;
+
+    private TestState(int pDepth) {
+      CallstackState state = null;
+      for (int i = 0; i < pDepth; i++) {
+        state = new CallstackState(state, "f" + i, newDummyCFANode("f" + i));
+      }
+      callstack = state;
+    }
+
+    @Override
+    public Iterable<AbstractState> getWrappedStates() {
+      return ImmutableList.of(callstack);
+    }
+  }
+
+  private static List<AbstractState> drain(Waitlist pWaitlist) {
+    List<AbstractState> result = new ArrayList<>();
+    while (!pWaitlist.isEmpty()) {
+      result.add(pWaitlist.pop());
+    }
+    return result;
+  }
+
+  @Test
+  public void singleThreadKeepsOrderOfStrategy() {
+    Waitlist waitlist =
+        ConcurrentWaitlist.factory(CallstackSortedWaitlist.factory(TraversalMethod.BFS), 4)
+            .createWaitlistInstance();
+    TestState depth1 = new TestState(1);
+    TestState depth3 = new TestState(3);
+    TestState depth2a = new TestState(2);
+    TestState depth2b = new TestState(2);
+    waitlist.add(depth1);
+    waitlist.add(depth3);
+    waitlist.add(depth2a);
+    waitlist.add(depth2b);
+    assertThat(waitlist.size()).isEqualTo(4);
+
+    assertThat(drain(waitlist)).containsExactly(depth3, depth2a, depth2b, depth1).inOrder();
+    assertThat(waitlist.pop()).isNull();
+  }
+
+  @Test
+  public void removeContainsAndClear() {
+    Waitlist waitlist = ConcurrentWaitlist.factory(TraversalMethod.DFS, 2).createWaitlistInstance();
+    TestState state1 = new TestState(1);
+    TestState state2 = new TestState(1);
+    waitlist.add(state1);
+    waitlist.add(state2);
+
+    assertThat(waitlist.contains(state1)).isTrue();
+    assertThat(waitlist.remove(state1)).isTrue();
+    assertThat(waitlist.remove(state1)).isFalse();
+    assertThat(waitlist.contains(state1)).isFalse();
+    assertThat(waitlist).containsExactly(state2);
+
+    waitlist.clear();
+    assertThat(waitlist.isEmpty()).isTrue();
+    assertThat(waitlist.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void concurrentWorkersPopEveryStateOnce() throws Exception {
+    final int threads = 4;
+    final int statesPerThread = 10000;
+    Waitlist waitlist =
+        ConcurrentWaitlist.factory(CallstackSortedWaitlist.factory(TraversalMethod.DFS), threads)
+            .createWaitlistInstance();
+    Set<AbstractState> popped = ConcurrentHashMap.newKeySet();
+    CyclicBarrier start = new CyclicBarrier(threads);
+
+    // each worker adds its states while it pops states of all workers
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Integer>> duplicates = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        duplicates.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  int duplicatePops = 0;
+                  for (int i = 0; i < statesPerThread; i++) {
+                    waitlist.add(new TestState(1 + i % 3));
+                    if (i % 2 == 0) {
+                      AbstractState state = waitlist.pop();
+                      if (state != null && !popped.add(state)) {
+                        duplicatePops++;
+                      }
+                    }
+                  }
+                  return duplicatePops;
+                }));
+      }
+      for (Future<Integer> result : duplicates) {
+        assertThat(result.get()).isEqualTo(0);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (AbstractState state : drain(waitlist)) {
+      assertThat(popped.add(state)).isTrue();
+    }
+    assertThat(popped).hasSize(threads * statesPerThread);
+    assertThat(waitlist.pop()).isNull();
+  }
+}
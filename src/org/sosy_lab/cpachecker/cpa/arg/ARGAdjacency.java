@@ -0,0 +1,273 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.arg;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact storage for the edges of an ARG, used instead of one collection object per direction
+ * and {@link ARGState}. All edges of the states of one ARG are kept in a few primitive arrays:
+ * each state has a node index with the heads of its lists of children, parents, and covered
+ * states, and all lists are singly-linked lists of cells that are allocated from one pool.
+ *
+ * <p>Cells refer to the neighboring {@link ARGState} directly (instead of using another table
+ * from ids to states), such that states in this structure can also be connected to states that
+ * store their edges in the usual way (e.g., states created by BAM). Storage of nodes and cells
+ * is reused after states are removed from the ARG.
+ *
+ * <p>All methods are synchronized, because successors of different states may be computed
+ * concurrently.
+ */
+final class ARGAdjacency implements Serializable {
+
+  private static final long serialVersionUID = 8105421982764325617L;
+
+  static final int CHILDREN = 0;
+  static final int PARENTS = 1;
+  static final int COVERED = 2;
+  private static final int KINDS = 3;
+
+  // marks the end of a list, cell 0 is never used
+  private static final int NONE = 0;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // heads[KINDS * node + kind] is the first cell of a list,
+  // for a free node heads[KINDS * node] is the next free node
+  private int[] heads = new int[KINDS * INITIAL_CAPACITY];
+  private int nodeCount = 0;
+  private int freeNode = -1;
+
+  private ARGState[] cellStates = new ARGState[INITIAL_CAPACITY];
+  private int[] cellNext = new int[INITIAL_CAPACITY];
+  private int cellCount = 1;
+  private int freeCell = NONE;
+
+  synchronized int newNode() {
+    int node;
+    if (freeNode >= 0) {
+      node = freeNode;
+      freeNode = heads[KINDS * node];
+      heads[KINDS * node] = NONE;
+    } else {
+      if (KINDS * (nodeCount + 1) > heads.length) {
+        heads = Arrays.copyOf(heads, 2 * heads.length);
+      }
+      node = nodeCount++;
+    }
+    return node;
+  }
+
+  /** Reuse the storage of a node. All of its lists must be empty. */
+  synchronized void releaseNode(int pNode) {
+    for (int kind = 0; kind < KINDS; kind++) {
+      assert heads[KINDS * pNode + kind] == NONE : "Releasing node with edges";
+    }
+    heads[KINDS * pNode] = freeNode;
+    freeNode = pNode;
+  }
+
+  synchronized boolean contains(int pNode, int pKind, Object pState) {
+    for (int cell = heads[KINDS * pNode + pKind]; cell != NONE; cell = cellNext[cell]) {
+      if (cellStates[cell] == pState) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Append a state to a list. The caller is responsible for avoiding duplicates. */
+  synchronized void add(int pNode, int pKind, ARGState pState) {
+    int newCell = newCell();
+    cellStates[newCell] = pState;
+    cellNext[newCell] = NONE;
+
+    int head = KINDS * pNode + pKind;
+    if (heads[head] == NONE) {
+      heads[head] = newCell;
+    } else {
+      int cell = heads[head];
+      while (cellNext[cell] != NONE) {
+        cell = cellNext[cell];
+      }
+      cellNext[cell] = newCell;
+    }
+  }
+
+  synchronized boolean remove(int pNode, int pKind, Object pState) {
+    int head = KINDS * pNode + pKind;
+    int previous = NONE;
+    for (int cell = heads[head]; cell != NONE; cell = cellNext[cell]) {
+      if (cellStates[cell] == pState) {
+        if (previous == NONE) {
+          heads[head] = cellNext[cell];
+        } else {
+          cellNext[previous] = cellNext[cell];
+        }
+        releaseCell(cell);
+        return true;
+      }
+      previous = cell;
+    }
+    return false;
+  }
+
+  synchronized void clear(int pNode, int pKind) {
+    int head = KINDS * pNode + pKind;
+    int cell = heads[head];
+    while (cell != NONE) {
+      int next = cellNext[cell];
+      releaseCell(cell);
+      cell = next;
+    }
+    heads[head] = NONE;
+  }
+
+  synchronized int size(int pNode, int pKind) {
+    int size = 0;
+    for (int cell = heads[KINDS * pNode + pKind]; cell != NONE; cell = cellNext[cell]) {
+      size++;
+    }
+    return size;
+  }
+
+  synchronized ARGState[] toArray(int pNode, int pKind) {
+    ARGState[] result = new ARGState[size(pNode, pKind)];
+    int i = 0;
+    for (int cell = heads[KINDS * pNode + pKind]; cell != NONE; cell = cellNext[cell]) {
+      result[i++] = cellStates[cell];
+    }
+    return result;
+  }
+
+  private int newCell() {
+    if (freeCell != NONE) {
+      int cell = freeCell;
+      freeCell = cellNext[cell];
+      return cell;
+    }
+    if (cellCount == cellStates.length) {
+      cellStates = Arrays.copyOf(cellStates, 2 * cellStates.length);
+      cellNext = Arrays.copyOf(cellNext, 2 * cellNext.length);
+    }
+    return cellCount++;
+  }
+
+  private void releaseCell(int pCell) {
+    cellStates[pCell] = null;
+    cellNext[pCell] = freeCell;
+    freeCell = pCell;
+  }
+
+  /**
+   * Get a live view of a list. The view supports removal and addition (without duplicates),
+   * and its iterators operate on a snapshot of the list.
+   */
+  ListView view(int pNode, int pKind) {
+    return new ListView(pNode, pKind);
+  }
+
+  final class ListView extends AbstractSet<ARGState> {
+
+    private final int node;
+    private final int kind;
+
+    private ListView(int pNode, int pKind) {
+      node = pNode;
+      kind = pKind;
+    }
+
+    @Override
+    public Iterator<ARGState> iterator() {
+      final ARGState[] snapshot = ARGAdjacency.this.toArray(node, kind);
+      return new Iterator<ARGState>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return next < snapshot.length;
+        }
+
+        @Override
+        public ARGState next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return snapshot[next++];
+        }
+
+        @Override
+        public void remove() {
+          if (next == 0 || snapshot[next - 1] == null) {
+            throw new IllegalStateException();
+          }
+          ARGAdjacency.this.remove(node, kind, snapshot[next - 1]);
+          snapshot[next - 1] = null;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return ARGAdjacency.this.size(node, kind);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      synchronized (ARGAdjacency.this) {
+        return heads[KINDS * node + kind] == NONE;
+      }
+    }
+
+    @Override
+    public boolean contains(Object pState) {
+      return ARGAdjacency.this.contains(node, kind, pState);
+    }
+
+    @Override
+    public boolean add(ARGState pState) {
+      synchronized (ARGAdjacency.this) {
+        if (ARGAdjacency.this.contains(node, kind, pState)) {
+          return false;
+        }
+        ARGAdjacency.this.add(node, kind, pState);
+        return true;
+      }
+    }
+
+    @Override
+    public boolean remove(Object pState) {
+      return ARGAdjacency.this.remove(node, kind, pState);
+    }
+
+    @Override
+    public void clear() {
+      ARGAdjacency.this.clear(node, kind);
+    }
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.arg;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.FluentIterable.from;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.common.time.Timer;
+import org.sosy_lab.cpachecker.core.CPAcheckerResult.Result;
+import org.sosy_lab.cpachecker.core.counterexample.CounterexampleInfo;
+import org.sosy_lab.cpachecker.core.defaults.precision.VariableTrackingPrecision;
+import org.sosy_lab.cpachecker.core.interfaces.AdjustablePrecision;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.Refiner;
+import org.sosy_lab.cpachecker.core.interfaces.Statistics;
+import org.sosy_lab.cpachecker.core.interfaces.StatisticsProvider;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.cpa.arg.ARGReachedSet.ForwardingARGReachedSet;
+import org.sosy_lab.cpachecker.cpa.arg.path.ARGPath;
+import org.sosy_lab.cpachecker.exceptions.CPAException;
+import org.sosy_lab.cpachecker.exceptions.RefinementFailedException;
+import org.sosy_lab.cpachecker.util.statistics.StatCounter;
+import org.sosy_lab.cpachecker.util.statistics.StatisticsWriter;
+
+/**
+ * {@link Refiner} that refines all target states of the reached set in one refinement step,
+ * using the path-based refinement of an {@link AbstractARGBasedRefiner}.
+ *
+ * <p>The paths are refined from the shortest to the longest one. Paths that contain a state at
+ * which the ARG is going to be cut by a previous refinement of the same batch are skipped, because
+ * they are re-explored anyway. The cuts of the ARG that are requested by the wrapped refiner are
+ * collected and applied only after all paths of the batch have been handled: cuts below other cuts
+ * are merged into them, and their precisions are combined with {@link AdjustablePrecision#add} or
+ * {@link VariableTrackingPrecision#join}.
+ */
+public final class ARGBatchRefiner implements Refiner, StatisticsProvider, AutoCloseable {
+
+  private final AbstractARGBasedRefiner refiner;
+  private final LogManager logger;
+  private final int maxBatchSize;
+
+  private int refinementNumber;
+
+  private final Timer batchTimer = new Timer();
+  private final StatCounter refinedPaths = new StatCounter("Number of refined paths");
+  private final StatCounter skippedPaths =
+      new StatCounter("Number of paths skipped because of a shared prefix");
+  private final StatCounter appliedCuts = new StatCounter("Number of applied ARG cuts");
+  private final StatCounter mergedCuts = new StatCounter("Number of ARG cuts merged into others");
+
+  /**
+   * Create a batch refiner.
+   *
+   * @param pRefiner the refiner that is used for each single path
+   * @param pMaxBatchSize the maximal number of paths that are refined in one batch (0 for no limit)
+   */
+  public ARGBatchRefiner(AbstractARGBasedRefiner pRefiner, int pMaxBatchSize, LogManager pLogger) {
+    refiner = checkNotNull(pRefiner);
+    maxBatchSize = pMaxBatchSize;
+    logger = pLogger;
+  }
+
+  @Override
+  public boolean performRefinement(ReachedSet pReached) throws CPAException, InterruptedException {
+    logger.log(Level.FINEST, "Starting batch refinement");
+    assert ARGUtils.checkARG(pReached) : "ARG and reached set do not match before refinement";
+
+    batchTimer.start();
+    try {
+      DeferringARGReachedSet reached =
+          new DeferringARGReachedSet(
+              new ARGReachedSet(pReached, refiner.argCpa, refinementNumber++));
+
+      List<ARGState> targets =
+          from(pReached)
+              .filter(ARGState.class)
+              .filter(ARGState::isTarget)
+              .filter(s -> !s.getCounterexampleInformation().isPresent())
+              .toList();
+
+      List<ARGPath> paths = new ArrayList<>(targets.size());
+      Map<ARGPath, ARGState> targetOfPath = new LinkedHashMap<>();
+      for (ARGState target : targets) {
+        ARGPath path = refiner.computePath(target, reached);
+        if (path == null) {
+          logger.log(Level.INFO, "Could not compute path to target state", target.getStateId());
+          continue;
+        }
+        paths.add(path);
+        targetOfPath.put(path, target);
+      }
+      // short paths first, their cuts are near the root and cover more of the other paths
+      paths.sort(Comparator.comparingInt(ARGPath::size));
+
+      boolean spurious = false;
+      boolean feasible = false;
+      int batchSize = 0;
+      for (ARGPath path : paths) {
+        ARGState target = targetOfPath.get(path);
+        if (target.isDestroyed() || reached.isCutAnyOf(path.asStatesList())) {
+          skippedPaths.inc();
+          continue;
+        }
+        if (maxBatchSize > 0 && batchSize >= maxBatchSize) {
+          break;
+        }
+        batchSize++;
+        refinedPaths.inc();
+
+        if (refinePath(reached, target, path)) {
+          spurious = true;
+        } else {
+          // real counterexample, stop like a refinement of a single path would do
+          feasible = true;
+          break;
+        }
+      }
+
+      reached.applyCuts();
+
+      assert ARGUtils.checkARG(pReached) : "ARG and reached set do not match after refinement";
+      logger.log(
+          Level.FINEST, "Batch refinement finished, refined", batchSize, "of", paths.size(), "paths");
+      return spurious && !feasible;
+
+    } finally {
+      batchTimer.stop();
+    }
+  }
+
+  /** Refine one path of the batch like {@link AbstractARGBasedRefiner#performRefinement}. */
+  private boolean refinePath(ARGReachedSet pReached, ARGState pTarget, ARGPath pPath)
+      throws CPAException, InterruptedException {
+    final CounterexampleInfo counterexample;
+    try {
+      counterexample = refiner.performRefinementForPath(pReached, pPath);
+    } catch (RefinementFailedException e) {
+      if (e.getErrorPath() == null) {
+        e.setErrorPath(pPath);
+      }
+      pTarget.addCounterexampleInformation(CounterexampleInfo.feasibleImprecise(e.getErrorPath()));
+      throw e;
+    }
+
+    if (!counterexample.isSpurious()) {
+      pTarget.addCounterexampleInformation(counterexample);
+      logger.log(Level.FINEST, "Counterexample", counterexample.getUniqueId(), "has been found.");
+      refiner.argCpa.getARGExporter().exportCounterexampleOnTheFly(pTarget, counterexample);
+    }
+    return counterexample.isSpurious();
+  }
+
+  @Override
+  public void close() {
+    refiner.close();
+  }
+
+  @Override
+  public void collectStatistics(Collection<Statistics> pStatsCollection) {
+    refiner.collectStatistics(pStatsCollection);
+    pStatsCollection.add(
+        new Statistics() {
+          @Override
+          public void printStatistics(
+              PrintStream pOut, Result pResult, UnmodifiableReachedSet pReached) {
+            StatisticsWriter.writingStatisticsTo(pOut)
+                .put("Time for batch refinements", batchTimer)
+                .put(refinedPaths)
+                .put(skippedPaths)
+                .put(appliedCuts)
+                .put(mergedCuts);
+          }
+
+          @Override
+          public String getName() {
+            return "Batch refinement";
+          }
+        });
+  }
+
+  @Override
+  public String toString() {
+    return "batch refinement with " + refiner;
+  }
+
+  /** A requested removal of a subtree, with the precisions for the re-added states. */
+  static final class Cut {
+    private final ARGState root;
+    private final List<Precision> precisions = new ArrayList<>();
+    private final List<Predicate<? super Precision>> precisionTypes = new ArrayList<>();
+
+    Cut(ARGState pRoot) {
+      root = pRoot;
+    }
+
+    List<Precision> getPrecisions() {
+      return precisions;
+    }
+
+    /**
+     * Add precisions to this cut. A precision of the same class as an existing one is combined
+     * with it if both are {@link AdjustablePrecision}s or {@link VariableTrackingPrecision}s.
+     * Precisions of other classes cannot be combined, for them the existing one is kept and the
+     * refinement of the other path is repeated in the next iteration.
+     */
+    void addPrecisions(
+        List<Precision> pPrecisions, List<Predicate<? super Precision>> pPrecisionTypes) {
+      for (int i = 0; i < pPrecisions.size(); i++) {
+        Precision newPrecision = pPrecisions.get(i);
+        int index =
+            Iterables.indexOf(precisions, p -> p.getClass().equals(newPrecision.getClass()));
+        if (index < 0) {
+          precisions.add(newPrecision);
+          precisionTypes.add(pPrecisionTypes.get(i));
+        } else if (newPrecision instanceof AdjustablePrecision) {
+          precisions.set(
+              index,
+              ((AdjustablePrecision) precisions.get(index))
+                  .add((AdjustablePrecision) newPrecision));
+        } else if (newPrecision instanceof VariableTrackingPrecision) {
+          precisions.set(
+              index,
+              ((VariableTrackingPrecision) precisions.get(index))
+                  .join((VariableTrackingPrecision) newPrecision));
+        }
+      }
+    }
+  }
+
+  /**
+   * An {@link ARGReachedSet} that records the requested removals of subtrees instead of performing
+   * them immediately. All other operations are performed immediately.
+   */
+  private final class DeferringARGReachedSet extends ForwardingARGReachedSet {
+
+    private final Map<ARGState, Cut> cuts = new LinkedHashMap<>();
+
+    private DeferringARGReachedSet(ARGReachedSet pReached) {
+      super(pReached);
+    }
+
+    @Override
+    public void removeSubtree(ARGState pState) {
+      cuts.computeIfAbsent(pState, Cut::new);
+    }
+
+    @Override
+    public void removeSubtree(
+        ARGState pState, Precision pPrecision, Predicate<? super Precision> pPrecisionType) {
+      removeSubtree(pState, ImmutableList.of(pPrecision), ImmutableList.of(pPrecisionType));
+    }
+
+    @Override
+    public void removeSubtree(
+        ARGState pState,
+        List<Precision> pPrecisions,
+        List<Predicate<? super Precision>> pPrecisionTypes) {
+      cuts.computeIfAbsent(pState, Cut::new).addPrecisions(pPrecisions, pPrecisionTypes);
+    }
+
+    private boolean isCutAnyOf(List<ARGState> pStates) {
+      return Iterables.any(pStates, cuts::containsKey);
+    }
+
+    /** Merge cuts into the cuts above them and apply the remaining cuts to the ARG. */
+    private void applyCuts() throws InterruptedException {
+      Map<Cut, List<ARGState>> cutsBelow = new LinkedHashMap<>();
+      List<Cut> topCuts = new ArrayList<>();
+      for (Cut cut : cuts.values()) {
+        List<ARGState> cutStatesAbove = getCutStatesAbove(cut.root);
+        if (cutStatesAbove.isEmpty()) {
+          topCuts.add(cut);
+        } else {
+          cutsBelow.put(cut, cutStatesAbove);
+        }
+      }
+
+      for (Map.Entry<Cut, List<ARGState>> entry : cutsBelow.entrySet()) {
+        mergedCuts.inc();
+        Cut cut = entry.getKey();
+        for (ARGState cutStateAbove : entry.getValue()) {
+          Cut cutAbove = cuts.get(cutStateAbove);
+          if (!cutsBelow.containsKey(cutAbove)) {
+            cutAbove.addPrecisions(cut.precisions, cut.precisionTypes);
+          }
+        }
+      }
+
+      for (Cut cut : topCuts) {
+        if (cut.root.isDestroyed()) {
+          continue;
+        }
+        appliedCuts.inc();
+        if (cut.precisions.isEmpty()) {
+          delegate.removeSubtree(cut.root);
+        } else {
+          delegate.removeSubtree(cut.root, cut.precisions, cut.precisionTypes);
+        }
+      }
+      cuts.clear();
+    }
+
+    /** Get the strict ancestors of a state at which the ARG is cut. */
+    private List<ARGState> getCutStatesAbove(ARGState pState) {
+      List<ARGState> result = new ArrayList<>(1);
+      Set<ARGState> visited = new HashSet<>();
+      Deque<ARGState> waitlist = new ArrayDeque<>(pState.getParents());
+      while (!waitlist.isEmpty()) {
+        ARGState current = waitlist.pop();
+        if (visited.add(current)) {
+          if (cuts.containsKey(current)) {
+            result.add(current);
+          }
+          waitlist.addAll(current.getParents());
+        }
+      }
+      return result;
+    }
+  }
+}
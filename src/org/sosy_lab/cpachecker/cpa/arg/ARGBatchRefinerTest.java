@@ -0,0 +1,81 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.arg;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import java.util.Optional;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.ast.c.CFunctionDeclaration;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.cfa.types.c.CNumericTypes;
+import org.sosy_lab.cpachecker.core.defaults.precision.VariableTrackingPrecision;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.cpa.arg.ARGBatchRefiner.Cut;
+import org.sosy_lab.cpachecker.cpa.value.ValueAnalysisCPA;
+import org.sosy_lab.cpachecker.util.states.MemoryLocation;
+import org.sosy_lab.cpachecker.util.test.TestDataTools;
+import org.sosy_lab.cpachecker.util.variableclassification.VariableClassification;
+
+public class ARGBatchRefinerTest {
+
+  private static final CFANode NODE = new CFANode(CFunctionDeclaration.DUMMY);
+  private static final MemoryLocation X = MemoryLocation.valueOf("main", "x");
+  private static final MemoryLocation Y = MemoryLocation.valueOf("main", "y");
+
+  /** The initial precision of a value analysis with refinement. */
+  private static VariableTrackingPrecision initialPrecision() throws Exception {
+    Configuration config = TestDataTools.configurationForTest().build();
+    VariableTrackingPrecision baseline =
+        VariableTrackingPrecision.createStaticPrecision(
+            config,
+            Optional.of(VariableClassification.empty(LogManager.createTestLogManager())),
+            ValueAnalysisCPA.class);
+    return VariableTrackingPrecision.createRefineablePrecision(config, baseline);
+  }
+
+  @Test
+  public void valuePrecisionsOfSharedCutAreJoined() throws Exception {
+    // two counterexamples whose refinements request a cut at the same state
+    VariableTrackingPrecision initialPrecision = initialPrecision();
+    Cut cut = new Cut(new ARGState(null, null));
+    cut.addPrecisions(
+        ImmutableList.of(initialPrecision.withIncrement(ImmutableSetMultimap.of(NODE, X))),
+        ImmutableList.of(VariableTrackingPrecision.isMatchingCPAClass(ValueAnalysisCPA.class)));
+    cut.addPrecisions(
+        ImmutableList.of(initialPrecision.withIncrement(ImmutableSetMultimap.of(NODE, Y))),
+        ImmutableList.of(VariableTrackingPrecision.isMatchingCPAClass(ValueAnalysisCPA.class)));
+
+    assertThat(cut.getPrecisions()).hasSize(1);
+    Precision precision = cut.getPrecisions().get(0);
+    assertThat(precision).isInstanceOf(VariableTrackingPrecision.class);
+    VariableTrackingPrecision joined = (VariableTrackingPrecision) precision;
+    assertThat(joined.isTracking(X, CNumericTypes.INT, NODE)).isTrue();
+    assertThat(joined.isTracking(Y, CNumericTypes.INT, NODE)).isTrue();
+  }
+}
@@ -105,6 +105,14 @@ public class ARGCPA extends AbstractSingleWrapperCPA
     "prevent the stop-operator from aborting the stop-check early when it crosses a target state")
   private boolean coverTargetStates = false;
 
+  @Option(
+      secure = true,
+      description =
+          "store the edges of the ARG in a compact adjacency structure that is shared by all "
+              + "states of one ARG instead of separate collections per state "
+              + "(needs less memory per state, but iterating over neighbors creates a copy)")
+  private boolean compactAdjacency = false;
+
   private final LogManager logger;
 
   private final ARGStatistics stats;
@@ -178,7 +186,10 @@ public class ARGCPA extends AbstractSingleWrapperCPA
   @Override
   public AbstractState getInitialState(CFANode pNode, StateSpacePartition pPartition) throws InterruptedException {
     // TODO some code relies on the fact that this method is called only once and the result is the root of the ARG
-    return new ARGState(getWrappedCpa().getInitialState(pNode, pPartition), null);
+    return new ARGState(
+        getWrappedCpa().getInitialState(pNode, pPartition),
+        null,
+        compactAdjacency ? new ARGAdjacency() : null);
   }
 
   public LogManager getLogger() {
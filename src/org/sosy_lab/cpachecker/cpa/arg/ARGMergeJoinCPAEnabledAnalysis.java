@@ -76,7 +76,7 @@ public class ARGMergeJoinCPAEnabledAnalysis implements MergeOperator {
     AbstractState retElement = wrappedMerge.merge(wrappedState1, wrappedState2, pPrecision);
     if (retElement.equals(wrappedState2)) { return pState2; }
 
-    ARGState mergedElement = new ARGState(retElement, null);
+    ARGState mergedElement = new ARGState(retElement, null, argElement2.getAdjacency());
 
     if (deleteSubgraphAfterMerge) {
       // now replace argElement2 by mergedElement in ARG
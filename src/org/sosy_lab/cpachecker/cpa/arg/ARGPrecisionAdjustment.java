@@ -124,7 +124,7 @@ public class ARGPrecisionAdjustment implements PrecisionAdjustment {
       return Optional.of(PrecisionAdjustmentResult.create(element, oldPrecision, action));
     }
 
-    ARGState resultElement = new ARGState(newElement, null);
+    ARGState resultElement = new ARGState(newElement, null, element.getAdjacency());
 
     element.replaceInARGWith(resultElement); // this completely eliminates element
 
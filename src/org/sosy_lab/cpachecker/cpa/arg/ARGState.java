@@ -33,6 +33,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.google.common.graph.Traverser;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -62,8 +64,13 @@ public class ARGState extends AbstractSingleWrapperState
   // because ArrayList is much more memory efficient than e.g. LinkedHashSet.
   // Also these collections are small and so a slow contains() method won't hurt.
   // To enforce set semantics, do not add elements except through addparent()!
-  private final Collection<ARGState> children = new ArrayList<>(1);
-  private final Collection<ARGState> parents = new ArrayList<>(1);
+  // Both are null if the edges are stored in a compact adjacency structure for the whole ARG.
+  private final @Nullable Collection<ARGState> children;
+  private final @Nullable Collection<ARGState> parents;
+
+  // Storage for the edges of this state (including mCoveredByThis) if not null.
+  private final @Nullable ARGAdjacency adjacency;
+  private final int adjacencyIndex;
 
   private ARGState mCoveredBy = null;
   private Set<ARGState> mCoveredByThis = null; // lazy initialization because rarely needed
@@ -81,24 +88,140 @@ public class ARGState extends AbstractSingleWrapperState
   // If this is a target state, we may store additional information here.
   private transient CounterexampleInfo counterexample;
 
+  // If the wrapped state was written to disk by a SpillingReachedSet, this is its copy on disk
+  // together with the partition keys, which are kept even after the wrapped state was loaded again
+  // such that the state remains in the same partition of the reached set.
+  private transient StateSpillFile.@Nullable Record spillRecord = null;
+  // whether the wrapped state is currently only on disk
+  private transient volatile boolean spilled = false;
+
   private static final UniqueIdGenerator idGenerator = new UniqueIdGenerator();
 
   public ARGState(@Nullable AbstractState pWrappedState, @Nullable ARGState pParentElement) {
+    this(pWrappedState, pParentElement, pParentElement == null ? null : pParentElement.adjacency);
+  }
+
+  /**
+   * Create a new state that stores its edges in the given adjacency structure,
+   * or in separate collections if it is null.
+   */
+  ARGState(
+      @Nullable AbstractState pWrappedState,
+      @Nullable ARGState pParentElement,
+      @Nullable ARGAdjacency pAdjacency) {
     super(pWrappedState);
     stateId = idGenerator.getFreshId();
+    adjacency = pAdjacency;
+    if (adjacency == null) {
+      children = new ArrayList<>(1);
+      parents = new ArrayList<>(1);
+      adjacencyIndex = -1;
+    } else {
+      children = null;
+      parents = null;
+      adjacencyIndex = adjacency.newNode();
+    }
     if (pParentElement != null) {
       addParent(pParentElement);
     }
   }
 
+  // wrapped state, possibly stored on disk
+
+  @Override
+  public @Nullable AbstractState getWrappedState() {
+    if (spilled) {
+      loadWrappedState();
+    }
+    return super.getWrappedState();
+  }
+
+  private synchronized void loadWrappedState() {
+    if (spilled) {
+      setWrappedState(spillRecord.load(this));
+      spilled = false;
+    }
+  }
+
+  /**
+   * Write the wrapped state to the given file (if this was not done before)
+   * and release the in-memory copy of it.
+   * The next call to {@link #getWrappedState()} loads the state again.
+   * This must only be called for states that will not be changed anymore,
+   * and not while other threads access this state.
+   *
+   * @return whether the wrapped state was released, i.e., false if it could not be serialized
+   */
+  synchronized boolean spillWrappedState(StateSpillFile pFile) throws IOException {
+    assert !destroyed : "Don't use destroyed ARGState " + this;
+    if (spilled) {
+      return true;
+    }
+    if (spillRecord == null) {
+      spillRecord = pFile.write(this, super.getWrappedState());
+      if (spillRecord == null) {
+        return false;
+      }
+    }
+    setWrappedState(null);
+    spilled = true;
+    return true;
+  }
+
+  boolean isSpilled() {
+    return spilled;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    // the spill file is not part of the serialized form
+    getWrappedState();
+    out.defaultWriteObject();
+  }
+
   // parent & child relations
 
+  private Collection<ARGState> children() {
+    return adjacency == null ? children : adjacencyView(ARGAdjacency.CHILDREN);
+  }
+
+  private Collection<ARGState> parents() {
+    return adjacency == null ? parents : adjacencyView(ARGAdjacency.PARENTS);
+  }
+
+  /**
+   * The states covered by this state, or null if there are none
+   * (not yet initialized) and pCreate is false.
+   */
+  private @Nullable Set<ARGState> coveredByThis(boolean pCreate) {
+    if (adjacency != null) {
+      return adjacencyView(ARGAdjacency.COVERED);
+    }
+    if (mCoveredByThis == null && pCreate) {
+      // lazy initialization because rarely needed
+      mCoveredByThis = new LinkedHashSet<>(2);
+    }
+    return mCoveredByThis;
+  }
+
+  private Set<ARGState> adjacencyView(int pKind) {
+    if (destroyed) {
+      // all edges were removed, and the node may already be used by another state
+      return ImmutableSet.of();
+    }
+    return adjacency.view(adjacencyIndex, pKind);
+  }
+
+  /** Storage for the edges of this state and its successors, may be null. */
+  @Nullable ARGAdjacency getAdjacency() {
+    return adjacency;
+  }
+
   /**
    * Get the parent elements of this state.
    * @return A unmodifiable collection of ARGStates without duplicates.
    */
   public Collection<ARGState> getParents() {
-    return Collections.unmodifiableCollection(parents);
+    return Collections.unmodifiableCollection(parents());
   }
 
   public void addParent(ARGState pOtherParent) {
@@ -106,12 +229,12 @@ public class ARGState extends AbstractSingleWrapperState
     assert !destroyed : "Don't use destroyed ARGState " + this;
 
     // Manually enforce set semantics.
-    if (!parents.contains(pOtherParent)) {
-      assert !pOtherParent.children.contains(this);
-      parents.add(pOtherParent);
-      pOtherParent.children.add(this);
+    if (!parents().contains(pOtherParent)) {
+      assert !pOtherParent.children().contains(this);
+      parents().add(pOtherParent);
+      pOtherParent.children().add(this);
     } else {
-      assert pOtherParent.children.contains(this);
+      assert pOtherParent.children().contains(this);
     }
   }
 
@@ -121,7 +244,7 @@ public class ARGState extends AbstractSingleWrapperState
    */
   public Collection<ARGState> getChildren() {
     assert !destroyed : "Don't use destroyed ARGState " + this;
-    return Collections.unmodifiableCollection(children);
+    return Collections.unmodifiableCollection(children());
   }
 
   /**
@@ -228,18 +351,14 @@ public class ARGState extends AbstractSingleWrapperState
     checkArgument(pCoveredBy.mayCover, "Trying to cover with non-covering element %s", pCoveredBy);
 
     mCoveredBy = pCoveredBy;
-    if (pCoveredBy.mCoveredByThis == null) {
-      // lazy initialization because rarely needed
-      pCoveredBy.mCoveredByThis = new LinkedHashSet<>(2);
-    }
-    pCoveredBy.mCoveredByThis.add(this);
+    pCoveredBy.coveredByThis(true).add(this);
   }
 
   public void uncover() {
     assert isCovered();
-    assert mCoveredBy.mCoveredByThis.contains(this);
+    assert mCoveredBy.coveredByThis(false).contains(this);
 
-    mCoveredBy.mCoveredByThis.remove(this);
+    mCoveredBy.coveredByThis(false).remove(this);
     mCoveredBy = null;
   }
 
@@ -255,10 +374,11 @@ public class ARGState extends AbstractSingleWrapperState
 
   public Set<ARGState> getCoveredByThis() {
     assert !destroyed : "Don't use destroyed ARGState " + this;
-    if (mCoveredByThis == null) {
+    Set<ARGState> coveredByThis = coveredByThis(false);
+    if (coveredByThis == null) {
       return ImmutableSet.of();
     } else {
-      return Collections.unmodifiableSet(mCoveredByThis);
+      return Collections.unmodifiableSet(coveredByThis);
     }
   }
 
@@ -276,6 +396,15 @@ public class ARGState extends AbstractSingleWrapperState
     hasCoveredParent = pHasCoveredParent;
   }
 
+  boolean hasCoveredParent() {
+    return hasCoveredParent;
+  }
+
+  /** Returns whether {@link #setNotCovering()} was called, independently of coverage. */
+  boolean isMarkedNotCovering() {
+    return !mayCover;
+  }
+
   // merged-with marker so that stop can return true for merged elements
 
   void setMergedWith(ARGState pMergedWith) {
@@ -300,10 +429,10 @@ public class ARGState extends AbstractSingleWrapperState
   }
 
   void deleteChild(ARGState child) {
-    assert (children.contains(child));
-    assert (child.parents.contains(this));
-    children.remove(child);
-    child.parents.remove(this);
+    assert (children().contains(child));
+    assert (child.parents().contains(this));
+    children().remove(child);
+    child.parents().remove(this);
   }
 
   // counterexample
@@ -375,7 +504,28 @@ public class ARGState extends AbstractSingleWrapperState
 
   @Override
   public boolean isTarget() {
-    return !hasCoveredParent && !isCovered() && super.isTarget();
+    StateSpillFile.Record record = spillRecord;
+    return !hasCoveredParent
+        && !isCovered()
+        && (record == null ? super.isTarget() : record.isTarget());
+  }
+
+  @Override
+  public Object getPartitionKey() {
+    StateSpillFile.Record record = spillRecord;
+    return record == null ? super.getPartitionKey() : record.getPartitionKey();
+  }
+
+  @Override
+  public Comparable<?> getPseudoPartitionKey() {
+    StateSpillFile.Record record = spillRecord;
+    return record == null ? super.getPseudoPartitionKey() : record.getPseudoPartitionKey();
+  }
+
+  @Override
+  public Object getPseudoHashCode() {
+    StateSpillFile.Record record = spillRecord;
+    return record == null ? super.getPseudoHashCode() : record.getPseudoHashCode();
   }
 
   @Override
@@ -391,9 +541,9 @@ public class ARGState extends AbstractSingleWrapperState
     sb.append(stateId);
     if (!destroyed) {
       sb.append(", Parents: ");
-      sb.append(stateIdsOf(parents));
+      sb.append(stateIdsOf(parents()));
       sb.append(", Children: ");
-      sb.append(stateIdsOf(children));
+      sb.append(stateIdsOf(children()));
 
       if (mCoveredBy != null) {
         sb.append(", Covered by: ");
@@ -447,6 +597,13 @@ public class ARGState extends AbstractSingleWrapperState
     clearCoverageRelation();
 
     destroyed = true;
+    releaseAdjacencyNode();
+  }
+
+  private void releaseAdjacencyNode() {
+    if (adjacency != null) {
+      adjacency.releaseNode(adjacencyIndex);
+    }
   }
 
   /**
@@ -455,17 +612,18 @@ public class ARGState extends AbstractSingleWrapperState
    */
   private void clearCoverageRelation() {
     if (isCovered()) {
-      assert mCoveredBy.mCoveredByThis.contains(this);
+      assert mCoveredBy.coveredByThis(false).contains(this);
 
-      mCoveredBy.mCoveredByThis.remove(this);
+      mCoveredBy.coveredByThis(false).remove(this);
       mCoveredBy = null;
     }
 
-    if (mCoveredByThis != null) {
-      for (ARGState covered : mCoveredByThis) {
+    Set<ARGState> coveredByThis = coveredByThis(false);
+    if (coveredByThis != null) {
+      for (ARGState covered : coveredByThis) {
         covered.mCoveredBy = null;
       }
-      mCoveredByThis.clear();
+      coveredByThis.clear();
       mCoveredByThis = null;
     }
   }
@@ -478,18 +636,18 @@ public class ARGState extends AbstractSingleWrapperState
     assert !destroyed : "Don't use destroyed ARGState " + this;
 
     // clear children
-    for (ARGState child : children) {
-      assert (child.parents.contains(this));
-      child.parents.remove(this);
+    for (ARGState child : children()) {
+      assert (child.parents().contains(this));
+      child.parents().remove(this);
     }
-    children.clear();
+    children().clear();
 
     // clear parents
-    for (ARGState parent : parents) {
-      assert (parent.children.contains(this));
-      parent.children.remove(this);
+    for (ARGState parent : parents()) {
+      assert (parent.children().contains(this));
+      parent.children().remove(this);
     }
-    parents.clear();
+    parents().clear();
   }
 
   /**
@@ -509,37 +667,39 @@ public class ARGState extends AbstractSingleWrapperState
     assert !this.equals(replacement) : "Don't replace ARGState " + this + " with itself";
 
     // copy children
-    for (ARGState child : children) {
-      assert child.parents.contains(this) : "Inconsistent ARG at " + this;
-      child.parents.remove(this);
+    for (ARGState child : children()) {
+      assert child.parents().contains(this) : "Inconsistent ARG at " + this;
+      child.parents().remove(this);
       child.addParent(replacement);
     }
-    children.clear();
+    children().clear();
 
-    for (ARGState parent : parents) {
-      assert parent.children.contains(this) : "Inconsistent ARG at " + this;
-      parent.children.remove(this);
+    for (ARGState parent : parents()) {
+      assert parent.children().contains(this) : "Inconsistent ARG at " + this;
+      parent.children().remove(this);
       replacement.addParent(parent);
     }
-    parents.clear();
+    parents().clear();
 
-    if (mCoveredByThis != null) {
-      if (replacement.mCoveredByThis == null) {
+    Set<ARGState> coveredByThis = coveredByThis(false);
+    if (coveredByThis != null) {
+      if (replacement.adjacency == null && replacement.mCoveredByThis == null) {
         // lazy initialization because rarely needed
-        replacement.mCoveredByThis = Sets.newHashSetWithExpectedSize(mCoveredByThis.size());
+        replacement.mCoveredByThis = Sets.newHashSetWithExpectedSize(coveredByThis.size());
       }
 
-      for (ARGState covered : mCoveredByThis) {
+      for (ARGState covered : coveredByThis) {
         assert this.equals(covered.mCoveredBy) : "Inconsistent coverage relation at " + this;
         covered.mCoveredBy = replacement;
-        replacement.mCoveredByThis.add(covered);
+        replacement.coveredByThis(true).add(covered);
       }
 
-      mCoveredByThis.clear();
+      coveredByThis.clear();
       mCoveredByThis = null;
     }
 
     destroyed = true;
+    releaseAdjacencyNode();
   }
 
   /* (non-Javadoc)
@@ -555,12 +715,26 @@ public class ARGState extends AbstractSingleWrapperState
         newWrappedState = wrappedState;
     }
 
-    ARGState newState = new ARGState(newWrappedState,null);
+    ARGState newState = new ARGState(newWrappedState, null, adjacency);
     newState.makeTwinOf(this);
 
     return newState;
   }
 
+  /**
+   * Replace this state in the ARG by a copy with a fresh id. The copy is younger than all existing
+   * states (cf. {@link #isOlderThan(ARGState)}), e.g., for a successor that was computed before
+   * other states were added to the ARG.
+   *
+   * @return the copy that replaces this state
+   */
+  public ARGState renewInARG() {
+    ARGState renewed = new ARGState(getWrappedState(), null, adjacency);
+    renewed.makeTwinOf(this);
+    replaceInARGWith(renewed);
+    return renewed;
+  }
+
   public void makeTwinOf(ARGState pTemplateState) {
 
     checkState(this.stateId != pTemplateState.stateId);
@@ -578,12 +752,12 @@ public class ARGState extends AbstractSingleWrapperState
     assert !destroyed : "Don't use destroyed ARGState " + this;
 
     // Manually enforce set semantics.
-    if (parents.contains(pOtherParent)) {
-      assert pOtherParent.children.contains(this);
-      parents.remove(pOtherParent);
-      pOtherParent.children.remove(this);
+    if (parents().contains(pOtherParent)) {
+      assert pOtherParent.children().contains(this);
+      parents().remove(pOtherParent);
+      pOtherParent.children().remove(this);
     } else {
-      assert !pOtherParent.children.contains(this) : "Problem detected!";
+      assert !pOtherParent.children().contains(this) : "Problem detected!";
     }
   }
 }
@@ -54,7 +54,7 @@ import org.sosy_lab.cpachecker.util.CPAs;
  * To use this, implement {@link ARGBasedRefiner} and call
  * {@link AbstractARGBasedRefiner#forARGBasedRefiner(ARGBasedRefiner, ConfigurableProgramAnalysis)}.
  */
-public class AbstractARGBasedRefiner implements Refiner, StatisticsProvider {
+public class AbstractARGBasedRefiner implements Refiner, StatisticsProvider, AutoCloseable {
 
   private int refinementNumber;
 
@@ -190,6 +190,11 @@ public class AbstractARGBasedRefiner implements Refiner, StatisticsProvider {
     return ARGUtils.getOnePathTo(pLastElement);
   }
 
+  @Override
+  public void close() {
+    CPAs.closeIfPossible(refiner, logger);
+  }
+
   @Override
   public void collectStatistics(Collection<Statistics> pStatsCollection) {
     if (refiner instanceof StatisticsProvider) {
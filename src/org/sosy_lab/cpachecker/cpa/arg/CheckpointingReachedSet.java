@@ -0,0 +1,124 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.arg;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.reachedset.ForwardingReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.util.Pair;
+import org.sosy_lab.cpachecker.util.statistics.AbstractStatValue;
+
+/**
+ * Reached set that lets a {@link ReachedSetCheckpointer} write periodic checkpoints. All
+ * operations are forwarded to a nested reached set.
+ *
+ * <p>Checkpoints are written when a state is taken from the waitlist directly after the reached set
+ * was modified. At this point the previously popped states were handled completely, even if the
+ * analysis takes several states from the waitlist at once (cf. the option
+ * cpa.parallelExpansion.threads of the CPAAlgorithm).
+ */
+class CheckpointingReachedSet extends ForwardingReachedSet {
+
+  private final ReachedSetCheckpointer checkpointer;
+  private boolean modifiedSinceLastPop = true;
+
+  CheckpointingReachedSet(ReachedSet pDelegate, ReachedSetCheckpointer pCheckpointer) {
+    super(pDelegate);
+    checkpointer = checkNotNull(pCheckpointer);
+  }
+
+  @Override
+  public AbstractState popFromWaitlist() {
+    if (modifiedSinceLastPop) {
+      checkpointer.writeCheckpointIfDue(this);
+      modifiedSinceLastPop = false;
+    }
+    return super.popFromWaitlist();
+  }
+
+  @Override
+  public void add(AbstractState pState, Precision pPrecision) {
+    modifiedSinceLastPop = true;
+    super.add(pState, pPrecision);
+  }
+
+  @Override
+  public void addAll(Iterable<Pair<AbstractState, Precision>> pToAdd) {
+    modifiedSinceLastPop = true;
+    super.addAll(pToAdd);
+  }
+
+  @Override
+  public void reAddToWaitlist(AbstractState pState) {
+    modifiedSinceLastPop = true;
+    super.reAddToWaitlist(pState);
+  }
+
+  @Override
+  public void updatePrecision(AbstractState pState, Precision pNewPrecision) {
+    modifiedSinceLastPop = true;
+    super.updatePrecision(pState, pNewPrecision);
+  }
+
+  @Override
+  public void remove(AbstractState pState) {
+    modifiedSinceLastPop = true;
+    super.remove(pState);
+    checkpointer.forgetState(pState);
+  }
+
+  @Override
+  public void removeAll(Iterable<? extends AbstractState> pToRemove) {
+    modifiedSinceLastPop = true;
+    super.removeAll(pToRemove);
+    for (AbstractState state : pToRemove) {
+      checkpointer.forgetState(state);
+    }
+  }
+
+  @Override
+  public void removeOnlyFromWaitlist(AbstractState pState) {
+    modifiedSinceLastPop = true;
+    super.removeOnlyFromWaitlist(pState);
+  }
+
+  @Override
+  public void clear() {
+    modifiedSinceLastPop = true;
+    super.clear();
+    checkpointer.forgetAllStates();
+  }
+
+  @Override
+  public ImmutableMap<String, AbstractStatValue> getStatistics() {
+    return ImmutableMap.<String, AbstractStatValue>builder()
+        .putAll(super.getStatistics())
+        .putAll(checkpointer.getStatistics())
+        .build();
+  }
+}
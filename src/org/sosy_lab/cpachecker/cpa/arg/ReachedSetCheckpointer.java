@@ -0,0 +1,525 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.arg;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.primitives.Ints;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.StreamCorruptedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.IntegerOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.configuration.TimeSpanOption;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.common.time.TimeSpan;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.reachedset.ForwardingReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.HistoryForwardingReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.util.statistics.AbstractStatValue;
+import org.sosy_lab.cpachecker.util.statistics.StatCounter;
+import org.sosy_lab.cpachecker.util.statistics.StatInt;
+import org.sosy_lab.cpachecker.util.statistics.StatKind;
+import org.sosy_lab.cpachecker.util.statistics.StatTimer;
+
+/**
+ * This class writes checkpoints of the reached set to a file while the analysis is running, and
+ * restores the reached set from such a file, such that an analysis that was killed or ran out of
+ * resources can be resumed later with the same program and configuration.
+ *
+ * <p>A checkpoint contains the reached states with their precisions (e.g., the {@link
+ * org.sosy_lab.cpachecker.cpa.predicate.PredicatePrecision} or {@link
+ * org.sosy_lab.cpachecker.core.defaults.precision.VariableTrackingPrecision} computed by
+ * refinements so far), the order of the waitlist, and, if the reached set contains {@link
+ * ARGState}s, the structure of the ARG including covered states.
+ *
+ * <p>The file is a sequence of records in a single Java serialization stream. Each state and each
+ * precision is written only in the first record that contains it, later records refer to it by a
+ * number and contain only the (int-encoded) structure of the reached set and the ARG. Because
+ * abstract states and precisions are immutable, this is sufficient. After {@code
+ * analysis.checkpoint.maxIncrements} incremental records the file is replaced by a new one with a
+ * single full record, which drops states that were removed from the reached set in the meantime.
+ * A record that is incomplete (because the process was killed while writing it) is ignored when
+ * restoring.
+ *
+ * <p>States and precisions need to be serializable and must not reference ARG states. If this is
+ * not the case, checkpointing is disabled with a warning. Information that is not stored in the
+ * reached set (e.g., caches of BAM or counterexample information attached to ARG states) is not
+ * part of the checkpoint.
+ */
+@Options(prefix = "analysis.checkpoint")
+public final class ReachedSetCheckpointer {
+
+  private static final int FILE_MAGIC = 0x43504143; // "CPAC"
+  private static final int FILE_VERSION = 1;
+  private static final int RECORD_START = 0x52454331;
+  private static final int RECORD_END = 0x454e4431;
+
+  // flags of ARG states in the structure table
+  private static final int EXPANDED = 1;
+  private static final int NOT_COVERING = 2;
+  private static final int HAS_COVERED_PARENT = 4;
+
+  @Option(
+      secure = true,
+      description =
+          "write a checkpoint of the reached set at this interval, such that the analysis can "
+              + "be resumed with analysis.checkpoint.resume (0 to disable, "
+              + "use seconds or specify a unit)")
+  @TimeSpanOption(codeUnit = TimeUnit.MILLISECONDS, defaultUserUnit = TimeUnit.SECONDS, min = 0)
+  private TimeSpan interval = TimeSpan.ofMillis(0);
+
+  @Option(secure = true, description = "file for checkpoints of the reached set")
+  @FileOption(FileOption.Type.OUTPUT_FILE)
+  private @Nullable Path file = Paths.get("Checkpoint.bin");
+
+  @Option(
+      secure = true,
+      description =
+          "number of incremental checkpoints (which contain only new states and precisions) "
+              + "after which the checkpoint file is written again from scratch")
+  @IntegerOption(min = 0)
+  private int maxIncrements = 20;
+
+  @Option(
+      secure = true,
+      description =
+          "restore the reached set from the checkpoint file instead of starting with the "
+              + "initial states. The checkpoint needs to be written by an analysis "
+              + "of the same program with the same configuration.")
+  private boolean resume = false;
+
+  private final LogManager logger;
+
+  private @Nullable ObjectOutputStream out = null;
+  private @Nullable FileOutputStream fileOut = null;
+  private @Nullable CountingOutputStream countingOut = null;
+  private int incrementsInFile = 0;
+  private boolean failed = false;
+  private long nextCheckpoint;
+
+  // Numbers of the states and precisions that were already written to the current file.
+  // ARG states are mapped themselves, their payload is the wrapped state.
+  // States that are removed from the reached set are forgotten, such that they can be collected,
+  // thus the states are numbered with a separate counter.
+  private final Map<AbstractState, Integer> writtenStates = new IdentityHashMap<>();
+  private int nextStateNumber = 0;
+  private final Map<Precision, Integer> writtenPrecisions = new IdentityHashMap<>();
+
+  final StatCounter checkpoints = new StatCounter("Number of checkpoints written");
+  final StatCounter fullCheckpoints = new StatCounter("Number of full checkpoints written");
+  final StatTimer checkpointTime = new StatTimer("Time for writing checkpoints");
+  final StatInt checkpointSize = new StatInt(StatKind.AVG, "Size of checkpoint file (bytes)");
+  final StatInt restoredStates =
+      new StatInt(StatKind.SUM, "Number of states restored from checkpoint");
+
+  public ReachedSetCheckpointer(Configuration pConfig, LogManager pLogger)
+      throws InvalidConfigurationException {
+    pConfig.inject(this);
+    logger = checkNotNull(pLogger);
+    if ((resume || !interval.isEmpty()) && file == null) {
+      throw new InvalidConfigurationException(
+          "Checkpoints of the reached set need option analysis.checkpoint.file");
+    }
+  }
+
+  public boolean isResuming() {
+    return resume;
+  }
+
+  /**
+   * Wrap the reached set of the analysis such that checkpoints are written periodically. If no
+   * checkpoints are configured, the given reached set is returned.
+   */
+  public ReachedSet wrap(ReachedSet pReached) throws InvalidConfigurationException {
+    if (interval.isEmpty() && !resume) {
+      return pReached;
+    }
+    ReachedSet reached = pReached;
+    while (reached instanceof ForwardingReachedSet) {
+      if (isExchangeable(reached)) {
+        throw new InvalidConfigurationException(
+            "Checkpoints of the reached set are not supported by analyses "
+                + "that exchange the reached set, e.g., restarting or parallel algorithms.");
+      }
+      reached = ((ForwardingReachedSet) reached).getDelegate();
+    }
+    if (interval.isEmpty()) {
+      return pReached;
+    }
+    nextCheckpoint = System.nanoTime() + interval.asNanos();
+    return new CheckpointingReachedSet(pReached, this);
+  }
+
+  /**
+   * Whether the given reached set is an indirection that an algorithm uses for exchanging the
+   * reached set during the analysis. Sub-classes of {@link ForwardingReachedSet} that only decorate
+   * the reached set, e.g., for statistics or spilling, are not exchanged.
+   */
+  private static boolean isExchangeable(ReachedSet pReached) {
+    return pReached.getClass() == ForwardingReachedSet.class
+        || pReached.getClass() == HistoryForwardingReachedSet.class;
+  }
+
+  /** Forget a state that was removed from the reached set, it is not needed for new records. */
+  void forgetState(AbstractState pState) {
+    writtenStates.remove(pState);
+  }
+
+  /** Forget all states after the reached set was cleared. */
+  void forgetAllStates() {
+    writtenStates.clear();
+  }
+
+  ImmutableMap<String, AbstractStatValue> getStatistics() {
+    ImmutableMap.Builder<String, AbstractStatValue> builder = ImmutableMap.builder();
+    for (AbstractStatValue s :
+        new AbstractStatValue[] {
+          restoredStates, checkpoints, fullCheckpoints, checkpointTime, checkpointSize
+        }) {
+      builder.put(s.getTitle(), s);
+    }
+    return builder.build();
+  }
+
+  void writeCheckpointIfDue(UnmodifiableReachedSet pReached) {
+    if (!failed && System.nanoTime() - nextCheckpoint >= 0) {
+      writeCheckpoint(pReached);
+      nextCheckpoint = System.nanoTime() + interval.asNanos();
+    }
+  }
+
+  /**
+   * Write a checkpoint of the given reached set, if checkpoints are enabled. This should be called
+   * when the analysis is interrupted, such that it can be resumed from this point. The reached set
+   * needs to be in a consistent state, i.e., all states that are not fully handled must be in the
+   * waitlist.
+   */
+  public void writeFinalCheckpoint(UnmodifiableReachedSet pReached) {
+    if (!interval.isEmpty() && !failed) {
+      logger.log(Level.INFO, "Writing checkpoint of reached set");
+      writeCheckpoint(pReached);
+    }
+  }
+
+  /** Close the checkpoint file. The file itself is kept, such that it can be resumed from. */
+  public void close() {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException e) {
+        logger.logUserException(Level.WARNING, e, "Could not write checkpoint of reached set");
+      }
+      out = null;
+      fileOut = null;
+      countingOut = null;
+    }
+    writtenStates.clear();
+    nextStateNumber = 0;
+    writtenPrecisions.clear();
+  }
+
+  private void writeCheckpoint(UnmodifiableReachedSet pReached) {
+    checkpointTime.start();
+    try {
+      if (out == null || incrementsInFile >= maxIncrements) {
+        writeFullCheckpoint(pReached);
+      } else {
+        writeRecord(pReached);
+        incrementsInFile++;
+      }
+      checkpoints.inc();
+      checkpointSize.setNextValue(Ints.saturatedCast(countingOut.getCount()));
+    } catch (IOException e) {
+      logger.logUserException(
+          Level.WARNING, e, "Could not write checkpoint of reached set, disabling checkpoints");
+      failed = true;
+      close();
+    } finally {
+      checkpointTime.stop();
+    }
+  }
+
+  private void writeFullCheckpoint(UnmodifiableReachedSet pReached) throws IOException {
+    close();
+    // the previous checkpoint file is replaced only after the new one is complete
+    Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.createDirectories(tmpFile.toAbsolutePath().getParent());
+    // FileOutputStream is not closed when the thread is interrupted, unlike a FileChannel
+    fileOut = new FileOutputStream(tmpFile.toFile());
+    countingOut = new CountingOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+    out = new StateSpillFile.WrappedStateOutputStream(countingOut);
+    out.writeInt(FILE_MAGIC);
+    out.writeInt(FILE_VERSION);
+    writeRecord(pReached);
+    incrementsInFile = 0;
+
+    try {
+      Files.move(
+          tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    fullCheckpoints.inc();
+  }
+
+  private void writeRecord(UnmodifiableReachedSet pReached) throws IOException {
+    List<AbstractState> states = new ArrayList<>(pReached.asCollection());
+    AbstractState first = pReached.getFirstState();
+    boolean isARG = first instanceof ARGState;
+    List<ARGState> argStates = new ArrayList<>();
+    if (isARG) {
+      argStates.addAll(((ARGState) first).getSubgraph());
+      argStates.sort(Comparator.comparingInt(ARGState::getStateId));
+    }
+
+    out.writeInt(RECORD_START);
+    out.writeBoolean(isARG);
+
+    // states and precisions that are not yet part of the file
+    List<AbstractState> newStates = new ArrayList<>();
+    for (AbstractState state : isARG ? argStates : states) {
+      if (!writtenStates.containsKey(state)) {
+        writtenStates.put(state, nextStateNumber++);
+        newStates.add(state);
+      }
+    }
+    out.writeInt(newStates.size());
+    for (AbstractState state : newStates) {
+      out.writeInt(writtenStates.get(state));
+      out.writeObject(isARG ? ((ARGState) state).getWrappedState() : state);
+    }
+
+    List<Precision> newPrecisions = new ArrayList<>();
+    for (AbstractState state : states) {
+      Precision precision = pReached.getPrecision(state);
+      if (!writtenPrecisions.containsKey(precision)) {
+        writtenPrecisions.put(precision, writtenPrecisions.size());
+        newPrecisions.add(precision);
+      }
+    }
+    out.writeInt(newPrecisions.size());
+    for (Precision precision : newPrecisions) {
+      out.writeInt(writtenPrecisions.get(precision));
+      out.writeObject(precision);
+    }
+
+    // structure of reached set, waitlist, and ARG
+    int[] reached = new int[2 * states.size()];
+    for (int i = 0; i < states.size(); i++) {
+      reached[2 * i] = writtenStates.get(states.get(i));
+      reached[2 * i + 1] = writtenPrecisions.get(pReached.getPrecision(states.get(i)));
+    }
+    out.writeObject(reached);
+
+    int[] waitlist = new int[pReached.getWaitlist().size()];
+    int i = 0;
+    for (AbstractState state : pReached.getWaitlist()) {
+      waitlist[i++] = writtenStates.get(state);
+    }
+    out.writeObject(waitlist);
+
+    // per ARG state: number, flags, covering state (or -1), number of parents, parents
+    List<Integer> arg = new ArrayList<>(isARG ? 5 * argStates.size() : 0);
+    for (ARGState state : argStates) {
+      arg.add(writtenStates.get(state));
+      arg.add(
+          (state.wasExpanded() ? EXPANDED : 0)
+              | (state.isMarkedNotCovering() ? NOT_COVERING : 0)
+              | (state.hasCoveredParent() ? HAS_COVERED_PARENT : 0));
+      arg.add(state.isCovered() ? writtenStates.get(state.getCoveringState()) : -1);
+      arg.add(state.getParents().size());
+      for (ARGState parent : state.getParents()) {
+        arg.add(writtenStates.get(parent));
+      }
+    }
+    out.writeObject(Ints.toArray(arg));
+
+    out.writeInt(RECORD_END);
+    out.flush();
+    fileOut.getFD().sync();
+  }
+
+  /**
+   * Fill the given (empty) reached set with the content of the last complete checkpoint in the
+   * checkpoint file.
+   */
+  public void restore(ReachedSet pReached) throws IOException {
+    checkState(resume);
+    checkState(pReached.isEmpty());
+    logger.log(Level.INFO, "Restoring reached set from checkpoint", file);
+
+    Map<Integer, Object> payloads = new HashMap<>();
+    Map<Integer, Precision> precisions = new HashMap<>();
+    @Nullable Record last = null;
+    try (ObjectInputStream in =
+        new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+        throw new IOException("File " + file + " is not a checkpoint of this version");
+      }
+      while (true) {
+        int marker;
+        try {
+          marker = in.readInt();
+        } catch (EOFException e) {
+          break; // regular end of file
+        }
+        try {
+          if (marker != RECORD_START) {
+            throw new StreamCorruptedException();
+          }
+          last = readRecord(in, payloads, precisions);
+        } catch (EOFException | ObjectStreamException e) {
+          // the process was probably killed while writing this record
+          logger.logDebugException(e);
+          logger.log(Level.WARNING, "Ignoring incomplete checkpoint at the end of", file);
+          break;
+        }
+      }
+    } catch (ClassNotFoundException | ClassCastException e) {
+      throw new IOException("Invalid checkpoint file " + file, e);
+    }
+    if (last == null) {
+      throw new IOException("File " + file + " contains no complete checkpoint");
+    }
+
+    Map<Integer, ?> states = last.isARG ? buildARG(last.arg, payloads) : payloads;
+    List<AbstractState> reachedStates = new ArrayList<>(last.reached.length / 2);
+    for (int i = 0; i < last.reached.length; i += 2) {
+      AbstractState state = (AbstractState) states.get(last.reached[i]);
+      reachedStates.add(state);
+      pReached.add(state, precisions.get(last.reached[i + 1]));
+    }
+    for (AbstractState state : reachedStates) {
+      pReached.removeOnlyFromWaitlist(state);
+    }
+    for (int id : last.waitlist) {
+      pReached.reAddToWaitlist((AbstractState) states.get(id));
+    }
+    restoredStates.setNextValue(reachedStates.size());
+    logger.log(
+        Level.INFO,
+        "Restored",
+        reachedStates.size(),
+        "states, of which",
+        last.waitlist.length,
+        "are waiting");
+  }
+
+  private static Record readRecord(
+      ObjectInputStream in, Map<Integer, Object> payloads, Map<Integer, Precision> precisions)
+      throws IOException, ClassNotFoundException {
+    boolean isARG = in.readBoolean();
+    int newStates = in.readInt();
+    for (int i = 0; i < newStates; i++) {
+      int id = in.readInt();
+      payloads.put(id, in.readObject());
+    }
+    int newPrecisions = in.readInt();
+    for (int i = 0; i < newPrecisions; i++) {
+      int id = in.readInt();
+      precisions.put(id, (Precision) in.readObject());
+    }
+    int[] reached = (int[]) in.readObject();
+    int[] waitlist = (int[]) in.readObject();
+    int[] arg = (int[]) in.readObject();
+    if (in.readInt() != RECORD_END) {
+      throw new StreamCorruptedException();
+    }
+    return new Record(isARG, reached, waitlist, arg);
+  }
+
+  private static Map<Integer, ARGState> buildARG(int[] pArg, Map<Integer, Object> payloads) {
+    // first create all states in the original order, such that ARGState.isOlderThan is preserved
+    Map<Integer, ARGState> states = new HashMap<>();
+    for (int i = 0; i < pArg.length; i += 4 + pArg[i + 3]) {
+      states.put(pArg[i], new ARGState((AbstractState) payloads.get(pArg[i]), null));
+    }
+    for (int i = 0; i < pArg.length; i += 4 + pArg[i + 3]) {
+      ARGState state = states.get(pArg[i]);
+      for (int p = 0; p < pArg[i + 3]; p++) {
+        state.addParent(states.get(pArg[i + 4 + p]));
+      }
+      if (pArg[i + 2] >= 0) {
+        state.setCovered(states.get(pArg[i + 2]));
+      }
+    }
+    for (int i = 0; i < pArg.length; i += 4 + pArg[i + 3]) {
+      ARGState state = states.get(pArg[i]);
+      int flags = pArg[i + 1];
+      if ((flags & EXPANDED) != 0) {
+        state.markExpanded();
+      }
+      if ((flags & NOT_COVERING) != 0) {
+        state.setNotCovering();
+      }
+      state.setHasCoveredParent((flags & HAS_COVERED_PARENT) != 0);
+    }
+    return states;
+  }
+
+  private static class Record {
+    private final boolean isARG;
+    private final int[] reached;
+    private final int[] waitlist;
+    private final int[] arg;
+
+    private Record(boolean pIsARG, int[] pReached, int[] pWaitlist, int[] pArg) {
+      isARG = pIsARG;
+      reached = pReached;
+      waitlist = pWaitlist;
+      arg = pArg;
+    }
+  }
+}
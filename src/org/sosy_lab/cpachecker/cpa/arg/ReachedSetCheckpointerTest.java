@@ -0,0 +1,139 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.arg;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.Serializable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.converters.FileTypeConverter;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.core.defaults.SingletonPrecision;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Partitionable;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.reachedset.ForwardingReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.PartitionedReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist.TraversalMethod;
+
+public class ReachedSetCheckpointerTest {
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final LogManager logger = LogManager.createTestLogManager();
+  private final Precision precision = SingletonPrecision.getInstance();
+
+  private static final class ValueState implements AbstractState, Partitionable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int value;
+
+    private ValueState(int pValue) {
+      value = pValue;
+    }
+
+    @Override
+    public Object getPartitionKey() {
+      return value % 2;
+    }
+
+    @Override
+    public boolean equals(Object pObj) {
+      return pObj instanceof ValueState && ((ValueState) pObj).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return value;
+    }
+  }
+
+  private ReachedSetCheckpointer createCheckpointer(boolean pResume)
+      throws InvalidConfigurationException {
+    FileTypeConverter fileTypeConverter =
+        FileTypeConverter.create(
+            Configuration.builder()
+                .setOption("output.path", tempFolder.getRoot().toString())
+                .build());
+    Configuration config =
+        Configuration.builder()
+            .addConverter(FileOption.class, fileTypeConverter)
+            .setOption("analysis.checkpoint.interval", "1h")
+            .setOption("analysis.checkpoint.resume", Boolean.toString(pResume))
+            .build();
+    return new ReachedSetCheckpointer(config, logger);
+  }
+
+  @Test
+  public void wrapAcceptsDecoratingReachedSets() throws InvalidConfigurationException {
+    ReachedSetCheckpointer checkpointer = createCheckpointer(false);
+    ReachedSet spilling =
+        new SpillingReachedSet(new PartitionedReachedSet(TraversalMethod.DFS), 0, logger);
+    assertThat(checkpointer.wrap(spilling)).isInstanceOf(CheckpointingReachedSet.class);
+  }
+
+  @Test
+  public void wrapRejectsExchangeableReachedSets() throws InvalidConfigurationException {
+    ReachedSetCheckpointer checkpointer = createCheckpointer(false);
+    ReachedSet exchangeable =
+        new ForwardingReachedSet(new PartitionedReachedSet(TraversalMethod.DFS));
+    assertThrows(InvalidConfigurationException.class, () -> checkpointer.wrap(exchangeable));
+    ReachedSet nested =
+        new SpillingReachedSet(
+            new ForwardingReachedSet(new PartitionedReachedSet(TraversalMethod.DFS)), 0, logger);
+    assertThrows(InvalidConfigurationException.class, () -> checkpointer.wrap(nested));
+  }
+
+  @Test
+  public void restoreAfterRemovingStates() throws Exception {
+    ReachedSetCheckpointer checkpointer = createCheckpointer(false);
+    ReachedSet reached = checkpointer.wrap(new PartitionedReachedSet(TraversalMethod.DFS));
+    for (int i = 1; i <= 3; i++) {
+      reached.add(new ValueState(i), precision);
+    }
+    checkpointer.writeFinalCheckpoint(reached);
+
+    // the numbers of forgotten states must not be reused for new states
+    reached.remove(new ValueState(2));
+    reached.add(new ValueState(4), precision);
+    reached.add(new ValueState(5), precision);
+    checkpointer.writeFinalCheckpoint(reached);
+    checkpointer.close();
+
+    ReachedSet restored = new PartitionedReachedSet(TraversalMethod.DFS);
+    createCheckpointer(true).restore(restored);
+    assertThat(restored.asCollection())
+        .containsExactly(new ValueState(1), new ValueState(3), new ValueState(4), new ValueState(5))
+        .inOrder();
+    assertThat(restored.getWaitlist()).containsExactlyElementsIn(reached.getWaitlist());
+  }
+}
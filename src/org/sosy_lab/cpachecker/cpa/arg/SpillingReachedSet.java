@@ -0,0 +1,210 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.arg;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.reachedset.ForwardingReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.util.Pair;
+import org.sosy_lab.cpachecker.util.statistics.AbstractStatValue;
+import org.sosy_lab.cpachecker.util.statistics.StatCounter;
+
+/**
+ * Reached set that limits the number of {@link ARGState}s whose wrapped state is kept in memory.
+ * If there are more states, the wrapped states of the least recently expanded states are written
+ * to a memory-mapped temporary file. They are loaded again transparently if {@link
+ * ARGState#getWrappedState()} is called, e.g., for merge, stop, or counterexample reconstruction.
+ * All operations are forwarded to a nested reached set.
+ *
+ * <p>Only states that were already expanded and are not in the waitlist are spilled, and never
+ * target states. The partition keys and the target flag of spilled states remain in memory (cf.
+ * {@link ARGState#getPartitionKey()}), such that the nested reached set can be updated without
+ * loading states. Stop operators that first check {@link ARGState#mayCover()} (like {@link
+ * ARGStopSep}) also do not load states that cannot cover anything.
+ *
+ * <p>This reached set is not thread-safe, except that spilled states may be loaded concurrently.
+ */
+public class SpillingReachedSet extends ForwardingReachedSet {
+
+  private final LogManager logger;
+  private final int maxStatesInMemory;
+
+  // created lazily on first spilling, null if creation failed
+  private @Nullable StateSpillFile spillFile = null;
+  private boolean spillingDisabled = false;
+
+  // Candidates for spilling: states that were popped from the waitlist and whose wrapped state
+  // is in memory, in the order of their last use.
+  private final Set<ARGState> resident = new LinkedHashSet<>();
+  private int spilledStates = 0;
+
+  private final StatCounter numSpills =
+      new StatCounter("Number of times a state was released from memory");
+
+  public SpillingReachedSet(ReachedSet pDelegate, int pMaxStatesInMemory, LogManager pLogger) {
+    super(pDelegate);
+    checkArgument(pMaxStatesInMemory >= 0);
+    maxStatesInMemory = pMaxStatesInMemory;
+    logger = checkNotNull(pLogger);
+  }
+
+  @Override
+  public void add(AbstractState pState, Precision pPrecision) {
+    super.add(pState, pPrecision);
+    spillIfNecessary();
+  }
+
+  @Override
+  public void addAll(Iterable<Pair<AbstractState, Precision>> pToAdd) {
+    super.addAll(pToAdd);
+    spillIfNecessary();
+  }
+
+  @Override
+  public AbstractState popFromWaitlist() {
+    AbstractState state = super.popFromWaitlist();
+    if (state instanceof ARGState) {
+      ARGState argState = (ARGState) state;
+      if (!argState.isSpilled()) {
+        markUsed(argState);
+      }
+    }
+    return state;
+  }
+
+  @Override
+  public void reAddToWaitlist(AbstractState pState) {
+    resident.remove(pState);
+    super.reAddToWaitlist(pState);
+  }
+
+  @Override
+  public void remove(AbstractState pState) {
+    forget(pState);
+    super.remove(pState);
+  }
+
+  @Override
+  public void removeAll(Iterable<? extends AbstractState> pToRemove) {
+    for (AbstractState state : pToRemove) {
+      forget(state);
+    }
+    super.removeAll(pToRemove);
+  }
+
+  @Override
+  public void clear() {
+    resident.clear();
+    spilledStates = 0;
+    super.clear();
+  }
+
+  private void forget(AbstractState pState) {
+    if (pState instanceof ARGState && ((ARGState) pState).isSpilled() && contains(pState)) {
+      spilledStates--;
+    } else {
+      resident.remove(pState);
+    }
+  }
+
+  private void markUsed(ARGState pState) {
+    // move to the end of the iteration order
+    resident.remove(pState);
+    resident.add(pState);
+  }
+
+  /** Called when a spilled state of this reached set was loaded from disk. */
+  private void stateLoaded(ARGState pState) {
+    if (contains(pState)) {
+      spilledStates--;
+      markUsed(pState);
+    }
+  }
+
+  private void spillIfNecessary() {
+    if (spillingDisabled) {
+      return;
+    }
+
+    Iterator<ARGState> candidates = resident.iterator();
+    while (size() - spilledStates > maxStatesInMemory && candidates.hasNext()) {
+      ARGState state = candidates.next();
+      if (!state.wasExpanded()) {
+        // popped from the waitlist but not yet handled, keep it for later
+        continue;
+      }
+      candidates.remove();
+      if (state.isTarget() || state.isDestroyed()) {
+        continue;
+      }
+
+      try {
+        if (spillFile == null) {
+          spillFile = StateSpillFile.create(this::stateLoaded);
+        }
+        if (state.spillWrappedState(spillFile)) {
+          spilledStates++;
+          numSpills.inc();
+        }
+      } catch (IOException e) {
+        logger.logUserException(
+            Level.WARNING, e, "Could not write abstract states to disk, keeping them in memory");
+        spillingDisabled = true;
+        return;
+      }
+    }
+  }
+
+  @Override
+  public ImmutableMap<String, AbstractStatValue> getStatistics() {
+    if (spillFile == null) {
+      return super.getStatistics();
+    }
+    ImmutableMap.Builder<String, AbstractStatValue> builder = ImmutableMap.builder();
+    builder.putAll(super.getStatistics());
+    put(builder, numSpills);
+    put(builder, spillFile.writtenStates);
+    put(builder, spillFile.loadedStates);
+    put(builder, spillFile.unserializableStates);
+    put(builder, spillFile.writtenBytes);
+    return builder.build();
+  }
+
+  private static void put(
+      ImmutableMap.Builder<String, AbstractStatValue> builder, AbstractStatValue s) {
+    builder.put(s.getTitle(), s);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.arg;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.io.Serializable;
+import org.junit.Test;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.defaults.FlatLatticeDomain;
+import org.sosy_lab.cpachecker.core.defaults.SingletonPrecision;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractDomain;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.reachedset.PartitionedReachedSet;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist.TraversalMethod;
+import org.sosy_lab.cpachecker.cpa.callstack.CallstackState;
+import org.sosy_lab.cpachecker.cpa.composite.CompositeState;
+
+public class SpillingReachedSetTest {
+
+  private static final class ValueState implements AbstractState, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int value;
+
+    private ValueState(int pValue) {
+      value = pValue;
+    }
+
+    @Override
+    public boolean equals(Object pObj) {
+      return pObj instanceof ValueState && ((ValueState) pObj).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return value;
+    }
+  }
+
+  private final Precision precision = SingletonPrecision.getInstance();
+
+  private static CompositeState state(CallstackState pCallstack, int pValue) {
+    return new CompositeState(ImmutableList.of(pCallstack, new ValueState(pValue)));
+  }
+
+  @Test
+  public void spilledStateCoversNewState() throws Exception {
+    CallstackState callstack = new CallstackState(null, "main", CFANode.newDummyCFANode("main"));
+    CompositeState rootState = state(callstack, 1);
+    ARGState root = new ARGState(rootState, null);
+
+    SpillingReachedSet reached =
+        new SpillingReachedSet(
+            new PartitionedReachedSet(TraversalMethod.DFS), 0, LogManager.createTestLogManager());
+    reached.add(root, precision);
+    assertThat(reached.popFromWaitlist()).isSameInstanceAs(root);
+    root.markExpanded();
+    reached.add(new ARGState(state(callstack, 2), root), precision);
+    assertThat(root.isSpilled()).isTrue();
+
+    // a new state with the same callstack and value has to be covered by the loaded state
+    CompositeState newState = state(callstack, 1);
+    CompositeState loadedState = (CompositeState) root.getWrappedState();
+    assertThat(root.isSpilled()).isFalse();
+    assertThat(loadedState).isNotSameInstanceAs(rootState);
+    assertThat(loadedState.get(0)).isSameInstanceAs(callstack);
+    assertThat(loadedState.get(1)).isNotSameInstanceAs(rootState.get(1));
+
+    AbstractDomain domain = new FlatLatticeDomain();
+    for (int i = 0; i < newState.getWrappedStates().size(); i++) {
+      assertThat(domain.isLessOrEqual(newState.get(i), loadedState.get(i))).isTrue();
+    }
+  }
+
+  @Test
+  public void stateWithDifferentCallstackIsNotCovered() throws Exception {
+    CFANode node = CFANode.newDummyCFANode("main");
+    CallstackState callstack = new CallstackState(null, "main", node);
+    ARGState root = new ARGState(state(callstack, 1), null);
+
+    SpillingReachedSet reached =
+        new SpillingReachedSet(
+            new PartitionedReachedSet(TraversalMethod.DFS), 0, LogManager.createTestLogManager());
+    reached.add(root, precision);
+    reached.popFromWaitlist();
+    root.markExpanded();
+    reached.add(new ARGState(state(callstack, 2), root), precision);
+    assertThat(root.isSpilled()).isTrue();
+
+    // a separate entry of the same function must not be covered, as without spilling
+    CallstackState otherCallstack = new CallstackState(null, "main", node);
+    CompositeState loadedState = (CompositeState) root.getWrappedState();
+    assertThat(new FlatLatticeDomain().isLessOrEqual(otherCallstack, loadedState.get(0)))
+        .isFalse();
+  }
+}
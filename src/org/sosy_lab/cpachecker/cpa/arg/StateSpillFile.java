@@ -0,0 +1,317 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.arg;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.io.TempFile;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+import org.sosy_lab.cpachecker.util.statistics.StatCounter;
+import org.sosy_lab.cpachecker.util.statistics.StatInt;
+import org.sosy_lab.cpachecker.util.statistics.StatKind;
+
+/**
+ * Memory-mapped temporary file that stores serialized wrapped states of {@link ARGState}s, such
+ * that they do not occupy heap memory (cf. {@link SpillingReachedSet}).
+ *
+ * <p>The file is append-only and grows in chunks of {@link #CHUNK_SIZE} bytes, each record is
+ * stored completely inside one chunk. Records are never overwritten, because abstract states are
+ * immutable and thus a record stays valid even after the state was loaded again.
+ *
+ * <p>Abstract states inside a wrapped state whose class inherits the identity-based {@link
+ * Object#equals(Object)} are not written to disk, but retained in memory by the record and put
+ * back into the loaded copy. Several abstract domains rely on the identity of such states (e.g.,
+ * {@link org.sosy_lab.cpachecker.cpa.callstack.CallstackState} or the merge information of
+ * predicate states), and a deserialized copy would never be equal to any other state. Only the
+ * wrapped state itself is always written, because its identity is not used by the domains.
+ */
+final class StateSpillFile {
+
+  private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * A wrapped state on disk, together with the information about the state that is necessary for
+   * reached-set operations and that should be available without loading the state.
+   */
+  static final class Record {
+
+    private final StateSpillFile file;
+    private final int chunk;
+    private final int offset;
+    private final int length;
+
+    private final Object[] retainedObjects;
+
+    private final boolean isTarget;
+    private final @Nullable Object partitionKey;
+    private final @Nullable Comparable<?> pseudoPartitionKey;
+    private final @Nullable Object pseudoHashCode;
+
+    private Record(
+        StateSpillFile pFile,
+        int pChunk,
+        int pOffset,
+        int pLength,
+        Object[] pRetainedObjects,
+        ARGState pState,
+        AbstractState pWrappedState) {
+      file = pFile;
+      chunk = pChunk;
+      offset = pOffset;
+      length = pLength;
+      retainedObjects = pRetainedObjects;
+      isTarget = AbstractStates.isTargetState(pWrappedState);
+      partitionKey = pState.getPartitionKey();
+      pseudoPartitionKey = pState.getPseudoPartitionKey();
+      pseudoHashCode = pState.getPseudoHashCode();
+    }
+
+    AbstractState load(ARGState pOwner) {
+      return file.read(this, pOwner);
+    }
+
+    boolean isTarget() {
+      return isTarget;
+    }
+
+    @Nullable Object getPartitionKey() {
+      return partitionKey;
+    }
+
+    @Nullable Comparable<?> getPseudoPartitionKey() {
+      return pseudoPartitionKey;
+    }
+
+    @Nullable Object getPseudoHashCode() {
+      return pseudoHashCode;
+    }
+  }
+
+  /** Whether the objects of a class are only equal to themselves. */
+  private static final ClassValue<Boolean> HAS_IDENTITY_EQUALS =
+      new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> pClass) {
+          try {
+            return pClass.getMethod("equals", Object.class).getDeclaringClass() == Object.class;
+          } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+          }
+        }
+      };
+
+  /** Placeholder on disk for an object that is retained in memory. */
+  private static final class RetainedObject implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+
+    private RetainedObject(int pIndex) {
+      index = pIndex;
+    }
+  }
+
+  /**
+   * Output stream that refuses to write ARG states as part of a wrapped state. If a list for
+   * retained objects is given, all abstract states with identity-based equality except the root
+   * object are replaced by placeholders and added to this list.
+   */
+  static class WrappedStateOutputStream extends ObjectOutputStream {
+
+    private final @Nullable List<Object> retainedObjects;
+    private boolean isRoot = true;
+
+    WrappedStateOutputStream(OutputStream pOut) throws IOException {
+      this(pOut, null);
+    }
+
+    WrappedStateOutputStream(OutputStream pOut, @Nullable List<Object> pRetainedObjects)
+        throws IOException {
+      super(pOut);
+      retainedObjects = pRetainedObjects;
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object pObj) throws IOException {
+      if (pObj instanceof ARGState) {
+        // this would write (parts of) the ARG to disk and create a copy of it on loading
+        throw new NotSerializableException(ARGState.class.getName());
+      }
+      if (isRoot) {
+        isRoot = false;
+        return pObj;
+      }
+      if (retainedObjects != null
+          && pObj instanceof AbstractState
+          && HAS_IDENTITY_EQUALS.get(pObj.getClass())) {
+        retainedObjects.add(pObj);
+        return new RetainedObject(retainedObjects.size() - 1);
+      }
+      return pObj;
+    }
+  }
+
+  /** Input stream that puts the retained objects of a record back into the loaded state. */
+  private static class WrappedStateInputStream extends ObjectInputStream {
+
+    private final Object[] retainedObjects;
+
+    WrappedStateInputStream(InputStream pIn, Object[] pRetainedObjects) throws IOException {
+      super(pIn);
+      retainedObjects = pRetainedObjects;
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object pObj) {
+      if (pObj instanceof RetainedObject) {
+        return retainedObjects[((RetainedObject) pObj).index];
+      }
+      return pObj;
+    }
+  }
+
+  private final Path path;
+  private final Consumer<ARGState> loadListener;
+  private final List<MappedByteBuffer> chunks = new ArrayList<>();
+  private int positionInLastChunk = CHUNK_SIZE;
+
+  final StatCounter writtenStates = new StatCounter("Number of states written to disk");
+  final StatCounter loadedStates = new StatCounter("Number of states loaded from disk");
+  final StatCounter unserializableStates =
+      new StatCounter("Number of states that could not be spilled");
+  final StatInt writtenBytes = new StatInt(StatKind.SUM, "Size of spilled states (bytes)");
+
+  private StateSpillFile(Path pPath, Consumer<ARGState> pLoadListener) {
+    path = pPath;
+    loadListener = pLoadListener;
+  }
+
+  /**
+   * Create a new spill file in the temporary directory. The file is deleted on JVM exit.
+   *
+   * @param pLoadListener Called whenever a wrapped state was loaded from this file.
+   */
+  static StateSpillFile create(Consumer<ARGState> pLoadListener) throws IOException {
+    Path path = TempFile.builder().prefix("cpachecker-reached").suffix(".spill").create();
+    return new StateSpillFile(path, checkNotNull(pLoadListener));
+  }
+
+  /**
+   * Write the wrapped state of the given ARG state to the file.
+   *
+   * @return A record for loading the state again, or null if the wrapped state cannot be
+   *     serialized.
+   */
+  synchronized @Nullable Record write(ARGState pState, AbstractState pWrappedState)
+      throws IOException {
+    byte[] data;
+    List<Object> retainedObjects = new ArrayList<>();
+    try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new WrappedStateOutputStream(bytes, retainedObjects)) {
+      out.writeObject(pWrappedState);
+      out.flush();
+      data = bytes.toByteArray();
+    } catch (NotSerializableException e) {
+      unserializableStates.inc();
+      return null;
+    }
+    if (data.length > CHUNK_SIZE) {
+      unserializableStates.inc();
+      return null;
+    }
+
+    if (positionInLastChunk + data.length > CHUNK_SIZE) {
+      mapNextChunk();
+    }
+    ByteBuffer chunk = chunks.get(chunks.size() - 1).duplicate();
+    chunk.position(positionInLastChunk);
+    chunk.put(data);
+
+    Record record =
+        new Record(
+            this,
+            chunks.size() - 1,
+            positionInLastChunk,
+            data.length,
+            retainedObjects.toArray(),
+            pState,
+            pWrappedState);
+    positionInLastChunk += data.length;
+    writtenStates.inc();
+    writtenBytes.setNextValue(data.length);
+    return record;
+  }
+
+  private void mapNextChunk() throws IOException {
+    long start = (long) chunks.size() * CHUNK_SIZE;
+    // the mapping stays valid after the channel is closed
+    try (FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      chunks.add(channel.map(MapMode.READ_WRITE, start, CHUNK_SIZE));
+    }
+    positionInLastChunk = 0;
+  }
+
+  private synchronized AbstractState read(Record pRecord, ARGState pOwner) {
+    byte[] data = new byte[pRecord.length];
+    ByteBuffer chunk = chunks.get(pRecord.chunk).duplicate();
+    chunk.position(pRecord.offset);
+    chunk.get(data);
+
+    AbstractState state;
+    try (ObjectInputStream in =
+        new WrappedStateInputStream(new ByteArrayInputStream(data), pRecord.retainedObjects)) {
+      state = (AbstractState) in.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      // the data was written by ourselves, so this is not expected to happen
+      throw new AssertionError("Could not read spilled state from " + path, e);
+    }
+    loadedStates.inc();
+    loadListener.accept(pOwner);
+    return state;
+  }
+}
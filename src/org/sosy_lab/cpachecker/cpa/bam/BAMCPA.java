@@ -26,6 +26,7 @@ package org.sosy_lab.cpachecker.cpa.bam;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import java.util.Collection;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.common.configuration.Configuration;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
@@ -42,16 +43,18 @@ import org.sosy_lab.cpachecker.core.defaults.AutomaticCPAFactory;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
 import org.sosy_lab.cpachecker.core.interfaces.CPAFactory;
 import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
+import org.sosy_lab.cpachecker.core.interfaces.Statistics;
 import org.sosy_lab.cpachecker.core.interfaces.StatisticsProvider;
 import org.sosy_lab.cpachecker.core.interfaces.StopOperator;
 import org.sosy_lab.cpachecker.core.interfaces.pcc.ProofChecker;
 import org.sosy_lab.cpachecker.core.reachedset.ReachedSetFactory;
 import org.sosy_lab.cpachecker.cpa.arg.ARGState;
-import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCache;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMBlockSummaryStore;
 import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCacheAggressiveImpl;
 import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCacheImpl;
 import org.sosy_lab.cpachecker.cpa.bam.cache.BAMDataManager;
 import org.sosy_lab.cpachecker.cpa.bam.cache.BAMDataManagerImpl;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMSafeBlockExchange;
 import org.sosy_lab.cpachecker.exceptions.CPAException;
 import org.sosy_lab.cpachecker.exceptions.CPATransferException;
 
@@ -66,6 +69,8 @@ public class BAMCPA extends AbstractBAMCPA implements StatisticsProvider, ProofC
   private final ProofChecker wrappedProofChecker;
   private final BAMDataManager data;
   private final BAMPCCManager bamPccManager;
+  private final @Nullable BAMBlockSummaryStore summaryStore;
+  private final @Nullable BAMSafeBlockExchange safeBlockExchange;
 
   @Option(name = "handleRecursiveProcedures", secure = true,
       description = "BAM allows to analyse recursive procedures. This strongly depends on the underlying CPA. "
@@ -83,6 +88,20 @@ public class BAMCPA extends AbstractBAMCPA implements StatisticsProvider, ProofC
       description = "Should the nested CPA-algorithm be wrapped with CEGAR within BAM?")
   private boolean useCEGAR = false;
 
+  @Option(
+      secure = true,
+      description =
+          "Exchange blocks that were proven safe for all entry states with other BAM analyses "
+              + "that run in the same process on the same program and specification "
+              + "(e.g., the analyses of a parallel algorithm). Target states that are found "
+              + "inside such a block are ignored as infeasible without refinement. "
+              + "Blocks are exchanged per state of the specification automata at the block "
+              + "entry. This assumes that the initial states of the other wrapped CPAs are "
+              + "their weakest states. "
+              + "Other analyses trust the published blocks, thus only sound analyses "
+              + "may enable this option.")
+  private boolean exchangeSafeBlocks = false;
+
   private BAMCPA(
       ConfigurableProgramAnalysis pCpa,
       Configuration config,
@@ -101,14 +120,31 @@ public class BAMCPA extends AbstractBAMCPA implements StatisticsProvider, ProofC
       this.wrappedProofChecker = null;
     }
 
-    final BAMCache cache;
+    final BAMCacheImpl cache;
     if (aggressiveCaching) {
       cache = new BAMCacheAggressiveImpl(config, getReducer(), logger);
     } else {
       cache = new BAMCacheImpl(config, getReducer(), logger);
     }
+    if (cache.hasSizeLimit() && (handleRecursiveProcedures || useCopyOnWriteRefinement())) {
+      throw new InvalidConfigurationException(
+          "A size limit for the BAM cache cannot be used together with handling recursive "
+              + "procedures or copy-on-write refinement.");
+    }
     data = new BAMDataManagerImpl(cache, pReachedSetFactory, pLogger);
 
+    summaryStore = BAMBlockSummaryStore.create(config, pLogger);
+    if (summaryStore != null && handleRecursiveProcedures) {
+      throw new InvalidConfigurationException(
+          "The BAM summary store cannot be used together with handling recursive procedures.");
+    }
+    if (exchangeSafeBlocks && handleRecursiveProcedures) {
+      throw new InvalidConfigurationException(
+          "Safe blocks cannot be exchanged together with handling recursive procedures.");
+    }
+    safeBlockExchange =
+        exchangeSafeBlocks ? BAMSafeBlockExchange.connect(pCfa, pSpecification) : null;
+
     bamPccManager = new BAMPCCManager(
         wrappedProofChecker,
         config,
@@ -170,6 +206,27 @@ public class BAMCPA extends AbstractBAMCPA implements StatisticsProvider, ProofC
     return bamPccManager;
   }
 
+  /** Returns the persistent store for block summaries, or null if it is not enabled. */
+  @Nullable BAMBlockSummaryStore getBlockSummaryStore() {
+    return summaryStore;
+  }
+
+  /** Returns the exchange of safe blocks with other analyses, or null if it is not enabled. */
+  @Nullable BAMSafeBlockExchange getSafeBlockExchange() {
+    return safeBlockExchange;
+  }
+
+  @Override
+  public void collectStatistics(Collection<Statistics> pStatsCollection) {
+    super.collectStatistics(pStatsCollection);
+    if (summaryStore != null) {
+      pStatsCollection.add(summaryStore);
+    }
+    if (safeBlockExchange != null) {
+      pStatsCollection.add(safeBlockExchange);
+    }
+  }
+
   @Override
   public boolean areAbstractSuccessors(AbstractState pState, CFAEdge pCfaEdge,
       Collection<? extends AbstractState> pSuccessors) throws CPATransferException, InterruptedException {
@@ -0,0 +1,227 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.bam;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sosy_lab.cpachecker.cfa.model.CFANode.newDummyCFANode;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
+import org.sosy_lab.cpachecker.cfa.blocks.Block;
+import org.sosy_lab.cpachecker.cfa.model.BlankEdge;
+import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.defaults.SingletonPrecision;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.Reducer;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSetFactory;
+import org.sosy_lab.cpachecker.cpa.arg.ARGReachedSet;
+import org.sosy_lab.cpachecker.cpa.arg.ARGState;
+import org.sosy_lab.cpachecker.cpa.bam.BAMSubgraphComputer.BackwardARGState;
+import org.sosy_lab.cpachecker.cpa.bam.BAMSubgraphComputer.MissingBlockException;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCache;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCache.BAMCacheEntry;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCacheImpl;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMDataManagerImpl;
+import org.sosy_lab.cpachecker.cpa.location.LocationState;
+import org.sosy_lab.cpachecker.util.test.TestDataTools;
+
+/**
+ * Builds the ARG of a BAM analysis by hand, like {@link BAMTransferRelation} does, and computes a
+ * counterexample through a block whose reached-set was evicted from a BAM cache with a size limit.
+ * The program calls a block (entry node 1, inner node 2, exit node 3) from main (node 0) and
+ * reaches the target (node 4) after the block.
+ */
+public class BAMCacheEvictionTest {
+
+  private static final Precision PRECISION = SingletonPrecision.getInstance();
+
+  private final LogManager logger = LogManager.createTestLogManager();
+  private final List<CFANode> nodes = new ArrayList<>();
+  private Block block;
+  private BAMCache cache;
+  private BAMDataManagerImpl data;
+  private BAMSubgraphComputer subgraphComputer;
+  private ReachedSet mainReached;
+  private ARGState mainRoot;
+
+  @Before
+  public void setUp() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      nodes.add(newDummyCFANode("main"));
+    }
+    for (int i = 0; i < 4; i++) {
+      CFAEdge edge =
+          new BlankEdge("", FileLocation.DUMMY, nodes.get(i), nodes.get(i + 1), "edge " + i);
+      nodes.get(i).addLeavingEdge(edge);
+      nodes.get(i + 1).addEnteringEdge(edge);
+    }
+    block =
+        new Block(
+            ImmutableSet.of(),
+            ImmutableSet.of(nodes.get(1)),
+            ImmutableSet.of(nodes.get(3)),
+            ImmutableList.of(nodes.get(1), nodes.get(2), nodes.get(3)));
+
+    // two blocks with three states each exceed the limit, the next block evicts the oldest one
+    Configuration config =
+        TestDataTools.configurationForTest().setOption("cpa.bam.cacheSizeLimit", "5").build();
+    Reducer reducer = mock(Reducer.class);
+    when(reducer.getHashCodeForState(any(), any())).thenAnswer(i -> i.getArgument(0));
+    cache = new BAMCacheImpl(config, reducer, logger);
+    data = new BAMDataManagerImpl(cache, new ReachedSetFactory(config, logger), logger);
+
+    AbstractBAMCPA bamCpa = mock(AbstractBAMCPA.class);
+    when(bamCpa.getData()).thenReturn(data);
+    when(bamCpa.getLogger()).thenReturn(logger);
+    subgraphComputer = new BAMSubgraphComputer(bamCpa, true);
+
+    mainReached = new ReachedSetFactory(config, logger).create();
+    mainRoot = new ARGState(location(0), null);
+    mainReached.add(mainRoot, PRECISION);
+    mainReached.popFromWaitlist();
+  }
+
+  private LocationState location(int pNode) {
+    LocationState state = mock(LocationState.class);
+    when(state.getLocationNode()).thenReturn(nodes.get(pNode));
+    when(state.getLocationNodes()).thenReturn(ImmutableList.of(nodes.get(pNode)));
+    return state;
+  }
+
+  private ARGState addToMain(int pNode, ARGState pParent) {
+    ARGState state = new ARGState(location(pNode), pParent);
+    mainReached.add(state, PRECISION);
+    mainReached.popFromWaitlist();
+    return state;
+  }
+
+  /**
+   * Analyse the block for the given call state with a new reduced initial state (i.e., a cache
+   * miss) and return the reached-set of the block and the expanded exit state in main.
+   */
+  private BAMCacheEntry analyseBlock(ARGState pCallState) {
+    ARGState reducedRoot = new ARGState(location(1), null);
+    BAMCacheEntry entry = data.createAndRegisterNewReachedSet(reducedRoot, PRECISION, block);
+    ReachedSet reached = entry.getReachedSet();
+    reached.popFromWaitlist();
+    ARGState reducedInner = new ARGState(location(2), reducedRoot);
+    reached.add(reducedInner, PRECISION);
+    reached.popFromWaitlist();
+    ARGState reducedExit = new ARGState(location(3), reducedInner);
+    reached.add(reducedExit, PRECISION);
+    reached.popFromWaitlist();
+    entry.setExitStates(ImmutableSet.of(reducedExit));
+
+    data.registerInitialState(pCallState, reducedExit, reached);
+    ARGState expandedExit = addToMain(3, pCallState);
+    data.registerExpandedState(expandedExit, PRECISION, reducedExit, block);
+    return entry;
+  }
+
+  private static ARGState innerState(ReachedSet pBlockReached) {
+    return Iterables.getOnlyElement(((ARGState) pBlockReached.getFirstState()).getChildren());
+  }
+
+  /** Returns the original ARG states of the computed counterexample from root to target. */
+  private List<ARGState> computeCounterexample(ARGState pTarget) throws Exception {
+    BackwardARGState state =
+        subgraphComputer
+            .computeCounterexampleSubgraph(pTarget, new ARGReachedSet(mainReached))
+            .getFirst();
+    List<ARGState> path = new ArrayList<>();
+    while (true) {
+      path.add(state.getARGState());
+      if (state.getChildren().isEmpty()) {
+        return path;
+      }
+      state = (BackwardARGState) Iterables.getOnlyElement(state.getChildren());
+    }
+  }
+
+  @Test
+  public void counterexampleThroughCachedBlock() throws Exception {
+    ARGState call = addToMain(1, mainRoot);
+    ReachedSet blockReached = analyseBlock(call).getReachedSet();
+    ARGState target = addToMain(4, Iterables.getOnlyElement(call.getChildren()));
+
+    assertThat(computeCounterexample(target))
+        .containsExactly(
+            mainRoot,
+            call,
+            innerState(blockReached),
+            Iterables.getOnlyElement(target.getParents()),
+            target)
+        .inOrder();
+  }
+
+  @Test
+  public void counterexampleThroughEvictedBlock() throws Exception {
+    ARGState call = addToMain(1, mainRoot);
+    BAMCacheEntry evictedEntry = analyseBlock(call);
+    ARGState reducedExit = (ARGState) evictedEntry.getReachedSet().getLastState();
+    ARGState target = addToMain(4, Iterables.getOnlyElement(call.getChildren()));
+
+    // other calls of the block fill the cache, the first block is evicted
+    analyseBlock(addToMain(1, mainRoot));
+    analyseBlock(addToMain(1, mainRoot));
+    assertThat(evictedEntry.getReachedSet().isEmpty()).isTrue();
+    assertThat(reducedExit.isDestroyed()).isTrue();
+
+    // the counterexample can not be computed and the block is removed from main
+    assertThrows(MissingBlockException.class, () -> computeCounterexample(target));
+    assertThat(call.isDestroyed()).isTrue();
+    assertThat(target.isDestroyed()).isTrue();
+    assertThat(mainReached.getWaitlist()).containsExactly(mainRoot);
+
+    // the analysis continues from main and analyses the block again (another cache miss),
+    // then the counterexample passes through the new reached-set of the block
+    mainReached.popFromWaitlist();
+    ARGState newCall = addToMain(1, mainRoot);
+    ReachedSet newBlockReached = analyseBlock(newCall).getReachedSet();
+    ARGState newTarget = addToMain(4, Iterables.getOnlyElement(newCall.getChildren()));
+
+    assertThat(computeCounterexample(newTarget))
+        .containsExactly(
+            mainRoot,
+            newCall,
+            innerState(newBlockReached),
+            Iterables.getOnlyElement(newTarget.getParents()),
+            newTarget)
+        .inOrder();
+  }
+}
@@ -40,6 +40,7 @@ import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.logging.Level;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.cpachecker.cfa.blocks.Block;
 import org.sosy_lab.cpachecker.cfa.blocks.BlockPartitioning;
@@ -50,6 +51,7 @@ import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
 import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
 import org.sosy_lab.cpachecker.cpa.arg.ARGReachedSet;
 import org.sosy_lab.cpachecker.cpa.arg.ARGState;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMBlockSummaryStore;
 import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCache.BAMCacheEntry;
 import org.sosy_lab.cpachecker.cpa.bam.cache.BAMDataManager;
 import org.sosy_lab.cpachecker.exceptions.CPAException;
@@ -63,6 +65,7 @@ public class BAMSubgraphComputer {
   private final LogManager logger;
   private final boolean useCopyOnWriteRefinement;
   private final boolean cleanupOnMissingBlock;
+  private final @Nullable BAMBlockSummaryStore summaryStore;
 
   BAMSubgraphComputer(AbstractBAMCPA bamCpa, boolean pCleanupOnMissingBlock) {
     this.partitioning = bamCpa.getBlockPartitioning();
@@ -71,6 +74,8 @@ public class BAMSubgraphComputer {
     this.logger = bamCpa.getLogger();
     useCopyOnWriteRefinement = bamCpa.useCopyOnWriteRefinement();
     cleanupOnMissingBlock = pCleanupOnMissingBlock;
+    summaryStore =
+        bamCpa instanceof BAMCPA ? ((BAMCPA) bamCpa).getBlockSummaryStore() : null;
   }
 
   /**
@@ -270,6 +275,13 @@ public class BAMSubgraphComputer {
       final ReachedSet reachedSet = entry.getKey();
       final BackwardARGState newInnerRoot;
       try {
+        if (summaryStore != null && summaryStore.isImported(reachedSet)) {
+          // an imported block summary has no ARG inside the block, thus analyse the block
+          logger.log(Level.FINE, "Target state is reachable through an imported block summary.");
+          summaryStore.rejectImport(reachedSet);
+          throw new MissingBlockException(
+              expandedRoot, entry.getValue().iterator().next().getWrappedState());
+        }
         newInnerRoot =
             computeCounterexampleSubgraph(
                 new ARGReachedSet(reachedSet), newExpandedToNewInnerTargets.values());
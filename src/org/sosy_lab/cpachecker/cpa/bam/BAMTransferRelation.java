@@ -23,10 +23,13 @@
  */
 package org.sosy_lab.cpachecker.cpa.bam;
 
+import static org.sosy_lab.cpachecker.util.AbstractStates.extractLocation;
 import static org.sosy_lab.cpachecker.util.AbstractStates.isTargetState;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.hash.HashCode;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
@@ -45,13 +48,22 @@ import org.sosy_lab.cpachecker.core.algorithm.Algorithm;
 import org.sosy_lab.cpachecker.core.algorithm.Algorithm.AlgorithmFactory;
 import org.sosy_lab.cpachecker.core.algorithm.CPAAlgorithm;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.StateSpacePartition;
+import org.sosy_lab.cpachecker.core.interfaces.WrapperCPA;
 import org.sosy_lab.cpachecker.core.interfaces.WrapperTransferRelation;
 import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
 import org.sosy_lab.cpachecker.cpa.arg.ARGState;
+import org.sosy_lab.cpachecker.cpa.automaton.AutomatonState;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMBlockSummaryStore;
 import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCache;
 import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCache.BAMCacheEntry;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMSafeBlockExchange;
+import org.sosy_lab.cpachecker.cpa.callstack.CallstackState;
 import org.sosy_lab.cpachecker.cpa.callstack.CallstackTransferRelation;
+import org.sosy_lab.cpachecker.cpa.composite.CompositeCPA;
+import org.sosy_lab.cpachecker.cpa.composite.CompositeState;
 import org.sosy_lab.cpachecker.exceptions.CPAException;
 import org.sosy_lab.cpachecker.exceptions.CPATransferException;
 import org.sosy_lab.cpachecker.util.AbstractStates;
@@ -73,6 +85,11 @@ public class BAMTransferRelation extends AbstractBAMTransferRelation<CPAExceptio
 
   private final boolean searchTargetStatesOnExit;
 
+  private final @Nullable BAMBlockSummaryStore summaryStore;
+
+  private final @Nullable BAMSafeBlockExchange safeBlockExchange;
+  private final ConfigurableProgramAnalysis wrappedCpa;
+
   public BAMTransferRelation(
       BAMCPA bamCpa,
       ShutdownNotifier pShutdownNotifier,
@@ -88,6 +105,9 @@ public class BAMTransferRelation extends AbstractBAMTransferRelation<CPAExceptio
     bamPccManager = pBamPccManager;
     stats = bamCpa.getStatistics();
     searchTargetStatesOnExit = pSearchTargetStatesOnExit;
+    summaryStore = bamCpa.getBlockSummaryStore();
+    safeBlockExchange = bamCpa.getSafeBlockExchange();
+    wrappedCpa = bamCpa.getWrappedCpa();
   }
 
   @Override
@@ -312,12 +332,30 @@ public class BAMTransferRelation extends AbstractBAMTransferRelation<CPAExceptio
       entry =
           data.createAndRegisterNewReachedSet(
               reducedInitialState, reducedInitialPrecision, innerSubtree);
-      logger.log(
-          Level.FINEST,
-          "Cache miss: starting recursive CPAAlgorithm with new initial reached-set.");
       reached = entry.getReachedSet();
-      reducedResult = performCompositeAnalysisWithCPAAlgorithm(reached, innerSubtree);
-      assert reducedResult != null;
+      final @Nullable HashCode summaryKey =
+          summaryStore == null
+              ? null
+              : summaryStore.keyOf(reducedInitialState, reducedInitialPrecision, innerSubtree);
+      final @Nullable List<AbstractState> storedExitStates =
+          summaryKey == null ? null : summaryStore.lookup(summaryKey);
+      if (storedExitStates != null) {
+        logger.log(Level.FINEST, "Cache miss: using block summary from summary store.");
+        reducedResult = importBlockSummary(reached, storedExitStates);
+        summaryStore.registerImport(reached, summaryKey);
+      } else {
+        logger.log(
+            Level.FINEST,
+            "Cache miss: starting recursive CPAAlgorithm with new initial reached-set.");
+        reducedResult = performCompositeAnalysisWithCPAAlgorithm(reached, innerSubtree);
+        assert reducedResult != null;
+        if (summaryKey != null
+            && !reached.hasWaitingState()
+            && !Iterables.any(reducedResult, AbstractStates::isTargetState)) {
+          summaryStore.put(summaryKey, reducedResult);
+        }
+      }
+      publishIfSafe(reducedInitialState, reached, reducedResult, innerSubtree);
       statesForFurtherAnalysis = filterResultStatesForFurtherAnalysis(reducedResult, null);
 
     } else {
@@ -338,12 +376,17 @@ public class BAMTransferRelation extends AbstractBAMTransferRelation<CPAExceptio
 
       } else { // PARTIAL HIT
         reached = cachedReached;
+        if (summaryStore != null && summaryStore.removeImport(reached)) {
+          // the inner ARG of the block is needed, e.g., for a counterexample
+          removeImportedBlockSummary(reached);
+        }
         logger.log(
             Level.FINEST,
             "Partial cache hit: starting recursive CPAAlgorithm with partial reached-set with root",
             reached.getFirstState());
         reducedResult = performCompositeAnalysisWithCPAAlgorithm(reached, innerSubtree);
         Preconditions.checkNotNull(reducedResult);
+        publishIfSafe(reducedInitialState, reached, reducedResult, innerSubtree);
         statesForFurtherAnalysis =
             filterResultStatesForFurtherAnalysis(reducedResult, cachedReturnStates);
       }
@@ -369,6 +412,106 @@ public class BAMTransferRelation extends AbstractBAMTransferRelation<CPAExceptio
     return Pair.of(statesForFurtherAnalysis, reached);
   }
 
+  /**
+   * Fill the new reached-set of a block with the exit states of a summary from the summary store.
+   * The exit states become children of the root of the reached-set, without any edges between
+   * them, and nothing is left in the waitlist.
+   *
+   * @param reached the reached-set that contains only the reduced initial state
+   * @param storedExitStates the wrapped states of the reduced exit states of the block
+   * @return the reduced exit states
+   */
+  private Set<AbstractState> importBlockSummary(
+      final ReachedSet reached, final List<AbstractState> storedExitStates) {
+    final ARGState root = (ARGState) reached.getFirstState();
+    final Precision precision = reached.getPrecision(root);
+    final Set<AbstractState> exitStates = new LinkedHashSet<>();
+    for (AbstractState wrappedState : storedExitStates) {
+      ARGState exitState = new ARGState(wrappedState, root);
+      reached.add(exitState, precision);
+      reached.removeOnlyFromWaitlist(exitState);
+      exitStates.add(exitState);
+    }
+    root.markExpanded();
+    reached.removeOnlyFromWaitlist(root);
+    return exitStates;
+  }
+
+  /**
+   * Remove the exit states of an imported summary from the reached-set of a block, such that the
+   * block is analysed again from its root.
+   */
+  private void removeImportedBlockSummary(final ReachedSet reached) {
+    final ARGState root = (ARGState) reached.getFirstState();
+    for (ARGState exitState : ImmutableList.copyOf(root.getChildren())) {
+      reached.remove(exitState);
+      exitState.removeFromARG();
+    }
+    reached.reAddToWaitlist(root);
+  }
+
+  /**
+   * Publish the block as safe to other analyses if the block was analysed completely without
+   * finding a target state and the reduced entry state is not stronger than the reduced initial
+   * state of the wrapped CPA, i.e., the analysis covered all entry states of the block with the
+   * same states of the specification automata. The block is only published for these automaton
+   * states, because the initial automaton state is not the top element of its domain.
+   */
+  private void publishIfSafe(
+      final AbstractState reducedInitialState,
+      final ReachedSet reached,
+      final Collection<AbstractState> reducedResult,
+      final Block innerSubtree)
+      throws CPAException, InterruptedException {
+    if (safeBlockExchange == null
+        || safeBlockExchange.isSafe(innerSubtree, reducedInitialState)
+        || reached.hasWaitingState()
+        || Iterables.any(reducedResult, AbstractStates::isTargetState)) {
+      return;
+    }
+    final CFANode entryNode = extractLocation(reducedInitialState);
+    final ARGState weakestState =
+        (ARGState)
+            wrappedReducer.getVariableReducedState(
+                wrappedCpa.getInitialState(entryNode, StateSpacePartition.getDefaultPartition()),
+                innerSubtree,
+                entryNode);
+    if (isLessOrEqualExceptCallstackAndAutomata(
+        weakestState.getWrappedState(), ((ARGState) reducedInitialState).getWrappedState())) {
+      logger.log(Level.FINEST, "Publishing block as safe:", innerSubtree);
+      safeBlockExchange.publishSafe(innerSubtree, reducedInitialState);
+    }
+  }
+
+  /**
+   * Compare two states with the domains of the CPAs wrapped by the ARG. Callstack states are
+   * ignored, because they are compared by identity and the reducer always creates new instances.
+   * After reduction, the callstack contains only the function of the block entry anyway. Automaton
+   * states are ignored, because the safe block exchange distinguishes them explicitly.
+   */
+  private boolean isLessOrEqualExceptCallstackAndAutomata(
+      final AbstractState pState1, final AbstractState pState2)
+      throws CPAException, InterruptedException {
+    final ConfigurableProgramAnalysis cpa =
+        Iterables.getOnlyElement(((WrapperCPA) wrappedCpa).getWrappedCPAs());
+    if (!(cpa instanceof CompositeCPA)) {
+      return pState2 instanceof CallstackState
+          || pState2 instanceof AutomatonState
+          || cpa.getAbstractDomain().isLessOrEqual(pState1, pState2);
+    }
+    final List<ConfigurableProgramAnalysis> cpas = ((CompositeCPA) cpa).getWrappedCPAs();
+    final List<AbstractState> states1 = ((CompositeState) pState1).getWrappedStates();
+    final List<AbstractState> states2 = ((CompositeState) pState2).getWrappedStates();
+    for (int i = 0; i < cpas.size(); i++) {
+      if (!(states2.get(i) instanceof CallstackState)
+          && !(states2.get(i) instanceof AutomatonState)
+          && !cpas.get(i).getAbstractDomain().isLessOrEqual(states1.get(i), states2.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * We try to get a smaller set of states for further analysis.
    *
@@ -401,6 +544,27 @@ public class BAMTransferRelation extends AbstractBAMTransferRelation<CPAExceptio
     final Algorithm algorithm = algorithmFactory.newInstance();
     algorithm.run(reached);
 
+    if (safeBlockExchange != null
+        && safeBlockExchange.isSafe(innerSubtree, reached.getFirstState())) {
+      // Another analysis has shown that no target state is reachable inside the block
+      // for the same automaton states at the block entry, thus all found target states
+      // are infeasible and we continue without refinement.
+      // The target states stay in the reached-set, such that they cover their recomputation.
+      while (isTargetState(reached.getLastState())) {
+        final AbstractState targetState = reached.getLastState();
+        logger.log(Level.FINEST, "Ignoring target state inside safe block:", targetState);
+        safeBlockExchange.targetStateIgnored();
+        reached.removeOnlyFromWaitlist(targetState);
+        if (!reached.hasWaitingState()) {
+          break;
+        }
+        algorithm.run(reached);
+      }
+      final Set<AbstractState> exitStates = extractExitStates(reached, innerSubtree, true);
+      exitStates.removeIf(AbstractStates::isTargetState);
+      return exitStates;
+    }
+
     return extractExitStates(reached, innerSubtree, searchTargetStatesOnExit);
   }
 
@@ -0,0 +1,466 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.bam.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.common.time.Timer;
+import org.sosy_lab.cpachecker.cfa.blocks.Block;
+import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.CPAcheckerResult.Result;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.Statistics;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.cpa.arg.ARGState;
+import org.sosy_lab.cpachecker.util.CFAUtils;
+import org.sosy_lab.cpachecker.util.statistics.StatCounter;
+import org.sosy_lab.cpachecker.util.statistics.StatisticsWriter;
+
+/**
+ * A disk-backed store of block summaries that is kept across runs of CPAchecker. A summary maps
+ * the content of a block together with the reduced entry state and the reduced precision to the
+ * reduced exit states of the block. The store is consulted by BAM before a block is analysed and
+ * filled after a block was analysed completely, such that unchanged blocks of a program (e.g.,
+ * library functions or functions that were not modified between two versions of a program) do not
+ * need to be analysed again.
+ *
+ * <p>Keys are 128-bit hashes of
+ *
+ * <ul>
+ *   <li>the configuration (without options for output, logging, and resource limits),
+ *   <li>the block, i.e., its nodes with their leaving edges and its referenced variables,
+ *   <li>the serialized wrapped state of the reduced entry state, and
+ *   <li>the serialized reduced precision.
+ * </ul>
+ *
+ * Values are the serialized wrapped states of the reduced exit states. Blocks with an entry state
+ * or a precision that cannot be serialized are not stored. The block hash contains the
+ * numbers of the CFA nodes, because the serialization of several states (e.g., {@link
+ * org.sosy_lab.cpachecker.cpa.location.LocationState}) relies on them. Thus summaries are only
+ * reused if the block was parsed into the same CFA nodes.
+ *
+ * <p>An imported summary contains only the exit states of a block, not the ARG inside the block.
+ * If a counterexample passes through such a block, it is treated like a missing block: the summary
+ * is rejected for the rest of the run (cf. {@link #rejectImport(ReachedSet)}) and the block is
+ * analysed again.
+ *
+ * <p>The file starts with a header and contains a sequence of records, each consisting of the key,
+ * the length of the value, and the value compressed with {@link DeflaterOutputStream}. New records
+ * are appended at the end while holding a lock on the file, such that several processes can share
+ * the file. An incomplete record at the end of the file is discarded.
+ */
+@Options(prefix = "cpa.bam.summaryStore")
+public class BAMBlockSummaryStore implements Statistics {
+
+  private static final int FILE_MAGIC = 0x42535331; // "BSS1"
+  private static final int FILE_VERSION = 1;
+  private static final int KEY_SIZE = 16;
+
+  /** Prefixes of options that do not influence the result of a block analysis. */
+  private static final ImmutableList<String> IGNORED_OPTION_PREFIXES =
+      ImmutableList.of("cpa.bam.summaryStore.", "output.", "log.", "limits.", "statistics.");
+
+  @Option(
+      secure = true,
+      description =
+          "file with summaries of blocks that is kept across runs of CPAchecker. "
+              + "Before a block is analysed, its summary is looked up by a hash of the block, "
+              + "the reduced entry state, and the reduced precision, "
+              + "and summaries of completely analysed blocks are appended to the file.")
+  @FileOption(FileOption.Type.OPTIONAL_INPUT_FILE)
+  private @Nullable Path file = null;
+
+  @Option(secure = true, description = "do not add new block summaries to the summary store")
+  private boolean readOnly = false;
+
+  private final LogManager logger;
+  private final HashCode configurationHash;
+  private final Map<HashCode, byte[]> summaries = new HashMap<>();
+  private final Map<Block, HashCode> blockHashes = new HashMap<>();
+
+  // reached-sets that were filled from a summary, with the key of the summary
+  private final Map<ReachedSet, HashCode> importedReachedSets = new WeakHashMap<>();
+  // keys of summaries that must not be imported again in this run
+  private final Set<HashCode> rejectedKeys = new HashSet<>();
+
+  // lock for appending to the file in this JVM, the file lock protects only against other processes
+  private static final Object APPEND_LOCK = new Object();
+
+  private final Timer storeTime = new Timer();
+  private int loadedSummaries = 0;
+  private final StatCounter lookups = new StatCounter("Number of lookups");
+  private final StatCounter hits = new StatCounter("Number of hits");
+  private final StatCounter rejectedImports =
+      new StatCounter("Number of imported summaries rejected for counterexamples");
+  private final StatCounter unreadableSummaries =
+      new StatCounter("Number of summaries that could not be read");
+  private final StatCounter storedSummaries = new StatCounter("Number of summaries stored");
+  private final StatCounter unserializableSummaries =
+      new StatCounter("Number of summaries that could not be serialized");
+
+  private BAMBlockSummaryStore(Configuration pConfig, LogManager pLogger)
+      throws InvalidConfigurationException {
+    pConfig.inject(this);
+    logger = pLogger;
+    configurationHash = hashConfiguration(pConfig);
+  }
+
+  /**
+   * Create the summary store as configured and load the existing summaries from its file.
+   *
+   * @return The store, or null if no file for a summary store is configured.
+   */
+  public static @Nullable BAMBlockSummaryStore create(Configuration pConfig, LogManager pLogger)
+      throws InvalidConfigurationException {
+    BAMBlockSummaryStore store = new BAMBlockSummaryStore(pConfig, pLogger);
+    if (store.file == null) {
+      return null;
+    }
+    if (Files.exists(store.file)) {
+      try {
+        store.readFile();
+      } catch (IOException e) {
+        pLogger.logUserException(
+            Level.WARNING, e, "Could not read block summaries, starting with an empty store");
+        store.summaries.clear();
+      }
+    }
+    store.loadedSummaries = store.summaries.size();
+    return store;
+  }
+
+  private static HashCode hashConfiguration(Configuration pConfig) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (String line : pConfig.asPropertiesString().split("\n")) {
+      if (IGNORED_OPTION_PREFIXES.stream().noneMatch(line::startsWith)) {
+        hasher.putString(line, UTF_8).putByte((byte) 0);
+      }
+    }
+    return hasher.hash();
+  }
+
+  /** Compute a hash of the content of a block, independent of the iteration order of its sets. */
+  private static HashCode hashBlock(Block pBlock) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    List<CFANode> nodes = new ArrayList<>(pBlock.getNodes());
+    nodes.sort(Comparator.comparingInt(CFANode::getNodeNumber));
+    for (CFANode node : nodes) {
+      hasher.putInt(node.getNodeNumber()).putString(node.getFunctionName(), UTF_8);
+      hasher.putBoolean(pBlock.isCallNode(node)).putBoolean(pBlock.isReturnNode(node));
+      for (CFAEdge edge : CFAUtils.leavingEdges(node)) {
+        hasher.putString(edge.getEdgeType().name(), UTF_8).putByte((byte) 0);
+        hasher.putString(edge.getCode(), UTF_8).putByte((byte) 0);
+        hasher.putInt(edge.getSuccessor().getNodeNumber());
+      }
+    }
+    List<String> variables = new ArrayList<>(pBlock.getVariables());
+    variables.sort(Comparator.naturalOrder());
+    for (String variable : variables) {
+      hasher.putString(variable, UTF_8).putByte((byte) 0);
+    }
+    return hasher.hash();
+  }
+
+  /**
+   * Compute the key of a block summary.
+   *
+   * @param pReducedEntryState The reduced entry state of the block, an {@link ARGState}.
+   * @param pReducedPrecision The reduced precision at the entry of the block.
+   * @param pBlock The block.
+   * @return The key, or null if the entry state or the precision cannot be serialized.
+   */
+  public synchronized @Nullable HashCode keyOf(
+      AbstractState pReducedEntryState, Precision pReducedPrecision, Block pBlock) {
+    checkArgument(pReducedEntryState instanceof ARGState);
+    storeTime.start();
+    try {
+      byte[] entryState =
+          serialize(ImmutableList.of(((ARGState) pReducedEntryState).getWrappedState()));
+      byte[] precision = serialize(ImmutableList.of(pReducedPrecision));
+      if (entryState == null || precision == null) {
+        return null;
+      }
+      return Hashing.murmur3_128()
+          .newHasher()
+          .putBytes(configurationHash.asBytes())
+          .putBytes(blockHashes.computeIfAbsent(pBlock, BAMBlockSummaryStore::hashBlock).asBytes())
+          .putInt(entryState.length)
+          .putBytes(entryState)
+          .putBytes(precision)
+          .hash();
+    } finally {
+      storeTime.stop();
+    }
+  }
+
+  /**
+   * Look up the summary with the given key.
+   *
+   * @return The wrapped states of the reduced exit states, or null if there is no (readable)
+   *     summary.
+   */
+  public synchronized @Nullable List<AbstractState> lookup(HashCode pKey) {
+    lookups.inc();
+    byte[] data = summaries.get(pKey);
+    if (data == null || rejectedKeys.contains(pKey)) {
+      return null;
+    }
+    storeTime.start();
+    try (ObjectInputStream in =
+        new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+      int size = in.readInt();
+      List<AbstractState> exitStates = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        exitStates.add((AbstractState) in.readObject());
+      }
+      hits.inc();
+      return exitStates;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      // e.g., written by an incompatible version of CPAchecker or for a different CFA
+      logger.logDebugException(e, "Could not read block summary");
+      unreadableSummaries.inc();
+      summaries.remove(pKey);
+      return null;
+    } finally {
+      storeTime.stop();
+    }
+  }
+
+  /**
+   * Add the summary of a completely analysed block to the store. Summaries with states that cannot
+   * be serialized are ignored.
+   *
+   * @param pKey The key as returned by {@link #keyOf(AbstractState, Precision, Block)}.
+   * @param pReducedExitStates The reduced exit states of the block, {@link ARGState}s.
+   */
+  public synchronized void put(HashCode pKey, Collection<AbstractState> pReducedExitStates) {
+    if (readOnly || summaries.containsKey(pKey)) {
+      return;
+    }
+    storeTime.start();
+    try {
+      List<AbstractState> wrappedStates = new ArrayList<>(pReducedExitStates.size());
+      for (AbstractState state : pReducedExitStates) {
+        wrappedStates.add(((ARGState) state).getWrappedState());
+      }
+      byte[] data = serialize(wrappedStates);
+      if (data == null) {
+        unserializableSummaries.inc();
+        return;
+      }
+      appendToFile(pKey, data);
+      summaries.put(pKey, data);
+      storedSummaries.inc();
+    } catch (IOException e) {
+      logger.logUserException(
+          Level.WARNING, e, "Could not write block summary, disabling further writes");
+      readOnly = true;
+    } finally {
+      storeTime.stop();
+    }
+  }
+
+  /**
+   * Register a reached-set that was filled with the exit states of the summary with the given key.
+   */
+  public synchronized void registerImport(ReachedSet pReached, HashCode pKey) {
+    importedReachedSets.put(pReached, pKey);
+  }
+
+  /** Returns whether the given reached-set was filled from a summary and not analysed again. */
+  public synchronized boolean isImported(ReachedSet pReached) {
+    return importedReachedSets.containsKey(pReached);
+  }
+
+  /**
+   * Reject the summary that the given reached-set was filled with, because the ARG inside the
+   * block is needed (e.g., for a counterexample). The summary is not imported again in this run.
+   */
+  public synchronized void rejectImport(ReachedSet pReached) {
+    HashCode key = importedReachedSets.get(pReached);
+    if (key != null && rejectedKeys.add(key)) {
+      rejectedImports.inc();
+    }
+  }
+
+  /**
+   * Forget that the given reached-set was filled from a summary, because it will be analysed.
+   *
+   * @return whether the reached-set was filled from a summary
+   */
+  public synchronized boolean removeImport(ReachedSet pReached) {
+    return importedReachedSets.remove(pReached) != null;
+  }
+
+  /** Serialize and compress the given objects, or return null if they are not serializable. */
+  private static byte @Nullable [] serialize(List<?> pObjects) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new WrappedStateOutputStream(new DeflaterOutputStream(bytes))) {
+      out.writeInt(pObjects.size());
+      for (Object object : pObjects) {
+        out.writeObject(object);
+      }
+    } catch (NotSerializableException e) {
+      return null;
+    } catch (IOException e) {
+      // cannot happen for a ByteArrayOutputStream
+      throw new AssertionError(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private void readFile() throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+        throw new IOException("File " + file + " is not a block summary store of this version");
+      }
+      byte[] key = new byte[KEY_SIZE];
+      while (true) {
+        try {
+          in.readFully(key);
+          int length = in.readInt();
+          if (length < 0) {
+            break;
+          }
+          byte[] data = new byte[length];
+          in.readFully(data);
+          summaries.putIfAbsent(HashCode.fromBytes(key.clone()), data);
+        } catch (EOFException e) {
+          break; // end of file, or incomplete record
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("try") // the file lock only needs to be held while writing
+  private void appendToFile(HashCode pKey, byte[] pData) throws IOException {
+    if (file.toAbsolutePath().getParent() != null) {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+    }
+    synchronized (APPEND_LOCK) {
+      try (FileChannel channel =
+              FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+          FileLock lock = channel.lock()) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(KEY_SIZE + 12 + pData.length);
+        try (DataOutputStream record = new DataOutputStream(bytes)) {
+          if (channel.size() == 0) {
+            record.writeInt(FILE_MAGIC);
+            record.writeInt(FILE_VERSION);
+          }
+          record.write(pKey.asBytes());
+          record.writeInt(pData.length);
+          record.write(pData);
+        }
+        // a single write, such that a killed process leaves at most one incomplete record
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+          position += channel.write(buffer, position);
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized void printStatistics(
+      PrintStream pOut, Result pResult, UnmodifiableReachedSet pReached) {
+    StatisticsWriter.writingStatisticsTo(pOut)
+        .put("Number of summaries loaded from file", loadedSummaries)
+        .put(lookups)
+        .put(hits)
+        .putIf(rejectedImports.getValue() > 0, rejectedImports)
+        .putIf(unreadableSummaries.getValue() > 0, unreadableSummaries)
+        .put(storedSummaries)
+        .putIf(unserializableSummaries.getValue() > 0, unserializableSummaries)
+        .put("Time for summary store", storeTime);
+  }
+
+  @Override
+  public String getName() {
+    return "BAM block summary store";
+  }
+
+  /** Output stream that refuses to write ARG states as part of a wrapped state or precision. */
+  private static class WrappedStateOutputStream extends ObjectOutputStream {
+
+    WrappedStateOutputStream(OutputStream pOut) throws IOException {
+      super(pOut);
+      enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object pObj) throws IOException {
+      if (pObj instanceof ARGState) {
+        throw new NotSerializableException(ARGState.class.getName());
+      }
+      return pObj;
+    }
+  }
+}
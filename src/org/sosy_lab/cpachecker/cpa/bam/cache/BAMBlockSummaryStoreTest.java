@@ -0,0 +1,148 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.bam.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import java.io.Serializable;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.ast.c.CFunctionDeclaration;
+import org.sosy_lab.cpachecker.cfa.blocks.Block;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.defaults.SingletonPrecision;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.reachedset.PartitionedReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist.TraversalMethod;
+import org.sosy_lab.cpachecker.cpa.arg.ARGState;
+import org.sosy_lab.cpachecker.util.test.TestDataTools;
+
+public class BAMBlockSummaryStoreTest {
+
+  private static final class ValueState implements AbstractState, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int value;
+
+    private ValueState(int pValue) {
+      value = pValue;
+    }
+
+    @Override
+    public boolean equals(Object pObj) {
+      return pObj instanceof ValueState && ((ValueState) pObj).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return value;
+    }
+  }
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final LogManager logger = LogManager.createTestLogManager();
+  private Configuration config;
+  private Block block;
+
+  @Before
+  public void setUp() throws Exception {
+    config =
+        TestDataTools.configurationForTest()
+            .setOption(
+                "cpa.bam.summaryStore.file",
+                tempFolder.getRoot().toPath().resolve("summaries.bin").toString())
+            .build();
+    CFANode entry = new CFANode(CFunctionDeclaration.DUMMY);
+    CFANode exit = new CFANode(CFunctionDeclaration.DUMMY);
+    block =
+        new Block(
+            ImmutableSet.of(),
+            ImmutableSet.of(entry),
+            ImmutableSet.of(exit),
+            ImmutableList.of(entry, exit));
+  }
+
+  private HashCode keyOf(BAMBlockSummaryStore pStore, int pEntryValue) {
+    return pStore.keyOf(
+        new ARGState(new ValueState(pEntryValue), null), SingletonPrecision.getInstance(), block);
+  }
+
+  @Test
+  public void summaryIsReadInNextRun() throws Exception {
+    BAMBlockSummaryStore store = BAMBlockSummaryStore.create(config, logger);
+    HashCode key = keyOf(store, 1);
+    assertThat(key).isNotNull();
+    assertThat(store.lookup(key)).isNull();
+    store.put(
+        key,
+        ImmutableList.of(
+            new ARGState(new ValueState(2), null), new ARGState(new ValueState(3), null)));
+
+    BAMBlockSummaryStore nextStore = BAMBlockSummaryStore.create(config, logger);
+    HashCode nextKey = keyOf(nextStore, 1);
+    assertThat(nextKey).isEqualTo(key);
+    List<AbstractState> exitStates = nextStore.lookup(nextKey);
+    assertThat(exitStates).containsExactly(new ValueState(2), new ValueState(3)).inOrder();
+    assertThat(nextStore.lookup(keyOf(nextStore, 2))).isNull();
+  }
+
+  @Test
+  public void summariesOfSeveralStoresAreKept() throws Exception {
+    BAMBlockSummaryStore store1 = BAMBlockSummaryStore.create(config, logger);
+    BAMBlockSummaryStore store2 = BAMBlockSummaryStore.create(config, logger);
+    store1.put(keyOf(store1, 1), ImmutableList.of(new ARGState(new ValueState(10), null)));
+    store2.put(keyOf(store2, 2), ImmutableList.of(new ARGState(new ValueState(20), null)));
+
+    BAMBlockSummaryStore nextStore = BAMBlockSummaryStore.create(config, logger);
+    assertThat(nextStore.lookup(keyOf(nextStore, 1))).containsExactly(new ValueState(10));
+    assertThat(nextStore.lookup(keyOf(nextStore, 2))).containsExactly(new ValueState(20));
+  }
+
+  @Test
+  public void rejectedSummaryIsNotImportedAgain() throws Exception {
+    BAMBlockSummaryStore store = BAMBlockSummaryStore.create(config, logger);
+    HashCode key = keyOf(store, 1);
+    store.put(key, ImmutableList.of(new ARGState(new ValueState(2), null)));
+    assertThat(store.lookup(key)).isNotNull();
+
+    ReachedSet reached = new PartitionedReachedSet(TraversalMethod.DFS);
+    store.registerImport(reached, key);
+    assertThat(store.isImported(reached)).isTrue();
+    store.rejectImport(reached);
+    assertThat(store.lookup(key)).isNull();
+    assertThat(store.removeImport(reached)).isTrue();
+    assertThat(store.isImported(reached)).isFalse();
+  }
+}
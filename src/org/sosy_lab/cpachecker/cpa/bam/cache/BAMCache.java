@@ -25,6 +25,7 @@ package org.sosy_lab.cpachecker.cpa.bam.cache;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import java.util.Collection;
 import java.util.Set;
@@ -70,6 +71,18 @@ public interface BAMCache extends Statistics {
   /** Return all cached reached-sets. Useful for statistics. */
   Collection<ReachedSet> getAllCachedReachedStates();
 
+  /**
+   * Remove reached-sets of completely analysed blocks from the cache, if the cache exceeds its size
+   * limit. The caller is responsible for removing all other references to the returned reached-sets
+   * such that they can be garbage-collected. Evicted blocks are analysed again when they are needed
+   * the next time.
+   *
+   * @return the evicted reached-sets
+   */
+  default Collection<ReachedSet> evictColdEntries() {
+    return ImmutableList.of();
+  }
+
   /** Some benchmarks are complicated and
    *  all intermediate cache entries can not be stored due to large memory consumption,
    *  then there is a way to clear all caches and to restore ARG completely. */
@@ -77,8 +90,9 @@ public interface BAMCache extends Statistics {
 
   class BAMCacheEntry {
     private final ReachedSet rs;
-    private Set<AbstractState> exitStates;
-    private ARGState rootOfBlock;
+    // volatile, because entries can be shared between threads in parallel BAM
+    private volatile Set<AbstractState> exitStates;
+    private volatile ARGState rootOfBlock;
 
     protected BAMCacheEntry(ReachedSet pRs) {
       rs = Preconditions.checkNotNull(pRs);
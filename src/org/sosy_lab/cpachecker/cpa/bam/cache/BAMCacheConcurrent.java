@@ -0,0 +1,239 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.bam.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sosy_lab.cpachecker.util.statistics.StatisticsUtils.toPercent;
+
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.cpachecker.cfa.blocks.Block;
+import org.sosy_lab.cpachecker.core.CPAcheckerResult.Result;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.Reducer;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.cpa.arg.ARGState;
+import org.sosy_lab.cpachecker.util.statistics.ThreadSafeTimerContainer;
+import org.sosy_lab.cpachecker.util.statistics.ThreadSafeTimerContainer.TimerWrapper;
+
+/**
+ * A thread-safe cache without a global lock. In contrast to {@link BAMCacheSynchronized}, threads
+ * that access different entries do not block each other. Like {@link BAMCacheImpl}, only entries
+ * with a precisely matching key are returned.
+ */
+@Options(prefix = "cpa.bam")
+public class BAMCacheConcurrent implements BAMCache {
+
+  @Option(secure=true, description = "If enabled, the reached set cache is analysed "
+      + "for each cache miss to find the cause of the miss.")
+  private boolean gatherCacheMissStatistics = false;
+
+  private final ConcurrentMap<CacheKey, BAMCacheEntry> preciseReachedCache =
+      new ConcurrentHashMap<>();
+
+  /** the last analyzed entry is only meaningful per thread. */
+  private final ThreadLocal<BAMCacheEntry> lastAnalyzedEntry = new ThreadLocal<>();
+
+  private final Reducer reducer;
+
+  private final LongAdder cacheMisses = new LongAdder();
+  private final LongAdder partialCacheHits = new LongAdder();
+  private final LongAdder fullCacheHits = new LongAdder();
+
+  private final LongAdder abstractionCausedMisses = new LongAdder();
+  private final LongAdder precisionCausedMisses = new LongAdder();
+  private final LongAdder noSimilarCausedMisses = new LongAdder();
+
+  private final ThreadSafeTimerContainer timer =
+      new ThreadSafeTimerContainer("Time for cache-access");
+
+  /** the timers are not thread-safe, thus each thread measures with its own one. */
+  private final ThreadLocal<TimerWrapper> threadTimer =
+      ThreadLocal.withInitial(timer::getNewTimer);
+
+  public BAMCacheConcurrent(Configuration pConfig, Reducer pReducer)
+      throws InvalidConfigurationException {
+    pConfig.inject(this);
+    reducer = checkNotNull(pReducer);
+  }
+
+  @Override
+  public BAMCacheEntry put(
+      AbstractState stateKey, Precision precisionKey, Block context, ReachedSet rs) {
+    TimerWrapper t = threadTimer.get();
+    t.start();
+    try {
+      BAMCacheEntry entry = new BAMCacheEntry(rs);
+      preciseReachedCache.put(new CacheKey(stateKey, precisionKey, context), entry);
+      return entry;
+    } finally {
+      t.stop();
+    }
+  }
+
+  @Override
+  public @Nullable BAMCacheEntry get(
+      AbstractState stateKey, Precision precisionKey, Block context) {
+    TimerWrapper t = threadTimer.get();
+    t.start();
+    final BAMCacheEntry entry;
+    try {
+      entry = preciseReachedCache.get(new CacheKey(stateKey, precisionKey, context));
+    } finally {
+      t.stop();
+    }
+    lastAnalyzedEntry.set(entry);
+    if (entry == null) {
+      cacheMisses.increment();
+      if (gatherCacheMissStatistics) {
+        findCacheMissCause(stateKey, precisionKey, context);
+      }
+    } else if (entry.getExitStates() == null) {
+      partialCacheHits.increment();
+    } else {
+      fullCacheHits.increment();
+    }
+    return entry;
+  }
+
+  @Override
+  @Deprecated
+  public @Nullable ARGState getLastAnalyzedBlock() {
+    BAMCacheEntry entry = lastAnalyzedEntry.get();
+    return entry == null ? null : entry.getRootOfBlock();
+  }
+
+  /** see {@link BAMCacheImpl}, other threads may add entries while the cache is searched. */
+  private void findCacheMissCause(AbstractState pStateKey, Precision pPrecisionKey, Block pContext) {
+    for (CacheKey cacheKey : preciseReachedCache.keySet()) {
+      if (!pContext.equals(cacheKey.context)) {
+        continue;
+      }
+      if (new CacheKey(pStateKey, cacheKey.precisionKey, pContext).equals(cacheKey)) {
+        precisionCausedMisses.increment();
+        return;
+      }
+      if (new CacheKey(cacheKey.stateKey, pPrecisionKey, pContext).equals(cacheKey)) {
+        abstractionCausedMisses.increment();
+        return;
+      }
+    }
+    noSimilarCausedMisses.increment();
+  }
+
+  @Override
+  public boolean containsPreciseKey(
+      AbstractState stateKey, Precision precisionKey, Block context) {
+    TimerWrapper t = threadTimer.get();
+    t.start();
+    try {
+      return preciseReachedCache.containsKey(new CacheKey(stateKey, precisionKey, context));
+    } finally {
+      t.stop();
+    }
+  }
+
+  @Override
+  public Collection<ReachedSet> getAllCachedReachedStates() {
+    return ImmutableList.copyOf(
+        Collections2.transform(preciseReachedCache.values(), BAMCacheEntry::getReachedSet));
+  }
+
+  @Override
+  public void clear() {
+    preciseReachedCache.clear();
+  }
+
+  @Override
+  public void printStatistics(PrintStream out, Result pResult, UnmodifiableReachedSet pReached) {
+    long misses = cacheMisses.sum();
+    long partialHits = partialCacheHits.sum();
+    long fullHits = fullCacheHits.sum();
+    long sumCalls = misses + partialHits + fullHits;
+    out.println("Number of cached reached-sets:                       " + preciseReachedCache.size());
+    out.println("Total number of recursive CPA calls:                 " + sumCalls);
+    out.println("  Number of cache misses:                            " + misses + " (" + toPercent(misses, sumCalls) + " of all calls)");
+    out.println("  Number of partial cache hits:                      " + partialHits + " (" + toPercent(partialHits, sumCalls) + " of all calls)");
+    out.println("  Number of full cache hits:                         " + fullHits + " (" + toPercent(fullHits, sumCalls) + " of all calls)");
+    if (gatherCacheMissStatistics) {
+      long abstractionMisses = abstractionCausedMisses.sum();
+      long precisionMisses = precisionCausedMisses.sum();
+      long noSimilarMisses = noSimilarCausedMisses.sum();
+      out.println("Cause for cache misses:                              ");
+      out.println("  Number of abstraction caused misses:               " + abstractionMisses + " (" + toPercent(abstractionMisses, misses) + " of all misses)");
+      out.println("  Number of precision caused misses:                 " + precisionMisses + " (" + toPercent(precisionMisses, misses) + " of all misses)");
+      out.println("  Number of misses with no similar elements:         " + noSimilarMisses + " (" + toPercent(noSimilarMisses, misses) + " of all misses)");
+    }
+    out.println(timer.getTitle() + ":                           " + timer + " (count=" + timer.getUpdateCount() + ")");
+  }
+
+  @Override
+  public String getName() {
+    return "BAMCache";
+  }
+
+  private final class CacheKey {
+
+    private final AbstractState stateKey;
+    private final Precision precisionKey;
+    private final Object wrappedHash;
+    private final Block context;
+
+    CacheKey(AbstractState pStateKey, Precision pPrecisionKey, Block pContext) {
+      stateKey = pStateKey;
+      precisionKey = pPrecisionKey;
+      wrappedHash = reducer.getHashCodeForState(pStateKey, pPrecisionKey);
+      context = checkNotNull(pContext);
+    }
+
+    @Override
+    public boolean equals(Object pObj) {
+      if (pObj == this) {
+        return true;
+      }
+      if (!(pObj instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey other = (CacheKey) pObj;
+      return context.equals(other.context) && wrappedHash.equals(other.wrappedHash);
+    }
+
+    @Override
+    public int hashCode() {
+      return wrappedHash.hashCode() * 17 + context.hashCode();
+    }
+  }
+}
@@ -27,12 +27,19 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sosy_lab.cpachecker.util.statistics.StatisticsUtils.toPercent;
 
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.IntegerOption;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
@@ -55,6 +62,30 @@ public class BAMCacheImpl implements BAMCache {
       + "for each cache miss to find the cause of the miss.")
   private boolean gatherCacheMissStatistics = false;
 
+  public enum CacheEvictionPolicy {
+    /** evict the reached-sets that were not used for the longest time */
+    LRU,
+    /**
+     * evict the reached-sets with the smallest analysis time per abstract state, weighted with the
+     * number of cache hits
+     */
+    COST_BENEFIT,
+  }
+
+  @Option(
+      secure = true,
+      description =
+          "maximum number of abstract states in the reached-sets of the BAM cache (0 = unlimited). "
+              + "If the limit is exceeded, the reached-sets of completely analysed blocks "
+              + "are evicted from the cache and analysed again when they are needed.")
+  @IntegerOption(min = 0)
+  private int cacheSizeLimit = 0;
+
+  @Option(
+      secure = true,
+      description = "which reached-sets to evict first if the BAM cache exceeds its size limit")
+  private CacheEvictionPolicy cacheEvictionPolicy = CacheEvictionPolicy.LRU;
+
   private final Timer hashingTimer = new Timer();
   private final Timer equalsTimer = new Timer();
 
@@ -66,6 +97,13 @@ public class BAMCacheImpl implements BAMCache {
   private int precisionCausedMisses = 0;
   private int noSimilarCausedMisses = 0;
 
+  private final Timer evictionTimer = new Timer();
+  private long accessCounter = 0;
+  private long cachedStates = 0;
+  private long maxCachedStates = 0;
+  private int evictedEntries = 0;
+  private long evictedStates = 0;
+
   // we use LinkedHashMaps to avoid non-determinism
   protected final Map<AbstractStateHash, BAMCacheEntry> preciseReachedCache = new LinkedHashMap<>();
 
@@ -90,9 +128,12 @@ public class BAMCacheImpl implements BAMCache {
   public BAMCacheEntry put(
       AbstractState stateKey, Precision precisionKey, Block context, ReachedSet rs) {
     AbstractStateHash hash = getHashCode(stateKey, precisionKey, context);
-    BAMCacheEntry entry = new BAMCacheEntry(rs);
+    TrackedCacheEntry entry = new TrackedCacheEntry(rs);
     // assert !preciseReachedCache.containsKey(hash);
-    preciseReachedCache.put(hash, entry);
+    BAMCacheEntry oldEntry = preciseReachedCache.put(hash, entry);
+    if (oldEntry != null) {
+      cachedStates -= ((TrackedCacheEntry) oldEntry).recordedSize;
+    }
     return entry;
   }
 
@@ -113,6 +154,9 @@ public class BAMCacheImpl implements BAMCache {
         findCacheMissCause(stateKey, precisionKey, context);
       }
     } else {
+      TrackedCacheEntry trackedEntry = (TrackedCacheEntry) entry;
+      trackedEntry.lastAccess = ++accessCounter;
+      trackedEntry.hits++;
       if (entry.getExitStates() == null) {
         // we have cached a partly computed reached-set
         partialCacheHits++;
@@ -190,6 +234,99 @@ public class BAMCacheImpl implements BAMCache {
     return Collections2.transform(preciseReachedCache.values(), BAMCacheEntry::getReachedSet);
   }
 
+  @Override
+  public Collection<ReachedSet> evictColdEntries() {
+    if (cacheSizeLimit == 0 || cachedStates <= cacheSizeLimit) {
+      return ImmutableList.of();
+    }
+    evictionTimer.start();
+    try {
+      // entries that are currently analysed or partially analysed must not be evicted
+      List<TrackedCacheEntry> candidates = new ArrayList<>();
+      for (BAMCacheEntry entry : preciseReachedCache.values()) {
+        if (entry.getExitStates() != null && !entry.getReachedSet().hasWaitingState()) {
+          candidates.add((TrackedCacheEntry) entry);
+        }
+      }
+      candidates.sort(getEvictionOrder());
+
+      // evict more than necessary, such that not every cache miss triggers an eviction
+      final long targetSize = cacheSizeLimit * 3L / 4;
+      Set<BAMCacheEntry> evicted = Sets.newIdentityHashSet();
+      List<ReachedSet> evictedReachedSets = new ArrayList<>();
+      for (TrackedCacheEntry entry : candidates) {
+        if (cachedStates <= targetSize) {
+          break;
+        }
+        evicted.add(entry);
+        evictedReachedSets.add(entry.getReachedSet());
+        cachedStates -= entry.recordedSize;
+        evictedStates += entry.recordedSize;
+      }
+      removeEntries(evicted);
+      if (evicted.contains(lastAnalyzedEntry)) {
+        lastAnalyzedEntry = null;
+      }
+      evictedEntries += evicted.size();
+      logger.log(Level.FINER, "Evicted", evicted.size(), "reached-sets from BAM cache");
+      return evictedReachedSets;
+    } finally {
+      evictionTimer.stop();
+    }
+  }
+
+  /** Returns whether this cache evicts entries when it exceeds its size limit. */
+  public boolean hasSizeLimit() {
+    return cacheSizeLimit > 0;
+  }
+
+  private Comparator<TrackedCacheEntry> getEvictionOrder() {
+    switch (cacheEvictionPolicy) {
+      case LRU:
+        return Comparator.comparingLong(entry -> entry.lastAccess);
+      case COST_BENEFIT:
+        return Comparator.<TrackedCacheEntry>comparingDouble(
+                entry ->
+                    (double) entry.analysisTime * (1 + entry.hits)
+                        / Math.max(1, entry.recordedSize))
+            .thenComparingLong(entry -> entry.lastAccess);
+      default:
+        throw new AssertionError("unhandled eviction policy " + cacheEvictionPolicy);
+    }
+  }
+
+  /** Remove the given entries from all internal data structures of the cache. */
+  protected void removeEntries(Set<BAMCacheEntry> pEntries) {
+    preciseReachedCache.values().removeIf(pEntries::contains);
+  }
+
+  /** Cache entry with the information that is needed for deciding which entries to evict. */
+  private class TrackedCacheEntry extends BAMCacheEntry {
+
+    private final long creationTime = System.nanoTime();
+    private long analysisTime = -1;
+    private long lastAccess = accessCounter;
+    private int hits = 0;
+    private int recordedSize = 0;
+
+    private TrackedCacheEntry(ReachedSet pRs) {
+      super(pRs);
+    }
+
+    @Override
+    public void setExitStates(Set<AbstractState> pExitStates) {
+      super.setExitStates(pExitStates);
+      if (analysisTime < 0) {
+        // time for analysing the block including its nested blocks, i.e., the cost of an eviction
+        analysisTime = System.nanoTime() - creationTime;
+      }
+      int size = getReachedSet().size();
+      cachedStates += size - recordedSize;
+      maxCachedStates = Math.max(maxCachedStates, cachedStates);
+      recordedSize = size;
+    }
+  }
+
   class AbstractStateHash {
 
     private final Object wrappedHash;
@@ -267,6 +404,11 @@ public class BAMCacheImpl implements BAMCache {
       out.println("  Number of precision caused misses:                 " + precisionCausedMisses + " (" + toPercent(precisionCausedMisses, cacheMisses) + " of all misses)");
       out.println("  Number of misses with no similar elements:         " + noSimilarCausedMisses + " (" + toPercent(noSimilarCausedMisses, cacheMisses) + " of all misses)");
     }
+    if (cacheSizeLimit > 0) {
+      out.println("Number of states in cached reached-sets:             " + cachedStates + " (max: " + maxCachedStates + ")");
+      out.println("Number of evicted reached-sets:                      " + evictedEntries + " (" + evictedStates + " states)");
+      out.println("Time for evicting reached-sets:                      " + evictionTimer + " (Calls: " + evictionTimer.getNumberOfIntervals() + ")");
+    }
     out.println("Time for checking equality of abstract states:       " + equalsTimer + " (Calls: " + equalsTimer.getNumberOfIntervals() + ")");
     out.println("Time for computing the hashCode of abstract states:  " + hashingTimer + " (Calls: " + hashingTimer.getNumberOfIntervals() + ")");
   }
@@ -280,5 +422,6 @@ public class BAMCacheImpl implements BAMCache {
   public void clear() {
     preciseReachedCache.clear();
     lastAnalyzedEntry = null;
+    cachedStates = 0;
   }
 }
@@ -0,0 +1,216 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.bam.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.ast.c.CFunctionDeclaration;
+import org.sosy_lab.cpachecker.cfa.blocks.Block;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.defaults.SingletonPrecision;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.Reducer;
+import org.sosy_lab.cpachecker.core.reachedset.PartitionedReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.waitlist.Waitlist.TraversalMethod;
+import org.sosy_lab.cpachecker.cpa.arg.ARGState;
+import org.sosy_lab.cpachecker.cpa.bam.cache.BAMCache.BAMCacheEntry;
+import org.sosy_lab.cpachecker.util.test.TestDataTools;
+
+public class BAMCacheImplTest {
+
+  private static final Precision PRECISION = SingletonPrecision.getInstance();
+
+  private final LogManager logger = LogManager.createTestLogManager();
+  private Reducer reducer;
+  private Block block;
+
+  @Before
+  public void setUp() {
+    // cache keys are compared by the identity of the reduced initial states
+    reducer = mock(Reducer.class);
+    when(reducer.getHashCodeForState(any(), any())).thenAnswer(i -> i.getArgument(0));
+    CFANode entry = new CFANode(CFunctionDeclaration.DUMMY);
+    CFANode exit = new CFANode(CFunctionDeclaration.DUMMY);
+    block =
+        new Block(
+            ImmutableSet.of(),
+            ImmutableSet.of(entry),
+            ImmutableSet.of(exit),
+            ImmutableList.of(entry, exit));
+  }
+
+  private BAMCacheImpl createCache(int pSizeLimit, String pPolicy) throws Exception {
+    Configuration config =
+        TestDataTools.configurationForTest()
+            .setOption("cpa.bam.cacheSizeLimit", Integer.toString(pSizeLimit))
+            .setOption("cpa.bam.cacheEvictionPolicy", pPolicy)
+            .build();
+    return new BAMCacheImpl(config, reducer, logger);
+  }
+
+  /** Create a reached-set with the given number of states, a root and its children. */
+  private static ReachedSet createReachedSet(int pSize) {
+    ARGState root = new ARGState(mock(AbstractState.class), null);
+    ReachedSet reached = new PartitionedReachedSet(TraversalMethod.DFS);
+    reached.add(root, PRECISION);
+    reached.popFromWaitlist();
+    addStates(reached, pSize - 1);
+    return reached;
+  }
+
+  private static void addStates(ReachedSet pReached, int pNumber) {
+    for (int i = 0; i < pNumber; i++) {
+      pReached.add(
+          new ARGState(mock(AbstractState.class), (ARGState) pReached.getFirstState()), PRECISION);
+      pReached.popFromWaitlist();
+    }
+  }
+
+  private BAMCacheEntry put(BAMCache pCache, ReachedSet pReached) {
+    return pCache.put(pReached.getFirstState(), PRECISION, block, pReached);
+  }
+
+  /** Put a completely analysed reached-set with the given number of states into the cache. */
+  private BAMCacheEntry putFinished(BAMCache pCache, int pSize) {
+    BAMCacheEntry entry = put(pCache, createReachedSet(pSize));
+    finish(entry);
+    return entry;
+  }
+
+  /** Mark an entry as completely analysed, its last state is its only exit state. */
+  private static void finish(BAMCacheEntry pEntry) {
+    pEntry.setExitStates(ImmutableSet.of(pEntry.getReachedSet().getLastState()));
+  }
+
+  private void access(BAMCache pCache, BAMCacheEntry pEntry) {
+    assertThat(pCache.get(pEntry.getReachedSet().getFirstState(), PRECISION, block))
+        .isSameInstanceAs(pEntry);
+  }
+
+  private boolean isCached(BAMCache pCache, BAMCacheEntry pEntry) {
+    return pCache.containsPreciseKey(pEntry.getReachedSet().getFirstState(), PRECISION, block);
+  }
+
+  @Test
+  public void noEvictionWithoutLimit() throws Exception {
+    BAMCacheImpl cache = createCache(0, "LRU");
+    for (int i = 0; i < 10; i++) {
+      putFinished(cache, 100);
+    }
+    assertThat(cache.hasSizeLimit()).isFalse();
+    assertThat(cache.evictColdEntries()).isEmpty();
+    assertThat(cache.getAllCachedReachedStates()).hasSize(10);
+  }
+
+  @Test
+  public void noEvictionWithinLimit() throws Exception {
+    BAMCacheImpl cache = createCache(10, "LRU");
+    putFinished(cache, 4);
+    putFinished(cache, 6);
+    assertThat(cache.evictColdEntries()).isEmpty();
+    assertThat(cache.getAllCachedReachedStates()).hasSize(2);
+  }
+
+  @Test
+  public void leastRecentlyUsedEntriesAreEvictedFirst() throws Exception {
+    BAMCacheImpl cache = createCache(10, "LRU");
+    BAMCacheEntry entry1 = putFinished(cache, 4);
+    BAMCacheEntry entry2 = putFinished(cache, 4);
+    BAMCacheEntry entry3 = putFinished(cache, 4);
+    access(cache, entry2);
+    access(cache, entry1);
+
+    // 12 states exceed the limit, evict down to 3/4 of the limit, i.e., 7 states
+    Collection<ReachedSet> evicted = cache.evictColdEntries();
+    assertThat(evicted).containsExactly(entry3.getReachedSet(), entry2.getReachedSet()).inOrder();
+    assertThat(isCached(cache, entry1)).isTrue();
+    assertThat(isCached(cache, entry2)).isFalse();
+    assertThat(isCached(cache, entry3)).isFalse();
+
+    // the remaining 4 states are within the limit
+    assertThat(cache.evictColdEntries()).isEmpty();
+  }
+
+  @Test
+  public void unfinishedEntriesAreNotEvicted() throws Exception {
+    BAMCacheImpl cache = createCache(4, "LRU");
+    // no exit states yet, e.g., the block is currently analysed
+    BAMCacheEntry running = put(cache, createReachedSet(3));
+    // exit states of an earlier analysis, but a refinement re-added states to the waitlist
+    BAMCacheEntry partial = putFinished(cache, 3);
+    partial.getReachedSet().reAddToWaitlist(partial.getReachedSet().getFirstState());
+    BAMCacheEntry finished = putFinished(cache, 3);
+
+    assertThat(cache.evictColdEntries()).containsExactly(finished.getReachedSet());
+    assertThat(isCached(cache, running)).isTrue();
+    assertThat(isCached(cache, partial)).isTrue();
+  }
+
+  @Test
+  public void cachedStatesFollowGrowingAndReplacedEntries() throws Exception {
+    BAMCacheImpl cache = createCache(10, "LRU");
+    BAMCacheEntry entry1 = putFinished(cache, 4);
+
+    // the block is analysed further after a refinement, its size is counted only once
+    addStates(entry1.getReachedSet(), 4);
+    finish(entry1);
+    BAMCacheEntry entry2 = putFinished(cache, 2);
+    assertThat(cache.evictColdEntries()).isEmpty();
+
+    // an entry with the same key replaces the old entry and its size
+    ReachedSet replacement = new PartitionedReachedSet(TraversalMethod.DFS);
+    replacement.add(entry2.getReachedSet().getFirstState(), PRECISION);
+    replacement.popFromWaitlist();
+    addStates(replacement, 1);
+    finish(put(cache, replacement));
+    assertThat(cache.evictColdEntries()).isEmpty();
+
+    // 11 states exceed the limit, evicting the oldest entry with 8 states is enough
+    BAMCacheEntry entry3 = putFinished(cache, 1);
+    assertThat(cache.evictColdEntries()).containsExactly(entry1.getReachedSet());
+    assertThat(isCached(cache, entry3)).isTrue();
+  }
+
+  @Test
+  public void clearResetsCachedStates() throws Exception {
+    BAMCacheImpl cache = createCache(10, "LRU");
+    putFinished(cache, 8);
+    cache.clear();
+    putFinished(cache, 8);
+    assertThat(cache.evictColdEntries()).isEmpty();
+    assertThat(cache.getAllCachedReachedStates()).hasSize(1);
+  }
+}
@@ -31,6 +31,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.collect.Table.Cell;
 import java.util.ArrayList;
@@ -82,11 +83,11 @@ public class BAMDataManagerImpl implements BAMDataManager {
 
   private final Map<AbstractState, BlockExitData> expandedStateToBlockExit = new LinkedHashMap<>();
 
-  private static class BlockExitData {
+  static class BlockExitData {
 
-    private final AbstractState reducedState;
-    private final Block block;
-    private final Precision expandedPrecision;
+    final AbstractState reducedState;
+    final Block block;
+    final Precision expandedPrecision;
 
     BlockExitData(AbstractState pReducedState, Block pBlock, Precision pExpandedPrecision) {
       reducedState = pReducedState;
@@ -137,11 +138,41 @@ public class BAMDataManagerImpl implements BAMDataManager {
   @Override
   public BAMCacheEntry createAndRegisterNewReachedSet(
       AbstractState initialState, Precision initialPrecision, Block context) {
+    for (ReachedSet evicted : bamCache.evictColdEntries()) {
+      forgetEvictedReachedSet(evicted);
+    }
     final ReachedSet reached = reachedSetFactory.create();
     reached.add(initialState, initialPrecision);
     return bamCache.put(initialState, initialPrecision, context, reached);
   }
 
+  /**
+   * Remove all references to the states of a reached-set that was evicted from the cache, such
+   * that the reached-set can be garbage-collected.
+   *
+   * <p>The states of the reached-set are destroyed. The mapping from block entries in outer
+   * reached-sets to the (now empty) reached-set is kept, such that the missing block is detected
+   * when computing a counterexample through it (cf. {@code BAMSubgraphComputer}) and the block is
+   * analysed again.
+   */
+  private void forgetEvictedReachedSet(ReachedSet pReached) {
+    final Set<AbstractState> states = Sets.newIdentityHashSet();
+    states.addAll(pReached.asCollection());
+    for (AbstractState state : states) {
+      // blocks that were entered from within the evicted block
+      initialStateToReachedSet.row(state).clear();
+      expandedStateToBlockExit.remove(state);
+    }
+    reducedToNonReduced.removeAll(pReached.getFirstState());
+    reducedToNonReduced.values().removeIf(states::contains);
+    for (AbstractState state : states) {
+      if (!((ARGState) state).isDestroyed()) {
+        ((ARGState) state).removeFromARG();
+      }
+    }
+    pReached.clear();
+  }
+
   @Override
   public ReachedSetFactory getReachedSetFactory() {
     return reachedSetFactory;
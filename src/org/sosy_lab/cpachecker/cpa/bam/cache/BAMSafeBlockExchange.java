@@ -0,0 +1,157 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.bam.cache;
+
+import com.google.common.collect.ImmutableList;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.cpachecker.cfa.CFA;
+import org.sosy_lab.cpachecker.cfa.blocks.Block;
+import org.sosy_lab.cpachecker.core.CPAcheckerResult.Result;
+import org.sosy_lab.cpachecker.core.Specification;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.Statistics;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.cpa.automaton.AutomatonState;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+import org.sosy_lab.cpachecker.util.Pair;
+import org.sosy_lab.cpachecker.util.statistics.StatCounter;
+import org.sosy_lab.cpachecker.util.statistics.StatisticsWriter;
+
+/**
+ * Exchange of safe blocks between several BAM analyses that run in the same process on the same
+ * program and specification, e.g., the analyses of {@link
+ * org.sosy_lab.cpachecker.core.algorithm.ParallelAlgorithm}.
+ *
+ * <p>A block is safe for a state of the specification automata if no target state is reachable
+ * inside the block from any entry state with these automaton states. An analysis publishes a block
+ * as safe after it has analysed the block completely, without finding a target state, from a
+ * reduced entry state whose other components (except the callstack) are not stronger than the
+ * reduced initial state of the analysis at the block entry. Any target state that another analysis
+ * finds inside a safe block is infeasible and can be ignored without refinement, but only if the
+ * other analysis entered the block with the same automaton states. The automaton states are
+ * compared by automaton name, internal state and variables, because each analysis may have its own
+ * instances of the automata. Entry states with automaton assumptions are never exchanged.
+ *
+ * <p>A consumer does not check a published block, it trusts the soundness of the publisher. Thus
+ * only sound analyses may publish blocks. An analysis that is bounded (e.g., by loop unrolling or a
+ * limit on the size of the reached set) or otherwise under-approximates the state space must not
+ * enable the exchange, because it could publish blocks that are not safe.
+ *
+ * <p>All analyses that share the CFA object and an equal specification share the set of safe
+ * blocks. Blocks are compared by their content, thus blocks of different block partitionings are
+ * exchanged if they consist of the same nodes.
+ */
+public class BAMSafeBlockExchange implements Statistics {
+
+  // shared sets of safe blocks (with the automaton states at the block entry)
+  // per program and specification
+  private static final Map<CFA, Map<Specification, Set<Pair<Block, ImmutableList<String>>>>>
+      exchanges = new WeakHashMap<>();
+
+  private final Set<Pair<Block, ImmutableList<String>>> safeBlocks;
+
+  private final StatCounter publishedBlocks = new StatCounter("Number of published safe blocks");
+  private final StatCounter ignoredTargetStates =
+      new StatCounter("Number of ignored target states");
+
+  private BAMSafeBlockExchange(Set<Pair<Block, ImmutableList<String>>> pSafeBlocks) {
+    safeBlocks = pSafeBlocks;
+  }
+
+  /** Returns a connection to the exchange for the given program and specification. */
+  public static BAMSafeBlockExchange connect(CFA pCfa, Specification pSpecification) {
+    synchronized (exchanges) {
+      Set<Pair<Block, ImmutableList<String>>> safeBlocks =
+          exchanges
+              .computeIfAbsent(pCfa, k -> new WeakHashMap<>())
+              .computeIfAbsent(pSpecification, k -> ConcurrentHashMap.newKeySet());
+      return new BAMSafeBlockExchange(safeBlocks);
+    }
+  }
+
+  /**
+   * Returns the key of a block for the given reduced entry state, i.e., the block together with the
+   * states of all specification automata at the block entry, or null if the entry state can not be
+   * exchanged.
+   */
+  private static @Nullable Pair<Block, ImmutableList<String>> keyOf(
+      Block pBlock, AbstractState pReducedEntryState) {
+    List<String> automatonStates = new ArrayList<>();
+    for (AutomatonState state :
+        AbstractStates.asIterable(pReducedEntryState).filter(AutomatonState.class)) {
+      if (!state.getAssumptions().isEmpty()) {
+        return null;
+      }
+      automatonStates.add(state.toString());
+    }
+    return Pair.of(pBlock, ImmutableList.sortedCopyOf(automatonStates));
+  }
+
+  /**
+   * Returns whether any analysis has published the block as safe for the automaton states of the
+   * given reduced entry state.
+   */
+  public boolean isSafe(Block pBlock, AbstractState pReducedEntryState) {
+    Pair<Block, ImmutableList<String>> key = keyOf(pBlock, pReducedEntryState);
+    return key != null && safeBlocks.contains(key);
+  }
+
+  /**
+   * Publish a block as safe for the automaton states of the given reduced entry state. The caller
+   * is responsible to have analysed the block completely from this entry state without finding a
+   * target state, and that all other components of the entry state (except the callstack) are
+   * unconstrained.
+   */
+  public void publishSafe(Block pBlock, AbstractState pReducedEntryState) {
+    Pair<Block, ImmutableList<String>> key = keyOf(pBlock, pReducedEntryState);
+    if (key != null && safeBlocks.add(key)) {
+      publishedBlocks.inc();
+    }
+  }
+
+  /** Count a target state that was ignored because it is inside a safe block. */
+  public void targetStateIgnored() {
+    ignoredTargetStates.inc();
+  }
+
+  @Override
+  public void printStatistics(PrintStream pOut, Result pResult, UnmodifiableReachedSet pReached) {
+    StatisticsWriter.writingStatisticsTo(pOut)
+        .put("Number of known safe blocks (per automaton state)", safeBlocks.size())
+        .put(publishedBlocks)
+        .put(ignoredTargetStates);
+  }
+
+  @Override
+  public String getName() {
+    return "BAM safe block exchange";
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.bam.cache;
+
+import static com.google.common.collect.FluentIterable.from;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.nio.file.Paths;
+import org.junit.Test;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.CFA;
+import org.sosy_lab.cpachecker.core.CoreComponentsFactory;
+import org.sosy_lab.cpachecker.core.Specification;
+import org.sosy_lab.cpachecker.core.algorithm.Algorithm;
+import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
+import org.sosy_lab.cpachecker.core.interfaces.StateSpacePartition;
+import org.sosy_lab.cpachecker.core.reachedset.AggregatedReachedSets;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+import org.sosy_lab.cpachecker.util.test.TestDataTools;
+
+/**
+ * Runs two BAM analyses on the same program, one after the other, like the analyses of a parallel
+ * algorithm would do. The first analysis proves a block safe that the second one, which does not
+ * track the relevant variable, could not prove on its own. A block that is safe for one state of
+ * the specification automaton must not be trusted for another state.
+ */
+public class BAMSafeBlockExchangeTest {
+
+  private static final String[] PROGRAM = {
+    "int f() {",
+    "  int x = 1;",
+    "  if (x != 1) {",
+    "    ERROR: return 1;",
+    "  }",
+    "  return 0;",
+    "}",
+    "",
+    "int main() {",
+    "  f();",
+    "  return 0;",
+    "}"
+  };
+
+  private static final String[] DOUBLE_LOCK_PROGRAM = {
+    "extern void lock(void);",
+    "extern void unlock(void);",
+    "",
+    "void f() {",
+    "  lock();",
+    "  unlock();",
+    "}",
+    "",
+    "int main() {",
+    "  f();",
+    "  lock();",
+    "  f();",
+    "  unlock();",
+    "  return 0;",
+    "}"
+  };
+
+  private static final String SPECIFICATION = "config/specification/default.spc";
+  private static final String DOUBLE_LOCK_SPECIFICATION =
+      "test/config/automata/DoubleLockAutomaton.spc";
+
+  private final LogManager logger = LogManager.createTestLogManager();
+  private final ShutdownNotifier shutdownNotifier = ShutdownNotifier.createDummy();
+
+  private Configuration configuration(boolean pExchange, boolean pTrackX) throws Exception {
+    return configuration(pExchange, pTrackX, SPECIFICATION);
+  }
+
+  private Configuration configuration(boolean pExchange, boolean pTrackX, String pSpecification)
+      throws Exception {
+    return TestDataTools.configurationForTest()
+        .setOption("cpa", "cpa.bam.BAMCPA")
+        .setOption("BAMCPA.cpa", "cpa.arg.ARGCPA")
+        .setOption("ARGCPA.cpa", "cpa.composite.CompositeCPA")
+        .setOption(
+            "CompositeCPA.cpas",
+            "cpa.location.LocationCPA, cpa.callstack.CallstackCPA, cpa.value.ValueAnalysisCPA")
+        .setOption("cpa.bam.blockHeuristic", "FunctionPartitioning")
+        .setOption("cpa.bam.exchangeSafeBlocks", Boolean.toString(pExchange))
+        .setOption("ValueAnalysisCPA.precision.variableBlacklist", pTrackX ? "" : "f::x")
+        .setOption("specification", pSpecification)
+        .build();
+  }
+
+  private boolean hasTargetState(Configuration pConfig, CFA pCfa) throws Exception {
+    return hasTargetState(pConfig, pCfa, SPECIFICATION);
+  }
+
+  private boolean hasTargetState(Configuration pConfig, CFA pCfa, String pSpecification)
+      throws Exception {
+    Specification spec =
+        Specification.fromFiles(
+            ImmutableSet.of(),
+            ImmutableList.of(Paths.get(pSpecification)),
+            pCfa,
+            pConfig,
+            logger,
+            shutdownNotifier);
+    CoreComponentsFactory factory =
+        new CoreComponentsFactory(pConfig, logger, shutdownNotifier, new AggregatedReachedSets());
+    ConfigurableProgramAnalysis cpa = factory.createCPA(pCfa, spec);
+    Algorithm algorithm = factory.createAlgorithm(cpa, pCfa, spec);
+    ReachedSet reached = factory.createReachedSet();
+    reached.add(
+        cpa.getInitialState(pCfa.getMainFunction(), StateSpacePartition.getDefaultPartition()),
+        cpa.getInitialPrecision(pCfa.getMainFunction(), StateSpacePartition.getDefaultPartition()));
+    algorithm.run(reached);
+    return from(reached).anyMatch(AbstractStates::isTargetState);
+  }
+
+  @Test
+  public void impreciseAnalysisFindsTargetWithoutExchange() throws Exception {
+    Configuration config = configuration(false, false);
+    assertThat(hasTargetState(config, TestDataTools.makeCFA(config, PROGRAM))).isTrue();
+  }
+
+  @Test
+  public void consumerIgnoresTargetInPublishedBlock() throws Exception {
+    Configuration precise = configuration(true, true);
+    Configuration imprecise = configuration(true, false);
+    CFA cfa = TestDataTools.makeCFA(precise, PROGRAM);
+
+    assertThat(hasTargetState(precise, cfa)).isFalse();
+    assertThat(hasTargetState(imprecise, cfa)).isFalse();
+  }
+
+  @Test
+  public void exchangeIsSeparatedPerProgram() throws Exception {
+    Configuration precise = configuration(true, true);
+    Configuration imprecise = configuration(true, false);
+
+    assertThat(hasTargetState(precise, TestDataTools.makeCFA(precise, PROGRAM))).isFalse();
+    assertThat(hasTargetState(imprecise, TestDataTools.makeCFA(imprecise, PROGRAM))).isTrue();
+  }
+
+  @Test
+  public void blockIsNotSafeForOtherAutomatonState() throws Exception {
+    // f is proven safe when entered in the initial automaton state "Unlocked",
+    // but the second call enters f in state "Locked" and locks twice
+    Configuration config = configuration(true, true, DOUBLE_LOCK_SPECIFICATION);
+    CFA cfa = TestDataTools.makeCFA(config, DOUBLE_LOCK_PROGRAM);
+    assertThat(hasTargetState(config, cfa, DOUBLE_LOCK_SPECIFICATION)).isTrue();
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.Classes.UnexpectedCheckedException;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.IntegerOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.util.predicates.smt.BooleanFormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.smt.FormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.smt.Solver;
+import org.sosy_lab.java_smt.api.BasicProverEnvironment.AllSatCallback;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/**
+ * Computes the solver queries of predicate abstraction with a pool of threads, each of which owns
+ * its own {@link Solver} instance. Formulas are transferred to the solvers of the threads by
+ * dumping them in the main thread and parsing the dump in the threads.
+ *
+ * <p>An abstraction problem is given as the abstracted formula, the conjunction of the predicate
+ * definitions (<code>var &lt;-&gt; def</code>), and the list of predicate variables. Results refer
+ * to predicates by their index in this list, such that the regions can be created by the caller
+ * (region managers are not thread-safe).
+ */
+@Options(prefix = "cpa.predicate.abstraction.parallel")
+final class ParallelAbstractionComputer implements AutoCloseable {
+
+  @Option(
+      secure = true,
+      description =
+          "number of threads (each with its own solver instance) that are used for computing "
+              + "an abstraction (1 for computing abstractions sequentially)")
+  @IntegerOption(min = 1)
+  private int threads = 1;
+
+  @Option(
+      secure = true,
+      description =
+          "minimal number of predicates for which an abstraction is computed in parallel, "
+              + "abstractions with fewer predicates are computed sequentially")
+  @IntegerOption(min = 1)
+  private int minPredicates = 16;
+
+  private final FormulaManagerView fmgr;
+  private final List<Worker> workers;
+  private final BlockingQueue<Worker> idleWorkers;
+  private final ExecutorService pool;
+
+  /**
+   * Create an instance if parallel abstraction is enabled in the configuration.
+   *
+   * @return null if abstractions should be computed sequentially
+   */
+  static @Nullable ParallelAbstractionComputer create(
+      FormulaManagerView pFmgr,
+      Configuration pConfig,
+      LogManager pLogger,
+      ShutdownNotifier pShutdownNotifier)
+      throws InvalidConfigurationException {
+    ParallelAbstractionComputer computer = new ParallelAbstractionComputer(pFmgr, pConfig);
+    if (computer.threads <= 1) {
+      return null;
+    }
+    computer.start(pConfig, pLogger, pShutdownNotifier);
+    return computer;
+  }
+
+  private ParallelAbstractionComputer(FormulaManagerView pFmgr, Configuration pConfig)
+      throws InvalidConfigurationException {
+    pConfig.inject(this);
+    fmgr = pFmgr;
+    workers = new ArrayList<>(threads);
+    idleWorkers = new ArrayBlockingQueue<>(threads);
+    pool =
+        Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder()
+                .setDaemon(true) // for killing hanging threads at program exit
+                .setNameFormat("PredicateAbstraction-thread-%d")
+                .build());
+  }
+
+  private void start(Configuration pConfig, LogManager pLogger, ShutdownNotifier pShutdownNotifier)
+      throws InvalidConfigurationException {
+    try {
+      for (int i = 0; i < threads; i++) {
+        Worker worker = new Worker(Solver.create(pConfig, pLogger, pShutdownNotifier));
+        workers.add(worker);
+        idleWorkers.add(worker);
+      }
+    } catch (InvalidConfigurationException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /** Whether an abstraction with the given number of predicates should be computed in parallel. */
+  boolean shouldComputeInParallel(int pNumPredicates) {
+    return pNumPredicates >= minPredicates;
+  }
+
+  /**
+   * Determine for each predicate whether it is implied by the formula (1), whether its negation is
+   * implied (-1), or neither (0). The formula is expected to be satisfiable.
+   *
+   * @param f The formula to abstract.
+   * @param predDef The conjunction of the definitions of all predicate variables.
+   * @param predVars The predicate variables.
+   * @return The value for each predicate, in the order of predVars.
+   */
+  byte[] computeCartesianValues(
+      BooleanFormula f, BooleanFormula predDef, List<BooleanFormula> predVars)
+      throws SolverException, InterruptedException {
+    final Problem problem = new Problem(f, predDef, predVars);
+    final byte[] values = new byte[predVars.size()];
+
+    // more chunks than threads for balancing the load
+    int numChunks = Math.min(2 * threads, predVars.size());
+    List<Callable<Void>> tasks = new ArrayList<>(numChunks);
+    for (int chunk = 0; chunk < numChunks; chunk++) {
+      final int from = chunk * predVars.size() / numChunks;
+      final int to = (chunk + 1) * predVars.size() / numChunks;
+      tasks.add(
+          () -> {
+            runOnWorker(
+                problem,
+                (worker, vars, prover) -> {
+                  for (int i = from; i < to; i++) {
+                    BooleanFormula var = vars.get(i);
+                    prover.push(worker.bfmgr.not(var));
+                    boolean isTrue = prover.isUnsat();
+                    prover.pop();
+                    if (isTrue) {
+                      values[i] = 1;
+                      continue;
+                    }
+                    prover.push(var);
+                    boolean isFalse = prover.isUnsat();
+                    prover.pop();
+                    values[i] = isFalse ? (byte) -1 : (byte) 0;
+                  }
+                  return null;
+                });
+            return null;
+          });
+    }
+
+    for (Future<Void> result : invokeAll(tasks)) {
+      getResult(result);
+    }
+    return values;
+  }
+
+  /**
+   * Enumerate all models of the formula projected to the predicate variables (like {@link
+   * ProverEnvironment#allSat}). The search space is split into disjoint cubes over the first
+   * predicate variables, and the models of each cube are enumerated independently, thus the result
+   * is exactly the same as with a sequential enumeration.
+   *
+   * @param f The formula to abstract.
+   * @param predDef The conjunction of the definitions of all predicate variables.
+   * @param predVars The predicate variables.
+   * @return The models, each represented as array of literals, where a literal is the index of a
+   *     predicate variable plus one, negated for negative literals.
+   */
+  List<int[]> computeModels(BooleanFormula f, BooleanFormula predDef, List<BooleanFormula> predVars)
+      throws SolverException, InterruptedException {
+    final Problem problem = new Problem(f, predDef, predVars);
+
+    // 2^k cubes, at least twice as many as threads for balancing the load
+    final int k = Math.min(32 - Integer.numberOfLeadingZeros(2 * threads - 1), predVars.size());
+    List<Callable<List<int[]>>> tasks = new ArrayList<>(1 << k);
+    for (int cube = 0; cube < (1 << k); cube++) {
+      final int currentCube = cube;
+      tasks.add(
+          () ->
+              runOnWorker(
+                  problem,
+                  (worker, vars, prover) -> {
+                    for (int i = 0; i < k; i++) {
+                      BooleanFormula var = vars.get(i);
+                      prover.push((currentCube & (1 << i)) != 0 ? var : worker.bfmgr.not(var));
+                    }
+                    return prover.allSat(new ModelCollector(worker.fmgr, vars), vars);
+                  }));
+    }
+
+    List<int[]> models = new ArrayList<>();
+    for (Future<List<int[]>> result : invokeAll(tasks)) {
+      models.addAll(getResult(result));
+    }
+    return models;
+  }
+
+  private <T> List<Future<T>> invokeAll(List<Callable<T>> pTasks) throws InterruptedException {
+    checkArgument(!pTasks.isEmpty());
+    return pool.invokeAll(pTasks);
+  }
+
+  private static <T> T getResult(Future<T> pFuture) throws SolverException, InterruptedException {
+    try {
+      return pFuture.get();
+    } catch (ExecutionException e) {
+      Throwable t = e.getCause();
+      Throwables.propagateIfPossible(t, SolverException.class, InterruptedException.class);
+      throw new UnexpectedCheckedException("parallel abstraction computation", t);
+    }
+  }
+
+  private <T> T runOnWorker(Problem pProblem, Query<T> pQuery)
+      throws SolverException, InterruptedException {
+    Worker worker = idleWorkers.take();
+    try {
+      return worker.run(pProblem, pQuery);
+    } finally {
+      idleWorkers.add(worker);
+    }
+  }
+
+  /**
+   * Shut down the threads and close the solvers. Solvers that are still in use by a hanging thread
+   * are not closed.
+   */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+    Worker worker;
+    while ((worker = idleWorkers.poll()) != null) {
+      worker.solver.close();
+    }
+  }
+
+  /** Abstraction problem in a form that can be transferred to other solver instances. */
+  private final class Problem {
+    private final String formulaDump;
+    private final ImmutableList<String> predVarNames;
+
+    private Problem(BooleanFormula pF, BooleanFormula pPredDef, List<BooleanFormula> pPredVars) {
+      formulaDump = fmgr.dumpFormula(fmgr.getBooleanFormulaManager().and(pF, pPredDef)).toString();
+      ImmutableList.Builder<String> names = ImmutableList.builderWithExpectedSize(pPredVars.size());
+      for (BooleanFormula var : pPredVars) {
+        names.add(Iterables.getOnlyElement(fmgr.extractVariableNames(var)));
+      }
+      predVarNames = names.build();
+    }
+  }
+
+  @FunctionalInterface
+  private static interface Query<T> {
+    T run(Worker worker, List<BooleanFormula> predVars, ProverEnvironment prover)
+        throws SolverException, InterruptedException;
+  }
+
+  private static final class Worker {
+    private final Solver solver;
+    private final FormulaManagerView fmgr;
+    private final BooleanFormulaManagerView bfmgr;
+
+    // parsed version of the last problem, because usually each thread handles several tasks of it
+    private @Nullable Problem lastProblem = null;
+    private @Nullable BooleanFormula formula = null;
+    private @Nullable List<BooleanFormula> predVars = null;
+
+    private Worker(Solver pSolver) {
+      solver = pSolver;
+      fmgr = pSolver.getFormulaManager();
+      bfmgr = fmgr.getBooleanFormulaManager();
+    }
+
+    private <T> T run(Problem pProblem, Query<T> pQuery)
+        throws SolverException, InterruptedException {
+      if (pProblem != lastProblem) {
+        formula = fmgr.parse(pProblem.formulaDump);
+        List<BooleanFormula> vars = new ArrayList<>(pProblem.predVarNames.size());
+        for (String name : pProblem.predVarNames) {
+          vars.add(bfmgr.makeVariable(name));
+        }
+        predVars = vars;
+        lastProblem = pProblem;
+      }
+
+      try (ProverEnvironment prover = solver.newProverEnvironment(ProverOptions.GENERATE_ALL_SAT)) {
+        prover.push(formula);
+        return pQuery.run(this, predVars, prover);
+      }
+    }
+  }
+
+  /** Collects the models of an AllSAT enumeration as literals of predicate indices. */
+  private static final class ModelCollector implements AllSatCallback<List<int[]>> {
+
+    private final FormulaManagerView fmgr;
+    private final Map<BooleanFormula, Integer> indices;
+    private final List<int[]> models = new ArrayList<>();
+
+    private ModelCollector(FormulaManagerView pFmgr, List<BooleanFormula> pPredVars) {
+      fmgr = pFmgr;
+      indices = new HashMap<>(pPredVars.size());
+      for (int i = 0; i < pPredVars.size(); i++) {
+        indices.put(pPredVars.get(i), i + 1);
+      }
+    }
+
+    @Override
+    public void apply(List<BooleanFormula> pModel) {
+      int[] literals = new int[pModel.size()];
+      for (int i = 0; i < literals.length; i++) {
+        BooleanFormula literal = pModel.get(i);
+        Optional<BooleanFormula> inner = fmgr.stripNegation(literal);
+        int index = indices.get(inner.orElse(literal));
+        literals[i] = inner.isPresent() ? -index : index;
+      }
+      models.add(literals);
+    }
+
+    @Override
+    public List<int[]> getResult() {
+      return models;
+    }
+  }
+}
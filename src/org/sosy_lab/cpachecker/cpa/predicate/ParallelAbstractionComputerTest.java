@@ -0,0 +1,168 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.predicate;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.cpachecker.util.predicates.smt.SolverViewBasedTest0;
+import org.sosy_lab.java_smt.api.BasicProverEnvironment.AllSatCallback;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
+
+public class ParallelAbstractionComputerTest extends SolverViewBasedTest0 {
+
+  private ParallelAbstractionComputer computer;
+
+  private BooleanFormula formula;
+  private BooleanFormula predDef;
+  private List<BooleanFormula> predVars;
+  private List<BooleanFormula> predicates;
+
+  @Before
+  public void setUp() throws Exception {
+    Configuration parallelConfig =
+        Configuration.builder()
+            .copyFrom(config)
+            .setOption("solver.solver", solverToUse().name())
+            .setOption("cpa.predicate.abstraction.parallel.threads", "3")
+            .build();
+    computer =
+        ParallelAbstractionComputer.create(
+            mgrv, parallelConfig, logger, ShutdownNotifier.createDummy());
+
+    IntegerFormula x = imgrv.makeVariable("x");
+    IntegerFormula y = imgrv.makeVariable("y");
+    IntegerFormula z = imgrv.makeVariable("z");
+    // x = 2 & y > x & (z = 0 | z = 1)
+    formula =
+        bmgrv.and(
+            imgrv.equal(x, imgrv.makeNumber(2)),
+            imgrv.greaterThan(y, x),
+            bmgrv.or(
+                imgrv.equal(z, imgrv.makeNumber(0)), imgrv.equal(z, imgrv.makeNumber(1))));
+
+    predicates = new ArrayList<>();
+    predicates.add(imgrv.greaterThan(x, imgrv.makeNumber(0))); // implied
+    predicates.add(imgrv.greaterThan(x, imgrv.makeNumber(5))); // negation implied
+    predicates.add(imgrv.greaterThan(y, imgrv.makeNumber(3))); // unknown
+    predicates.add(imgrv.greaterThan(y, x)); // implied
+    predicates.add(imgrv.equal(z, imgrv.makeNumber(0))); // unknown
+    predicates.add(imgrv.equal(z, imgrv.makeNumber(1))); // unknown
+
+    predVars = new ArrayList<>();
+    List<BooleanFormula> definitions = new ArrayList<>();
+    for (int i = 0; i < predicates.size(); i++) {
+      BooleanFormula var = bmgrv.makeVariable("PRED" + i);
+      predVars.add(var);
+      definitions.add(bmgrv.equivalence(var, predicates.get(i)));
+    }
+    predDef = bmgrv.and(definitions);
+  }
+
+  @After
+  public void closeComputer() {
+    if (computer != null) {
+      computer.close();
+    }
+  }
+
+  @Test
+  public void testCartesianAbstractionEqualsSequential() throws Exception {
+    assertThat(computer).isNotNull();
+    byte[] parallel = computer.computeCartesianValues(formula, predDef, predVars);
+
+    byte[] sequential = new byte[predicates.size()];
+    for (int i = 0; i < predicates.size(); i++) {
+      if (solver.implies(formula, predicates.get(i))) {
+        sequential[i] = 1;
+      } else if (solver.implies(formula, bmgrv.not(predicates.get(i)))) {
+        sequential[i] = -1;
+      }
+    }
+
+    assertThat(parallel).isEqualTo(sequential);
+    assertThat(parallel).isEqualTo(new byte[] {1, -1, 0, 1, 0, 0});
+  }
+
+  @Test
+  public void testBooleanAbstractionEqualsSequential() throws Exception {
+    assertThat(computer).isNotNull();
+    Set<List<Integer>> parallel = new HashSet<>();
+    for (int[] model : computer.computeModels(formula, predDef, predVars)) {
+      parallel.add(sortedLiterals(model));
+    }
+
+    Set<List<Integer>> sequential;
+    try (ProverEnvironment prover =
+        solver.newProverEnvironment(ProverOptions.GENERATE_ALL_SAT)) {
+      prover.push(bmgrv.and(formula, predDef));
+      sequential =
+          prover.allSat(
+              new AllSatCallback<Set<List<Integer>>>() {
+                private final Set<List<Integer>> models = new HashSet<>();
+
+                @Override
+                public void apply(List<BooleanFormula> pModel) {
+                  int[] literals = new int[pModel.size()];
+                  for (int i = 0; i < literals.length; i++) {
+                    BooleanFormula literal = pModel.get(i);
+                    int index = predVars.indexOf(mgrv.stripNegation(literal).orElse(literal)) + 1;
+                    literals[i] = mgrv.stripNegation(literal).isPresent() ? -index : index;
+                  }
+                  models.add(sortedLiterals(literals));
+                }
+
+                @Override
+                public Set<List<Integer>> getResult() {
+                  return models;
+                }
+              },
+              predVars);
+    }
+
+    assertThat(parallel).isEqualTo(sequential);
+    // z = 0 or z = 1, and y > 3 or not
+    assertThat(parallel).hasSize(4);
+  }
+
+  private static List<Integer> sortedLiterals(int[] pLiterals) {
+    int[] sorted = pLiterals.clone();
+    Arrays.sort(sorted);
+    return ImmutableList.copyOf(Ints.asList(sorted));
+  }
+}
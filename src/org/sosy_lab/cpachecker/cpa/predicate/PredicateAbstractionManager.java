@@ -29,10 +29,15 @@ import static com.google.common.base.Predicates.equalTo;
 import com.google.common.base.Functions;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.charset.Charset;
@@ -41,9 +46,8 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -57,6 +61,7 @@ import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.common.collect.Collections3;
 import org.sosy_lab.common.configuration.Configuration;
 import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.IntegerOption;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
@@ -69,10 +74,12 @@ import org.sosy_lab.cpachecker.cfa.model.CFANode;
 import org.sosy_lab.cpachecker.core.algorithm.invariants.InvariantSupplier;
 import org.sosy_lab.cpachecker.core.algorithm.invariants.InvariantSupplier.TrivialInvariantSupplier;
 import org.sosy_lab.cpachecker.cpa.callstack.CallstackStateEqualsWrapper;
+import org.sosy_lab.cpachecker.cpa.predicate.persistence.PersistentAbstractionCache;
 import org.sosy_lab.cpachecker.cpa.predicate.persistence.PredicateAbstractionsStorage;
 import org.sosy_lab.cpachecker.cpa.predicate.persistence.PredicateAbstractionsStorage.AbstractionNode;
 import org.sosy_lab.cpachecker.cpa.predicate.persistence.PredicatePersistenceUtils.PredicateParsingFailedException;
 import org.sosy_lab.cpachecker.util.Pair;
+import org.sosy_lab.cpachecker.util.jfr.AbstractionEvent;
 import org.sosy_lab.cpachecker.util.predicates.AbstractionFormula;
 import org.sosy_lab.cpachecker.util.predicates.AbstractionManager;
 import org.sosy_lab.cpachecker.util.predicates.AbstractionPredicate;
@@ -88,17 +95,34 @@ import org.sosy_lab.cpachecker.util.predicates.smt.FormulaManagerView;
 import org.sosy_lab.cpachecker.util.predicates.smt.Solver;
 import org.sosy_lab.cpachecker.util.predicates.weakening.InductiveWeakeningManager;
 import org.sosy_lab.cpachecker.util.statistics.StatTimer;
+import org.sosy_lab.cpachecker.util.statistics.StatisticsUtils;
 import org.sosy_lab.java_smt.api.BasicProverEnvironment.AllSatCallback;
 import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Formula;
 import org.sosy_lab.java_smt.api.ProverEnvironment;
 import org.sosy_lab.java_smt.api.SolverContext.ProverOptions;
 import org.sosy_lab.java_smt.api.SolverException;
+import org.sosy_lab.java_smt.api.visitors.DefaultFormulaVisitor;
+import org.sosy_lab.java_smt.api.visitors.TraversalProcess;
 
 @Options(prefix = "cpa.predicate")
 public class PredicateAbstractionManager {
 
   static class Stats {
 
+    static class CacheCounters {
+      public int hits = 0;
+      public int misses = 0;
+      public int evictions = 0; // including entries collected by the garbage collector
+
+      @Override
+      public String toString() {
+        return String.format(
+            "%d hits, %d misses, %d evictions (hit rate: %s)",
+            hits, misses, evictions, StatisticsUtils.toPercent(hits, hits + misses));
+      }
+    }
+
     public int numCallsAbstraction = 0; // total calls
     public int numAbstractionReuses = 0; // total reuses
 
@@ -115,6 +139,7 @@ public class PredicateAbstractionManager {
     public int numCartesianAbsPredicates = 0;
     public int numCartesianAbsPredicatesCached = 0;
     public int numBooleanAbsPredicates = 0;
+    public int numParallelAbstractions = 0;
     public final Timer abstractionReuseTime = new Timer();
     public final StatTimer abstractionReuseImplicationTime = new StatTimer("Time for checking reusability of abstractions");
     public final Timer trivialPredicatesTime = new Timer();
@@ -124,9 +149,23 @@ public class PredicateAbstractionManager {
     public final Timer booleanAbstractionTime = new Timer();
     public final NestedTimer abstractionEnumTime = new NestedTimer(); // outer: solver time, inner: bdd time
     public final Timer abstractionSolveTime = new Timer(); // only the time for solving, not for model enumeration
+    public final Timer proverSetupTime = new Timer(); // creating prover and asserting the formula
+    public int numProverReuses = 0;
+    public int numReusedProverLevels = 0; // asserted formulas that were kept in a reused prover
 
     public long allSatCount = 0;
     public int maxAllSatCount = 0;
+
+    public final CacheCounters abstractionCache = new CacheCounters();
+    public final CacheCounters unsatisfiabilityCache = new CacheCounters();
+    public final CacheCounters cartesianAbstractionCache = new CacheCounters();
+
+    public int numPersistentCacheLoaded = 0; // entries present at start
+    public int numPersistentCacheHits = 0;
+    public int numPersistentCacheWarmHits = 0; // hits of entries from previous runs
+    public int numPersistentCacheMisses = 0;
+    public int numPersistentCacheWritten = 0;
+    public final Timer persistentCacheTime = new Timer();
   }
 
   final Stats stats = new Stats();
@@ -174,9 +213,72 @@ public class PredicateAbstractionManager {
   @Option(secure=true, description = "Max. number of edge of the abstraction tree to prescan for reuse")
   private int maxAbstractionReusePrescan = 1;
 
+  @Option(
+      secure = true,
+      name = "abstraction.reuseProvers",
+      description =
+          "keep a prover environment for each abstraction location alive across abstraction "
+              + "computations, and pop and push only those formulas that differ from "
+              + "the ones of the previous abstraction at the same location")
+  private boolean reuseProvers = false;
+
+  @Option(
+      secure = true,
+      name = "abstraction.maxReusedProvers",
+      description =
+          "maximum number of prover environments that are kept alive "
+              + "for abstraction.reuseProvers, the oldest ones are closed first")
+  @IntegerOption(min = 1)
+  private int maxReusedProvers = 32;
+
   @Option(secure=true, name = "abs.useCache", description = "use caching of abstractions")
   private boolean useCache = true;
 
+  @Option(
+      secure = true,
+      name = "abs.cache.maxFormulaSize",
+      description =
+          "maximum total size (estimated as number of formula nodes) of the formulas that are "
+              + "kept alive by the abstraction cache and the unsatisfiability cache. "
+              + "Least-recently used entries are evicted first (0 for no limit).")
+  @IntegerOption(min = 0)
+  private long maxCachedFormulaSize = 0;
+
+  @Option(
+      secure = true,
+      name = "abs.cache.maxCartesianEntries",
+      description =
+          "maximum number of entries of the cache for cartesian abstraction, "
+              + "least-recently used entries are evicted first (0 for no limit)")
+  @IntegerOption(min = 0)
+  private long maxCartesianCacheEntries = 0;
+
+  @Option(
+      secure = true,
+      name = "abs.cache.softValues",
+      description =
+          "reference the results in the abstraction cache only softly, "
+              + "such that the garbage collector can drop them if memory gets low")
+  private boolean softCacheValues = false;
+
+  @Option(
+      secure = true,
+      name = "abs.persistentCache.file",
+      description =
+          "file with a cache of abstraction results that is kept across runs of CPAchecker. "
+              + "Before the solver is used for an abstraction, the result is looked up "
+              + "by a hash of the formula and the predicates, "
+              + "and new results are appended to the file. "
+              + "The cache is not used if invariants are added to abstraction formulas.")
+  @FileOption(FileOption.Type.OPTIONAL_INPUT_FILE)
+  private @Nullable Path persistentCacheFile = null;
+
+  @Option(
+      secure = true,
+      name = "abs.persistentCache.readOnly",
+      description = "do not add new abstraction results to the persistent abstraction cache")
+  private boolean persistentCacheReadOnly = false;
+
   @Option(secure=true, name="refinement.splitItpAtoms",
       description="split each arithmetic equality into two inequalities when extracting predicates from interpolants")
   private boolean splitItpAtoms = false;
@@ -193,16 +295,25 @@ public class PredicateAbstractionManager {
 
   private boolean abstractionReuseDisabledBecauseOfAmbiguity = false;
 
-  private final Map<Pair<BooleanFormula, ImmutableSet<BooleanFormula>>, AbstractionFormula>
-      abstractionCache;
-
-  // Cache for satisfiability queries: if formula is contained, it is unsat
-  private final Set<BooleanFormula> unsatisfiabilityCache;
+  // Cache for abstractions (key: Pair of formula and instantiated predicates)
+  // and for satisfiability queries (key: formula, if it is contained, it is unsat).
+  // Both kinds of entries are kept in one cache such that they share one size limit.
+  private final Cache<Object, Object> formulaCache;
 
   //cache for cartesian abstraction queries. For each predicate, the values
   // are -1: predicate is false, 0: predicate is don't care,
   // 1: predicate is true
-  private final Map<Pair<BooleanFormula, AbstractionPredicate>, Byte> cartesianAbstractionCache;
+  private final Cache<Pair<BooleanFormula, AbstractionPredicate>, Byte> cartesianAbstractionCache;
+
+  // null if not configured or not available
+  private @Nullable PersistentAbstractionCache persistentCache = null;
+
+  // null if abstractions are computed sequentially
+  private final @Nullable ParallelAbstractionComputer parallelAbstraction;
+
+  // Provers for abstractions at each location, null if disabled.
+  // A prover is removed from the map while it is in use.
+  private final @Nullable Map<CFANode, ReusableProver> reusableProvers;
 
   public PredicateAbstractionManager(
       AbstractionManager pAmgr,
@@ -240,20 +351,149 @@ public class PredicateAbstractionManager {
     }
 
     if (useCache) {
-      abstractionCache = new HashMap<>();
-      unsatisfiabilityCache = new HashSet<>();
+      // The predicates in the key of the abstraction cache are kept alive by the precision anyway.
+      CacheBuilder<Object, Object> formulaCacheBuilder =
+          newCacheBuilder(
+              0,
+              key ->
+                  key instanceof Pair ? stats.abstractionCache : stats.unsatisfiabilityCache);
+      if (maxCachedFormulaSize > 0) {
+        formulaCacheBuilder
+            .maximumWeight(maxCachedFormulaSize)
+            .weigher((Object key, Object value) -> estimateFormulaSize(getCachedFormula(key)));
+      }
+      if (softCacheValues) {
+        // the values of the unsatisfiability cache are the constant TRUE and are never collected
+        formulaCacheBuilder.softValues();
+      }
+      formulaCache = formulaCacheBuilder.build();
     } else {
-      abstractionCache = null;
-      unsatisfiabilityCache = null;
+      formulaCache = null;
     }
 
     if (useCache && (abstractionType != AbstractionType.BOOLEAN)) {
-      cartesianAbstractionCache = new HashMap<>();
+      cartesianAbstractionCache =
+          newCacheBuilder(maxCartesianCacheEntries, key -> stats.cartesianAbstractionCache)
+              .build();
     } else {
       cartesianAbstractionCache = null;
     }
 
     abstractionStorage = new PredicateAbstractionsStorage(reuseAbstractionsFrom, logger, fmgr, null);
+
+    parallelAbstraction =
+        ParallelAbstractionComputer.create(fmgr, pConfig, pLogger, pShutdownNotifier);
+
+    if (reuseProvers) {
+      reusableProvers =
+          new LinkedHashMap<CFANode, ReusableProver>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CFANode, ReusableProver> pEldest) {
+              if (size() > maxReusedProvers) {
+                pEldest.getValue().close();
+                return true;
+              }
+              return false;
+            }
+          };
+    } else {
+      reusableProvers = null;
+    }
+
+    if (persistentCacheFile != null
+        && invariantSupplier != TrivialInvariantSupplier.INSTANCE) {
+      // the results would contain invariants that are specific to this program and run
+      logger.log(
+          Level.WARNING,
+          "Persistent abstraction cache cannot be used together with invariants"
+              + " in abstraction formulas, not using it.");
+    } else if (persistentCacheFile != null) {
+      try {
+        persistentCache =
+            PersistentAbstractionCache.open(persistentCacheFile, persistentCacheReadOnly, logger);
+      } catch (IOException e) {
+        logger.logUserException(
+            Level.WARNING, e, "Could not open persistent abstraction cache, not using it");
+      }
+      if (persistentCache != null) {
+        stats.numPersistentCacheLoaded = persistentCache.getLoadedEntries();
+      }
+    }
+  }
+
+  /**
+   * Release resources like the file of the persistent abstraction cache
+   * and the solvers used for parallel abstraction.
+   */
+  public void close() {
+    if (reusableProvers != null) {
+      reusableProvers.values().forEach(ReusableProver::close);
+      reusableProvers.clear();
+    }
+    if (parallelAbstraction != null) {
+      parallelAbstraction.close();
+    }
+    closePersistentCache();
+  }
+
+  /** Close the file of the persistent abstraction cache and stop using the cache. */
+  private void closePersistentCache() {
+    if (persistentCache != null) {
+      try {
+        persistentCache.close();
+      } catch (IOException e) {
+        logger.logUserException(Level.WARNING, e, "Could not close persistent abstraction cache");
+      }
+      persistentCache = null;
+    }
+  }
+
+  private static CacheBuilder<Object, Object> newCacheBuilder(
+      long pMaximumSize, Function<Object, Stats.CacheCounters> pCountersForKey) {
+    // The caches are accessed by a single thread,
+    // so a single segment gives us precise LRU eviction.
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .removalListener(
+                notification -> {
+                  if (notification.wasEvicted()) {
+                    pCountersForKey.apply(notification.getKey()).evictions++;
+                  }
+                });
+    if (pMaximumSize > 0) {
+      builder.maximumSize(pMaximumSize);
+    }
+    return builder;
+  }
+
+  /** Return the formula of a key of {@link #formulaCache}. */
+  private static BooleanFormula getCachedFormula(Object pKey) {
+    if (pKey instanceof Pair) {
+      return (BooleanFormula) ((Pair<?, ?>) pKey).getFirst();
+    }
+    return (BooleanFormula) pKey;
+  }
+
+  /**
+   * Estimate how much memory a cached formula keeps alive in the solver,
+   * as the number of nodes of its DAG (shared sub-formulas are counted once).
+   * This is only called when a formula is added to a cache.
+   */
+  private int estimateFormulaSize(BooleanFormula f) {
+    int[] size = {0};
+    fmgr.visitRecursively(
+        f,
+        new DefaultFormulaVisitor<TraversalProcess>() {
+          @Override
+          protected TraversalProcess visitDefault(Formula pF) {
+            size[0]++;
+            return TraversalProcess.CONTINUE;
+          }
+        });
+    return size[0];
   }
 
   /**
@@ -293,8 +533,7 @@ public class PredicateAbstractionManager {
 
   public void clear() {
     if (useCache) {
-      abstractionCache.clear();
-      unsatisfiabilityCache.clear();
+      formulaCache.invalidateAll();
     }
   }
   /**
@@ -314,6 +553,22 @@ public class PredicateAbstractionManager {
       final PathFormula pathFormula,
       final Collection<AbstractionPredicate> pPredicates)
       throws SolverException, InterruptedException {
+    AbstractionEvent event = AbstractionEvent.start();
+    try {
+      return buildAbstraction0(
+          location, callstackInformation, abstractionFormula, pathFormula, pPredicates);
+    } finally {
+      event.commit(location, pPredicates.size());
+    }
+  }
+
+  private AbstractionFormula buildAbstraction0(
+      final CFANode location,
+      Optional<CallstackStateEqualsWrapper> callstackInformation,
+      final AbstractionFormula abstractionFormula,
+      final PathFormula pathFormula,
+      final Collection<AbstractionPredicate> pPredicates)
+      throws SolverException, InterruptedException {
 
     stats.numCallsAbstraction++;
 
@@ -353,10 +608,19 @@ public class PredicateAbstractionManager {
     final Collection<AbstractionPredicate> remainingPredicates =
         getRelevantPredicates(pPredicates, primaryFormula, instantiator);
 
+    // the parts of primaryFormula, asserted separately by reused provers
+    final List<BooleanFormula> constraints = new ArrayList<>(3);
+    constraints.add(absFormula);
+    constraints.add(symbFormula);
+
     if (fmgr.useBitwiseAxioms()) {
+      BooleanFormula formulaWithoutAxioms = primaryFormula;
       for (AbstractionPredicate predicate : remainingPredicates) {
         primaryFormula = pfmgr.addBitwiseAxiomsIfNeeded(primaryFormula, predicate.getSymbolicAtom());
       }
+      if (primaryFormula != formulaWithoutAxioms) {
+        constraints.add(primaryFormula);
+      }
     }
 
     final BooleanFormula f = primaryFormula;
@@ -368,9 +632,10 @@ public class PredicateAbstractionManager {
           Collections3.transformedImmutableSetCopy(
               remainingPredicates, pred -> instantiator.apply(pred.getSymbolicAtom()));
       absKey = Pair.of(f, instantiatedPreds);
-      AbstractionFormula result = abstractionCache.get(absKey);
+      AbstractionFormula result = (AbstractionFormula) formulaCache.getIfPresent(absKey);
 
       if (result != null) {
+        stats.abstractionCache.hits++;
         // create new abstraction object to have a unique abstraction id
 
         // instantiate the formula with the current indices
@@ -385,8 +650,9 @@ public class PredicateAbstractionManager {
         return result;
       }
 
-      boolean unsatisfiable = unsatisfiabilityCache.contains(symbFormula)
-                            || unsatisfiabilityCache.contains(f);
+      stats.abstractionCache.misses++;
+
+      boolean unsatisfiable = isCachedUnsat(symbFormula) || isCachedUnsat(f);
       if (unsatisfiable) {
         // block is infeasible
         logger.log(Level.FINEST, "Block feasibility of abstraction", stats.numCallsAbstraction, "was cached and is false.");
@@ -397,6 +663,31 @@ public class PredicateAbstractionManager {
       }
     }
 
+    HashCode persistentKey = null;
+    if (persistentCache != null) {
+      stats.persistentCacheTime.start();
+      try {
+        persistentKey =
+            PersistentAbstractionCache.keyOf(
+                fmgr.dumpFormula(f).toString(),
+                Collections2.transform(
+                    remainingPredicates,
+                    pred -> fmgr.dumpFormula(instantiator.apply(pred.getSymbolicAtom())).toString()),
+                abstractionType.name());
+        AbstractionFormula result = lookupPersistentCache(persistentKey, ssa, pathFormula);
+        if (result != null) {
+          logger.log(Level.FINEST, "Abstraction", stats.numCallsAbstraction, "was cached on disk");
+          stats.numCallsAbstractionCached++;
+          if (useCache) {
+            formulaCache.put(absKey, result);
+          }
+          return result;
+        }
+      } finally {
+        stats.persistentCacheTime.stop();
+      }
+    }
+
 
     // Compute result for those predicates
     // where we can trivially identify their truthness in the result
@@ -433,18 +724,24 @@ public class PredicateAbstractionManager {
       abs = rmgr.makeAnd(abs, buildCartesianAbstractionUsingWeakening(f, ssa, remainingPredicates));
 
     } else {
-      abs = rmgr.makeAnd(abs, computeAbstraction(f, remainingPredicates, instantiator));
+      abs =
+          rmgr.makeAnd(
+              abs,
+              computeAbstraction(f, constraints, location, remainingPredicates, instantiator));
     }
 
     AbstractionFormula result = makeAbstractionFormula(abs, ssa, pathFormula);
 
     if (useCache) {
-      abstractionCache.put(absKey, result);
+      formulaCache.put(absKey, result);
 
       if (result.isFalse()) {
-        unsatisfiabilityCache.add(f);
+        formulaCache.put(f, Boolean.TRUE);
       }
     }
+    if (persistentKey != null) {
+      storeInPersistentCache(persistentKey, result);
+    }
 
     long abstractionTime = TimeSpan.sum(stats.abstractionSolveTime.getLengthOfLastInterval(),
                                         stats.abstractionEnumTime.getLengthOfLastOuterInterval())
@@ -484,7 +781,7 @@ public class PredicateAbstractionManager {
       return bfmgr.makeTrue();
     }
 
-    if (unsatisfiabilityCache.contains(pF)) {
+    if (useCache && isCachedUnsat(pF)) {
       stats.numCallsAbstractionCached++;
       return bfmgr.makeFalse();
     }
@@ -494,7 +791,8 @@ public class PredicateAbstractionManager {
     final Collection<AbstractionPredicate> predicates =
         getRelevantPredicates(pPredicates, pF, dummyInstantiator);
 
-    Region abs = computeAbstraction(pF, predicates, dummyInstantiator);
+    Region abs =
+        computeAbstraction(pF, ImmutableList.of(pF), null, predicates, dummyInstantiator);
 
     BooleanFormula symbolicAbs = amgr.convertRegionToFormula(abs);
 
@@ -502,13 +800,71 @@ public class PredicateAbstractionManager {
       symbolicAbs = fmgr.simplify(symbolicAbs);
     }
 
-    if (bfmgr.isFalse(symbolicAbs)) {
-      unsatisfiabilityCache.add(pF);
+    if (useCache && bfmgr.isFalse(symbolicAbs)) {
+      formulaCache.put(pF, Boolean.TRUE);
     }
 
     return symbolicAbs;
   }
 
+  private @Nullable AbstractionFormula lookupPersistentCache(
+      HashCode pKey, SSAMap pSsa, PathFormula pBlockFormula) throws InterruptedException {
+    String dump;
+    try {
+      dump = persistentCache.lookup(pKey);
+    } catch (IOException e) {
+      logger.logUserException(
+          Level.WARNING, e, "Could not read persistent abstraction cache, not using it anymore");
+      closePersistentCache();
+      return null;
+    }
+    if (dump == null) {
+      stats.numPersistentCacheMisses++;
+      return null;
+    }
+
+    BooleanFormula abstraction;
+    try {
+      abstraction = fmgr.parse(dump);
+    } catch (IllegalArgumentException e) {
+      // e.g., the entry was written with a different solver
+      logger.logDebugException(e, "Invalid entry in persistent abstraction cache");
+      stats.numPersistentCacheMisses++;
+      return null;
+    }
+    stats.numPersistentCacheHits++;
+    if (persistentCache.isFromPreviousRun(pKey)) {
+      stats.numPersistentCacheWarmHits++;
+    }
+    return makeAbstractionFormula(amgr.convertFormulaToRegion(abstraction), pSsa, pBlockFormula);
+  }
+
+  private void storeInPersistentCache(HashCode pKey, AbstractionFormula pResult) {
+    if (persistentCache == null || !persistentCache.isWritable()) {
+      return;
+    }
+    stats.persistentCacheTime.start();
+    try {
+      persistentCache.put(pKey, fmgr.dumpFormula(pResult.asFormula()).toString());
+      stats.numPersistentCacheWritten++;
+    } catch (IOException e) {
+      logger.logUserException(
+          Level.WARNING, e, "Could not write persistent abstraction cache, not using it anymore");
+      closePersistentCache();
+    } finally {
+      stats.persistentCacheTime.stop();
+    }
+  }
+
+  private boolean isCachedUnsat(BooleanFormula pF) {
+    if (formulaCache.getIfPresent(pF) != null) {
+      stats.unsatisfiabilityCache.hits++;
+      return true;
+    }
+    stats.unsatisfiabilityCache.misses++;
+    return false;
+  }
+
   private BooleanFormula getFormulaFromPathFormula(PathFormula pathFormula) {
     BooleanFormula symbFormula = pathFormula.getFormula();
 
@@ -748,6 +1104,9 @@ public class PredicateAbstractionManager {
    * Actually compute an abstraction of a formula, without fancy caching etc.
    *
    * @param f The formula to be abstracted.
+   * @param constraints Formulas whose conjunction is equivalent to f,
+   *     used for asserting f level by level in a reused prover.
+   * @param location The location of the abstraction, or null if no prover should be reused.
    * @param remainingPredicates The set of predicates.
    *     Each predicate that is handled will be removed from the set.
    * @param instantiator A function that will be applied to instantiate each abstraction predicate,
@@ -756,15 +1115,42 @@ public class PredicateAbstractionManager {
    */
   private Region computeAbstraction(
       final BooleanFormula f,
+      final List<BooleanFormula> constraints,
+      final @Nullable CFANode location,
       final Collection<AbstractionPredicate> remainingPredicates,
       final Function<BooleanFormula, BooleanFormula> instantiator)
       throws SolverException, InterruptedException {
     Region abs = rmgr.makeTrue();
 
-    try (ProverEnvironment thmProver =
-        solver.newProverEnvironment(ProverOptions.GENERATE_ALL_SAT)) {
-      thmProver.push(f);
+    ReusableProver reusableProver = null;
+    ProverEnvironment thmProver = null;
+    boolean successful = false;
+    stats.proverSetupTime.start();
+    try {
+      if (reusableProvers != null && location != null) {
+        reusableProver = reusableProvers.remove(location);
+        if (reusableProver != null) {
+          stats.numProverReuses++;
+        } else {
+          reusableProver =
+              new ReusableProver(solver.newProverEnvironment(ProverOptions.GENERATE_ALL_SAT));
+        }
+        thmProver = reusableProver.getProver();
+        stats.numReusedProverLevels += reusableProver.assertExactly(constraints);
+      } else {
+        thmProver = solver.newProverEnvironment(ProverOptions.GENERATE_ALL_SAT);
+        thmProver.push(f);
+      }
+      successful = true;
+    } finally {
+      stats.proverSetupTime.stop();
+      if (!successful && thmProver != null) {
+        thmProver.close();
+      }
+    }
 
+    successful = false;
+    try {
       if (remainingPredicates.isEmpty()) {
         stats.numSatCheckAbstractions++;
 
@@ -799,9 +1185,19 @@ public class PredicateAbstractionManager {
           stats.numBooleanAbsPredicates += remainingPredicates.size();
           stats.booleanAbstractionTime.start();
           try {
-            abs =
-                rmgr.makeAnd(
-                    abs, computeBooleanAbstraction(thmProver, remainingPredicates, instantiator));
+            if (parallelAbstraction != null
+                && parallelAbstraction.shouldComputeInParallel(remainingPredicates.size())) {
+              abs =
+                  rmgr.makeAnd(
+                      abs,
+                      computeBooleanAbstractionInParallel(f, remainingPredicates, instantiator));
+            } else {
+              abs =
+                  rmgr.makeAnd(
+                      abs,
+                      computeBooleanAbstraction(
+                          thmProver, reusableProver, remainingPredicates, instantiator));
+            }
           } finally {
             stats.booleanAbstractionTime.stop();
           }
@@ -811,6 +1207,14 @@ public class PredicateAbstractionManager {
           // remainingPredicates is now empty.
         }
       }
+      successful = true;
+    } finally {
+      if (reusableProver != null && successful) {
+        // the state of the prover is unknown after an exception, so we reuse it only on success
+        reusableProvers.put(location, reusableProver);
+      } else {
+        thmProver.close();
+      }
     }
     return abs;
   }
@@ -848,6 +1252,11 @@ public class PredicateAbstractionManager {
       warnedOfCartesianAbstraction = true;
     }
 
+    Map<AbstractionPredicate, Byte> parallelValues = ImmutableMap.of();
+    if (parallelAbstraction != null) {
+      parallelValues = computeCartesianValuesInParallel(f, pPredicates, instantiator);
+    }
+
     stats.abstractionEnumTime.startOuter();
     try {
       Region absbdd = rmgr.makeTrue();
@@ -858,8 +1267,16 @@ public class PredicateAbstractionManager {
       while (predicateIt.hasNext()) {
         final AbstractionPredicate p = predicateIt.next();
         Pair<BooleanFormula, AbstractionPredicate> cacheKey = Pair.of(f, p);
-        if (useCache && cartesianAbstractionCache.containsKey(cacheKey)) {
-          byte predVal = cartesianAbstractionCache.get(cacheKey);
+        Byte cachedPredVal = useCache ? cartesianAbstractionCache.getIfPresent(cacheKey) : null;
+        if (useCache) {
+          if (cachedPredVal != null) {
+            stats.cartesianAbstractionCache.hits++;
+          } else {
+            stats.cartesianAbstractionCache.misses++;
+          }
+        }
+        if (cachedPredVal != null) {
+          byte predVal = cachedPredVal;
           stats.numCartesianAbsPredicatesCached++;
 
           stats.abstractionEnumTime.getCurentInnerTimer().start();
@@ -880,17 +1297,21 @@ public class PredicateAbstractionManager {
           logger.log(Level.ALL, "DEBUG_1",
               "CHECKING VALUE OF PREDICATE: ", p.getSymbolicAtom());
 
-          // instantiate the definition of the predicate
-          BooleanFormula predTrue = instantiator.apply(p.getSymbolicAtom());
-          BooleanFormula predFalse = bfmgr.not(predTrue);
-
           // check whether this predicate has a truth value in the next
           // state
           byte predVal = 0; // pred is neither true nor false
 
-          thmProver.push(predFalse);
-          boolean isTrue = thmProver.isUnsat();
-          thmProver.pop();
+          final boolean isTrue;
+          final Byte parallelVal = parallelValues.get(p);
+          if (parallelVal != null) {
+            isTrue = parallelVal == 1;
+          } else {
+            // instantiate the definition of the predicate
+            BooleanFormula predFalse = bfmgr.not(instantiator.apply(p.getSymbolicAtom()));
+            thmProver.push(predFalse);
+            isTrue = thmProver.isUnsat();
+            thmProver.pop();
+          }
 
           if (isTrue) {
             stats.numCartesianAbsPredicates++;
@@ -903,9 +1324,15 @@ public class PredicateAbstractionManager {
             predVal = 1;
           } else {
             // check whether it's false...
-            thmProver.push(predTrue);
-            boolean isFalse = thmProver.isUnsat();
-            thmProver.pop();
+            final boolean isFalse;
+            if (parallelVal != null) {
+              isFalse = parallelVal == -1;
+            } else {
+              BooleanFormula predTrue = instantiator.apply(p.getSymbolicAtom());
+              thmProver.push(predTrue);
+              isFalse = thmProver.isUnsat();
+              thmProver.pop();
+            }
 
             if (isFalse) {
               stats.numCartesianAbsPredicates++;
@@ -933,6 +1360,78 @@ public class PredicateAbstractionManager {
     }
   }
 
+  /**
+   * Determine the values of those predicates for a cartesian abstraction whose values are not
+   * cached, using several solvers in parallel. The formula is expected to be satisfiable.
+   *
+   * @return The values of the predicates (cf. {@link #cartesianAbstractionCache}), empty if there
+   *     are too few uncached predicates for a parallel computation.
+   */
+  private Map<AbstractionPredicate, Byte> computeCartesianValuesInParallel(
+      final BooleanFormula f,
+      final Collection<AbstractionPredicate> pPredicates,
+      final Function<BooleanFormula, BooleanFormula> instantiator)
+      throws SolverException, InterruptedException {
+    List<AbstractionPredicate> uncachedPredicates = new ArrayList<>(pPredicates.size());
+    for (AbstractionPredicate p : pPredicates) {
+      if (!useCache || cartesianAbstractionCache.getIfPresent(Pair.of(f, p)) == null) {
+        uncachedPredicates.add(p);
+      }
+    }
+    if (!parallelAbstraction.shouldComputeInParallel(uncachedPredicates.size())) {
+      return ImmutableMap.of();
+    }
+
+    stats.numParallelAbstractions++;
+    List<BooleanFormula> predVars = new ArrayList<>(uncachedPredicates.size());
+    BooleanFormula predDef = buildPredicateDefinitions(uncachedPredicates, instantiator, predVars);
+
+    byte[] values;
+    stats.abstractionSolveTime.start();
+    try {
+      values = parallelAbstraction.computeCartesianValues(f, predDef, predVars);
+    } finally {
+      stats.abstractionSolveTime.stop();
+    }
+
+    ImmutableMap.Builder<AbstractionPredicate, Byte> result = ImmutableMap.builder();
+    for (int i = 0; i < values.length; i++) {
+      result.put(uncachedPredicates.get(i), values[i]);
+    }
+    return result.build();
+  }
+
+  /**
+   * Build the conjunction of the definitions <code>var &lt;-&gt; def</code> of the given predicates
+   * and collect the predicate variables.
+   *
+   * @param predicates The predicates.
+   * @param instantiator A function that will be applied to instantiate each abstraction predicate.
+   * @param predVars The list to which the predicate variables are added, in the same order as the
+   *     predicates.
+   * @return The conjunction of the instantiated definitions.
+   */
+  private BooleanFormula buildPredicateDefinitions(
+      final Collection<AbstractionPredicate> predicates,
+      final Function<BooleanFormula, BooleanFormula> instantiator,
+      final List<BooleanFormula> predVars) {
+    BooleanFormula predDef = bfmgr.makeTrue();
+
+    for (AbstractionPredicate p : predicates) {
+      // get propositional variable and definition of predicate
+      BooleanFormula var = p.getSymbolicVariable();
+      final BooleanFormula def = instantiator.apply(p.getSymbolicAtom());
+      assert !bfmgr.isFalse(def);
+
+      // build the formula (var <-> def) and add it to the list of definitions
+      BooleanFormula equiv = bfmgr.equivalence(var, def);
+      predDef = bfmgr.and(predDef, equiv);
+
+      predVars.add(var);
+    }
+    return predDef;
+  }
+
   /** Build cartesian abstraction using the inductive weakening approach. */
   private Region buildCartesianAbstractionUsingWeakening(
       final BooleanFormula f, final SSAMap ssa, final Collection<AbstractionPredicate> pPredicates)
@@ -989,6 +1488,7 @@ public class PredicateAbstractionManager {
    * The abstracted formula is expected to have been pushed onto the solver stack already.
    *
    * @param thmProver The solver to use with the input formula on the stack.
+   * @param reusableProver The wrapper of thmProver if it is reused, otherwise null.
    * @param predicates The set of predicates.
    *    Each predicate that is handled will be removed from the set
    *    (and Boolean abstraction handles all predicates so the set is empty afterwards!).
@@ -997,6 +1497,7 @@ public class PredicateAbstractionManager {
    */
   private Region computeBooleanAbstraction(
       final ProverEnvironment thmProver,
+      final @Nullable ReusableProver reusableProver,
       final Collection<AbstractionPredicate> predicates,
       final Function<BooleanFormula, BooleanFormula> instantiator)
       throws InterruptedException, SolverException {
@@ -1004,24 +1505,16 @@ public class PredicateAbstractionManager {
     // build the definition of the predicates, and instantiate them
     // also collect all predicate variables so that the solver knows for which
     // variables we want to have the satisfying assignments
-    BooleanFormula predDef = bfmgr.makeTrue();
     List<BooleanFormula> predVars = new ArrayList<>(predicates.size());
-
-    for (AbstractionPredicate p : predicates) {
-      // get propositional variable and definition of predicate
-      BooleanFormula var = p.getSymbolicVariable();
-      final BooleanFormula def = instantiator.apply(p.getSymbolicAtom());
-      assert !bfmgr.isFalse(def);
-
-      // build the formula (var <-> def) and add it to the list of definitions
-      BooleanFormula equiv = bfmgr.equivalence(var, def);
-      predDef = bfmgr.and(predDef, equiv);
-
-      predVars.add(var);
-    }
+    BooleanFormula predDef = buildPredicateDefinitions(predicates, instantiator, predVars);
 
     // the formula is (abstractionFormula & pathFormula & predDef)
-    thmProver.push(predDef);
+    if (reusableProver != null) {
+      // the next abstraction at this location pops predDef if necessary
+      reusableProver.push(predDef);
+    } else {
+      thmProver.push(predDef);
+    }
     AllSatCallbackImpl callback = new AllSatCallbackImpl();
     Region result = thmProver.allSat(callback, predVars);
 
@@ -1041,6 +1534,63 @@ public class PredicateAbstractionManager {
     return result;
   }
 
+  /**
+   * Compute a Boolean abstraction like {@link #computeBooleanAbstraction}, but enumerate the models
+   * with several solvers in parallel.
+   *
+   * @param f The formula to abstract.
+   * @param predicates The set of predicates, will be empty afterwards.
+   * @param instantiator A function that will be applied to instantiate each abstraction predicate.
+   * @return A over-approximation of f.
+   */
+  private Region computeBooleanAbstractionInParallel(
+      final BooleanFormula f,
+      final Collection<AbstractionPredicate> predicates,
+      final Function<BooleanFormula, BooleanFormula> instantiator)
+      throws InterruptedException, SolverException {
+    stats.numParallelAbstractions++;
+    List<AbstractionPredicate> predicateList = new ArrayList<>(predicates);
+    List<BooleanFormula> predVars = new ArrayList<>(predicateList.size());
+    BooleanFormula predDef = buildPredicateDefinitions(predicateList, instantiator, predVars);
+
+    List<int[]> models;
+    stats.abstractionSolveTime.start();
+    try {
+      models = parallelAbstraction.computeModels(f, predDef, predVars);
+    } finally {
+      stats.abstractionSolveTime.stop();
+    }
+
+    // the abstraction is the disjunction of all models, as in AllSatCallbackImpl
+    Region result;
+    stats.abstractionEnumTime.startBoth();
+    try (RegionBuilder builder = rmgr.builder(shutdownNotifier)) {
+      for (int[] model : models) {
+        builder.startNewConjunction();
+        for (int literal : model) {
+          Region region = predicateList.get(Math.abs(literal) - 1).getAbstractVariable();
+          if (literal < 0) {
+            builder.addNegativeRegion(region);
+          } else {
+            builder.addPositiveRegion(region);
+          }
+        }
+        builder.finishConjunction();
+      }
+      result = builder.getResult();
+    } finally {
+      stats.abstractionEnumTime.stopBoth();
+    }
+
+    stats.maxAllSatCount = Math.max(models.size(), stats.maxAllSatCount);
+    stats.allSatCount += models.size();
+
+    // mark all predicates as handled
+    predicates.clear();
+
+    return result;
+  }
+
   private class AllSatCallbackImpl implements AllSatCallback<Region> {
 
     private final RegionBuilder builder;
@@ -70,6 +70,7 @@ import org.sosy_lab.cpachecker.util.AbstractStates;
 import org.sosy_lab.cpachecker.util.LoopStructure;
 import org.sosy_lab.cpachecker.util.LoopStructure.Loop;
 import org.sosy_lab.cpachecker.util.cwriter.LoopCollectingEdgeVisitor;
+import org.sosy_lab.cpachecker.util.jfr.RefinementEvent;
 import org.sosy_lab.cpachecker.util.predicates.NewtonRefinementManager;
 import org.sosy_lab.cpachecker.util.predicates.PathChecker;
 import org.sosy_lab.cpachecker.util.predicates.UCBRefinementManager;
@@ -99,7 +100,7 @@ import org.sosy_lab.java_smt.api.BooleanFormula;
  * It does, however, produce a nice error path in case of a feasible counterexample.
  */
 @Options(prefix = "cpa.predicate.refinement")
-public class PredicateCPARefiner implements ARGBasedRefiner, StatisticsProvider {
+public class PredicateCPARefiner implements ARGBasedRefiner, StatisticsProvider, AutoCloseable {
 
   @Option(secure=true, description="which sliced prefix should be used for interpolation")
   private List<PrefixPreference> prefixPreference = PrefixSelector.NO_SELECTION;
@@ -255,6 +256,7 @@ public class PredicateCPARefiner implements ARGBasedRefiner, StatisticsProvider
 
   @Override
   public CounterexampleInfo performRefinementForPath(final ARGReachedSet pReached, final ARGPath allStatesTrace) throws CPAException, InterruptedException {
+    RefinementEvent event = RefinementEvent.start();
     totalRefinement.start();
 
     try {
@@ -295,6 +297,7 @@ public class PredicateCPARefiner implements ARGBasedRefiner, StatisticsProvider
       CounterexampleTraceInfo counterexample =
           checkCounterexample(
               allStatesTrace, abstractionStatesTrace, formulas, repeatedCounterexample);
+      event.setSpurious(counterexample.isSpurious());
 
       // if error is spurious refine
       if (counterexample.isSpurious()) {
@@ -334,6 +337,7 @@ public class PredicateCPARefiner implements ARGBasedRefiner, StatisticsProvider
 
     } finally {
       totalRefinement.stop();
+      event.commit(this, allStatesTrace);
     }
   }
 
@@ -647,6 +651,11 @@ public class PredicateCPARefiner implements ARGBasedRefiner, StatisticsProvider
     }
   }
 
+  @Override
+  public void close() {
+    interpolationManager.close();
+  }
+
   @Override
   public void collectStatistics(Collection<Statistics> pStatsCollection) {
     pStatsCollection.add(new Stats());
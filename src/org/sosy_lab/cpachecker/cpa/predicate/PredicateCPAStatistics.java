@@ -41,6 +41,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import org.sosy_lab.common.configuration.Configuration;
@@ -158,11 +159,26 @@ class PredicateCPAStatistics implements Statistics {
     }
   }
 
+  private static void printCacheCounters(
+      PrintStream out, String label, PredicateAbstractionManager.Stats.CacheCounters counters) {
+    if (counters.hits + counters.misses > 0) {
+      out.println(label + counters);
+    }
+  }
+
   @Override
   public String getName() {
     return "PredicateCPA";
   }
 
+  @Override
+  public void collectTelemetry(Map<String, Object> pSnapshot) {
+    pSnapshot.put("abstractions", statistics.numAbstractions.getUpdateCount());
+    pSnapshot.put("abstractionTime", statistics.computingAbstractionTime.getSumTime().asMillis());
+    pSnapshot.put("satChecks", solver.satChecks);
+    pSnapshot.put("solverTime", solver.solverTime.getSumTime().asMillis());
+  }
+
   /**
    * TreeMap to sort output for the user and sets for no duplication.
    */
@@ -271,12 +287,30 @@ class PredicateCPAStatistics implements Statistics {
       out.println("  Times result was cached:         " + valueWithPercentage(as.numCallsAbstractionCached, as.numCallsAbstraction));
       out.println("  Times cartesian abs was used:    " + valueWithPercentage(as.cartesianAbstractionTime.getNumberOfIntervals(), as.numCallsAbstraction));
       out.println("  Times boolean abs was used:      " + valueWithPercentage(as.booleanAbstractionTime.getNumberOfIntervals(), as.numCallsAbstraction));
+      if (as.numParallelAbstractions > 0) {
+        out.println(
+            "  Times abs was parallelized:      "
+                + valueWithPercentage(as.numParallelAbstractions, as.numCallsAbstraction));
+      }
       out.println("  Times result was 'false':        " + valueWithPercentage(statistics.numAbstractionsFalse.getUpdateCount(), numAbstractions));
       if (as.inductivePredicatesTime.getNumberOfIntervals() > 0) {
         out.println(
             "  Times inductive cache was used:  "
                 + valueWithPercentage(as.numInductivePathFormulaCacheUsed, as.numCallsAbstraction));
       }
+      printCacheCounters(out, "  Abstraction cache:               ", as.abstractionCache);
+      printCacheCounters(out, "  Unsatisfiability cache:          ", as.unsatisfiabilityCache);
+      printCacheCounters(out, "  Cartesian abstraction cache:     ", as.cartesianAbstractionCache);
+    }
+
+    if (as.numPersistentCacheHits + as.numPersistentCacheMisses > 0) {
+      int lookups = as.numPersistentCacheHits + as.numPersistentCacheMisses;
+      out.println("Persistent abstraction cache:");
+      out.println("  Entries loaded:                  " + as.numPersistentCacheLoaded);
+      out.println("  Entries written:                 " + as.numPersistentCacheWritten);
+      out.println("  Hits:                            " + valueWithPercentage(as.numPersistentCacheHits, lookups));
+      out.println("  Hits from earlier runs:          " + valueWithPercentage(as.numPersistentCacheWarmHits, lookups));
+      out.println("  Time for persistent cache:       " + as.persistentCacheTime);
     }
 
     if (statistics.satCheckTimer.getNumberOfIntervals() > 0) {
@@ -295,6 +329,12 @@ class PredicateCPAStatistics implements Statistics {
     out.println("Number of SMT sat checks:          " + solver.satChecks);
     out.println("  trivial:                         " + solver.trivialSatChecks);
     out.println("  cached:                          " + solver.cachedSatChecks);
+    if (solver.sharedCacheHits + solver.sharedCacheMisses > 0) {
+      out.println(
+          "    from shared cache:             "
+              + valueWithPercentage(
+                  solver.sharedCacheHits, solver.sharedCacheHits + solver.sharedCacheMisses));
+    }
     out.println();
     out.println("Max ABE block size:                       " + statistics.blockSize.getMaxValue());
     put(out, 0, statistics.blockSize);
@@ -359,6 +399,13 @@ class PredicateCPAStatistics implements Statistics {
         out.println("    Abstraction reuse:              " + as.abstractionReuseTime);
         out.println("    Abstraction reuse implication:  " + as.abstractionReuseImplicationTime);
       }
+      if (as.proverSetupTime.getNumberOfIntervals() > 0) {
+        out.println("    Prover setup time:               " + as.proverSetupTime);
+        if (as.numProverReuses > 0) {
+          out.println("      Times prover was reused:       " + as.numProverReuses);
+          out.println("      Reused asserted formulas:      " + as.numReusedProverLevels);
+        }
+      }
       out.println("    Solving time:                    " + as.abstractionSolveTime + " (Max: " + as.abstractionSolveTime.getMaxTime().formatAs(SECONDS) + ")");
       out.println("    Model enumeration time:          " + as.abstractionEnumTime.getOuterSumTime().formatAs(SECONDS));
       out.println("    Time for BDD construction:       " + as.abstractionEnumTime.getInnerSumTime().formatAs(SECONDS)   + " (Max: " + as.abstractionEnumTime.getInnerMaxTime().formatAs(SECONDS) + ")");
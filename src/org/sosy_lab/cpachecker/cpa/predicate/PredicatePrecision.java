@@ -34,10 +34,17 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Sets;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -45,6 +52,8 @@ import org.sosy_lab.cpachecker.cfa.model.CFANode;
 import org.sosy_lab.cpachecker.core.interfaces.AdjustablePrecision;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
 import org.sosy_lab.cpachecker.util.Precisions;
+import org.sosy_lab.cpachecker.util.globalinfo.CFAInfo;
+import org.sosy_lab.cpachecker.util.globalinfo.GlobalInfo;
 import org.sosy_lab.cpachecker.util.predicates.AbstractionPredicate;
 
 /**
@@ -57,7 +66,9 @@ import org.sosy_lab.cpachecker.util.predicates.AbstractionPredicate;
  *
  * All instances of this class are immutable.
  */
-public final class PredicatePrecision implements AdjustablePrecision {
+public final class PredicatePrecision implements AdjustablePrecision, Serializable {
+
+  private static final long serialVersionUID = 1823440817542651390L;
 
   /**
    * This class identifies a position in the ARG where predicates can be applied.
@@ -495,4 +506,96 @@ public final class PredicatePrecision implements AdjustablePrecision {
         Sets.difference(mFunctionPredicates.entries(), other.getFunctionPredicates().entries()),
         Sets.difference(this.getGlobalPredicates(), other.getGlobalPredicates()));
   }
-}
\ No newline at end of file
+
+  private Object writeReplace() {
+    return new SerialProxy(this);
+  }
+
+  /**
+   * javadoc to remove unused parameter warning
+   *
+   * @param in the input stream
+   */
+  @SuppressWarnings("UnusedVariable") // parameter is required by API
+  private void readObject(ObjectInputStream in) throws IOException {
+    throw new InvalidObjectException("Proxy required");
+  }
+
+  /**
+   * Stores the entries of all maps with CFA nodes replaced by their node numbers, such that the
+   * nodes of the current CFA are used after de-serialization.
+   */
+  private static class SerialProxy implements Serializable {
+    private static final long serialVersionUID = -6100474655398052706L;
+
+    private final int[] instanceNodes;
+    private final int[] instanceCounts;
+    private final AbstractionPredicate[] instancePredicates;
+    private final int[] localNodes;
+    private final AbstractionPredicate[] localPredicates;
+    private final String[] functions;
+    private final AbstractionPredicate[] functionPredicates;
+    private final AbstractionPredicate[] globalPredicates;
+
+    SerialProxy(PredicatePrecision pPrecision) {
+      ImmutableList<Map.Entry<LocationInstance, AbstractionPredicate>> instanceEntries =
+          pPrecision.mLocationInstancePredicates.entries().asList();
+      instanceNodes = new int[instanceEntries.size()];
+      instanceCounts = new int[instanceEntries.size()];
+      instancePredicates = new AbstractionPredicate[instanceEntries.size()];
+      for (int i = 0; i < instanceEntries.size(); i++) {
+        instanceNodes[i] = instanceEntries.get(i).getKey().getLocation().getNodeNumber();
+        instanceCounts[i] = instanceEntries.get(i).getKey().getInstance();
+        instancePredicates[i] = instanceEntries.get(i).getValue();
+      }
+
+      ImmutableList<Map.Entry<CFANode, AbstractionPredicate>> localEntries =
+          pPrecision.mLocalPredicates.entries().asList();
+      localNodes = new int[localEntries.size()];
+      localPredicates = new AbstractionPredicate[localEntries.size()];
+      for (int i = 0; i < localEntries.size(); i++) {
+        localNodes[i] = localEntries.get(i).getKey().getNodeNumber();
+        localPredicates[i] = localEntries.get(i).getValue();
+      }
+
+      ImmutableList<Map.Entry<String, AbstractionPredicate>> functionEntries =
+          pPrecision.mFunctionPredicates.entries().asList();
+      functions = new String[functionEntries.size()];
+      functionPredicates = new AbstractionPredicate[functionEntries.size()];
+      for (int i = 0; i < functionEntries.size(); i++) {
+        functions[i] = functionEntries.get(i).getKey();
+        functionPredicates[i] = functionEntries.get(i).getValue();
+      }
+
+      globalPredicates = pPrecision.mGlobalPredicates.toArray(new AbstractionPredicate[0]);
+    }
+
+    private Object readResolve() {
+      CFAInfo cfaInfo = GlobalInfo.getInstance().getCFAInfo().orElseThrow();
+
+      List<Map.Entry<LocationInstance, AbstractionPredicate>> instanceEntries =
+          new ArrayList<>(instanceNodes.length);
+      for (int i = 0; i < instanceNodes.length; i++) {
+        instanceEntries.add(
+            Maps.immutableEntry(
+                new LocationInstance(
+                    cfaInfo.getNodeByNodeNumber(instanceNodes[i]), instanceCounts[i]),
+                instancePredicates[i]));
+      }
+      List<Map.Entry<CFANode, AbstractionPredicate>> localEntries =
+          new ArrayList<>(localNodes.length);
+      for (int i = 0; i < localNodes.length; i++) {
+        localEntries.add(
+            Maps.immutableEntry(cfaInfo.getNodeByNodeNumber(localNodes[i]), localPredicates[i]));
+      }
+      List<Map.Entry<String, AbstractionPredicate>> functionEntries =
+          new ArrayList<>(functions.length);
+      for (int i = 0; i < functions.length; i++) {
+        functionEntries.add(Maps.immutableEntry(functions[i], functionPredicates[i]));
+      }
+
+      return new PredicatePrecision(
+          instanceEntries, localEntries, functionEntries, ImmutableList.copyOf(globalPredicates));
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.ProverEnvironment;
+
+/**
+ * A prover environment that is kept alive across several abstraction computations. The asserted
+ * formulas are tracked level by level, such that a new set of formulas can be asserted by popping
+ * and pushing only the levels that differ from the previously asserted ones.
+ *
+ * <p>Queries may push and pop additional formulas on top of the tracked levels, but they need to
+ * restore the stack afterwards (or use {@link #push(BooleanFormula)}).
+ */
+final class ReusableProver implements AutoCloseable {
+
+  private final ProverEnvironment prover;
+
+  // the formula asserted on each level of the prover stack
+  private final List<BooleanFormula> levels = new ArrayList<>();
+
+  ReusableProver(ProverEnvironment pProver) {
+    prover = pProver;
+  }
+
+  ProverEnvironment getProver() {
+    return prover;
+  }
+
+  /**
+   * Change the asserted formulas to the given ones (one level per formula). Levels at the bottom of
+   * the stack that are equal to the given formulas are kept.
+   *
+   * @return The number of levels that were kept.
+   */
+  int assertExactly(List<BooleanFormula> pFormulas) throws InterruptedException {
+    int common = 0;
+    while (common < levels.size()
+        && common < pFormulas.size()
+        && levels.get(common).equals(pFormulas.get(common))) {
+      common++;
+    }
+
+    while (levels.size() > common) {
+      prover.pop();
+      levels.remove(levels.size() - 1);
+    }
+    for (BooleanFormula f : pFormulas.subList(common, pFormulas.size())) {
+      push(f);
+    }
+    return common;
+  }
+
+  /** Push a formula as a new tracked level. */
+  void push(BooleanFormula pF) throws InterruptedException {
+    prover.push(pF);
+    levels.add(pF);
+  }
+
+  @Override
+  public void close() {
+    prover.close();
+  }
+}
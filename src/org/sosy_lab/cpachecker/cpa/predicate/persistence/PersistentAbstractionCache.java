@@ -0,0 +1,298 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.predicate.persistence;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.log.LogManager;
+
+/**
+ * A content-addressed store for abstraction results that persists across runs of CPAchecker.
+ * Entries map the hash of an abstraction problem (cf. {@link #keyOf(String, Collection, String)})
+ * to the abstraction result as SMT-LIB string. The class does not interpret the strings.
+ *
+ * <p>The file starts with a header and contains a sequence of records, each consisting of the
+ * 128-bit key, the lengths of the compressed and the uncompressed value, and the value compressed
+ * with {@link Deflater}. New entries are appended at the end. When the file is opened, an index
+ * from keys to file positions is built in memory, values are read from the file only on lookup.
+ * An incomplete record at the end of the file (e.g., because CPAchecker was killed) is discarded.
+ *
+ * <p>Only one cache instance can append to the file at a time, other instances (of the same or
+ * of other processes) open it read-only.
+ */
+public class PersistentAbstractionCache implements AutoCloseable {
+
+  private static final int FILE_MAGIC = 0x50414331; // "PAC1"
+  private static final int FILE_VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final int KEY_SIZE = 16;
+
+  private final RandomAccessFile file;
+  private final @Nullable FileLock lock;
+  private final Map<HashCode, Long> index = new HashMap<>();
+  private final long initialSize;
+  private final int loadedEntries;
+
+  private PersistentAbstractionCache(RandomAccessFile pFile, @Nullable FileLock pLock)
+      throws IOException {
+    file = pFile;
+    lock = pLock;
+    initialSize = readIndex();
+    loadedEntries = index.size();
+  }
+
+  /**
+   * Open or create a cache file.
+   *
+   * @param pPath The file, which is created if it does not exist and pReadOnly is false.
+   * @param pReadOnly Whether new entries should be rejected.
+   * @return The cache, or null if pReadOnly is true and the file does not exist.
+   * @throws IOException If the file cannot be read, or is not a cache file.
+   */
+  public static @Nullable PersistentAbstractionCache open(
+      Path pPath, boolean pReadOnly, LogManager pLogger) throws IOException {
+    if (pReadOnly && !Files.exists(pPath)) {
+      return null;
+    }
+    if (!pReadOnly && pPath.toAbsolutePath().getParent() != null) {
+      Files.createDirectories(pPath.toAbsolutePath().getParent());
+    }
+    RandomAccessFile file = new RandomAccessFile(pPath.toFile(), pReadOnly ? "r" : "rw");
+    try {
+      FileLock lock = null;
+      if (!pReadOnly) {
+        try {
+          lock = file.getChannel().tryLock();
+        } catch (OverlappingFileLockException e) {
+          // another cache in this JVM (e.g., of a parallel analysis) holds the lock
+          lock = null;
+        }
+        if (lock == null) {
+          pLogger.log(
+              Level.WARNING,
+              "Persistent abstraction cache",
+              pPath,
+              "is used by another analysis or process, new abstractions will not be stored.");
+        }
+      }
+      if (file.length() == 0 && lock != null) {
+        file.writeInt(FILE_MAGIC);
+        file.writeInt(FILE_VERSION);
+      }
+      return new PersistentAbstractionCache(file, lock);
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Compute the key for an abstraction problem. The order of the predicates is irrelevant.
+   *
+   * @param pFormula The formula that is abstracted.
+   * @param pPredicates The predicates that are used for the abstraction.
+   * @param pVariant Further information on which the result depends, e.g., the abstraction type.
+   */
+  public static HashCode keyOf(String pFormula, Collection<String> pPredicates, String pVariant) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    hasher.putString(pVariant, UTF_8).putByte((byte) 0);
+    hasher.putString(pFormula, UTF_8).putByte((byte) 0);
+    String[] predicates = pPredicates.toArray(new String[0]);
+    Arrays.sort(predicates);
+    for (String predicate : predicates) {
+      hasher.putString(predicate, UTF_8).putByte((byte) 0);
+    }
+    return hasher.hash();
+  }
+
+  /** Read all complete records and return the position after the last of them. */
+  private long readIndex() throws IOException {
+    if (file.length() == 0) {
+      return 0;
+    }
+    long position = HEADER_SIZE;
+    file.seek(0);
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new NonClosingInputStream(file), 1 << 16))) {
+      if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+        throw new IOException("File is not a persistent abstraction cache of this version");
+      }
+      byte[] key = new byte[KEY_SIZE];
+      while (true) {
+        int storedLength;
+        try {
+          in.readFully(key);
+          storedLength = in.readInt();
+          in.readInt(); // uncompressed length
+          if (storedLength < 0 || in.skipBytes(storedLength) != storedLength) {
+            break;
+          }
+        } catch (EOFException e) {
+          break;
+        }
+        index.putIfAbsent(HashCode.fromBytes(key.clone()), position);
+        position += KEY_SIZE + 8 + (long) storedLength;
+      }
+    }
+    if (lock != null && position < file.length()) {
+      // drop incomplete record such that new records are appended at the right position
+      file.setLength(position);
+    }
+    return position;
+  }
+
+  /** Returns the value for the given key, or null. */
+  public synchronized @Nullable String lookup(HashCode pKey) throws IOException {
+    Long position = index.get(pKey);
+    if (position == null) {
+      return null;
+    }
+    file.seek(position + KEY_SIZE);
+    byte[] stored = new byte[file.readInt()];
+    byte[] raw = new byte[file.readInt()];
+    file.readFully(stored);
+
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(stored);
+      if (inflater.inflate(raw) != raw.length) {
+        throw new IOException("Corrupt entry in persistent abstraction cache");
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt entry in persistent abstraction cache", e);
+    } finally {
+      inflater.end();
+    }
+    return new String(raw, UTF_8);
+  }
+
+  /** Returns whether the given key was already present when the file was opened. */
+  public synchronized boolean isFromPreviousRun(HashCode pKey) {
+    Long position = index.get(pKey);
+    return position != null && position < initialSize;
+  }
+
+  /** Returns whether new entries can be added to this cache. */
+  public boolean isWritable() {
+    return lock != null;
+  }
+
+  /** Add an entry at the end of the file, if there is no entry with the same key. */
+  public synchronized void put(HashCode pKey, String pValue) throws IOException {
+    checkState(isWritable());
+    if (index.containsKey(pKey)) {
+      return;
+    }
+    byte[] raw = pValue.getBytes(UTF_8);
+    ByteArrayOutputStream stored = new ByteArrayOutputStream(raw.length / 4 + 16);
+    Deflater deflater = new Deflater();
+    try {
+      deflater.setInput(raw);
+      deflater.finish();
+      byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        stored.write(buffer, 0, deflater.deflate(buffer));
+      }
+    } finally {
+      deflater.end();
+    }
+
+    ByteArrayOutputStream record = new ByteArrayOutputStream(KEY_SIZE + 8 + stored.size());
+    record.write(pKey.asBytes(), 0, KEY_SIZE);
+    writeInt(record, stored.size());
+    writeInt(record, raw.length);
+    stored.writeTo(record);
+
+    // a single write, such that a killed process leaves at most one incomplete record
+    long position = file.length();
+    file.seek(position);
+    file.write(record.toByteArray());
+    index.put(pKey, position);
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    out.write(value >>> 24);
+    out.write(value >>> 16);
+    out.write(value >>> 8);
+    out.write(value);
+  }
+
+  /** The number of entries that were present when the file was opened. */
+  public int getLoadedEntries() {
+    return loadedEntries;
+  }
+
+  public synchronized int size() {
+    return index.size();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    // releases the lock, too
+    file.close();
+  }
+
+  /** Stream of the remaining bytes of a file that does not close the file. */
+  private static class NonClosingInputStream extends InputStream {
+    private final RandomAccessFile file;
+
+    NonClosingInputStream(RandomAccessFile pFile) {
+      file = pFile;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return file.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return file.read(b, off, len);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.predicate.persistence;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sosy_lab.common.log.LogManager;
+
+public class PersistentAbstractionCacheTest {
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final LogManager logger = LogManager.createTestLogManager();
+  private Path file;
+
+  private final HashCode key1 =
+      PersistentAbstractionCache.keyOf("f", ImmutableList.of("a", "b"), "");
+  private final HashCode key2 =
+      PersistentAbstractionCache.keyOf("g", ImmutableList.of("a"), "");
+
+  @Before
+  public void setUp() {
+    file = tempFolder.getRoot().toPath().resolve("cache.bin");
+  }
+
+  @Test
+  public void testKeyIgnoresPredicateOrder() {
+    assertThat(PersistentAbstractionCache.keyOf("f", ImmutableList.of("b", "a"), ""))
+        .isEqualTo(key1);
+    assertThat(PersistentAbstractionCache.keyOf("f", ImmutableList.of("a", "b"), "CARTESIAN"))
+        .isNotEqualTo(key1);
+    assertThat(PersistentAbstractionCache.keyOf("fa", ImmutableList.of("b"), ""))
+        .isNotEqualTo(key1);
+  }
+
+  @Test
+  public void testLookupAcrossRuns() throws IOException {
+    try (PersistentAbstractionCache cache = PersistentAbstractionCache.open(file, false, logger)) {
+      assertThat(cache.lookup(key1)).isNull();
+      cache.put(key1, "(assert true)");
+      assertThat(cache.lookup(key1)).isEqualTo("(assert true)");
+      assertThat(cache.isFromPreviousRun(key1)).isFalse();
+    }
+
+    try (PersistentAbstractionCache cache = PersistentAbstractionCache.open(file, false, logger)) {
+      assertThat(cache.getLoadedEntries()).isEqualTo(1);
+      assertThat(cache.lookup(key1)).isEqualTo("(assert true)");
+      assertThat(cache.isFromPreviousRun(key1)).isTrue();
+      cache.put(key2, "(assert false)");
+    }
+
+    try (PersistentAbstractionCache cache = PersistentAbstractionCache.open(file, true, logger)) {
+      assertThat(cache.isWritable()).isFalse();
+      assertThat(cache.size()).isEqualTo(2);
+      assertThat(cache.lookup(key2)).isEqualTo("(assert false)");
+    }
+  }
+
+  @Test
+  public void testIncompleteRecordIsDropped() throws IOException {
+    try (PersistentAbstractionCache cache = PersistentAbstractionCache.open(file, false, logger)) {
+      cache.put(key1, "(assert true)");
+      cache.put(key2, "(assert false)");
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.setLength(raf.length() - 3);
+    }
+
+    try (PersistentAbstractionCache cache = PersistentAbstractionCache.open(file, false, logger)) {
+      assertThat(cache.size()).isEqualTo(1);
+      assertThat(cache.lookup(key2)).isNull();
+      cache.put(key2, "(assert false)");
+    }
+    try (PersistentAbstractionCache cache = PersistentAbstractionCache.open(file, false, logger)) {
+      assertThat(cache.lookup(key1)).isEqualTo("(assert true)");
+      assertThat(cache.lookup(key2)).isEqualTo("(assert false)");
+    }
+  }
+
+  @Test
+  public void testSecondCacheInSameProcessIsReadOnly() throws IOException {
+    try (PersistentAbstractionCache cache = PersistentAbstractionCache.open(file, false, logger)) {
+      cache.put(key1, "(assert true)");
+      try (PersistentAbstractionCache second =
+          PersistentAbstractionCache.open(file, false, logger)) {
+        assertThat(second.isWritable()).isFalse();
+        assertThat(second.lookup(key1)).isEqualTo("(assert true)");
+      }
+      assertThat(cache.isWritable()).isTrue();
+      cache.put(key2, "(assert false)");
+    }
+  }
+
+  @Test
+  public void testMissingFileReadOnly() throws IOException {
+    assertThat(PersistentAbstractionCache.open(file, true, logger)).isNull();
+  }
+}
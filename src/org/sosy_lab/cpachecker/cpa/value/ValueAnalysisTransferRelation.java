@@ -264,6 +264,28 @@ public class ValueAnalysisTransferRelation
     constraintsStrengthenOperator = pConstraintsStrengthenOperator;
   }
 
+  @Override
+  public Collection<ValueAnalysisState> getAbstractSuccessorsForEdge(
+      AbstractState pAbstractState, Precision pAbstractPrecision, CFAEdge pCfaEdge)
+      throws CPATransferException, InterruptedException {
+    // The missing information for Java is only valid for the current edge and is consumed by
+    // strengthening with the RTTState. It must not change the successors of other edges,
+    // otherwise the result depends on which states were handled before by this instance.
+    resetMissingJavaInformation();
+    return super.getAbstractSuccessorsForEdge(pAbstractState, pAbstractPrecision, pCfaEdge);
+  }
+
+  private void resetMissingJavaInformation() {
+    missingInformationRightJExpression = null;
+    missingInformationLeftJVariable = null;
+    missingFieldVariableObject = false;
+    fieldNameAndInitialValue = null;
+    missingScopedFieldName = false;
+    notScopedField = null;
+    notScopedFieldValue = null;
+    missingAssumeInformation = false;
+  }
+
   @Override
   protected Collection<ValueAnalysisState> postProcessing(ValueAnalysisState successor, CFAEdge edge) {
     // always return a new state (requirement for strengthening states with interpolants)
@@ -0,0 +1,65 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+
+/** Event for the computation of one predicate abstraction. */
+@Name("org.sosy_lab.cpachecker.PredicateAbstraction")
+@Label("Predicate Abstraction")
+@Category({"CPAchecker", "Solver"})
+@Description("Computation of a predicate abstraction")
+public final class AbstractionEvent extends LocationEvent {
+
+  @Label("Predicates")
+  int predicates;
+
+  private AbstractionEvent() {}
+
+  /** Create an event and begin it. */
+  public static AbstractionEvent start() {
+    AbstractionEvent event = new AbstractionEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Commit this event if it is enabled.
+   *
+   * @param pLocation the location at which the abstraction is computed
+   * @param pPredicates the number of predicates used for the abstraction
+   */
+  public void commit(CFANode pLocation, int pPredicates) {
+    end();
+    if (shouldCommit()) {
+      predicates = pPredicates;
+      setLocation(pLocation);
+      commit();
+    }
+  }
+}
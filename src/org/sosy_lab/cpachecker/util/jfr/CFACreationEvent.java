@@ -0,0 +1,54 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Event for one phase of parsing the program and creating the CFA. */
+@Name("org.sosy_lab.cpachecker.CFACreationPhase")
+@Label("CFA Creation Phase")
+@Category({"CPAchecker", "CFA"})
+@Description("Phase of parsing a program and creating its CFA")
+@StackTrace(false)
+public final class CFACreationEvent extends Event {
+
+  @Label("Phase")
+  String phase;
+
+  private CFACreationEvent(String pPhase) {
+    phase = pPhase;
+  }
+
+  /** Create an event for the given phase and begin it. Call {@link #commit()} when it ends. */
+  public static CFACreationEvent start(String pPhase) {
+    CFACreationEvent event = new CFACreationEvent(pPhase);
+    event.begin();
+    return event;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.jfr;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.FluentIterable;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
+import org.sosy_lab.cpachecker.core.interfaces.WrapperCPA;
+
+/**
+ * Event for one application of an operator of a CPA (transfer relation, precision adjustment,
+ * merge, or stop) by the CPA algorithm. The location is the one of the state to which the operator
+ * was applied.
+ */
+@Name("org.sosy_lab.cpachecker.CPAOperator")
+@Label("CPA Operator")
+@Category({"CPAchecker", "Analysis"})
+@Description("Application of an operator of a CPA by the CPA algorithm")
+public final class CPAOperatorEvent extends LocationEvent {
+
+  public static final String TRANSFER = "transfer";
+  public static final String PRECISION_ADJUSTMENT = "precision adjustment";
+  public static final String MERGE = "merge";
+  public static final String STOP = "stop";
+
+  @Label("Operator")
+  String operator;
+
+  @Label("CPA")
+  String cpa;
+
+  private CPAOperatorEvent(String pOperator) {
+    operator = pOperator;
+  }
+
+  /** Create an event for one of the operators listed as constants in this class and begin it. */
+  public static CPAOperatorEvent start(String pOperator) {
+    CPAOperatorEvent event = new CPAOperatorEvent(pOperator);
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Commit this event if it is enabled.
+   *
+   * @param pCpa a description of the CPA as returned by {@link
+   *     #describe(ConfigurableProgramAnalysis)}
+   * @param pState the state to which the operator was applied
+   */
+  public void commit(String pCpa, AbstractState pState) {
+    end();
+    if (shouldCommit()) {
+      cpa = pCpa;
+      setLocation(pState);
+      commit();
+    }
+  }
+
+  /**
+   * Describe a CPA including all the CPAs it wraps, e.g., "ARGCPA(CompositeCPA(LocationCPA,
+   * PredicateCPA))". This should be computed once and reused for all events.
+   */
+  public static String describe(ConfigurableProgramAnalysis pCpa) {
+    String name = pCpa.getClass().getSimpleName();
+    if (pCpa instanceof WrapperCPA) {
+      return name
+          + "("
+          + FluentIterable.from(((WrapperCPA) pCpa).getWrappedCPAs())
+              .transform(CPAOperatorEvent::describe)
+              .join(Joiner.on(", "))
+          + ")";
+    }
+    return name;
+  }
+}
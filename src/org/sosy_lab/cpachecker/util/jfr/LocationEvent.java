@@ -0,0 +1,63 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+
+/**
+ * Base class for events that are attributed to a location in the program. The location should be
+ * set only if {@link #shouldCommit()} returns true, because computing it is not free.
+ */
+@StackTrace(false)
+abstract class LocationEvent extends Event {
+
+  @Label("Function")
+  String function;
+
+  @Label("Node")
+  String node;
+
+  @Label("File Location")
+  String fileLocation;
+
+  final void setLocation(@Nullable CFANode pLocation) {
+    if (pLocation != null) {
+      function = pLocation.getFunctionName();
+      node = pLocation.toString();
+      fileLocation = pLocation.describeFileLocation();
+    }
+  }
+
+  final void setLocation(@Nullable AbstractState pState) {
+    if (pState != null) {
+      setLocation(AbstractStates.extractLocation(pState));
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.sosy_lab.cpachecker.cpa.arg.path.ARGPath;
+
+/**
+ * Event for one refinement of a counterexample. The location is the one of the target state of the
+ * counterexample.
+ */
+@Name("org.sosy_lab.cpachecker.Refinement")
+@Label("Refinement")
+@Category({"CPAchecker", "Refinement"})
+@Description("Refinement of one counterexample")
+public final class RefinementEvent extends LocationEvent {
+
+  @Label("Refiner")
+  String refiner;
+
+  @Label("Path Length")
+  int pathLength;
+
+  @Label("Spurious")
+  boolean spurious;
+
+  private RefinementEvent() {}
+
+  /** Create an event and begin it. */
+  public static RefinementEvent start() {
+    RefinementEvent event = new RefinementEvent();
+    event.begin();
+    return event;
+  }
+
+  /** Set whether the counterexample was found to be spurious. */
+  public void setSpurious(boolean pSpurious) {
+    spurious = pSpurious;
+  }
+
+  /**
+   * Commit this event if it is enabled.
+   *
+   * @param pRefiner the refiner (only its class name is recorded)
+   * @param pPath the counterexample that was refined
+   */
+  public void commit(Object pRefiner, ARGPath pPath) {
+    end();
+    if (shouldCommit()) {
+      refiner = pRefiner.getClass().getSimpleName();
+      pathLength = pPath.size();
+      setLocation(pPath.getLastState());
+      commit();
+    }
+  }
+}
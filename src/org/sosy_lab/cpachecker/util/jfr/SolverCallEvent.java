@@ -0,0 +1,74 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+
+/**
+ * Event for one satisfiability check that is actually passed to the SMT solver (i.e., trivial and
+ * cached checks are not recorded).
+ */
+@Name("org.sosy_lab.cpachecker.SolverCall")
+@Label("Solver Call")
+@Category({"CPAchecker", "Solver"})
+@Description("Satisfiability check by the SMT solver")
+public final class SolverCallEvent extends LocationEvent {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Unsatisfiable")
+  boolean unsat;
+
+  private SolverCallEvent(String pOperation) {
+    operation = pOperation;
+  }
+
+  /** Create an event for the given solver operation and begin it. */
+  public static SolverCallEvent start(String pOperation) {
+    SolverCallEvent event = new SolverCallEvent(pOperation);
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Commit this event if it is enabled.
+   *
+   * @param pLocation the program location the check belongs to, if known
+   * @param pUnsat the result of the check
+   */
+  public void commit(@Nullable CFANode pLocation, boolean pUnsat) {
+    end();
+    if (shouldCommit()) {
+      unsat = pUnsat;
+      setLocation(pLocation);
+      commit();
+    }
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+/**
+ * Custom events for the Java Flight Recorder (JFR), which allow profiling of CPAchecker runs with
+ * attribution of the time to program locations and analysis components.
+ *
+ * <p>The events are recorded only if a flight recording is active (e.g., if Java is started with
+ * <code>-XX:StartFlightRecording=filename=cpachecker.jfr</code>), otherwise creating and committing
+ * them has nearly no cost. The events are in the category "CPAchecker" and can be inspected with
+ * JDK Mission Control or <code>jfr print --categories CPAchecker cpachecker.jfr</code>.
+ */
+package org.sosy_lab.cpachecker.util.jfr;
@@ -23,19 +23,26 @@
  */
 package org.sosy_lab.cpachecker.util.predicates;
 
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import org.sosy_lab.cpachecker.util.globalinfo.GlobalInfo;
 import org.sosy_lab.cpachecker.util.predicates.regions.Region;
+import org.sosy_lab.cpachecker.util.predicates.smt.FormulaManagerView;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 
-import com.google.common.base.Preconditions;
-
 /**
  * A generic representation of a predicate
  */
-public class AbstractionPredicate {
+public class AbstractionPredicate implements Serializable {
 
-  private final Region abstractVariable;
-  private final BooleanFormula symbolicVariable;
-  private final BooleanFormula symbolicAtom;
+  private static final long serialVersionUID = -3507214512426402517L;
+
+  private final transient Region abstractVariable;
+  private final transient BooleanFormula symbolicVariable;
+  private final transient BooleanFormula symbolicAtom;
   private final int variableNumber;
 
   AbstractionPredicate(Region pAbstractVariable,
@@ -89,4 +96,37 @@ public class AbstractionPredicate {
   public int getVariableNumber() {
     return variableNumber;
   }
+
+  private Object writeReplace() {
+    return new SerialProxy(this);
+  }
+
+  /**
+   * javadoc to remove unused parameter warning
+   *
+   * @param in the input stream
+   */
+  @SuppressWarnings("UnusedVariable") // parameter is required by API
+  private void readObject(ObjectInputStream in) throws IOException {
+    throw new InvalidObjectException("Proxy required");
+  }
+
+  /**
+   * Predicates are serialized as the dump of their atom and are re-created with the {@link
+   * AbstractionManager} of the current analysis, which assigns them a fresh region.
+   */
+  private static class SerialProxy implements Serializable {
+    private static final long serialVersionUID = 4712690273845105284L;
+    private final String atomDump;
+
+    SerialProxy(AbstractionPredicate pPredicate) {
+      FormulaManagerView mgr = GlobalInfo.getInstance().getPredicateFormulaManagerView();
+      atomDump = mgr.dumpFormula(pPredicate.getSymbolicAtom()).toString();
+    }
+
+    private Object readResolve() {
+      FormulaManagerView mgr = GlobalInfo.getInstance().getPredicateFormulaManagerView();
+      return GlobalInfo.getInstance().getAbstractionManager().makePredicate(mgr.parse(atomDump));
+    }
+  }
 }
@@ -23,6 +23,8 @@
  */
 package org.sosy_lab.cpachecker.util.predicates.bdd;
 
+import java.util.HashMap;
+import java.util.Map;
 import org.sosy_lab.common.configuration.Configuration;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
@@ -30,6 +32,7 @@ import org.sosy_lab.common.configuration.Options;
 import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.cpachecker.util.predicates.regions.CountingRegionManager;
 import org.sosy_lab.cpachecker.util.predicates.regions.RegionManager;
+import org.sosy_lab.cpachecker.util.predicates.regions.SharedRegionManager;
 import org.sosy_lab.cpachecker.util.predicates.regions.SynchronizedRegionManager;
 import org.sosy_lab.cpachecker.util.predicates.regions.TimedRegionManager;
 
@@ -74,6 +77,21 @@ public class BDDManagerFactory {
           "Count accesses for the BDD library. " + "Counting works for concurrent accesses.")
   private boolean countLibraryAccess = false;
 
+  @Option(
+      secure = true,
+      description =
+          "Share one thread-safe BDD library instance between all analyses of this process "
+              + "that use the same BDD package (e.g., the analyses of a parallel algorithm "
+              + "or the workers of parallel BAM), which saves the memory of several libraries. "
+              + "Each analysis still creates its own BDD variables for its predicates, "
+              + "so regions cannot be exchanged between analyses. "
+              + "The first analysis determines the configuration of the library. "
+              + "PJBDD is accessed concurrently, accesses to other packages are sequentialized.")
+  private boolean shareLibraryInstance = false;
+
+  // shared instances per BDD package
+  private static final Map<String, SharedRegionManager> sharedRegionManagers = new HashMap<>();
+
   private final Configuration config;
   private final LogManager logger;
 
@@ -85,6 +103,21 @@ public class BDDManagerFactory {
   }
 
   public RegionManager createRegionManager() throws InvalidConfigurationException {
+    if (!shareLibraryInstance) {
+      return createNewRegionManager();
+    }
+    synchronized (sharedRegionManagers) {
+      SharedRegionManager rmgr = sharedRegionManagers.get(bddPackage);
+      if (rmgr == null) {
+        rmgr = new SharedRegionManager(createNewRegionManager(), bddPackage.equals("PJBDD"));
+        sharedRegionManagers.put(bddPackage, rmgr);
+      }
+      rmgr.addUser();
+      return rmgr;
+    }
+  }
+
+  private RegionManager createNewRegionManager() throws InvalidConfigurationException {
     RegionManager rmgr;
     if (bddPackage.equals("SYLVAN")) {
       rmgr = new SylvanBDDRegionManager(config, logger);
@@ -26,6 +26,7 @@ package org.sosy_lab.cpachecker.util.predicates.bdd;
 import static com.google.common.base.Preconditions.checkState;
 import static org.sosy_lab.cpachecker.util.predicates.bdd.PJBDDRegion.unwrap;
 import static org.sosy_lab.cpachecker.util.predicates.bdd.PJBDDRegion.wrap;
+import static org.sosy_lab.cpachecker.util.statistics.StatisticsWriter.writingStatisticsTo;
 
 import com.google.common.base.Preconditions;
 import com.google.common.primitives.ImmutableIntArray;
@@ -34,6 +35,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 import org.sosy_lab.common.ShutdownNotifier;
@@ -65,7 +67,8 @@ public class PJBDDRegionManager implements RegionManager {
 
   private final Region trueFormula;
   private final Region falseFormula;
-  private Creator bddCreator;
+  private final Creator bddCreator;
+  private final AtomicInteger numberOfVariables = new AtomicInteger();
 
   public PJBDDRegionManager(Configuration pConfig) throws InvalidConfigurationException {
     BuildFromConfig buildFromConfig = new BuildFromConfig(pConfig);
@@ -81,6 +84,7 @@ public class PJBDDRegionManager implements RegionManager {
 
   @Override
   public Region createPredicate() {
+    numberOfVariables.incrementAndGet();
     return wrap(bddCreator.makeVariable());
   }
 
@@ -108,7 +112,7 @@ public class PJBDDRegionManager implements RegionManager {
 
   @Override
   public void printStatistics(PrintStream out) {
-    out.println("Stats to be printed");
+    writingStatisticsTo(out).put("Number of BDD variables", numberOfVariables.get());
     // TODO    out.print(bddCreator.getCreatorStats().prettyPrint());
   }
 
@@ -215,8 +219,9 @@ public class PJBDDRegionManager implements RegionManager {
 
     @Override
     public void close() {
+      // the creator is not shut down here, because it is still used for further regions,
+      // possibly by other threads (cf. BDDManagerFactory#shareLibraryInstance)
       cache.clear();
-      PJBDDRegionManager.this.bddCreator.shutDown();
     }
 
     @Override
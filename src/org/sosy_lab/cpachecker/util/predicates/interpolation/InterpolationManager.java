@@ -49,6 +49,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.Classes.UnexpectedCheckedException;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.common.configuration.Configuration;
@@ -168,6 +169,9 @@ public final class InterpolationManager {
       w1.put("Reused formulas on solver stack", reusedFormulasOnSolverStack + " (Avg: " + div(reusedFormulasOnSolverStack, satCheckTimer.getNumberOfIntervals()) + ")");
     }
     w1.put("Interpolant computation", getInterpolantTimer);
+    if (parallelInterpolator != null) {
+      parallelInterpolator.printStatistics(w1.beginLevel());
+    }
     if (interpolantVerificationTimer.getNumberOfIntervals() > 0) {
       w1.put("Interpolant verification", interpolantVerificationTimer);
     }
@@ -255,6 +259,7 @@ public final class InterpolationManager {
   private boolean reuseInterpolationEnvironment = false;
 
   private final ExecutorService executor;
+  private final @Nullable ParallelInterpolator parallelInterpolator;
   private final LoopStructure loopStructure;
   private final VariableClassification variableClassification;
 
@@ -291,6 +296,22 @@ public final class InterpolationManager {
     } else {
       interpolator = null;
     }
+
+    parallelInterpolator =
+        ParallelInterpolator.create(fmgr, config, pLogger, pShutdownNotifier);
+  }
+
+  /**
+   * Release the threads and the solvers that are used for parallel interpolation. The instance
+   * must not be used afterwards.
+   */
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    if (parallelInterpolator != null) {
+      parallelInterpolator.close();
+    }
   }
 
   /**
@@ -718,8 +739,12 @@ public final class InterpolationManager {
           throw new AssertionError("unknown interpolation strategy");
       }
 
-      final List<BooleanFormula> interpolants =
-          itpStrategy.getInterpolants(pInterpolator, formulasWithStatesAndGroupdIds);
+      final List<BooleanFormula> interpolants;
+      if (shouldInterpolateInParallel()) {
+        interpolants = getInterpolantsInParallel(formulasWithStatesAndGroupdIds);
+      } else {
+        interpolants = itpStrategy.getInterpolants(pInterpolator, formulasWithStatesAndGroupdIds);
+      }
 
       assert formulasWithStatesAndGroupdIds.size() - 1 == interpolants.size()
           : "we should return N-1 interpolants for N formulas.";
@@ -731,6 +756,66 @@ public final class InterpolationManager {
     }
   }
 
+  private boolean shouldInterpolateInParallel() {
+    if (parallelInterpolator == null || strategy != InterpolationStrategy.SEQ_CPACHECKER) {
+      return false;
+    }
+    switch (sequentialStrategy) {
+      case FWD:
+      case FWD_FALLBACK:
+      case BWD:
+      case BWD_FALLBACK:
+        return true;
+      default:
+        // combining forward and backward interpolants is done only in the main solver
+        return false;
+    }
+  }
+
+  /**
+   * Compute sequential interpolants with the threads of the {@link ParallelInterpolator}. The order
+   * of the formulas on the solver stack is given by the {@link #direction} and the directions that
+   * are raced against it, and the fallback of {@link #sequentialStrategy} is honored.
+   */
+  private <T> List<BooleanFormula> getInterpolantsInParallel(
+      List<Triple<BooleanFormula, AbstractState, T>> formulasWithStatesAndGroupdIds)
+      throws SolverException, InterruptedException {
+    assert parallelInterpolator != null;
+    final List<BooleanFormula> formulas =
+        Lists.transform(formulasWithStatesAndGroupdIds, Triple::getFirst);
+    final List<AbstractState> states =
+        Lists.transform(formulasWithStatesAndGroupdIds, Triple::getSecond);
+
+    List<int[]> orders = new ArrayList<>();
+    for (CexTraceAnalysisDirection dir : parallelInterpolator.getDirections(direction)) {
+      List<Triple<BooleanFormula, AbstractState, Integer>> ordered =
+          dir.orderFormulas(formulas, states, variableClassification, loopStructure, fmgr);
+      orders.add(from(ordered).transform(Triple::getThird).stream().mapToInt(i -> i).toArray());
+    }
+
+    boolean backwards =
+        sequentialStrategy == SeqInterpolationStrategy.BWD
+            || sequentialStrategy == SeqInterpolationStrategy.BWD_FALLBACK;
+    boolean fallback =
+        sequentialStrategy == SeqInterpolationStrategy.FWD_FALLBACK
+            || sequentialStrategy == SeqInterpolationStrategy.BWD_FALLBACK;
+
+    getInterpolantTimer.start();
+    try {
+      try {
+        return parallelInterpolator.getInterpolants(formulas, orders, backwards);
+      } catch (SolverException e) {
+        if (!fallback || parallelInterpolator.racesSequentialDirections()) {
+          throw e;
+        }
+        logger.log(Level.ALL, "Falling back to other direction of interpolation because of", e);
+        return parallelInterpolator.getInterpolants(formulas, orders, !backwards);
+      }
+    } finally {
+      getInterpolantTimer.stop();
+    }
+  }
+
   /**
    * Get information about the error path from the solver after the formulas
    * have been proved to be satisfiable.
@@ -0,0 +1,436 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates.interpolation;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.Classes.UnexpectedCheckedException;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.IntegerOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.util.predicates.smt.BooleanFormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.smt.FormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.smt.Solver;
+import org.sosy_lab.cpachecker.util.statistics.StatisticsWriter;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.InterpolatingProverEnvironment;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/**
+ * Computes sequential interpolants with a pool of threads, each of which owns its own interpolating
+ * {@link Solver} instance. Formulas are transferred to the solvers of the threads by dumping them in
+ * the main thread and parsing the dump in the threads, interpolants are transferred back the same
+ * way.
+ *
+ * <p>If only one variant of the interpolation problem is configured, the independent interpolation
+ * queries of the sequence are distributed over the threads. Otherwise all variants (orders of the
+ * formulas on the solver stack, forward and backward interpolation) are computed as a race, and the
+ * first sequence that is computed successfully is returned.
+ */
+@Options(prefix = "cpa.predicate.refinement.parallel")
+final class ParallelInterpolator {
+
+  @Option(
+      secure = true,
+      description =
+          "number of threads (each with its own interpolating solver instance) that are used for "
+              + "computing interpolants with sequential interpolation "
+              + "(1 for computing interpolants in the main solver)")
+  @IntegerOption(min = 1)
+  private int threads = 1;
+
+  @Option(
+      secure = true,
+      description =
+          "additional directions for ordering the formulas on the solver stack "
+              + "that are raced against cpa.predicate.refinement.cexTraceCheckDirection "
+              + "when computing interpolants in parallel")
+  private Set<CexTraceAnalysisDirection> raceDirections = ImmutableSet.of();
+
+  @Option(
+      secure = true,
+      description =
+          "race forward and backward sequential interpolation against each other "
+              + "when computing interpolants in parallel")
+  private boolean raceSequentialDirections = false;
+
+  private final FormulaManagerView fmgr;
+  private final LogManager logger;
+  private final BlockingQueue<Worker> idleWorkers;
+  private final List<Worker> workers;
+  private final ExecutorService pool;
+
+  private int numSplitComputations = 0;
+  private int numRaces = 0;
+  private int numFailedRaceCandidates = 0;
+  private int numBackwardWins = 0;
+  private int numReorderedWins = 0;
+
+  /**
+   * Create an instance if parallel interpolation is enabled in the configuration.
+   *
+   * @return null if interpolants should be computed in the main solver
+   */
+  static @Nullable ParallelInterpolator create(
+      FormulaManagerView pFmgr,
+      Configuration pConfig,
+      LogManager pLogger,
+      ShutdownNotifier pShutdownNotifier)
+      throws InvalidConfigurationException {
+    ParallelInterpolator interpolator = new ParallelInterpolator(pFmgr, pConfig, pLogger);
+    if (interpolator.threads <= 1) {
+      return null;
+    }
+    interpolator.start(pConfig, pShutdownNotifier);
+    return interpolator;
+  }
+
+  private ParallelInterpolator(FormulaManagerView pFmgr, Configuration pConfig, LogManager pLogger)
+      throws InvalidConfigurationException {
+    pConfig.inject(this);
+    fmgr = pFmgr;
+    logger = pLogger;
+    idleWorkers = new ArrayBlockingQueue<>(threads);
+    workers = new ArrayList<>(threads);
+    // daemon threads, such that a missing call to close() does not prevent the JVM from exiting
+    pool =
+        Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("Interpolation-thread-%d")
+                .build());
+  }
+
+  private void start(Configuration pConfig, ShutdownNotifier pShutdownNotifier)
+      throws InvalidConfigurationException {
+    try {
+      for (int i = 0; i < threads; i++) {
+        Worker worker = new Worker(Solver.create(pConfig, logger, pShutdownNotifier));
+        workers.add(worker);
+        idleWorkers.add(worker);
+      }
+    } catch (InvalidConfigurationException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Stop the threads and close the solvers of the threads. The instance must not be used
+   * afterwards, and this method must not be called while interpolants are computed.
+   */
+  void close() {
+    pool.shutdownNow();
+    for (Worker worker : workers) {
+      worker.solver.close();
+    }
+    workers.clear();
+    idleWorkers.clear();
+  }
+
+  /** The directions that should be raced against the given main direction. */
+  ImmutableSet<CexTraceAnalysisDirection> getDirections(CexTraceAnalysisDirection pDirection) {
+    return ImmutableSet.<CexTraceAnalysisDirection>builder()
+        .add(pDirection)
+        .addAll(raceDirections)
+        .build();
+  }
+
+  /** Whether forward and backward interpolation are raced against each other. */
+  boolean racesSequentialDirections() {
+    return raceSequentialDirections;
+  }
+
+  /**
+   * Compute a sequence of interpolants ITP(A,B) for the partitions A=[0 .. i] and B=[i+1 .. n].
+   * The formulas need to be unsatisfiable.
+   *
+   * @param pFormulas The formulas of the trace, in the order along the trace.
+   * @param pOrders Permutations of the indices of the formulas that define the order in which the
+   *     formulas are pushed onto the solver stack. The first order is the preferred one.
+   * @param pBackwards Whether backward interpolants should be computed (unless forward and backward
+   *     interpolation is raced).
+   * @return A list of (N-1) interpolants for N formulas.
+   */
+  List<BooleanFormula> getInterpolants(
+      List<BooleanFormula> pFormulas, List<int[]> pOrders, boolean pBackwards)
+      throws SolverException, InterruptedException {
+    checkArgument(!pOrders.isEmpty());
+    final Problem problem = new Problem(pFormulas);
+
+    List<Candidate> candidates = new ArrayList<>();
+    for (int[] order : pOrders) {
+      checkArgument(order.length == pFormulas.size());
+      candidates.add(new Candidate(order, pBackwards, candidates.isEmpty()));
+      if (raceSequentialDirections) {
+        candidates.add(new Candidate(order, !pBackwards, false));
+      }
+    }
+
+    List<String> interpolants;
+    if (candidates.size() == 1) {
+      interpolants = computeSplit(problem, candidates.get(0));
+    } else {
+      interpolants = computeRace(problem, candidates);
+    }
+
+    List<BooleanFormula> result = new ArrayList<>(interpolants.size());
+    for (String itp : interpolants) {
+      result.add(fmgr.parse(itp));
+    }
+    return result;
+  }
+
+  /** Distribute the interpolation queries of one candidate over all threads. */
+  private List<String> computeSplit(final Problem pProblem, final Candidate pCandidate)
+      throws SolverException, InterruptedException {
+    numSplitComputations++;
+    final int numInterpolants = pProblem.formulaDumps.size() - 1;
+    final String[] interpolants = new String[numInterpolants];
+    final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    // more chunks than threads for balancing the load
+    int numChunks = Math.min(2 * threads, numInterpolants);
+    List<Future<Void>> results = new ArrayList<>(numChunks);
+    for (int chunk = 0; chunk < numChunks; chunk++) {
+      final int from = chunk * numInterpolants / numChunks;
+      final int to = (chunk + 1) * numInterpolants / numChunks;
+      results.add(
+          pool.submit(
+              () -> {
+                List<String> itps = runOnWorker(pProblem, pCandidate, from, to, cancelled);
+                if (!cancelled.get()) {
+                  for (int i = from; i < to; i++) {
+                    interpolants[i] = itps.get(i - from);
+                  }
+                }
+                return null;
+              }));
+    }
+
+    try {
+      for (Future<Void> result : results) {
+        getResult(result);
+      }
+    } finally {
+      cancelled.set(true);
+    }
+    return Arrays.asList(interpolants);
+  }
+
+  /** Compute the full sequence for all candidates and return the first successful result. */
+  private List<String> computeRace(final Problem pProblem, List<Candidate> pCandidates)
+      throws SolverException, InterruptedException {
+    numRaces++;
+    final int numInterpolants = pProblem.formulaDumps.size() - 1;
+    final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    CompletionService<List<String>> completionService = new ExecutorCompletionService<>(pool);
+    List<Future<List<String>>> results = new ArrayList<>(pCandidates.size());
+    for (Candidate candidate : pCandidates) {
+      results.add(
+          completionService.submit(
+              () -> runOnWorker(pProblem, candidate, 0, numInterpolants, cancelled)));
+    }
+
+    try {
+      SolverException lastException = null;
+      for (int i = 0; i < results.size(); i++) {
+        Future<List<String>> result = completionService.take();
+        try {
+          List<String> interpolants = getResult(result);
+          Candidate winner = pCandidates.get(results.indexOf(result));
+          if (winner.backwards) {
+            numBackwardWins++;
+          }
+          if (!winner.isPreferredOrder) {
+            numReorderedWins++;
+          }
+          return interpolants;
+        } catch (SolverException e) {
+          numFailedRaceCandidates++;
+          logger.log(Level.ALL, "Interpolation failed for one candidate of the race:", e);
+          lastException = e;
+        }
+      }
+      throw lastException;
+
+    } finally {
+      // the remaining candidates stop before their next interpolation query
+      cancelled.set(true);
+    }
+  }
+
+  private static <T> T getResult(Future<T> pFuture) throws SolverException, InterruptedException {
+    try {
+      return pFuture.get();
+    } catch (ExecutionException e) {
+      Throwable t = e.getCause();
+      Throwables.propagateIfPossible(t, SolverException.class, InterruptedException.class);
+      throw new UnexpectedCheckedException("parallel interpolation", t);
+    }
+  }
+
+  private List<String> runOnWorker(
+      Problem pProblem, Candidate pCandidate, int pFrom, int pTo, AtomicBoolean pCancelled)
+      throws SolverException, InterruptedException {
+    Worker worker = idleWorkers.take();
+    try {
+      return worker.run(pProblem, pCandidate, pFrom, pTo, pCancelled);
+    } finally {
+      idleWorkers.add(worker);
+    }
+  }
+
+  void printStatistics(StatisticsWriter w) {
+    w.put("Number of parallel interpolations", numSplitComputations);
+    if (numRaces > 0) {
+      w.put("Number of interpolation races", numRaces);
+      w.beginLevel()
+          .put("Failed candidates", numFailedRaceCandidates)
+          .put("Won by backward interpolation", numBackwardWins)
+          .put("Won by other direction", numReorderedWins);
+    }
+  }
+
+  /** Interpolation problem in a form that can be transferred to other solver instances. */
+  private final class Problem {
+    private final ImmutableList<String> formulaDumps;
+
+    private Problem(List<BooleanFormula> pFormulas) {
+      ImmutableList.Builder<String> dumps = ImmutableList.builderWithExpectedSize(pFormulas.size());
+      for (BooleanFormula f : pFormulas) {
+        dumps.add(fmgr.dumpFormula(f).toString());
+      }
+      formulaDumps = dumps.build();
+    }
+  }
+
+  /** One variant of computing the interpolants for a problem. */
+  private static final class Candidate {
+    private final int[] order;
+    private final boolean backwards;
+    private final boolean isPreferredOrder;
+
+    private Candidate(int[] pOrder, boolean pBackwards, boolean pIsPreferredOrder) {
+      order = pOrder;
+      backwards = pBackwards;
+      isPreferredOrder = pIsPreferredOrder;
+    }
+  }
+
+  private static final class Worker {
+    private final Solver solver;
+    private final FormulaManagerView fmgr;
+    private final BooleanFormulaManagerView bfmgr;
+
+    // parsed version of the last problem, because usually each thread handles several tasks of it
+    private @Nullable Problem lastProblem = null;
+    private @Nullable List<BooleanFormula> formulas = null;
+
+    private Worker(Solver pSolver) {
+      solver = pSolver;
+      fmgr = pSolver.getFormulaManager();
+      bfmgr = fmgr.getBooleanFormulaManager();
+    }
+
+    /** Compute the interpolants with index from (inclusive) to (exclusive) and dump them. */
+    private List<String> run(
+        Problem pProblem, Candidate pCandidate, int pFrom, int pTo, AtomicBoolean pCancelled)
+        throws SolverException, InterruptedException {
+      if (pProblem != lastProblem) {
+        List<BooleanFormula> parsed = new ArrayList<>(pProblem.formulaDumps.size());
+        for (String dump : pProblem.formulaDumps) {
+          parsed.add(fmgr.parse(dump));
+        }
+        formulas = parsed;
+        lastProblem = pProblem;
+      }
+
+      try (InterpolatingProverEnvironment<?> prover =
+          solver.newProverEnvironmentWithInterpolation()) {
+        return interpolate(prover, pCandidate, pFrom, pTo, pCancelled);
+      }
+    }
+
+    private <T> List<String> interpolate(
+        InterpolatingProverEnvironment<T> pProver,
+        Candidate pCandidate,
+        int pFrom,
+        int pTo,
+        AtomicBoolean pCancelled)
+        throws SolverException, InterruptedException {
+      // interpolation groups are stored at the position of the formula along the trace
+      List<T> groups = new ArrayList<>(formulas.size());
+      groups.addAll(Collections.nCopies(formulas.size(), null));
+      for (int index : pCandidate.order) {
+        groups.set(index, pProver.push(formulas.get(index)));
+      }
+      if (!pProver.isUnsat()) {
+        throw new SolverException("Interpolation problem is satisfiable in parallel solver");
+      }
+
+      List<String> interpolants = new ArrayList<>(pTo - pFrom);
+      for (int i = pFrom; i < pTo; i++) {
+        if (pCancelled.get()) {
+          // result is not needed anymore
+          return ImmutableList.of();
+        }
+        BooleanFormula itp;
+        if (pCandidate.backwards) {
+          itp = bfmgr.not(pProver.getInterpolant(groups.subList(i + 1, groups.size())));
+        } else {
+          itp = pProver.getInterpolant(groups.subList(0, i + 1));
+        }
+        interpolants.add(fmgr.dumpFormula(itp).toString());
+      }
+      return interpolants;
+    }
+  }
+}
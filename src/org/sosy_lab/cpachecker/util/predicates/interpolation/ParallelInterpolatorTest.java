@@ -0,0 +1,149 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates.interpolation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.cpachecker.util.predicates.smt.SolverViewBasedTest0;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.InterpolatingProverEnvironment;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.java_smt.api.SolverException;
+
+public class ParallelInterpolatorTest extends SolverViewBasedTest0 {
+
+  private ParallelInterpolator parallelInterpolator;
+  private List<BooleanFormula> formulas;
+
+  @Before
+  public void setUp() throws Exception {
+    Configuration parallelConfig =
+        Configuration.builder()
+            .copyFrom(config)
+            .setOption("solver.solver", solverToUse().name())
+            .setOption("cpa.predicate.refinement.parallel.threads", "2")
+            .setOption("cpa.predicate.refinement.parallel.raceSequentialDirections", "true")
+            .build();
+    parallelInterpolator =
+        ParallelInterpolator.create(mgrv, parallelConfig, logger, ShutdownNotifier.createDummy());
+
+    // x0 = 0, x1 = x0 + 1, x2 = x1 + 1, x3 = x2 + 1, x3 > 5
+    formulas = new ArrayList<>();
+    IntegerFormula previous = imgrv.makeVariable("x", 0);
+    formulas.add(imgrv.equal(previous, imgrv.makeNumber(0)));
+    for (int i = 1; i <= 3; i++) {
+      IntegerFormula current = imgrv.makeVariable("x", i);
+      formulas.add(imgrv.equal(current, imgrv.add(previous, imgrv.makeNumber(1))));
+      previous = current;
+    }
+    formulas.add(imgrv.greaterThan(previous, imgrv.makeNumber(5)));
+  }
+
+  @After
+  public void closeParallelInterpolator() {
+    if (parallelInterpolator != null) {
+      parallelInterpolator.close();
+    }
+  }
+
+  private static int[] identity(int pSize) {
+    int[] order = new int[pSize];
+    for (int i = 0; i < pSize; i++) {
+      order[i] = i;
+    }
+    return order;
+  }
+
+  private List<BooleanFormula> getSequentialInterpolants()
+      throws SolverException, InterruptedException {
+    try (InterpolatingProverEnvironment<?> prover =
+        solver.newProverEnvironmentWithInterpolation()) {
+      return getSequentialInterpolants(prover);
+    }
+  }
+
+  private <T> List<BooleanFormula> getSequentialInterpolants(
+      InterpolatingProverEnvironment<T> pProver) throws SolverException, InterruptedException {
+    List<T> groups = new ArrayList<>();
+    for (BooleanFormula f : formulas) {
+      groups.add(pProver.push(f));
+    }
+    assertThat(pProver.isUnsat()).isTrue();
+    List<BooleanFormula> interpolants = new ArrayList<>();
+    for (int i = 0; i < formulas.size() - 1; i++) {
+      interpolants.add(pProver.getInterpolant(groups.subList(0, i + 1)));
+    }
+    return interpolants;
+  }
+
+  /** Check that each interpolant is implied by its prefix and inconsistent with its suffix. */
+  private void assertValidInterpolants(List<BooleanFormula> pInterpolants)
+      throws SolverException, InterruptedException {
+    assertThat(pInterpolants).hasSize(formulas.size() - 1);
+    for (int i = 0; i < pInterpolants.size(); i++) {
+      BooleanFormula prefix = bmgrv.and(formulas.subList(0, i + 1));
+      BooleanFormula suffix = bmgrv.and(formulas.subList(i + 1, formulas.size()));
+      assertThat(solver.implies(prefix, pInterpolants.get(i))).isTrue();
+      assertThat(solver.isUnsat(bmgrv.and(pInterpolants.get(i), suffix))).isTrue();
+    }
+  }
+
+  @Test
+  public void testParallelEqualsSequential() throws Exception {
+    assertThat(parallelInterpolator).isNotNull();
+    List<BooleanFormula> sequential = getSequentialInterpolants();
+    List<BooleanFormula> parallel =
+        parallelInterpolator.getInterpolants(
+            formulas, ImmutableList.of(identity(formulas.size())), false);
+
+    assertValidInterpolants(sequential);
+    assertValidInterpolants(parallel);
+    for (int i = 0; i < sequential.size(); i++) {
+      // the same solver on the same problem, thus the interpolants need to be equivalent
+      assertThat(solver.isUnsat(bmgrv.not(bmgrv.equivalence(sequential.get(i), parallel.get(i)))))
+          .isTrue();
+    }
+  }
+
+  @Test
+  public void testRaceOfOrders() throws Exception {
+    int[] reversed = new int[formulas.size()];
+    for (int i = 0; i < reversed.length; i++) {
+      reversed[i] = reversed.length - 1 - i;
+    }
+    List<BooleanFormula> parallel =
+        parallelInterpolator.getInterpolants(
+            formulas, ImmutableList.of(identity(formulas.size()), reversed), true);
+
+    assertValidInterpolants(parallel);
+  }
+}
@@ -25,11 +25,19 @@ package org.sosy_lab.cpachecker.util.predicates.pathformula;
 
 import static org.sosy_lab.cpachecker.util.statistics.StatisticsUtils.toPercent;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.IntegerOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
 import org.sosy_lab.common.time.Timer;
 import org.sosy_lab.cpachecker.cfa.ast.c.CExpression;
 import org.sosy_lab.cpachecker.cfa.ast.c.CIdExpression;
@@ -48,43 +56,161 @@ import org.sosy_lab.java_smt.api.Model.ValueAssignment;
 /**
  * Implementation of {@link PathFormulaManager} that delegates to another
  * instance but caches results of some methods.
+ *
+ * <p>The caches are indexed by the input path formula of an operation,
+ * and bounded by the number of path formulas.
+ * Optionally, the path formulas are referenced only weakly,
+ * such that entries are dropped as soon as the abstract states with the path formula
+ * are removed from the ARG (e.g., by refinements).
  */
+@Options(prefix = "cpa.predicate.pathFormulaCache")
 public class CachingPathFormulaManager implements PathFormulaManager {
 
+  /** Counters for one of the caches, overall and for the most recent lookups. */
+  private static final class CacheCounters {
+    private static final int WINDOW = 10000;
+
+    private int hits = 0;
+    private int misses = 0;
+    private int evictions = 0; // including entries collected by the garbage collector
+
+    private int windowHits = 0;
+    private int windowLookups = 0;
+    private int lastWindowHits = -1; // of the last complete window
+
+    private void count(boolean pHit) {
+      if (pHit) {
+        hits++;
+        windowHits++;
+      } else {
+        misses++;
+      }
+      if (++windowLookups == WINDOW) {
+        lastWindowHits = windowHits;
+        windowHits = 0;
+        windowLookups = 0;
+      }
+    }
+
+    @Override
+    public String toString() {
+      String result =
+          String.format(
+              "%d hits, %d misses, %d evictions (hit rate: %s",
+              hits, misses, evictions, toPercent(hits, hits + misses));
+      if (lastWindowHits >= 0) {
+        result += ", in last " + WINDOW + " lookups: " + toPercent(lastWindowHits, WINDOW);
+      }
+      return result + ")";
+    }
+  }
+
+  @Option(
+      secure = true,
+      description =
+          "maximum number of path formulas for which each cache of path-formula operations "
+              + "keeps results, least-recently used entries are evicted first (0 for no limit)")
+  @IntegerOption(min = 0)
+  private int maxEntries = 100000;
+
+  @Option(
+      secure = true,
+      description =
+          "reference the path formulas in the caches of path-formula operations only weakly, "
+              + "such that entries are dropped together with the abstract states "
+              + "(the caches then compare path formulas by identity)")
+  private boolean weakKeys = false;
+
   public final Timer pathFormulaComputationTimer = new Timer();
   public int pathFormulaCacheHits = 0;
 
   public final PathFormulaManager delegate;
 
-  private final Map<Pair<CFAEdge, PathFormula>, Pair<PathFormula, ErrorConditions>> andFormulaWithConditionsCache
-            = new HashMap<>();
-  private final Map<Pair<CFAEdge, PathFormula>, PathFormula> andFormulaCache
-            = new HashMap<>();
+  private final CacheCounters andFormulaWithConditionsCounters = new CacheCounters();
+  private final CacheCounters andFormulaCounters = new CacheCounters();
+  private final CacheCounters orFormulaCounters = new CacheCounters();
+  private final CacheCounters emptyFormulaCounters = new CacheCounters();
+
+  private final Cache<PathFormula, Map<CFAEdge, Pair<PathFormula, ErrorConditions>>>
+      andFormulaWithConditionsCache;
+  private final Cache<PathFormula, Map<CFAEdge, PathFormula>> andFormulaCache;
 
-  private final Map<Pair<PathFormula, PathFormula>, PathFormula> orFormulaCache
-            = new HashMap<>();
+  private final Cache<PathFormula, Map<PathFormula, PathFormula>> orFormulaCache;
 
-  private final Map<PathFormula, PathFormula> emptyFormulaCache
-            = new HashMap<>();
+  private final Cache<PathFormula, PathFormula> emptyFormulaCache;
 
   private final PathFormula emptyFormula;
 
   public CachingPathFormulaManager(PathFormulaManager pDelegate) {
     delegate = pDelegate;
     emptyFormula = delegate.makeEmptyPathFormula();
+    andFormulaWithConditionsCache = newCache(andFormulaWithConditionsCounters);
+    andFormulaCache = newCache(andFormulaCounters);
+    orFormulaCache = newCache(orFormulaCounters);
+    emptyFormulaCache = newCache(emptyFormulaCounters);
+  }
+
+  public CachingPathFormulaManager(PathFormulaManager pDelegate, Configuration pConfig)
+      throws InvalidConfigurationException {
+    pConfig.inject(this);
+    delegate = pDelegate;
+    emptyFormula = delegate.makeEmptyPathFormula();
+    andFormulaWithConditionsCache = newCache(andFormulaWithConditionsCounters);
+    andFormulaCache = newCache(andFormulaCounters);
+    orFormulaCache = newCache(orFormulaCounters);
+    emptyFormulaCache = newCache(emptyFormulaCounters);
+  }
+
+  private <V> Cache<PathFormula, V> newCache(CacheCounters pCounters) {
+    // The caches are accessed by a single thread,
+    // so a single segment gives us precise LRU eviction.
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .removalListener(
+                notification -> {
+                  if (notification.wasEvicted()) {
+                    pCounters.evictions++;
+                  }
+                });
+    if (maxEntries > 0) {
+      builder.maximumSize(maxEntries);
+    }
+    if (weakKeys) {
+      builder.weakKeys();
+    }
+    return builder.build();
+  }
+
+  private static <K, V> @Nullable V getFromCache(
+      Cache<PathFormula, Map<K, V>> pCache, PathFormula pFormula, K pKey) {
+    Map<K, V> results = pCache.getIfPresent(pFormula);
+    return results == null ? null : results.get(pKey);
+  }
+
+  private static <K, V> void putIntoCache(
+      Cache<PathFormula, Map<K, V>> pCache, PathFormula pFormula, K pKey, V pResult) {
+    Map<K, V> results = pCache.getIfPresent(pFormula);
+    if (results == null) {
+      // usually there are only few operations per path formula
+      results = new HashMap<>(4);
+      pCache.put(pFormula, results);
+    }
+    results.put(pKey, pResult);
   }
 
   @Override
   public Pair<PathFormula, ErrorConditions> makeAndWithErrorConditions(PathFormula pOldFormula, CFAEdge pEdge) throws CPATransferException, InterruptedException {
 
-    final Pair<CFAEdge, PathFormula> formulaCacheKey = Pair.of(pEdge, pOldFormula);
-    Pair<PathFormula, ErrorConditions> result = andFormulaWithConditionsCache.get(formulaCacheKey);
+    Pair<PathFormula, ErrorConditions> result =
+        getFromCache(andFormulaWithConditionsCache, pOldFormula, pEdge);
+    andFormulaWithConditionsCounters.count(result != null);
     if (result == null) {
       pathFormulaComputationTimer.start();
       // compute new pathFormula with the operation on the edge
       result = delegate.makeAndWithErrorConditions(pOldFormula, pEdge);
       pathFormulaComputationTimer.stop();
-      andFormulaWithConditionsCache.put(formulaCacheKey, result);
+      putIntoCache(andFormulaWithConditionsCache, pOldFormula, pEdge, result);
 
     } else {
       pathFormulaCacheHits++;
@@ -94,14 +220,14 @@ public class CachingPathFormulaManager implements PathFormulaManager {
 
   @Override
   public PathFormula makeAnd(PathFormula pOldFormula, CFAEdge pEdge) throws CPATransferException, InterruptedException {
-    final Pair<CFAEdge, PathFormula> formulaCacheKey = Pair.of(pEdge, pOldFormula);
-    PathFormula result = andFormulaCache.get(formulaCacheKey);
+    PathFormula result = getFromCache(andFormulaCache, pOldFormula, pEdge);
+    andFormulaCounters.count(result != null);
     if (result == null) {
       try {
       pathFormulaComputationTimer.start();
       // compute new pathFormula with the operation on the edge
       result = delegate.makeAnd(pOldFormula, pEdge);
-      andFormulaCache.put(formulaCacheKey, result);
+      putIntoCache(andFormulaCache, pOldFormula, pEdge, result);
       } finally {
         pathFormulaComputationTimer.stop();
       }
@@ -114,17 +240,16 @@ public class CachingPathFormulaManager implements PathFormulaManager {
 
   @Override
   public PathFormula makeOr(PathFormula pF1, PathFormula pF2) throws InterruptedException {
-    final Pair<PathFormula, PathFormula> formulaCacheKey = Pair.of(pF1, pF2);
-
-    PathFormula result = orFormulaCache.get(formulaCacheKey);
+    PathFormula result = getFromCache(orFormulaCache, pF1, pF2);
     if (result == null) {
       // try again with other order
-      result = orFormulaCache.get(Pair.of(pF2, pF1));
+      result = getFromCache(orFormulaCache, pF2, pF1);
     }
+    orFormulaCounters.count(result != null);
 
     if (result == null) {
       result = delegate.makeOr(pF1, pF2);
-      orFormulaCache.put(formulaCacheKey, result);
+      putIntoCache(orFormulaCache, pF1, pF2, result);
     } else {
       pathFormulaCacheHits++;
     }
@@ -138,7 +263,8 @@ public class CachingPathFormulaManager implements PathFormulaManager {
 
   @Override
   public PathFormula makeEmptyPathFormula(PathFormula pOldFormula) {
-    PathFormula result = emptyFormulaCache.get(pOldFormula);
+    PathFormula result = emptyFormulaCache.getIfPresent(pOldFormula);
+    emptyFormulaCounters.count(result != null);
     if (result == null) {
       result = delegate.makeEmptyPathFormula(pOldFormula);
       emptyFormulaCache.put(pOldFormula, result);
@@ -205,10 +331,10 @@ public class CachingPathFormulaManager implements PathFormulaManager {
 
   @Override
   public void clearCaches() {
-    andFormulaWithConditionsCache.clear();
-    andFormulaCache.clear();
-    orFormulaCache.clear();
-    emptyFormulaCache.clear();
+    andFormulaWithConditionsCache.invalidateAll();
+    andFormulaCache.invalidateAll();
+    orFormulaCache.invalidateAll();
+    emptyFormulaCache.invalidateAll();
     delegate.clearCaches();
   }
 
@@ -234,6 +360,11 @@ public class CachingPathFormulaManager implements PathFormulaManager {
             + " ("
             + toPercent(cacheHits, totalPathFormulaComputations)
             + ")");
+    printCacheCounters(out, "  makeAnd:                           ", andFormulaCounters);
+    printCacheCounters(
+        out, "  makeAndWithErrorConditions:        ", andFormulaWithConditionsCounters);
+    printCacheCounters(out, "  makeOr:                            ", orFormulaCounters);
+    printCacheCounters(out, "  makeEmptyPathFormula:              ", emptyFormulaCounters);
     out.println();
 
     out.println("Inside post operator:                  ");
@@ -244,6 +375,12 @@ public class CachingPathFormulaManager implements PathFormulaManager {
     delegate.printStatistics(out);
   }
 
+  private static void printCacheCounters(PrintStream out, String name, CacheCounters counters) {
+    if (counters.hits + counters.misses > 0) {
+      out.println(name + counters);
+    }
+  }
+
   @Override
   public BooleanFormula addBitwiseAxiomsIfNeeded(final BooleanFormula pMainFormula, final BooleanFormula pExtractionFormula) {
     return delegate.addBitwiseAxiomsIfNeeded(pMainFormula, pExtractionFormula);
@@ -0,0 +1,352 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates.pathformula;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Persistent (immutable) sparse array from non-negative int keys to int values, implemented as a
+ * trie with 32 children per node and path copying. The value 0 denotes an absent entry. Keys should
+ * be dense (like the ids of {@link SSAVariableInterner}) for a compact representation.
+ *
+ * <p>Operations on two arrays ({@link #equals(Object)} and {@link #merge}) skip subtrees that are
+ * shared by both arrays.
+ */
+final class PersistentIntArray {
+
+  /** Merge function for entries that are present with different values in both arrays. */
+  @FunctionalInterface
+  interface MergeFunction {
+    int merge(int key, int left, int right);
+  }
+
+  /** Visitor for entries, a value of 0 denotes an absent entry. */
+  @FunctionalInterface
+  interface EntryVisitor {
+    void visit(int key, int left, int right);
+  }
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final PersistentIntArray EMPTY = new PersistentIntArray(null, 0, 0);
+
+  // int[] if shift is 0, otherwise Object[] with the children (null for subtrees without entries)
+  private final @Nullable Object root;
+  private final int shift;
+  private final int size;
+
+  private PersistentIntArray(@Nullable Object pRoot, int pShift, int pSize) {
+    root = pRoot;
+    shift = pShift;
+    size = pSize;
+  }
+
+  static PersistentIntArray of() {
+    return EMPTY;
+  }
+
+  /** The number of entries with a non-zero value. */
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int get(int key) {
+    checkArgument(key >= 0);
+    if (root == null || (key >>> shift) >= WIDTH) {
+      return 0;
+    }
+    Object node = root;
+    for (int s = shift; s > 0; s -= BITS) {
+      node = ((Object[]) node)[(key >>> s) & MASK];
+      if (node == null) {
+        return 0;
+      }
+    }
+    return ((int[]) node)[key & MASK];
+  }
+
+  /** Return a copy of this array with the given entry changed (removed if the value is 0). */
+  PersistentIntArray set(int key, int value) {
+    int oldValue = get(key);
+    if (oldValue == value) {
+      return this;
+    }
+
+    Object newRoot = root;
+    int newShift = root == null ? 0 : shift;
+    while ((key >>> newShift) >= WIDTH) {
+      newRoot = grow(newRoot);
+      newShift += BITS;
+    }
+    newRoot = set(newRoot, newShift, key, value);
+
+    int newSize = size;
+    if (oldValue == 0) {
+      newSize++;
+    } else if (value == 0) {
+      newSize--;
+    }
+    return new PersistentIntArray(newRoot, newShift, newSize);
+  }
+
+  private static @Nullable Object grow(@Nullable Object node) {
+    if (node == null) {
+      return null;
+    }
+    Object[] newNode = new Object[WIDTH];
+    newNode[0] = node;
+    return newNode;
+  }
+
+  private static Object set(@Nullable Object node, int shift, int key, int value) {
+    if (shift == 0) {
+      int[] leaf = node == null ? new int[WIDTH] : ((int[]) node).clone();
+      leaf[key & MASK] = value;
+      return leaf;
+    }
+    Object[] inner = node == null ? new Object[WIDTH] : ((Object[]) node).clone();
+    int i = (key >>> shift) & MASK;
+    inner[i] = set(inner[i], shift - BITS, key, value);
+    return inner;
+  }
+
+  /** The root node extended to the given (larger or equal) height. */
+  private @Nullable Object rootWithShift(int pShift) {
+    Object node = root;
+    for (int s = shift; s < pShift; s += BITS) {
+      node = grow(node);
+    }
+    return node;
+  }
+
+  /** Visit all entries in the order of their keys (with 0 as the right value). */
+  void forEach(EntryVisitor visitor) {
+    forEach(root, shift, 0, visitor, false);
+  }
+
+  private static void forEach(
+      @Nullable Object node, int shift, int base, EntryVisitor visitor, boolean asRight) {
+    if (node == null) {
+      return;
+    }
+    if (shift == 0) {
+      int[] leaf = (int[]) node;
+      for (int i = 0; i < WIDTH; i++) {
+        if (leaf[i] != 0) {
+          if (asRight) {
+            visitor.visit(base + i, 0, leaf[i]);
+          } else {
+            visitor.visit(base + i, leaf[i], 0);
+          }
+        }
+      }
+    } else {
+      Object[] inner = (Object[]) node;
+      for (int i = 0; i < WIDTH; i++) {
+        forEach(inner[i], shift - BITS, base + (i << shift), visitor, asRight);
+      }
+    }
+  }
+
+  /**
+   * Merge two arrays. Entries that are present in only one array are taken from it, for entries
+   * with different values the merge function is used.
+   *
+   * @param differences Visitor that is called for each key with different values in both arrays
+   *     (0 for absent entries), or null.
+   */
+  static PersistentIntArray merge(
+      PersistentIntArray a,
+      PersistentIntArray b,
+      MergeFunction mergeFunction,
+      @Nullable EntryVisitor differences) {
+    if (a.root == b.root) {
+      return a;
+    }
+    int shift = Math.max(a.shift, b.shift);
+    Object rootA = a.rootWithShift(shift);
+    Object rootB = b.rootWithShift(shift);
+    int[] addedToA = new int[1];
+    Object root = mergeNodes(rootA, rootB, shift, 0, mergeFunction, differences, addedToA);
+    if (root == rootA && shift == a.shift) {
+      return a;
+    } else if (root == rootB && shift == b.shift) {
+      return b;
+    }
+    return new PersistentIntArray(root, shift, a.size + addedToA[0]);
+  }
+
+  private static @Nullable Object mergeNodes(
+      @Nullable Object a,
+      @Nullable Object b,
+      int shift,
+      int base,
+      MergeFunction mergeFunction,
+      @Nullable EntryVisitor differences,
+      int[] addedToA) {
+    if (a == b) {
+      return a;
+    } else if (b == null) {
+      if (differences != null) {
+        forEach(a, shift, base, differences, false);
+      }
+      return a;
+    } else if (a == null) {
+      forEach(
+          b,
+          shift,
+          base,
+          (key, left, right) -> {
+            addedToA[0]++;
+            if (differences != null) {
+              differences.visit(key, left, right);
+            }
+          },
+          true);
+      return b;
+    }
+
+    if (shift == 0) {
+      int[] leafA = (int[]) a;
+      int[] leafB = (int[]) b;
+      int[] result = null; // created lazily
+      for (int i = 0; i < WIDTH; i++) {
+        int valueA = leafA[i];
+        int valueB = leafB[i];
+        if (valueA == valueB) {
+          continue;
+        }
+        if (differences != null) {
+          differences.visit(base + i, valueA, valueB);
+        }
+        int value;
+        if (valueA == 0) {
+          addedToA[0]++;
+          value = valueB;
+        } else if (valueB == 0) {
+          value = valueA;
+        } else {
+          value = mergeFunction.merge(base + i, valueA, valueB);
+        }
+        if (value != valueA) {
+          if (result == null) {
+            result = leafA.clone();
+          }
+          result[i] = value;
+        }
+      }
+      if (result == null) {
+        return leafA;
+      }
+      return Arrays.equals(result, leafB) ? leafB : result;
+    }
+
+    Object[] innerA = (Object[]) a;
+    Object[] innerB = (Object[]) b;
+    Object[] result = null; // created lazily
+    for (int i = 0; i < WIDTH; i++) {
+      Object child =
+          mergeNodes(
+              innerA[i],
+              innerB[i],
+              shift - BITS,
+              base + (i << shift),
+              mergeFunction,
+              differences,
+              addedToA);
+      if (child != innerA[i]) {
+        if (result == null) {
+          result = innerA.clone();
+        }
+        result[i] = child;
+      }
+    }
+    if (result == null) {
+      return innerA;
+    }
+    return Arrays.equals(result, innerB) ? innerB : result; // compares children by identity
+  }
+
+  /** The hash code of an entry, the hash code of the array is the sum over all entries. */
+  static int entryHashCode(int key, int value) {
+    return (key * 0x9E3779B9) ^ value;
+  }
+
+  @Override
+  public int hashCode() {
+    int[] hashCode = new int[1];
+    forEach((key, value, unused) -> hashCode[0] += entryHashCode(key, value));
+    return hashCode[0];
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    } else if (!(obj instanceof PersistentIntArray)) {
+      return false;
+    }
+    PersistentIntArray other = (PersistentIntArray) obj;
+    if (size != other.size) {
+      return false;
+    }
+    int commonShift = Math.max(shift, other.shift);
+    return equalNodes(rootWithShift(commonShift), other.rootWithShift(commonShift), commonShift);
+  }
+
+  private static boolean equalNodes(@Nullable Object a, @Nullable Object b, int shift) {
+    if (a == b) {
+      return true;
+    } else if (a == null) {
+      return isEmpty(b, shift);
+    } else if (b == null) {
+      return isEmpty(a, shift);
+    } else if (shift == 0) {
+      return Arrays.equals((int[]) a, (int[]) b);
+    }
+    Object[] innerA = (Object[]) a;
+    Object[] innerB = (Object[]) b;
+    for (int i = 0; i < WIDTH; i++) {
+      if (!equalNodes(innerA[i], innerB[i], shift - BITS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isEmpty(Object node, int shift) {
+    boolean[] empty = {true};
+    forEach(node, shift, 0, (key, left, right) -> empty[0] = false, false);
+    return empty[0];
+  }
+}
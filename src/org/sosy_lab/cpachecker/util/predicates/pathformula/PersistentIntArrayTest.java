@@ -0,0 +1,119 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates.pathformula;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class PersistentIntArrayTest {
+
+  private static Map<Integer, Integer> toMap(PersistentIntArray pArray) {
+    Map<Integer, Integer> result = new TreeMap<>();
+    pArray.forEach((key, value, unused) -> result.put(key, value));
+    return result;
+  }
+
+  private static PersistentIntArray randomArray(Random random, Map<Integer, Integer> expected) {
+    PersistentIntArray array = PersistentIntArray.of();
+    for (int i = 0; i < 200; i++) {
+      int key = random.nextInt(random.nextBoolean() ? 40 : 5000);
+      int value = random.nextInt(4); // includes removals
+      array = array.set(key, value);
+      if (value == 0) {
+        expected.remove(key);
+      } else {
+        expected.put(key, value);
+      }
+    }
+    return array;
+  }
+
+  @Test
+  public void testSetAndGet() {
+    Random random = new Random(0);
+    for (int round = 0; round < 50; round++) {
+      Map<Integer, Integer> expected = new TreeMap<>();
+      PersistentIntArray array = randomArray(random, expected);
+      assertThat(toMap(array)).containsExactlyEntriesIn(expected).inOrder();
+      assertThat(array.size()).isEqualTo(expected.size());
+      for (int key = 0; key < 6000; key++) {
+        assertThat(array.get(key)).isEqualTo(expected.getOrDefault(key, 0));
+      }
+    }
+  }
+
+  @Test
+  public void testEquals() {
+    PersistentIntArray a = PersistentIntArray.of().set(3, 1).set(100, 2);
+    // different structure: grown to a larger height, entries removed again
+    PersistentIntArray b = PersistentIntArray.of().set(5000, 1).set(100, 2).set(3, 1).set(5000, 0);
+    assertThat(b).isEqualTo(a);
+    assertThat(b.hashCode()).isEqualTo(a.hashCode());
+    assertThat(a.set(3, 2)).isNotEqualTo(a);
+    assertThat(PersistentIntArray.of().set(7, 1).set(7, 0)).isEqualTo(PersistentIntArray.of());
+  }
+
+  @Test
+  public void testMerge() {
+    Random random = new Random(1);
+    for (int round = 0; round < 50; round++) {
+      Map<Integer, Integer> expected1 = new TreeMap<>();
+      Map<Integer, Integer> expected2 = new TreeMap<>();
+      PersistentIntArray a = randomArray(random, expected1);
+      PersistentIntArray b = random.nextBoolean() ? randomArray(random, expected2) : a;
+      if (b == a) {
+        expected2.putAll(expected1);
+      }
+
+      Map<Integer, Integer> expected = new TreeMap<>(expected1);
+      expected2.forEach((key, value) -> expected.merge(key, value, Math::max));
+      List<List<Integer>> expectedDifferences = new ArrayList<>();
+      for (int key : expected.keySet()) {
+        int left = expected1.getOrDefault(key, 0);
+        int right = expected2.getOrDefault(key, 0);
+        if (left != right) {
+          expectedDifferences.add(List.of(key, left, right));
+        }
+      }
+
+      List<List<Integer>> differences = new ArrayList<>();
+      PersistentIntArray merged =
+          PersistentIntArray.merge(
+              a,
+              b,
+              (key, left, right) -> Math.max(left, right),
+              (key, left, right) -> differences.add(List.of(key, left, right)));
+
+      assertThat(toMap(merged)).containsExactlyEntriesIn(expected).inOrder();
+      assertThat(merged.size()).isEqualTo(expected.size());
+      assertThat(differences).containsExactlyElementsIn(expectedDifferences).inOrder();
+    }
+  }
+}
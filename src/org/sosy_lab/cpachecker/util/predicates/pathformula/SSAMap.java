@@ -24,18 +24,22 @@
 package org.sosy_lab.cpachecker.util.predicates.pathformula;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static org.sosy_lab.cpachecker.util.predicates.pathformula.PersistentIntArray.entryHashCode;
 
-import com.google.common.base.Equivalence;
-import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.collect.MapsDifference;
-import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
-import org.sosy_lab.common.collect.PersistentSortedMap;
-import org.sosy_lab.common.collect.PersistentSortedMaps;
 import org.sosy_lab.common.collect.PersistentSortedMaps.MergeConflictHandler;
 import org.sosy_lab.cpachecker.cfa.types.c.CComplexType;
 import org.sosy_lab.cpachecker.cfa.types.c.CComplexType.ComplexTypeKind;
@@ -43,11 +47,15 @@ import org.sosy_lab.cpachecker.cfa.types.c.CElaboratedType;
 import org.sosy_lab.cpachecker.cfa.types.c.CFunctionType;
 import org.sosy_lab.cpachecker.cfa.types.c.CPointerType;
 import org.sosy_lab.cpachecker.cfa.types.c.CType;
-import org.sosy_lab.cpachecker.cfa.types.c.CTypes;
 
 /**
  * Maps a variable name to its latest "SSA index", that should be used when
  * referring to that variable.
+ *
+ * <p>Variables and their types are stored by their ids in {@link SSAVariableInterner},
+ * such that lookups, comparisons, and merges are operations on ints.
+ * Methods that return or visit variable names use the natural order of the names,
+ * like a sorted map would.
  */
 public class SSAMap implements Serializable {
 
@@ -97,13 +105,12 @@ public class SSAMap implements Serializable {
   public static class SSAMapBuilder {
 
     private SSAMap ssa;
-    private PersistentSortedMap<String, Integer> vars; // Do not update without updating varsHashCode!
+    private PersistentIntArray vars; // Do not update without updating varsHashCode!
     private FreshValueProvider freshValueProvider;
-    private PersistentSortedMap<String, CType> varTypes;
+    private PersistentIntArray varTypes;
 
     // Instead of computing vars.hashCode(),
-    // we calculate the hashCode ourselves incrementally
-    // (this is possible because a Map's hashCode is clearly defined).
+    // we calculate the hashCode ourselves incrementally.
     private int varsHashCode;
 
     private SSAMapBuilder(SSAMap ssa) {
@@ -125,7 +132,7 @@ public class SSAMap implements Serializable {
     }
 
     public CType getType(String name) {
-      return varTypes.get(name);
+      return SSAMap.getType(name, varTypes);
     }
 
     @SuppressWarnings("CheckReturnValue")
@@ -136,19 +143,21 @@ public class SSAMap implements Serializable {
 
       type = type.getCanonicalType();
       assert !(type instanceof CFunctionType) : "Variable " + name + " has function type " + type;
-      CType oldType = varTypes.get(name);
-      if (oldType != null) {
-        TYPE_CONFLICT_CHECKER.resolveConflict(name, oldType, type);
+      int id = SSAVariableInterner.internName(name);
+      int oldTypeId = varTypes.get(id);
+      if (oldTypeId != 0) {
+        TYPE_CONFLICT_CHECKER.resolveConflict(name, SSAVariableInterner.getType(oldTypeId), type);
       } else {
-        varTypes = varTypes.putAndCopy(name, type);
+        varTypes = varTypes.set(id, SSAVariableInterner.internType(type));
       }
 
       if (idx > oldIdx || idx == ssa.defaultValue) {
-        vars = vars.putAndCopy(name, idx);
-        if (oldIdx != ssa.defaultValue) {
-          varsHashCode -= mapEntryHashCode(name, oldIdx);
+        int storedIdx = vars.get(id);
+        vars = vars.set(id, idx);
+        if (storedIdx != 0) {
+          varsHashCode -= entryHashCode(id, storedIdx);
         }
-        varsHashCode += mapEntryHashCode(name, idx);
+        varsHashCode += entryHashCode(id, idx);
       }
 
       return this;
@@ -159,19 +168,22 @@ public class SSAMap implements Serializable {
     }
 
     public SSAMapBuilder deleteVariable(String variable) {
-      int index = getIndex(variable);
-      if (index != ssa.defaultValue) {
-        vars = vars.removeAndCopy(variable);
-        varsHashCode -= mapEntryHashCode(variable, index);
-
-        varTypes = varTypes.removeAndCopy(variable);
+      int id = SSAVariableInterner.lookupName(variable);
+      if (id >= 0) {
+        int storedIdx = vars.get(id);
+        if (storedIdx != 0) {
+          vars = vars.set(id, 0);
+          varsHashCode -= entryHashCode(id, storedIdx);
+
+          varTypes = varTypes.set(id, 0);
+        }
       }
 
       return this;
     }
 
     public NavigableSet<String> allVariables() {
-      return varTypes.keySet();
+      return sortedNames(varTypes);
     }
 
     /**
@@ -185,21 +197,13 @@ public class SSAMap implements Serializable {
       ssa = new SSAMap(vars, freshValueProvider, varsHashCode, varTypes, ssa.defaultValue);
       return ssa;
     }
-
-    /**
-     * Not-null safe copy of {@link SimpleImmutableEntry#hashCode()}
-     * for Object-to-int maps.
-     */
-    private static int mapEntryHashCode(Object key, int value) {
-      return key.hashCode() ^ value;
-    }
   }
 
   private static final SSAMap EMPTY_SSA_MAP = new SSAMap(
-      PathCopyingPersistentTreeMap.of(),
+      PersistentIntArray.of(),
       new FreshValueProvider(),
       0,
-      PathCopyingPersistentTreeMap.of());
+      PersistentIntArray.of());
 
   /**
    * Returns an empty immutable SSAMap.
@@ -216,7 +220,8 @@ public class SSAMap implements Serializable {
    * Creates an unmodifiable SSAMap that contains all indices from two SSAMaps.
    * If there are conflicting indices, the maximum of both is used.
    * Further returns a list with all variables for which different indices
-   * were found, together with the two conflicting indices.
+   * were found, together with the two conflicting indices
+   * (in the natural order of the variable names).
    */
   public static SSAMap merge(
       SSAMap s1, SSAMap s2, MapsDifference.Visitor<String, Integer> collectDifferences) {
@@ -228,47 +233,75 @@ public class SSAMap implements Serializable {
     // probably never be the case on a merge.
 
     checkArgument(s1.defaultValue == s2.defaultValue);
-    PersistentSortedMap<String, Integer> vars;
-    FreshValueProvider freshValueProvider;
-    int defaultIndex;
     if (s1.vars == s2.vars && s1.freshValueProvider == s2.freshValueProvider) {
       // both are absolutely identical
       return s1;
-
-    } else {
-      vars =
-          PersistentSortedMaps.merge(
-              s1.vars,
-              s2.vars,
-              Equivalence.equals(),
-              PersistentSortedMaps.getMaximumMergeConflictHandler(),
-              collectDifferences);
-      freshValueProvider = s1.freshValueProvider.merge(s2.freshValueProvider);
-      defaultIndex = s1.defaultValue;
     }
 
-    PersistentSortedMap<String, CType> varTypes =
-        PersistentSortedMaps.merge(
+    // each difference is a triple of variable id, index in s1, and index in s2 (0 for absent)
+    final List<int[]> differences = new ArrayList<>();
+    final int[] varsHashCode = {s1.varsHashCode};
+    PersistentIntArray vars =
+        PersistentIntArray.merge(
+            s1.vars,
+            s2.vars,
+            (id, idx1, idx2) -> Math.max(idx1, idx2),
+            (id, idx1, idx2) -> {
+              differences.add(new int[] {id, idx1, idx2});
+              if (idx2 > idx1) {
+                // merged map contains the index of s2
+                if (idx1 != 0) {
+                  varsHashCode[0] -= entryHashCode(id, idx1);
+                }
+                varsHashCode[0] += entryHashCode(id, idx2);
+              }
+            });
+    FreshValueProvider freshValueProvider = s1.freshValueProvider.merge(s2.freshValueProvider);
+
+    // types are interned in their canonical form, so equal ids mean equal canonical types
+    PersistentIntArray varTypes =
+        PersistentIntArray.merge(
             s1.varTypes,
             s2.varTypes,
-            CTypes.canonicalTypeEquivalence(),
-            TYPE_CONFLICT_CHECKER,
-            MapsDifference.ignoreMapsDifference());
+            (id, type1, type2) -> {
+              TYPE_CONFLICT_CHECKER.resolveConflict(
+                  SSAVariableInterner.getName(id),
+                  SSAVariableInterner.getType(type1),
+                  SSAVariableInterner.getType(type2));
+              return type1;
+            },
+            null);
+
+    // report differences in a deterministic order that does not depend on the ids
+    differences.sort(Comparator.comparing(d -> SSAVariableInterner.getName(d[0])));
+    for (int[] difference : differences) {
+      String name = SSAVariableInterner.getName(difference[0]);
+      if (difference[1] == 0) {
+        collectDifferences.rightValueOnly(name, difference[2]);
+      } else if (difference[2] == 0) {
+        collectDifferences.leftValueOnly(name, difference[1]);
+      } else {
+        collectDifferences.differingValues(name, difference[1], difference[2]);
+      }
+    }
 
-    return new SSAMap(vars, freshValueProvider, 0, varTypes, defaultIndex);
+    return new SSAMap(vars, freshValueProvider, varsHashCode[0], varTypes, s1.defaultValue);
   }
 
-  private final PersistentSortedMap<String, Integer> vars;
+  private final PersistentIntArray vars; // variable id -> index (0 if absent)
   private final FreshValueProvider freshValueProvider;
-  private final PersistentSortedMap<String, CType> varTypes;
+  private final PersistentIntArray varTypes; // variable id -> type id (0 if absent)
 
   // Cache hashCode of potentially big map
   private final int varsHashCode;
 
-  private SSAMap(PersistentSortedMap<String, Integer> vars,
+  // sorted names of the variables, computed lazily
+  private transient volatile @Nullable ImmutableSortedSet<String> variables = null;
+
+  private SSAMap(PersistentIntArray vars,
                  FreshValueProvider freshValueProvider,
                  int varsHashCode,
-                 PersistentSortedMap<String, CType> varTypes,
+                 PersistentIntArray varTypes,
                  int defaultSSAIdx) {
     this.vars = vars;
     this.freshValueProvider = freshValueProvider;
@@ -284,10 +317,10 @@ public class SSAMap implements Serializable {
     defaultValue = defaultSSAIdx;
   }
 
-  private SSAMap(PersistentSortedMap<String, Integer> vars,
+  private SSAMap(PersistentIntArray vars,
                  FreshValueProvider freshValueProvider,
                  int varsHashCode,
-                 PersistentSortedMap<String, CType> varTypes) {
+                 PersistentIntArray varTypes) {
     this(vars, freshValueProvider, varsHashCode, varTypes, DEFAULT_DEFAULT_IDX);
   }
 
@@ -298,14 +331,33 @@ public class SSAMap implements Serializable {
     return new SSAMapBuilder(this);
   }
 
-  private static int getIndex(String variable, Map<String, Integer> vars, int defaultValue) {
-    Integer value = vars.get(variable);
-    if (value == null) {
+  private static int getIndex(String variable, PersistentIntArray vars, int defaultValue) {
+    int id = SSAVariableInterner.lookupName(variable);
+    if (id < 0) {
+      return defaultValue;
+    }
+    int value = vars.get(id);
+    if (value == 0) {
       return defaultValue;
     }
     return value;
   }
 
+  private static @Nullable CType getType(String name, PersistentIntArray varTypes) {
+    int id = SSAVariableInterner.lookupName(name);
+    if (id < 0) {
+      return null;
+    }
+    int typeId = varTypes.get(id);
+    return typeId == 0 ? null : SSAVariableInterner.getType(typeId);
+  }
+
+  private static ImmutableSortedSet<String> sortedNames(PersistentIntArray pArray) {
+    ImmutableSortedSet.Builder<String> names = ImmutableSortedSet.naturalOrder();
+    pArray.forEach((id, value, unused) -> names.add(SSAVariableInterner.getName(id)));
+    return names.build();
+  }
+
   /**
    * @return index of the variable in the map,
    * or the [defaultValue].
@@ -315,22 +367,33 @@ public class SSAMap implements Serializable {
   }
 
   public boolean containsVariable(String variable) {
-    return vars.containsKey(variable);
+    int id = SSAVariableInterner.lookupName(variable);
+    return id >= 0 && vars.get(id) != 0;
   }
 
   public CType getType(String name) {
-    return varTypes.get(name);
+    return getType(name, varTypes);
   }
 
   public NavigableSet<String> allVariables() {
-    return vars.keySet();
+    ImmutableSortedSet<String> result = variables;
+    if (result == null) {
+      result = sortedNames(vars);
+      variables = result;
+    }
+    return result;
   }
 
-  private static final Joiner joiner = Joiner.on(" ");
-
   @Override
   public String toString() {
-    return joiner.join(vars.entrySet());
+    StringBuilder sb = new StringBuilder();
+    for (String variable : allVariables()) {
+      if (sb.length() > 0) {
+        sb.append(' ');
+      }
+      sb.append(variable).append('=').append(getIndex(variable));
+    }
+    return sb.toString();
   }
 
   @Override
@@ -352,4 +415,60 @@ public class SSAMap implements Serializable {
           && freshValueProvider.equals(other.freshValueProvider);
     }
   }
+
+  private Object writeReplace() {
+    return new SerialProxy(this);
+  }
+
+  /**
+   * javadoc to remove unused parameter warning
+   *
+   * @param in the input stream
+   */
+  @SuppressWarnings("UnusedVariable") // parameter is required by API
+  private void readObject(ObjectInputStream in) throws IOException {
+    throw new InvalidObjectException("Proxy required");
+  }
+
+  /**
+   * Stores the variables by their names, because the ids are only valid in the current JVM.
+   */
+  private static class SerialProxy implements Serializable {
+    private static final long serialVersionUID = -3392167413563294387L;
+
+    private final ImmutableMap<String, Integer> vars;
+    private final ImmutableMap<String, CType> varTypes;
+    private final FreshValueProvider freshValueProvider;
+    private final int defaultValue;
+
+    SerialProxy(SSAMap pSsa) {
+      ImmutableMap.Builder<String, Integer> varsBuilder = ImmutableMap.builder();
+      pSsa.vars.forEach(
+          (id, idx, unused) -> varsBuilder.put(SSAVariableInterner.getName(id), idx));
+      vars = varsBuilder.build();
+      ImmutableMap.Builder<String, CType> typesBuilder = ImmutableMap.builder();
+      pSsa.varTypes.forEach(
+          (id, typeId, unused) ->
+              typesBuilder.put(
+                  SSAVariableInterner.getName(id), SSAVariableInterner.getType(typeId)));
+      varTypes = typesBuilder.build();
+      freshValueProvider = pSsa.freshValueProvider;
+      defaultValue = pSsa.defaultValue;
+    }
+
+    private Object readResolve() {
+      PersistentIntArray newVars = PersistentIntArray.of();
+      for (Map.Entry<String, Integer> entry : vars.entrySet()) {
+        newVars = newVars.set(SSAVariableInterner.internName(entry.getKey()), entry.getValue());
+      }
+      PersistentIntArray newVarTypes = PersistentIntArray.of();
+      for (Map.Entry<String, CType> entry : varTypes.entrySet()) {
+        newVarTypes =
+            newVarTypes.set(
+                SSAVariableInterner.internName(entry.getKey()),
+                SSAVariableInterner.internType(entry.getValue()));
+      }
+      return new SSAMap(newVars, freshValueProvider, 0, newVarTypes, defaultValue);
+    }
+  }
 }
@@ -0,0 +1,114 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates.pathformula;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import org.sosy_lab.cpachecker.cfa.types.c.CType;
+
+/**
+ * Global table that assigns dense int ids to the names of the variables in {@link SSAMap}s and to
+ * their types, such that SSAMaps can be represented with int-to-int structures. The table is shared
+ * by all analyses in the JVM and is thread-safe. Entries are never removed, but the number of
+ * distinct names and types is bounded by the analyzed programs.
+ */
+final class SSAVariableInterner {
+
+  private SSAVariableInterner() {}
+
+  private static final Table<String> names = new Table<>(0);
+
+  // ids start at 1 such that 0 can denote an absent type in a PersistentIntArray
+  private static final Table<CType> types = new Table<>(1);
+
+  /** Return the id of the name, assigning a new id if necessary. */
+  static int internName(String pName) {
+    return names.intern(pName);
+  }
+
+  /** Return the id of the name, or -1 if it has no id (and is thus not in any SSAMap). */
+  static int lookupName(String pName) {
+    return names.lookup(pName);
+  }
+
+  static String getName(int pId) {
+    return names.get(pId);
+  }
+
+  /** Return the (positive) id of the type, assigning a new id if necessary. */
+  static int internType(CType pType) {
+    return types.intern(pType);
+  }
+
+  static CType getType(int pId) {
+    return types.get(pId);
+  }
+
+  private static final class Table<T> {
+
+    private final int firstId;
+    private final ConcurrentHashMap<T, Integer> ids = new ConcurrentHashMap<>();
+
+    // values by id (shifted by firstId), replaced when it needs to grow
+    private volatile Object[] values = new Object[1024];
+    private int size = 0; // guarded by this
+
+    private Table(int pFirstId) {
+      firstId = pFirstId;
+    }
+
+    private int lookup(T pValue) {
+      Integer id = ids.get(pValue);
+      return id == null ? -1 : id;
+    }
+
+    private int intern(T pValue) {
+      Integer id = ids.get(pValue);
+      if (id != null) {
+        return id;
+      }
+      synchronized (this) {
+        id = ids.get(pValue);
+        if (id != null) {
+          return id;
+        }
+        Object[] newValues = values;
+        if (size == newValues.length) {
+          newValues = Arrays.copyOf(newValues, 2 * size);
+        }
+        newValues[size] = pValue;
+        values = newValues; // publish value before id
+        int newId = firstId + size;
+        size++;
+        ids.put(pValue, newId);
+        return newId;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int pId) {
+      return (T) values[pId - firstId];
+    }
+  }
+}
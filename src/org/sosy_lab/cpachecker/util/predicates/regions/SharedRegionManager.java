@@ -0,0 +1,365 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates.regions;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.sosy_lab.cpachecker.util.statistics.StatisticsWriter.writingStatisticsTo;
+
+import com.google.common.primitives.ImmutableIntArray;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.time.TimeSpan;
+import org.sosy_lab.cpachecker.util.Triple;
+import org.sosy_lab.cpachecker.util.predicates.PredicateOrderingStrategy;
+import org.sosy_lab.cpachecker.util.predicates.smt.FormulaManagerView;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.SolverException;
+
+/**
+ * RegionManager that can be shared by several analyses that run in parallel threads. If the
+ * delegate is not thread-safe, all accesses to it (including the accesses of the {@link
+ * RegionBuilder}s) are sequentialized. The manager counts its users and operations, and how long
+ * the threads had to wait for each other.
+ *
+ * <p>Only the BDD library itself is shared. The mapping from predicates to BDD variables is kept
+ * by the {@link org.sosy_lab.cpachecker.util.predicates.AbstractionManager} of each analysis, so
+ * every analysis still creates its own BDD variables, even for predicates that another analysis
+ * already knows, and regions of different analyses must not be combined. Sharing thus mainly saves
+ * the memory of several BDD libraries, not the work of building the same BDDs again.
+ */
+public class SharedRegionManager implements RegionManager {
+
+  private final RegionManager delegate;
+  private final @Nullable Lock lock;
+
+  private final AtomicInteger users = new AtomicInteger();
+  private final LongAdder operations = new LongAdder();
+  private final LongAdder contendedOperations = new LongAdder();
+  private final LongAdder lockWaitTime = new LongAdder();
+
+  /**
+   * Create a shared region manager.
+   *
+   * @param pDelegate the actual region manager
+   * @param pThreadSafe whether the actual region manager can be used from several threads at once
+   */
+  public SharedRegionManager(RegionManager pDelegate, boolean pThreadSafe) {
+    delegate = pDelegate;
+    lock = pThreadSafe ? null : new ReentrantLock();
+  }
+
+  /** Register another analysis that uses this region manager. */
+  public void addUser() {
+    users.incrementAndGet();
+  }
+
+  private void lock() {
+    operations.increment();
+    if (lock != null && !lock.tryLock()) {
+      long start = System.nanoTime();
+      lock.lock();
+      lockWaitTime.add(System.nanoTime() - start);
+      contendedOperations.increment();
+    }
+  }
+
+  private void unlock() {
+    if (lock != null) {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public RegionBuilder builder(ShutdownNotifier pShutdownNotifier) {
+    lock();
+    try {
+      return new SharedRegionBuilder(delegate.builder(pShutdownNotifier));
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region makeTrue() {
+    lock();
+    try {
+      return delegate.makeTrue();
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region makeFalse() {
+    lock();
+    try {
+      return delegate.makeFalse();
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region makeNot(Region pF) {
+    lock();
+    try {
+      return delegate.makeNot(pF);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region makeAnd(Region pF1, Region pF2) {
+    lock();
+    try {
+      return delegate.makeAnd(pF1, pF2);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region makeOr(Region pF1, Region pF2) {
+    lock();
+    try {
+      return delegate.makeOr(pF1, pF2);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region makeEqual(Region pF1, Region pF2) {
+    lock();
+    try {
+      return delegate.makeEqual(pF1, pF2);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region makeUnequal(Region pF1, Region pF2) {
+    lock();
+    try {
+      return delegate.makeUnequal(pF1, pF2);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region makeIte(Region pF1, Region pF2, Region pF3) {
+    lock();
+    try {
+      return delegate.makeIte(pF1, pF2, pF3);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region makeExists(Region pF1, Region... pF2) {
+    lock();
+    try {
+      return delegate.makeExists(pF1, pF2);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public boolean entails(Region pF1, Region pF2) throws SolverException, InterruptedException {
+    lock();
+    try {
+      return delegate.entails(pF1, pF2);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region createPredicate() {
+    lock();
+    try {
+      return delegate.createPredicate();
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region fromFormula(
+      BooleanFormula pF, FormulaManagerView pFmgr, Function<BooleanFormula, Region> pAtomToRegion) {
+    lock();
+    try {
+      return delegate.fromFormula(pF, pFmgr, pAtomToRegion);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Triple<Region, Region, Region> getIfThenElse(Region pF) {
+    lock();
+    try {
+      return delegate.getIfThenElse(pF);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public void printStatistics(PrintStream pOut) {
+    writingStatisticsTo(pOut)
+        .put("Number of analyses sharing the BDD library", users.get())
+        .put("Number of operations on the shared BDD library", operations.sum())
+        .putIf(
+            lock != null,
+            "Number of operations waiting for other threads",
+            contendedOperations.sum())
+        .putIf(
+            lock != null,
+            "Time waiting for other threads",
+            TimeSpan.ofNanos(lockWaitTime.sum()).formatAs(SECONDS));
+    lock();
+    try {
+      delegate.printStatistics(pOut);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public String getVersion() {
+    return delegate.getVersion();
+  }
+
+  @Override
+  public void setVarOrder(ImmutableIntArray pOrder) {
+    lock();
+    try {
+      delegate.setVarOrder(pOrder);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public void reorder(PredicateOrderingStrategy pStrategy) {
+    lock();
+    try {
+      delegate.reorder(pStrategy);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Override
+  public Region replace(Region pRegion, Region[] pOldPredicates, Region[] pNewPredicates) {
+    lock();
+    try {
+      return delegate.replace(pRegion, pOldPredicates, pNewPredicates);
+    } finally {
+      unlock();
+    }
+  }
+
+  /** RegionBuilder that uses the same lock as its region manager. */
+  private class SharedRegionBuilder implements RegionBuilder {
+
+    private final RegionBuilder delegateBuilder;
+
+    private SharedRegionBuilder(RegionBuilder pDelegateBuilder) {
+      delegateBuilder = pDelegateBuilder;
+    }
+
+    @Override
+    public void startNewConjunction() {
+      lock();
+      try {
+        delegateBuilder.startNewConjunction();
+      } finally {
+        unlock();
+      }
+    }
+
+    @Override
+    public void addPositiveRegion(Region pR) {
+      lock();
+      try {
+        delegateBuilder.addPositiveRegion(pR);
+      } finally {
+        unlock();
+      }
+    }
+
+    @Override
+    public void addNegativeRegion(Region pR) {
+      lock();
+      try {
+        delegateBuilder.addNegativeRegion(pR);
+      } finally {
+        unlock();
+      }
+    }
+
+    @Override
+    public void finishConjunction() {
+      lock();
+      try {
+        delegateBuilder.finishConjunction();
+      } finally {
+        unlock();
+      }
+    }
+
+    @Override
+    public Region getResult() throws InterruptedException {
+      lock();
+      try {
+        return delegateBuilder.getResult();
+      } finally {
+        unlock();
+      }
+    }
+
+    @Override
+    public void close() {
+      lock();
+      try {
+        delegateBuilder.close();
+      } finally {
+        unlock();
+      }
+    }
+  }
+}
@@ -28,9 +28,13 @@ import static org.sosy_lab.java_smt.api.SolverContext.ProverOptions.GENERATE_UNS
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Verify;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,11 +43,15 @@ import java.util.Set;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.sosy_lab.common.ShutdownNotifier;
 import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.IntegerOption;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
 import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.common.time.Timer;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.util.jfr.SolverCallEvent;
 import org.sosy_lab.cpachecker.util.predicates.interpolation.SeparateInterpolatingProverEnvironment;
 import org.sosy_lab.cpachecker.util.predicates.ufCheckingProver.UFCheckingBasicProverEnvironment.UFCheckingProverOptions;
 import org.sosy_lab.cpachecker.util.predicates.ufCheckingProver.UFCheckingInterpolatingProverEnvironment;
@@ -102,6 +110,33 @@ public final class Solver implements AutoCloseable {
               + "otherwise nothing is logged from the solver.")
   private boolean enableLoggingInSolver = false;
 
+  @Option(
+      secure = true,
+      description =
+          "Share the results of satisfiability checks between all solver instances "
+              + "that exist at the same time, e.g., between the analyses of a parallel "
+              + "portfolio. Formulas are identified by a hash of their SMT-LIB representation. "
+              + "The results are dropped when the last solver is closed, "
+              + "use solver.sharedCache.file to keep them for later solvers.")
+  private boolean sharedCache = false;
+
+  @Option(
+      secure = true,
+      name = "sharedCache.maxEntries",
+      description = "maximum number of entries of the shared solver cache")
+  @IntegerOption(min = 1)
+  private int sharedCacheMaxEntries = 1000000;
+
+  @Option(
+      secure = true,
+      name = "sharedCache.file",
+      description =
+          "file from which the shared solver cache is read and to which it is written "
+              + "when the solvers are closed, such that it can be reused by later runs "
+              + "(implies solver.sharedCache)")
+  @FileOption(FileOption.Type.OPTIONAL_INPUT_FILE)
+  private @Nullable Path sharedCacheFile = null;
+
   private final @Nullable UFCheckingProverOptions ufCheckingProverOptions;
 
   private final FormulaManagerView fmgr;
@@ -125,13 +160,22 @@ public final class Solver implements AutoCloseable {
   private final Map<Object, Map<Set<BooleanFormula>, Boolean>>
       groupedUnsatCache = new HashMap<>();
 
+  /**
+   * Cache that is shared with other solver instances and threads (null if disabled).
+   * It is only used if the (cheaper) caches above do not contain the result.
+   */
+  private final @Nullable SolverQueryCache sharedUnsatCache;
+
   private final LogManager logger;
+  private final LogManager sharedCacheLogger;
 
   // stats
   public final Timer solverTime = new Timer();
   public int satChecks = 0;
   public int trivialSatChecks = 0;
   public int cachedSatChecks = 0;
+  public int sharedCacheHits = 0; // included in cachedSatChecks
+  public int sharedCacheMisses = 0;
 
   private Solver(
       Configuration config,
@@ -175,6 +219,16 @@ public final class Solver implements AutoCloseable {
     } else {
       ufCheckingProverOptions = null;
     }
+
+    sharedCacheLogger = pLogger;
+    sharedUnsatCache = acquireSharedCache(pLogger);
+  }
+
+  private @Nullable SolverQueryCache acquireSharedCache(LogManager pLogger) {
+    if (sharedCache || sharedCacheFile != null) {
+      return SolverQueryCache.acquire(sharedCacheFile, sharedCacheMaxEntries, pLogger);
+    }
+    return null;
   }
 
   /**
@@ -220,6 +274,9 @@ public final class Solver implements AutoCloseable {
     } else {
       ufCheckingProverOptions = null;
     }
+
+    sharedCacheLogger = pLogger;
+    sharedUnsatCache = acquireSharedCache(pLogger);
   }
 
   /**
@@ -375,11 +432,29 @@ public final class Solver implements AutoCloseable {
       return result;
     }
 
+    SolverCallEvent event = SolverCallEvent.start("isUnsat");
     solverTime.start();
     try {
+      HashCode fingerprint = null;
+      if (sharedUnsatCache != null) {
+        fingerprint = SolverQueryCache.fingerprint(fmgr.dumpFormula(f).toString());
+        result = sharedUnsatCache.get(fingerprint);
+        if (result != null) {
+          sharedCacheHits++;
+          cachedSatChecks++;
+          unsatCache.put(f, result);
+          return result;
+        }
+        sharedCacheMisses++;
+      }
+
       result = isUnsatUncached(f);
+      event.commit(null, result);
 
       unsatCache.put(f, result);
+      if (fingerprint != null) {
+        sharedUnsatCache.put(fingerprint, result);
+      }
       return result;
 
     } finally {
@@ -438,6 +513,23 @@ public final class Solver implements AutoCloseable {
       stored = new HashMap<>(stored);
     }
 
+    HashCode fingerprint = null;
+    if (sharedUnsatCache != null) {
+      fingerprint =
+          SolverQueryCache.fingerprint(
+              Lists.transform(
+                  ImmutableList.copyOf(lemmas), lemma -> fmgr.dumpFormula(lemma).toString()));
+      Boolean sharedResult = sharedUnsatCache.get(fingerprint);
+      if (sharedResult != null) {
+        sharedCacheHits++;
+        cachedSatChecks++;
+        stored.put(ImmutableSet.copyOf(lemmas), sharedResult);
+        groupedUnsatCache.put(cacheKey, ImmutableMap.copyOf(stored));
+        return sharedResult;
+      }
+      sharedCacheMisses++;
+    }
+
     ProverOptions[] opts;
     if (cacheUnsatCores) {
       opts = new ProverOptions[]{GENERATE_UNSAT_CORE};
@@ -445,12 +537,18 @@ public final class Solver implements AutoCloseable {
       opts = new ProverOptions[0];
     }
 
+    SolverCallEvent event = SolverCallEvent.start("isUnsat");
     try (ProverEnvironment pe = newProverEnvironment(opts)){
       pe.push();
       for (BooleanFormula lemma : lemmas) {
         pe.addConstraint(lemma);
       }
-      if (pe.isUnsat()) {
+      boolean unsat = pe.isUnsat();
+      event.commit(cacheKey instanceof CFANode ? (CFANode) cacheKey : null, unsat);
+      if (fingerprint != null) {
+        sharedUnsatCache.put(fingerprint, unsat);
+      }
+      if (unsat) {
         if (cacheUnsatCores) {
           stored.put(ImmutableSet.copyOf(pe.getUnsatCore()), true);
         } else {
@@ -531,6 +629,10 @@ public final class Solver implements AutoCloseable {
     // such that no exception gets lost and both managers get closed.
     // Taken from https://stackoverflow.com/questions/24705055/wrapping-multiple-autocloseables
     // Guava has Closer, but it does not yet support AutoCloseables.
+    if (sharedUnsatCache != null) {
+      sharedUnsatCache.release(sharedCacheLogger);
+    }
+
     Throwable t = null;
     try {
       solvingContext.close();
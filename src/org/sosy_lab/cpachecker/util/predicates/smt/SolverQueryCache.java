@@ -0,0 +1,209 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates.smt;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.log.LogManager;
+
+/**
+ * Cache for the results of satisfiability checks that is shared by all {@link Solver} instances (of
+ * all threads) that use the same cache file (or no cache file). Formulas are identified by a
+ * fingerprint of their SMT-LIB representation, such that entries can be used by solvers with
+ * different solver contexts, e.g., by the analyses of a parallel portfolio.
+ *
+ * <p>If a file is given, the cache is read from it when it is created, and written to it whenever
+ * the last solver that uses the cache is closed. Afterwards the cache is discarded, later solvers
+ * start with the content of the file (or with an empty cache if there is no file). The file starts
+ * with a header and contains a sequence of records, each consisting of the 128-bit fingerprint and
+ * the result. An incomplete record at the end of the file is discarded.
+ */
+final class SolverQueryCache {
+
+  private static final int FILE_MAGIC = 0x53514331; // "SQC1"
+  private static final int FILE_VERSION = 1;
+  private static final int KEY_SIZE = 16;
+
+  // guarded by SolverQueryCache.class
+  private static final Map<Optional<Path>, SolverQueryCache> instances = new HashMap<>();
+
+  private final @Nullable Path file;
+  private final int maxSize;
+  private final Cache<HashCode, Boolean> cache;
+
+  // number of solvers using this cache, guarded by SolverQueryCache.class
+  private int users = 0;
+
+  private SolverQueryCache(@Nullable Path pFile, int pMaxSize) {
+    file = pFile;
+    maxSize = pMaxSize;
+    cache = CacheBuilder.newBuilder().maximumSize(pMaxSize).build();
+  }
+
+  /**
+   * Get the cache for the given file and register a new user of it. The cache is created if
+   * necessary, in this case the given size limit is used. If the cache is already in use with a
+   * different size limit, the existing limit is kept and a warning is logged. Each call needs to be
+   * followed by a call to {@link #release(LogManager)}.
+   */
+  static synchronized SolverQueryCache acquire(
+      @Nullable Path pFile, int pMaxSize, LogManager pLogger) {
+    SolverQueryCache instance = instances.get(Optional.ofNullable(pFile));
+    if (instance != null && instance.maxSize != pMaxSize) {
+      pLogger.logf(
+          Level.WARNING,
+          "Shared solver cache%s is already used with a limit of %d entries, "
+              + "ignoring the configured limit of %d entries.",
+          pFile == null ? "" : " for file " + pFile,
+          instance.maxSize,
+          pMaxSize);
+    } else if (instance == null) {
+      instance = new SolverQueryCache(pFile, pMaxSize);
+      if (pFile != null && Files.exists(pFile)) {
+        try {
+          instance.readFile();
+        } catch (IOException e) {
+          pLogger.logUserException(
+              Level.WARNING, e, "Could not read solver cache, starting with an empty cache");
+        }
+      }
+      instances.put(Optional.ofNullable(pFile), instance);
+    }
+    instance.users++;
+    return instance;
+  }
+
+  /**
+   * Unregister a user of this cache. If it was the last one, the cache is written to its file and
+   * discarded.
+   *
+   * @param pLogger The logger of the user, used for reporting problems when writing the file.
+   */
+  void release(LogManager pLogger) {
+    synchronized (SolverQueryCache.class) {
+      users--;
+      if (users > 0) {
+        return;
+      }
+      instances.remove(Optional.ofNullable(file));
+      if (file == null) {
+        return;
+      }
+      try {
+        writeFile();
+      } catch (IOException e) {
+        pLogger.logUserException(Level.WARNING, e, "Could not write solver cache");
+      }
+    }
+  }
+
+  /** Compute the fingerprint of a formula from its SMT-LIB representation. */
+  static HashCode fingerprint(String pFormula) {
+    return Hashing.murmur3_128().hashString(pFormula, UTF_8);
+  }
+
+  /**
+   * Compute the fingerprint of the conjunction of several formulas from their SMT-LIB
+   * representations. The order of the formulas is irrelevant.
+   */
+  static HashCode fingerprint(Collection<String> pFormulas) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    String[] formulas = pFormulas.toArray(new String[0]);
+    Arrays.sort(formulas);
+    for (String formula : formulas) {
+      hasher.putString(formula, UTF_8).putByte((byte) 0);
+    }
+    return hasher.hash();
+  }
+
+  /** Return whether the formula with the given fingerprint is unsat, or null if unknown. */
+  @Nullable Boolean get(HashCode pFingerprint) {
+    return cache.getIfPresent(pFingerprint);
+  }
+
+  void put(HashCode pFingerprint, boolean pIsUnsat) {
+    cache.put(pFingerprint, pIsUnsat);
+  }
+
+  long size() {
+    return cache.size();
+  }
+
+  private void readFile() throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+        throw new IOException("File " + file + " is not a solver cache of a supported version");
+      }
+      byte[] key = new byte[KEY_SIZE];
+      while (true) {
+        try {
+          in.readFully(key);
+          boolean isUnsat = in.readBoolean();
+          cache.put(HashCode.fromBytes(key.clone()), isUnsat);
+        } catch (EOFException e) {
+          break; // end of file, or incomplete record
+        }
+      }
+    }
+  }
+
+  private void writeFile() throws IOException {
+    Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+    if (file.toAbsolutePath().getParent() != null) {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+      out.writeInt(FILE_MAGIC);
+      out.writeInt(FILE_VERSION);
+      for (Map.Entry<HashCode, Boolean> entry : cache.asMap().entrySet()) {
+        out.write(entry.getKey().asBytes());
+        out.writeBoolean(entry.getValue());
+      }
+    }
+    Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates.smt;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sosy_lab.common.log.LogManager;
+
+public class SolverQueryCacheTest {
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final LogManager logger = LogManager.createTestLogManager();
+
+  private final HashCode key1 = SolverQueryCache.fingerprint("(assert a)");
+  private final HashCode key2 = SolverQueryCache.fingerprint(ImmutableList.of("a", "b"));
+
+  @Test
+  public void testFingerprintIgnoresOrder() {
+    assertThat(SolverQueryCache.fingerprint(ImmutableList.of("b", "a"))).isEqualTo(key2);
+    assertThat(SolverQueryCache.fingerprint(ImmutableList.of("ab"))).isNotEqualTo(key2);
+  }
+
+  @Test
+  public void testSharedBetweenUsers() {
+    Path file = tempFolder.getRoot().toPath().resolve("shared.bin");
+    SolverQueryCache cache1 = SolverQueryCache.acquire(file, 10, logger);
+    SolverQueryCache cache2 = SolverQueryCache.acquire(file, 10, logger);
+    assertThat(cache2).isSameInstanceAs(cache1);
+
+    cache1.put(key1, true);
+    assertThat(cache2.get(key1)).isTrue();
+    assertThat(cache2.get(key2)).isNull();
+
+    cache1.release(logger);
+    assertThat(Files.exists(file)).isFalse(); // still in use
+    cache2.release(logger);
+    assertThat(Files.exists(file)).isTrue();
+  }
+
+  @Test
+  public void testDiscardedAfterLastRelease() {
+    SolverQueryCache cache1 = SolverQueryCache.acquire(null, 10, logger);
+    cache1.put(key1, true);
+    cache1.release(logger);
+
+    SolverQueryCache cache2 = SolverQueryCache.acquire(null, 10, logger);
+    assertThat(cache2).isNotSameInstanceAs(cache1);
+    assertThat(cache2.get(key1)).isNull();
+    cache2.release(logger);
+  }
+
+  @Test
+  public void testConflictingSizeKeepsExistingLimit() {
+    SolverQueryCache cache1 = SolverQueryCache.acquire(null, 1, logger);
+    SolverQueryCache cache2 = SolverQueryCache.acquire(null, 10, logger);
+    assertThat(cache2).isSameInstanceAs(cache1);
+
+    cache2.put(key1, true);
+    cache2.put(key2, true);
+    assertThat(cache2.size()).isEqualTo(1);
+    cache1.release(logger);
+    cache2.release(logger);
+  }
+
+  @Test
+  public void testReadFromFile() throws IOException {
+    Path file = tempFolder.getRoot().toPath().resolve("first.bin");
+    SolverQueryCache cache = SolverQueryCache.acquire(file, 10, logger);
+    cache.put(key1, true);
+    cache.put(key2, false);
+    cache.release(logger);
+
+    // a copy, such that the original file is not modified
+    Path copy = tempFolder.getRoot().toPath().resolve("second.bin");
+    Files.copy(file, copy);
+    // add an incomplete record
+    Files.write(copy, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+    SolverQueryCache loaded = SolverQueryCache.acquire(copy, 10, logger);
+    assertThat(loaded.size()).isEqualTo(2);
+    assertThat(loaded.get(key1)).isTrue();
+    assertThat(loaded.get(key2)).isFalse();
+    loaded.release(logger);
+  }
+}
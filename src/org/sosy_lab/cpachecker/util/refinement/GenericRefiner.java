@@ -55,6 +55,7 @@ import org.sosy_lab.cpachecker.cpa.arg.path.ARGPath;
 import org.sosy_lab.cpachecker.exceptions.CPAException;
 import org.sosy_lab.cpachecker.exceptions.RefinementFailedException;
 import org.sosy_lab.cpachecker.exceptions.RefinementFailedException.Reason;
+import org.sosy_lab.cpachecker.util.jfr.RefinementEvent;
 import org.sosy_lab.cpachecker.util.statistics.StatCounter;
 import org.sosy_lab.cpachecker.util.statistics.StatInt;
 import org.sosy_lab.cpachecker.util.statistics.StatKind;
@@ -191,6 +192,7 @@ public abstract class GenericRefiner<S extends ForgetfulState<?>, I extends Inte
     }
 
     logger.log(Level.FINEST, "performing refinement ...");
+    RefinementEvent event = RefinementEvent.start();
     refinementTime.start();
     refinementCounter.inc();
     numberOfTargets.setNextValue(targets.size());
@@ -202,6 +204,8 @@ public abstract class GenericRefiner<S extends ForgetfulState<?>, I extends Inte
     }
 
     refinementTime.stop();
+    event.setSpurious(cex.isSpurious());
+    event.commit(this, targetPathToUse);
     logger.log(Level.FINEST, "refinement finished");
     return cex;
   }
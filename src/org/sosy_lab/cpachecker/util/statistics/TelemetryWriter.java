@@ -0,0 +1,258 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2020  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.statistics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import javax.management.JMException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.sosy_lab.common.Concurrency;
+import org.sosy_lab.common.JSON;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.configuration.TimeSpanOption;
+import org.sosy_lab.common.io.IO;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.common.time.TimeSpan;
+import org.sosy_lab.cpachecker.core.interfaces.Statistics;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.util.resources.ProcessCpuTime;
+
+/**
+ * This class periodically writes a snapshot of the current state of the analysis to a file while
+ * the analysis is running, such that long-running analyses can be observed (and killed early if
+ * they are hopeless) and slowdowns can be correlated with memory usage.
+ *
+ * <p>The output file contains one JSON object per line. Each object contains the time since the
+ * start of the analysis, the sizes of the reached set and the waitlist, memory and cpu usage, and
+ * one nested object per group of statistics that provides values via {@link
+ * Statistics#collectTelemetry(Map)}. The last line is written when the analysis stops and has the
+ * field "final" set to true.
+ *
+ * <p>Like {@link org.sosy_lab.cpachecker.util.resources.ResourceLimitChecker}, the snapshots are
+ * taken by a separate daemon thread, so the analysis itself is not slowed down except for the
+ * (short) time the snapshot takes.
+ */
+@Options(prefix = "statistics.telemetry")
+public final class TelemetryWriter {
+
+  @Option(
+      secure = true,
+      description =
+          "write periodic snapshots of analysis progress (iterations, reached-set size, "
+              + "refinements, solver time, heap usage etc.) as JSON lines to this file "
+              + "while the analysis is running")
+  @FileOption(FileOption.Type.OUTPUT_FILE)
+  private @Nullable Path file = null;
+
+  @Option(
+      secure = true,
+      description =
+          "interval between two snapshots of analysis progress "
+              + "(use seconds or specify a unit)")
+  @TimeSpanOption(codeUnit = TimeUnit.MILLISECONDS, defaultUserUnit = TimeUnit.SECONDS, min = 1)
+  private TimeSpan interval = TimeSpan.ofSeconds(10);
+
+  private final LogManager logger;
+
+  public TelemetryWriter(Configuration pConfig, LogManager pLogger)
+      throws InvalidConfigurationException {
+    pConfig.inject(this);
+    logger = checkNotNull(pLogger);
+  }
+
+  /**
+   * Start writing snapshots for an analysis. The returned session needs to be closed when the
+   * analysis stops. If no output file is configured, nothing is written.
+   *
+   * @param pReached the reached set of the analysis (only its sizes are read)
+   * @param pStatistics the statistics that should be asked for values, the collection is copied
+   */
+  public Session start(UnmodifiableReachedSet pReached, Collection<Statistics> pStatistics) {
+    if (file == null) {
+      return () -> {};
+    }
+    Writer out;
+    try {
+      out = IO.openOutputFile(file, UTF_8);
+    } catch (IOException e) {
+      logger.logUserException(Level.WARNING, e, "Could not write telemetry to file");
+      return () -> {};
+    }
+    TelemetrySession session =
+        new TelemetrySession(out, pReached, ImmutableList.copyOf(pStatistics));
+    session.thread.start();
+    return session;
+  }
+
+  /** A running instance of the telemetry writer, needs to be closed when the analysis stops. */
+  public interface Session extends AutoCloseable {
+
+    /**
+     * Stop writing snapshots after writing a final one. Blocks until this is done (even if the
+     * current thread is interrupted, which is typically the case after a timeout).
+     */
+    @Override
+    void close();
+  }
+
+  private class TelemetrySession implements Session, Runnable {
+
+    private final Writer out;
+    private final UnmodifiableReachedSet reached;
+    private final ImmutableList<Statistics> statistics;
+    private final Thread thread;
+
+    // Stopping is signaled with a latch instead of Thread.interrupt(),
+    // because an interrupt would close the channel of the output file.
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final long startTime = System.nanoTime();
+    private boolean writeFailed = false;
+
+    TelemetrySession(
+        Writer pOut, UnmodifiableReachedSet pReached, ImmutableList<Statistics> pStatistics) {
+      out = pOut;
+      reached = pReached;
+      statistics = pStatistics;
+      thread = Concurrency.newDaemonThread("CPAchecker telemetry writer", this);
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!stopped.await(interval.asMillis(), TimeUnit.MILLISECONDS)) {
+          writeSnapshot(false);
+        }
+      } catch (InterruptedException e) {
+        // nobody except us has access to this thread, but stop in any case
+      }
+      // The final snapshot is written from this thread, too, because the analysis thread
+      // is typically interrupted after a timeout and could thus not write to the file.
+      writeSnapshot(true);
+      try {
+        out.close();
+      } catch (IOException e) {
+        logger.logUserException(Level.WARNING, e, "Could not write telemetry to file");
+      }
+    }
+
+    @Override
+    public void close() {
+      stopped.countDown();
+      Uninterruptibles.joinUninterruptibly(thread);
+    }
+
+    private void writeSnapshot(boolean isFinal) {
+      if (writeFailed) {
+        return;
+      }
+      Map<String, Object> snapshot = new LinkedHashMap<>();
+      snapshot.put("time", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+      if (isFinal) {
+        snapshot.put("final", true);
+      }
+
+      try {
+        snapshot.put("reachedSetSize", reached.size());
+        snapshot.put("waitlistSize", reached.getWaitlist().size());
+      } catch (RuntimeException e) {
+        // The reached set is not thread-safe, if it is modified concurrently
+        // we just skip the sizes for this snapshot.
+        logger.logDebugException(e, "Could not read size of reached set for telemetry");
+      }
+
+      collectMemoryUsage(snapshot);
+
+      for (Statistics stats : statistics) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        try {
+          stats.collectTelemetry(values);
+        } catch (RuntimeException e) {
+          logger.logDebugException(e, "Could not collect telemetry of " + stats.getName());
+          continue;
+        }
+        if (!values.isEmpty()) {
+          String name = stats.getName();
+          snapshot.put(name != null ? name : stats.getClass().getSimpleName(), values);
+        }
+      }
+
+      try {
+        JSON.writeJSONString(snapshot, out);
+        out.write('\n');
+        out.flush();
+      } catch (IOException e) {
+        writeFailed = true;
+        logger.logUserException(Level.WARNING, e, "Could not write telemetry to file");
+      }
+    }
+
+    private void collectMemoryUsage(Map<String, Object> snapshot) {
+      try {
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        snapshot.put("heapUsed", heap.getUsed());
+        snapshot.put("heapCommitted", heap.getCommitted());
+        snapshot.put("heapMax", heap.getMax());
+      } catch (IllegalArgumentException e) {
+        // Java 11 bug, cf. MemoryStatistics
+      }
+
+      long gcTime = 0;
+      long gcCount = 0;
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+        gcTime += Math.max(gc.getCollectionTime(), 0);
+        gcCount += Math.max(gc.getCollectionCount(), 0);
+      }
+      snapshot.put("gcTime", gcTime);
+      snapshot.put("gcCount", gcCount);
+
+      try {
+        snapshot.put("cpuTime", TimeUnit.NANOSECONDS.toMillis(ProcessCpuTime.read()));
+      } catch (JMException e) {
+        // not supported on this platform
+      }
+    }
+  }
+}